@@ -1,12 +1,14 @@
 package br.edu.ifba.inf008;
 
 import br.edu.ifba.inf008.shell.Core;
+import br.edu.ifba.inf008.shell.util.StartupTrace;
 
 /**
  * Hello world!
  */
 public class App {
     public static void main(String[] args) {
+        StartupTrace.mark("main");
         Core.init();
     }
 }
@@ -2,6 +2,7 @@ package br.edu.ifba.inf008.shell;
 
 import br.edu.ifba.inf008.interfaces.IAuthenticationController;
 import br.edu.ifba.inf008.interfaces.ICore;
+import br.edu.ifba.inf008.interfaces.IEventBus;
 import br.edu.ifba.inf008.interfaces.IIOController;
 import br.edu.ifba.inf008.interfaces.IPluginController;
 import br.edu.ifba.inf008.interfaces.IUIController;
@@ -37,6 +38,10 @@ public class Core extends ICore
     public IPluginController getPluginController() {
         return pluginController;
     }
+    @Override
+    public IEventBus getEventBus() {
+        return EventBus.getInstance();
+    }
 
     private IAuthenticationController authenticationController = new AuthenticationController();
     private IIOController ioController = new IOController();
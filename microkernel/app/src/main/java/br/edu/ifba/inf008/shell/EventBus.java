@@ -0,0 +1,170 @@
+package br.edu.ifba.inf008.shell;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import br.edu.ifba.inf008.interfaces.IEventBus;
+import br.edu.ifba.inf008.interfaces.ISubscription;
+import br.edu.ifba.inf008.shell.util.DaemonThreadFactory;
+
+/**
+ * Barramento de eventos do núcleo, exposto aos plugins por {@code ICore.getEventBus()}.
+ * <p>
+ * Publicar não usa locks: a lista de assinantes é copy-on-write e cada assinante tem uma fila
+ * sem lock limitada a {@code -Dbookstore.events.queue_capacity} eventos (padrão 1024). Quem
+ * enche a fila perde os eventos novos, contados em {@link ISubscription#getDroppedCount()}, sem
+ * atrasar quem publica nem os outros assinantes. Cada fila é esvaziada por uma tarefa de cada
+ * vez no executor do assinante, o que mantém a ordem dos eventos.
+ */
+public class EventBus implements IEventBus {
+  public static final int QUEUE_CAPACITY = Integer.getInteger("bookstore.events.queue_capacity", 1024);
+  private static final int THREADS = 2;
+  /** Eventos entregues por tarefa antes de devolver a thread ao executor. */
+  private static final int DRAIN_BATCH = 64;
+
+  private static final EventBus INSTANCE = new EventBus(createExecutor(), QUEUE_CAPACITY);
+
+  private final Executor defaultExecutor;
+  private final int queueCapacity;
+  private final List<Subscriber<?>> subscribers = new CopyOnWriteArrayList<>();
+
+  public EventBus(Executor defaultExecutor, int queueCapacity) {
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("queueCapacity must be at least 1");
+    }
+    this.defaultExecutor = defaultExecutor;
+    this.queueCapacity = queueCapacity;
+  }
+
+  public static EventBus getInstance() {
+    return INSTANCE;
+  }
+
+  @Override
+  public void publish(Object event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event must not be null");
+    }
+    for (Subscriber<?> subscriber : subscribers) {
+      subscriber.offer(event);
+    }
+  }
+
+  @Override
+  public <E> ISubscription subscribe(Class<E> eventType, Consumer<? super E> handler) {
+    return subscribe(eventType, defaultExecutor, handler);
+  }
+
+  @Override
+  public <E> ISubscription subscribe(Class<E> eventType, Executor executor, Consumer<? super E> handler) {
+    Subscriber<E> subscriber = new Subscriber<>(eventType, executor, handler);
+    subscribers.add(subscriber);
+    return subscriber;
+  }
+
+  /**
+   * Cancela as assinaturas cujo handler ou tipo de evento veio de {@code classLoader}; usado ao
+   * descarregar um plugin, para que o barramento não segure as classes dele.
+   */
+  public int unsubscribeAll(ClassLoader classLoader) {
+    int closed = 0;
+    for (Subscriber<?> subscriber : subscribers) {
+      if (subscriber.handler.getClass().getClassLoader() == classLoader
+          || subscriber.eventType.getClassLoader() == classLoader) {
+        subscriber.close();
+        closed++;
+      }
+    }
+    return closed;
+  }
+
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  private static ExecutorService createExecutor() {
+    return Executors.newFixedThreadPool(THREADS, new DaemonThreadFactory("bookstore-events"));
+  }
+
+  private final class Subscriber<E> implements ISubscription {
+    private final Class<E> eventType;
+    private final Executor executor;
+    private final Consumer<? super E> handler;
+    private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    Subscriber(Class<E> eventType, Executor executor, Consumer<? super E> handler) {
+      this.eventType = eventType;
+      this.executor = executor;
+      this.handler = handler;
+    }
+
+    void offer(Object event) {
+      if (closed || !eventType.isInstance(event)) {
+        return;
+      }
+      if (queued.incrementAndGet() > queueCapacity) {
+        queued.decrementAndGet();
+        dropped.incrementAndGet();
+        return;
+      }
+      queue.add(eventType.cast(event));
+      scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+      if (!draining.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        draining.set(false);
+      }
+    }
+
+    private void drain() {
+      for (int i = 0; i < DRAIN_BATCH && !closed; i++) {
+        E event = queue.poll();
+        if (event == null) {
+          break;
+        }
+        queued.decrementAndGet();
+        try {
+          handler.accept(event);
+        } catch (RuntimeException e) {
+          System.err.println("Event handler failed for " + event + ": " + e.getMessage());
+        }
+      }
+      draining.set(false);
+      if (!queue.isEmpty() && !closed) {
+        scheduleDrain();
+      }
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      subscribers.remove(this);
+      queue.clear();
+    }
+
+    @Override
+    public long getDroppedCount() {
+      return dropped.get();
+    }
+  }
+}
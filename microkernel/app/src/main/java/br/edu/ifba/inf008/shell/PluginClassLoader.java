@@ -0,0 +1,66 @@
+package br.edu.ifba.inf008.shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Class loader de um único plugin, para que ele possa ser recarregado ou descarregado sem
+ * reiniciar o shell.
+ * <p>
+ * Lê uma cópia do JAR, e não o arquivo de {@code ./plugins}: assim o JAR pode ser substituído
+ * enquanto o plugin roda, e o cache de {@code JarURLConnection} do JDK não devolve o conteúdo
+ * da versão anterior. A cópia é apagada em {@link #close()}.
+ */
+public class PluginClassLoader extends URLClassLoader {
+  static {
+    registerAsParallelCapable();
+  }
+
+  private final File source;
+  private final Path copy;
+  private final PluginManifest manifest;
+
+  private PluginClassLoader(File source, Path copy, PluginManifest manifest, ClassLoader parent) throws IOException {
+    super("plugin-" + manifest.id(), new URL[] {copy.toUri().toURL()}, parent);
+    this.source = source;
+    this.copy = copy;
+    this.manifest = manifest;
+  }
+
+  public static PluginClassLoader open(File jar, ClassLoader parent) throws IOException {
+    String baseName = jar.getName().split("\\.")[0];
+    Path copy = Files.createTempFile("bookstore-" + baseName + "-", ".jar");
+    try {
+      Files.copy(jar.toPath(), copy, StandardCopyOption.REPLACE_EXISTING);
+      copy.toFile().deleteOnExit();
+      PluginManifest manifest = PluginManifest.read(copy.toFile(), baseName);
+      return new PluginClassLoader(jar, copy, manifest, parent);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(copy);
+      throw e;
+    }
+  }
+
+  /** JAR em {@code ./plugins} de onde este plugin veio. */
+  public File getSource() {
+    return source;
+  }
+
+  public PluginManifest getManifest() {
+    return manifest;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      Files.deleteIfExists(copy);
+    }
+  }
+}
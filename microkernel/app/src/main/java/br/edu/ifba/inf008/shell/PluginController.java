@@ -1,56 +1,605 @@
 package br.edu.ifba.inf008.shell;
 
 import java.io.File;
-import java.io.FilenameFilter;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import br.edu.ifba.inf008.App;
+import br.edu.ifba.inf008.interfaces.ICore;
 import br.edu.ifba.inf008.interfaces.IPlugin;
 import br.edu.ifba.inf008.interfaces.IPluginController;
+import br.edu.ifba.inf008.interfaces.IUIController;
+import br.edu.ifba.inf008.shell.PluginManifest.Card;
+import br.edu.ifba.inf008.shell.PluginManifest.MenuEntry;
+import br.edu.ifba.inf008.shell.PluginStartupReport.Entry;
+import br.edu.ifba.inf008.shell.PluginStartupReport.Status;
+import br.edu.ifba.inf008.shell.persistence.JPAUtil;
+import br.edu.ifba.inf008.shell.util.DaemonThreadFactory;
+import br.edu.ifba.inf008.shell.util.IconHelper;
+import br.edu.ifba.inf008.shell.util.StartupTrace;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.control.MenuItem;
+import javafx.scene.image.ImageView;
 
+/**
+ * Carrega os plugins de {@code ./plugins} em paralelo.
+ * <p>
+ * Cada JAR declara no manifesto o seu id e de quais plugins depende (ver {@link PluginManifest}).
+ * A classe e o {@link IPlugin#load()} de cada plugin rodam num pool de trabalho
+ * ({@code -Dbookstore.plugins.init_threads}) assim que as dependências terminaram; só o
+ * {@link IPlugin#init()}, que registra a interface, volta para a thread do JavaFX. O banco é
+ * aquecido uma única vez, junto com os plugins, e um {@link PluginStartupReport} com os tempos
+ * de cada um é impresso no fim.
+ * <p>
+ * Plugins cujo manifesto descreve card e menus ({@link PluginManifest#isLazy()}) não são
+ * carregados na partida: o shell desenha o card e os itens de menu a partir do manifesto e só
+ * carrega a classe e chama {@code init()} quando um deles é usado pela primeira vez. O
+ * {@code init()} do plugin substitui esses itens pelos seus, e a ação pedida é então repassada.
+ * Com {@code -Dbookstore.plugins.activation=eager} todos são ativados na partida, como no
+ * treino do arquivo AppCDS, que precisa carregar as classes dos plugins antes de sair.
+ * <p>
+ * Cada plugin tem o seu {@link PluginClassLoader}, então um JAR pode ser trocado com o shell
+ * rodando: {@link #watch()} recarrega os JARs alterados em {@code ./plugins}, descarregando a
+ * versão anterior por {@link #unload(String)}.
+ */
 public class PluginController implements IPluginController
 {
+    private static final int THREADS = Integer.getInteger("bookstore.plugins.init_threads",
+        Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final boolean HOT_RELOAD =
+        Boolean.parseBoolean(System.getProperty("bookstore.plugins.hot_reload", "true"));
+
+    private final File pluginDir;
+    private final Executor uiExecutor;
+    private final Supplier<IUIController> uiController;
+    private final Runnable warmUp;
+    private final boolean eagerActivation =
+        "eager".equalsIgnoreCase(System.getProperty("bookstore.plugins.activation", "lazy"));
+    private final Map<String, PluginClassLoader> loaders = new ConcurrentHashMap<>();
+    private final CompletableFuture<PluginStartupReport> startup = new CompletableFuture<>();
+    private volatile Startup current;
+    private volatile PluginWatcher watcher;
+
+    public PluginController() {
+        this(new File("./plugins"), Platform::runLater, () -> ICore.getInstance().getUIController(), JPAUtil::warmUp);
+    }
+
+    /**
+     * @param uiExecutor onde {@link IPlugin#init()} roda; nos testes, qualquer executor
+     * @param warmUp     aquecimento do banco, rodado uma vez junto com os plugins
+     */
+    public PluginController(File pluginDir, Executor uiExecutor, Supplier<IUIController> uiController,
+                            Runnable warmUp) {
+        this.pluginDir = pluginDir;
+        this.uiExecutor = uiExecutor;
+        this.uiController = uiController;
+        this.warmUp = warmUp;
+    }
+
     @Override
     public boolean init() {
-        try {
-            File currentDir = new File("./plugins");
-
-            FilenameFilter jarFilter = new FilenameFilter() {
-                @Override
-                public boolean accept(File dir, String name) {
-                    return name.toLowerCase().endsWith(".jar");
-                }
-            };
+        ExecutorService workers = createExecutor();
+        try (StartupTrace.Span span = StartupTrace.begin("plugins: open jars")) {
+            File[] jarFiles = pluginDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".jar"));
+            if (jarFiles == null) {
+                throw new IOException("Plugin directory not found: " + pluginDir.getPath());
+            }
+            Arrays.sort(jarFiles);
 
-            String []plugins = currentDir.list(jarFilter);
-            int i;
-            URL[] jars = new URL[plugins.length];
-            for (i = 0; i < plugins.length; i++)
-            {
-                jars[i] = (new File("./plugins/" + plugins[i])).toURL();
+            List<CompletableFuture<PluginClassLoader>> opening = new ArrayList<>();
+            for (File jar : jarFiles) {
+                opening.add(CompletableFuture.supplyAsync(() -> openLoader(jar), workers));
             }
-            URLClassLoader ulc = new URLClassLoader(jars, App.class.getClassLoader());
-            for (i = 0; i < plugins.length; i++)
-            {
-                String pluginName = plugins[i].split("\\.")[0];
-                IPlugin plugin = (IPlugin) Class.forName("br.edu.ifba.inf008.plugins." + pluginName, true, ulc).newInstance();
-                plugin.init();
+            List<PluginManifest> manifests = new ArrayList<>();
+            for (CompletableFuture<PluginClassLoader> future : opening) {
+                PluginClassLoader loader = future.join();
+                if (loaders.putIfAbsent(loader.getManifest().id(), loader) == null) {
+                    manifests.add(loader.getManifest());
+                } else {
+                    System.err.println("Ignoring duplicate plugin id " + loader.getManifest().id() + " in " + loader.getSource().getName());
+                    closeQuietly(loader);
+                }
             }
+
+            start(manifests, this::instantiate, manifest -> loaders.get(manifest.id()), warmUp, workers)
+                .whenComplete((report, error) -> {
+                    StartupTrace.mark(StartupTrace.READY);
+                    if (error != null) {
+                        System.err.println("Plugin startup failed: " + error.getMessage());
+                        startup.completeExceptionally(error);
+                    } else {
+                        System.out.print(report);
+                        startup.complete(report);
+                    }
+                });
+
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                if (ulc != null) {
+                PluginWatcher activeWatcher = watcher;
+                if (activeWatcher != null) {
                     try {
-                        ulc.close();
-                    } catch (Exception e) {
-                        System.err.println("Error closing plugin classloader: " + e.getMessage());
+                        activeWatcher.close();
+                    } catch (IOException e) {
+                        System.err.println("Error closing plugin watcher: " + e.getMessage());
                     }
                 }
+                loaders.values().forEach(PluginController::closeQuietly);
             }));
+            watch();
             return true;
         } catch (Exception e) {
+            workers.shutdown();
             System.out.println("Error: " + e.getClass().getName() + " - " + e.getMessage());
 
             return false;
         }
     }
+
+    /**
+     * Passa a observar {@code ./plugins}: um JAR novo ou alterado é (re)carregado e um JAR apagado
+     * é descarregado, sem reiniciar o shell. Desligado com {@code -Dbookstore.plugins.hot_reload=false}.
+     */
+    public boolean watch() {
+        if (!HOT_RELOAD || watcher != null) {
+            return false;
+        }
+        try {
+            watcher = new PluginWatcher(pluginDir.toPath(), PluginWatcher.QUIET_MILLIS, this::reload, this::remove);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Plugin hot reload disabled: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Completa quando todos os plugins terminaram (ou falharam) e o banco foi aquecido. */
+    public CompletableFuture<PluginStartupReport> getStartupReport() {
+        return startup;
+    }
+
+    /**
+     * Ativa um plugin adiado (e as suas dependências), se ainda não foi ativado. Completa com
+     * true quando o {@code init()} terminou com sucesso.
+     */
+    public CompletableFuture<Boolean> activate(String pluginId) {
+        Startup startup = current;
+        return startup == null ? CompletableFuture.completedFuture(false) : startup.activate(pluginId);
+    }
+
+    /**
+     * Troca o plugin que veio de {@code jar} (ou que tem o mesmo id) pela versão atual do arquivo,
+     * num class loader novo. Completa com true se a nova versão foi registrada.
+     */
+    public CompletableFuture<Boolean> reload(File jar) {
+        Startup startup = current;
+        if (startup == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        PluginClassLoader loader;
+        try {
+            loader = PluginClassLoader.open(jar, App.class.getClassLoader());
+        } catch (IOException e) {
+            System.err.println("Cannot reload plugin " + jar.getName() + ": " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+        PluginManifest manifest = loader.getManifest();
+        List<String> replaced = new ArrayList<>(idsLoadedFrom(jar));
+        if (loaders.containsKey(manifest.id()) && !replaced.contains(manifest.id())) {
+            replaced.add(manifest.id());
+        }
+        return unload(replaced)
+            .thenCompose(done -> {
+                loaders.put(manifest.id(), loader);
+                return startup.add(manifest);
+            })
+            .whenComplete((added, error) -> {
+                if (error == null && Boolean.TRUE.equals(added)) {
+                    System.out.println((replaced.isEmpty() ? "Plugin loaded: " : "Plugin reloaded: ")
+                        + manifest.id() + " from " + jar.getName());
+                } else {
+                    System.err.println("Cannot " + (replaced.isEmpty() ? "load" : "reload") + " plugin " + manifest.id()
+                        + " from " + jar.getName() + ": " + (error != null ? error.getMessage() : "it did not start"));
+                }
+            });
+    }
+
+    /** Descarrega os plugins que vieram de {@code jar}, que foi apagado. */
+    public CompletableFuture<Void> remove(File jar) {
+        return unload(idsLoadedFrom(jar));
+    }
+
+    /**
+     * Descarrega um plugin: chama {@link IPlugin#unload()} na thread do JavaFX, tira o card e os
+     * itens de menu, cancela as assinaturas do barramento feitas pelas classes dele e fecha o
+     * class loader, que pode então ser coletado junto com as classes.
+     */
+    public CompletableFuture<Void> unload(String pluginId) {
+        Startup startup = current;
+        CompletableFuture<Boolean> settled = startup == null
+            ? CompletableFuture.completedFuture(false)
+            : startup.settled(pluginId);
+        return settled
+            .handle((started, error) -> null)
+            .thenRunAsync(() -> {
+                if (startup != null) {
+                    startup.remove(pluginId);
+                }
+            }, uiExecutor)
+            .thenRun(() -> {
+                PluginClassLoader loader = loaders.remove(pluginId);
+                if (loader != null) {
+                    EventBus.getInstance().unsubscribeAll(loader);
+                    closeQuietly(loader);
+                    System.out.println("Plugin unloaded: " + pluginId);
+                }
+            });
+    }
+
+    private CompletableFuture<Void> unload(List<String> pluginIds) {
+        return CompletableFuture.allOf(pluginIds.stream().map(this::unload).toArray(CompletableFuture[]::new));
+    }
+
+    /** Class loader atual do plugin; vazio se ele não está carregado. */
+    Optional<PluginClassLoader> getClassLoader(String pluginId) {
+        return Optional.ofNullable(loaders.get(pluginId));
+    }
+
+    /**
+     * Agenda os plugins respeitando as dependências. Plugins independentes carregam ao mesmo
+     * tempo; um plugin só começa depois que o {@code init()} das suas dependências terminou, e
+     * é pulado se alguma delas falhou, não existe ou faz parte de um ciclo. Os adiados só têm
+     * card e menus registrados.
+     */
+    CompletableFuture<PluginStartupReport> start(List<PluginManifest> manifests,
+            Function<PluginManifest, IPlugin> factory, Function<PluginManifest, ClassLoader> resources,
+            Runnable warmUp, Executor workers) {
+        Startup startup = new Startup(manifests, factory, resources, workers);
+        current = startup;
+        return startup.run(warmUp);
+    }
+
+    /** Adiado até o primeiro uso: tem card no manifesto e a ativação não foi forçada na partida. */
+    private boolean isDeferred(PluginManifest manifest) {
+        return manifest.isLazy() && !eagerActivation;
+    }
+
+    private List<String> idsLoadedFrom(File jar) {
+        File target = jar.getAbsoluteFile();
+        return loaders.entrySet().stream()
+            .filter(entry -> entry.getValue().getSource().getAbsoluteFile().equals(target))
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+
+    private static PluginClassLoader openLoader(File jar) {
+        try {
+            return PluginClassLoader.open(jar, App.class.getClassLoader());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read plugin " + jar.getName(), e);
+        }
+    }
+
+    private IPlugin instantiate(PluginManifest manifest) {
+        ClassLoader classLoader = loaders.get(manifest.id());
+        if (classLoader == null) {
+            throw new IllegalStateException("Plugin " + manifest.id() + " is no longer loaded");
+        }
+        try {
+            return (IPlugin) Class.forName(manifest.className(), true, classLoader)
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate " + manifest.className() + ": " + e, e);
+        }
+    }
+
+    private static void closeQuietly(PluginClassLoader loader) {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            System.err.println("Error closing plugin classloader: " + e.getMessage());
+        }
+    }
+
+    /** Pool usado na partida e nas ativações sob demanda; as threads morrem quando ociosas. */
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new DaemonThreadFactory("bookstore-plugins"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /** Estado de uma partida: plugins por id, o que já foi agendado e os tempos medidos. */
+    private final class Startup {
+        private final long startedAt = System.nanoTime();
+        private final List<String> order = new ArrayList<>();
+        private final Map<String, PluginManifest> byId = new ConcurrentHashMap<>();
+        private final Map<String, CompletableFuture<Boolean>> scheduled = new ConcurrentHashMap<>();
+        private final Map<String, IPlugin> instances = new ConcurrentHashMap<>();
+        private final Set<String> cyclic = ConcurrentHashMap.newKeySet();
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private final Function<PluginManifest, IPlugin> factory;
+        private final Function<PluginManifest, ClassLoader> resources;
+        private final Executor workers;
+
+        Startup(List<PluginManifest> manifests, Function<PluginManifest, IPlugin> factory,
+                Function<PluginManifest, ClassLoader> resources, Executor workers) {
+            this.factory = factory;
+            this.resources = resources;
+            this.workers = workers;
+            for (PluginManifest manifest : manifests) {
+                if (byId.putIfAbsent(manifest.id(), manifest) != null) {
+                    System.err.println("Ignoring duplicate plugin id " + manifest.id() + " (" + manifest.className() + ")");
+                } else {
+                    order.add(manifest.id());
+                }
+            }
+        }
+
+        CompletableFuture<PluginStartupReport> run(Runnable warmUp) {
+            CompletableFuture<Long> warmUpMillis = CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try (StartupTrace.Span span = StartupTrace.begin("database warm-up")) {
+                    warmUp.run();
+                }
+                return millisSince(start);
+            }, workers).exceptionally(error -> {
+                System.err.println("Warning: Could not initialize database connection: " + error.getMessage());
+                return -1L;
+            });
+
+            List<CompletableFuture<?>> pending = new ArrayList<>();
+            pending.add(warmUpMillis);
+            List<PluginManifest> manifests = order.stream().map(byId::get).toList();
+            for (PluginManifest manifest : manifests) {
+                if (!isDeferred(manifest)) {
+                    pending.add(schedule(manifest, new HashSet<>(), startedAt));
+                }
+            }
+            // Adiados que nenhum plugin da partida puxou como dependência ficam só com card e menus
+            for (PluginManifest manifest : manifests) {
+                if (manifest.isLazy() && !scheduled.containsKey(manifest.id())) {
+                    pending.add(CompletableFuture.runAsync(() -> registerPlaceholders(manifest), uiExecutor));
+                }
+            }
+
+            return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .thenApply(done -> new PluginStartupReport(
+                    order.stream().map(entries::get).toList(),
+                    warmUpMillis.join(),
+                    millisSince(startedAt)));
+        }
+
+        CompletableFuture<Boolean> activate(String pluginId) {
+            PluginManifest manifest = byId.get(pluginId);
+            if (manifest == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            CompletableFuture<Boolean> existing = scheduled.get(pluginId);
+            if (existing != null) {
+                return existing;
+            }
+            long requestedAt = System.nanoTime();
+            return schedule(manifest, new HashSet<>(), requestedAt).whenComplete((started, error) -> {
+                Entry entry = entries.get(pluginId);
+                if (entry != null && entry.status() == Status.STARTED) {
+                    System.out.printf("Plugin %s activated on demand in %d ms (load %d ms, init %d ms)%n",
+                        pluginId, millisSince(requestedAt), entry.loadMillis(), entry.initMillis());
+                }
+            });
+        }
+
+        /** Registra um plugin que apareceu depois da partida, como faria {@link #run}. */
+        CompletableFuture<Boolean> add(PluginManifest manifest) {
+            byId.put(manifest.id(), manifest);
+            if (isDeferred(manifest)) {
+                return CompletableFuture.runAsync(() -> registerPlaceholders(manifest), uiExecutor)
+                    .thenApply(done -> true);
+            }
+            return schedule(manifest, new HashSet<>(), System.nanoTime());
+        }
+
+        /** Completa quando a ativação em andamento do plugin, se houver, terminou. */
+        CompletableFuture<Boolean> settled(String pluginId) {
+            return scheduled.getOrDefault(pluginId, CompletableFuture.completedFuture(false));
+        }
+
+        /** Desfaz o registro do plugin; roda na thread do JavaFX. */
+        void remove(String pluginId) {
+            PluginManifest manifest;
+            IPlugin plugin;
+            synchronized (this) {
+                manifest = byId.remove(pluginId);
+                plugin = instances.remove(pluginId);
+                scheduled.remove(pluginId);
+                entries.remove(pluginId);
+                cyclic.remove(pluginId);
+            }
+            if (plugin != null) {
+                try {
+                    plugin.unload();
+                } catch (RuntimeException | LinkageError e) {
+                    System.err.println("Error unloading plugin " + pluginId + ": " + e.getMessage());
+                }
+            }
+            IUIController ui = uiController.get();
+            ui.removePluginCard(pluginId);
+            if (manifest != null) {
+                for (MenuEntry entry : manifest.menu()) {
+                    ui.removeMenuItem(entry.menu(), entry.item());
+                }
+            }
+        }
+
+        /**
+         * Desenha o card e os itens de menu do manifesto. O primeiro uso ativa o plugin e, se o
+         * {@code init()} dele assumiu o item (mesmo texto, mesmo id de card), repassa a ação.
+         */
+        private void registerPlaceholders(PluginManifest manifest) {
+            long start = System.nanoTime();
+            if (scheduled.containsKey(manifest.id())) {
+                return;
+            }
+            IUIController ui = uiController.get();
+            for (MenuEntry entry : manifest.menu()) {
+                MenuItem item = ui.createMenuItem(entry.menu(), entry.item());
+                item.setOnAction(new EventHandler<ActionEvent>() {
+                    @Override
+                    public void handle(ActionEvent event) {
+                        EventHandler<ActionEvent> placeholder = this;
+                        activateThen(manifest, ui, () -> {
+                            if (item.getOnAction() == placeholder) {
+                                System.err.println("Plugin " + manifest.id() + " did not register menu item " + entry.item());
+                            } else {
+                                item.fire();
+                            }
+                        });
+                    }
+                });
+            }
+
+            Card card = manifest.card();
+            AtomicBoolean forwarded = new AtomicBoolean();
+            ImageView icon = card.icon() == null ? null : IconHelper.createIconView(resources.apply(manifest), card.icon(), 64);
+            ui.addPluginCard(manifest.id(), icon, card.title(), card.description(), () -> {
+                if (forwarded.get()) {
+                    System.err.println("Plugin " + manifest.id() + " did not register its card");
+                    return;
+                }
+                activateThen(manifest, ui, () -> {
+                    if (forwarded.compareAndSet(false, true)) {
+                        ui.openPluginCard(manifest.id());
+                    }
+                });
+            });
+            entries.putIfAbsent(manifest.id(), new Entry(manifest.id(), Status.DEFERRED, 0, 0,
+                millisSince(start), millisSince(startedAt), null));
+        }
+
+        private void activateThen(PluginManifest manifest, IUIController ui, Runnable action) {
+            activate(manifest.id()).thenAcceptAsync(started -> {
+                if (started) {
+                    action.run();
+                } else {
+                    Entry entry = entries.get(manifest.id());
+                    ui.showAlert("Error", "Failed to start " + manifest.card().title()
+                        + (entry == null || entry.detail() == null ? "" : ": " + entry.detail()));
+                }
+            }, uiExecutor);
+        }
+
+        private synchronized CompletableFuture<Boolean> schedule(PluginManifest manifest, Set<String> visiting,
+                                                               long requestedAt) {
+            CompletableFuture<Boolean> existing = scheduled.get(manifest.id());
+            if (existing != null) {
+                return existing;
+            }
+            if (!visiting.add(manifest.id())) {
+                cyclic.add(manifest.id());
+                return CompletableFuture.completedFuture(false);
+            }
+
+            List<CompletableFuture<Boolean>> dependencies = new ArrayList<>();
+            for (String required : manifest.requires()) {
+                PluginManifest dependency = byId.get(required);
+                dependencies.add(dependency == null
+                    ? CompletableFuture.completedFuture(false)
+                    : schedule(dependency, visiting, requestedAt));
+            }
+            visiting.remove(manifest.id());
+
+            CompletableFuture<Boolean> result = CompletableFuture
+                .allOf(dependencies.toArray(CompletableFuture[]::new))
+                .thenApplyAsync(done -> load(manifest, dependencies, requestedAt), workers)
+                .thenCompose(loaded -> loaded == null
+                    ? CompletableFuture.completedFuture(false)
+                    : CompletableFuture.supplyAsync(() -> initialize(manifest, loaded), uiExecutor));
+            scheduled.put(manifest.id(), result);
+            return result;
+        }
+
+        private Loaded load(PluginManifest manifest, List<CompletableFuture<Boolean>> dependencies, long requestedAt) {
+            long waitMillis = millisSince(requestedAt);
+            String blocker = blocker(manifest, dependencies);
+            if (blocker != null) {
+                record(manifest, Status.SKIPPED, waitMillis, 0, 0, blocker);
+                return null;
+            }
+
+            long start = System.nanoTime();
+            try (StartupTrace.Span span = StartupTrace.begin("plugin " + manifest.id() + ": load")) {
+                IPlugin plugin = factory.apply(manifest);
+                instances.put(manifest.id(), plugin);
+                if (!plugin.load()) {
+                    record(manifest, Status.FAILED, waitMillis, millisSince(start), 0, "load() returned false");
+                    return null;
+                }
+                return new Loaded(plugin, waitMillis, millisSince(start));
+            } catch (RuntimeException | LinkageError e) {
+                record(manifest, Status.FAILED, waitMillis, millisSince(start), 0, e.getMessage());
+                return null;
+            }
+        }
+
+        private boolean initialize(PluginManifest manifest, Loaded loaded) {
+            long start = System.nanoTime();
+            try (StartupTrace.Span span = StartupTrace.begin("plugin " + manifest.id() + ": init")) {
+                boolean started = loaded.plugin().init();
+                record(manifest, started ? Status.STARTED : Status.FAILED, loaded.waitMillis(),
+                    loaded.loadMillis(), millisSince(start), started ? null : "init() returned false");
+                return started;
+            } catch (RuntimeException | LinkageError e) {
+                record(manifest, Status.FAILED, loaded.waitMillis(), loaded.loadMillis(), millisSince(start), e.getMessage());
+                return false;
+            }
+        }
+
+        private String blocker(PluginManifest manifest, List<CompletableFuture<Boolean>> dependencies) {
+            for (int i = 0; i < dependencies.size(); i++) {
+                String required = manifest.requires().get(i);
+                if (!byId.containsKey(required)) {
+                    return "missing dependency " + required;
+                }
+                if (cyclic.contains(required)) {
+                    return "dependency cycle through " + required;
+                }
+                if (!dependencies.get(i).join()) {
+                    return "dependency " + required + " did not start";
+                }
+            }
+            return null;
+        }
+
+        private void record(PluginManifest manifest, Status status, long waitMillis, long loadMillis,
+                            long initMillis, String detail) {
+            if (status != Status.STARTED) {
+                System.err.println("Plugin " + manifest.id() + " " + status.name().toLowerCase() + ": " + detail);
+            }
+            entries.put(manifest.id(), new Entry(manifest.id(), status, waitMillis, loadMillis, initMillis,
+                millisSince(startedAt), detail));
+        }
+    }
+
+    private record Loaded(IPlugin plugin, long waitMillis, long loadMillis) {}
 }
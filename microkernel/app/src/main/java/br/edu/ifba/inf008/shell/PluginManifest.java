@@ -0,0 +1,110 @@
+package br.edu.ifba.inf008.shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Descrição de um plugin lida do {@code META-INF/MANIFEST.MF} do seu JAR:
+ * <pre>
+ * Plugin-Id: loan-plugin
+ * Plugin-Class: br.edu.ifba.inf008.plugins.LoanPlugin
+ * Plugin-Requires: user-plugin, book-plugin
+ * Plugin-Title: Loan Management
+ * Plugin-Description: Track book loans.
+ * Plugin-Icon: br/edu/ifba/inf008/plugins/loan/ui/icons/logo.png
+ * Plugin-Menu: Management/Loans
+ * </pre>
+ * Com {@code Plugin-Title}, o plugin é ativado sob demanda: o shell desenha o card e os menus
+ * só com o manifesto e carrega a classe no primeiro uso ({@code Plugin-Activation: eager}
+ * desliga isso). JARs sem {@code Plugin-Class} seguem a convenção antiga: a classe é
+ * {@code br.edu.ifba.inf008.plugins.<NomeDoJar>} e não há dependências.
+ */
+public record PluginManifest(String id, String className, List<String> requires,
+                             Card card, List<MenuEntry> menu) {
+  public static final String ID = "Plugin-Id";
+  public static final String CLASS = "Plugin-Class";
+  public static final String REQUIRES = "Plugin-Requires";
+  public static final String TITLE = "Plugin-Title";
+  public static final String DESCRIPTION = "Plugin-Description";
+  public static final String ICON = "Plugin-Icon";
+  public static final String MENU = "Plugin-Menu";
+  public static final String ACTIVATION = "Plugin-Activation";
+
+  private static final String LEGACY_PACKAGE = "br.edu.ifba.inf008.plugins.";
+
+  /** Card da tela inicial; {@code icon} é um recurso dentro do JAR e pode faltar. */
+  public record Card(String title, String description, String icon) {}
+
+  /** Item {@code item} dentro do menu {@code menu} da barra principal. */
+  public record MenuEntry(String menu, String item) {}
+
+  public PluginManifest {
+    requires = List.copyOf(requires);
+    menu = List.copyOf(menu);
+  }
+
+  /** Plugin sem metadados de interface, inicializado na partida. */
+  public PluginManifest(String id, String className, List<String> requires) {
+    this(id, className, requires, null, List.of());
+  }
+
+  /** Só plugins com card são adiados: sem ele não haveria onde o usuário pedir a ativação. */
+  public boolean isLazy() {
+    return card != null;
+  }
+
+  public static PluginManifest read(File jar) throws IOException {
+    return read(jar, jar.getName().split("\\.")[0]);
+  }
+
+  /** @param baseName nome do JAR original, usado pela convenção antiga quando {@code jar} é uma cópia */
+  static PluginManifest read(File jar, String baseName) throws IOException {
+    try (JarFile file = new JarFile(jar)) {
+      Manifest manifest = file.getManifest();
+      Attributes attributes = manifest == null ? new Attributes() : manifest.getMainAttributes();
+      String className = value(attributes, CLASS);
+      if (className == null) {
+        return new PluginManifest(baseName, LEGACY_PACKAGE + baseName, List.of());
+      }
+      String id = value(attributes, ID);
+      String title = value(attributes, TITLE);
+      boolean eager = "eager".equalsIgnoreCase(value(attributes, ACTIVATION));
+      return new PluginManifest(
+        id == null ? baseName : id,
+        className,
+        parseList(value(attributes, REQUIRES)),
+        title == null || eager ? null : new Card(title, value(attributes, DESCRIPTION), value(attributes, ICON)),
+        parseMenu(value(attributes, MENU)));
+    }
+  }
+
+  private static String value(Attributes attributes, String name) {
+    String value = attributes.getValue(name);
+    return value == null || value.isBlank() ? null : value.trim();
+  }
+
+  static List<String> parseList(String value) {
+    if (value == null || value.isBlank()) {
+      return List.of();
+    }
+    return Arrays.stream(value.split(","))
+      .map(String::trim)
+      .filter(id -> !id.isEmpty())
+      .toList();
+  }
+
+  /** Entradas {@code Menu/Item} separadas por vírgula; as sem barra são ignoradas. */
+  static List<MenuEntry> parseMenu(String value) {
+    return parseList(value).stream()
+      .filter(entry -> entry.indexOf('/') > 0)
+      .map(entry -> new MenuEntry(
+        entry.substring(0, entry.indexOf('/')).trim(),
+        entry.substring(entry.indexOf('/') + 1).trim()))
+      .toList();
+  }
+}
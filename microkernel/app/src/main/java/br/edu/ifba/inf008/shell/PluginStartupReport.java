@@ -0,0 +1,40 @@
+package br.edu.ifba.inf008.shell;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tempos da inicialização dos plugins, impressos pelo {@link PluginController} ao fim da partida.
+ * <p>
+ * Para cada plugin: quanto esperou por dependências e pela fila ({@code wait}), quanto levou
+ * carregando a classe e rodando {@code load()} numa thread de trabalho ({@code load}), quanto
+ * levou o {@code init()} na thread do JavaFX ({@code init}) e em que momento ficou pronto,
+ * contado do início da partida ({@code ready at}). Plugins ativados sob demanda aparecem como
+ * {@code DEFERRED}, com o tempo gasto para desenhar o card e os menus a partir do manifesto.
+ */
+public record PluginStartupReport(List<Entry> plugins, long warmUpMillis, long totalMillis) {
+  public enum Status { STARTED, DEFERRED, FAILED, SKIPPED }
+
+  public record Entry(String pluginId, Status status, long waitMillis, long loadMillis,
+                      long initMillis, long readyAtMillis, String detail) {}
+
+  public PluginStartupReport {
+    plugins = List.copyOf(plugins);
+  }
+
+  public Optional<Entry> find(String pluginId) {
+    return plugins.stream().filter(entry -> entry.pluginId().equals(pluginId)).findFirst();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder(String.format(
+      "Plugin startup: %d ms total, database warm-up %d ms%n", totalMillis, warmUpMillis));
+    for (Entry entry : plugins) {
+      report.append(String.format("  %-16s %-8s wait %5d ms  load %5d ms  init %5d ms  ready at %5d ms%s%n",
+        entry.pluginId(), entry.status(), entry.waitMillis(), entry.loadMillis(), entry.initMillis(),
+        entry.readyAtMillis(), entry.detail() == null ? "" : "  (" + entry.detail() + ")"));
+    }
+    return report.toString();
+  }
+}
@@ -0,0 +1,103 @@
+package br.edu.ifba.inf008.shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import br.edu.ifba.inf008.shell.util.DaemonThreadFactory;
+
+/**
+ * Observa o diretório de plugins e avisa quando um JAR foi criado, alterado ou apagado.
+ * <p>
+ * Copiar um JAR gera vários eventos seguidos; cada arquivo só é repassado depois de
+ * {@code quietMillis} sem novos eventos ({@code -Dbookstore.plugins.reload_quiet_ms}, padrão 500),
+ * para não recarregar um JAR ainda pela metade.
+ */
+public class PluginWatcher implements AutoCloseable {
+  public static final long QUIET_MILLIS = Long.getLong("bookstore.plugins.reload_quiet_ms", 500);
+
+  private final Path directory;
+  private final long quietMillis;
+  private final Consumer<File> onChanged;
+  private final Consumer<File> onRemoved;
+  private final Map<Path, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+    new DaemonThreadFactory("bookstore-plugin-reload"));
+  private final WatchService watchService;
+
+  public PluginWatcher(Path directory, long quietMillis, Consumer<File> onChanged, Consumer<File> onRemoved)
+      throws IOException {
+    this.directory = directory;
+    this.quietMillis = quietMillis;
+    this.onChanged = onChanged;
+    this.onRemoved = onRemoved;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+      StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+    Thread thread = new Thread(this::watch, "bookstore-plugin-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.context() instanceof Path name && name.toString().toLowerCase().endsWith(".jar")) {
+            schedule(directory.resolve(name));
+          }
+        }
+        if (!key.reset()) {
+          System.err.println("Plugin directory is no longer watched: " + directory);
+          return;
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // close() encerra a espera
+    }
+  }
+
+  private void schedule(Path jar) {
+    pending.compute(jar, (path, previous) -> {
+      if (previous != null) {
+        previous.cancel(false);
+      }
+      return scheduler.schedule(() -> fire(path), quietMillis, TimeUnit.MILLISECONDS);
+    });
+  }
+
+  private void fire(Path jar) {
+    pending.remove(jar);
+    File file = jar.toFile();
+    try {
+      if (file.isFile()) {
+        onChanged.accept(file);
+      } else {
+        onRemoved.accept(file);
+      }
+    } catch (RuntimeException e) {
+      System.err.println("Error reloading plugin " + file.getName() + ": " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    scheduler.shutdownNow();
+    watchService.close();
+  }
+}
@@ -2,11 +2,14 @@ package br.edu.ifba.inf008.shell;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import br.edu.ifba.inf008.interfaces.IRefreshable;
 import br.edu.ifba.inf008.interfaces.IUIController;
 import br.edu.ifba.inf008.shell.persistence.JPAUtil;
+import br.edu.ifba.inf008.shell.util.BackgroundLoader;
 import br.edu.ifba.inf008.shell.util.IconHelper;
+import br.edu.ifba.inf008.shell.util.StartupTrace;
 import static br.edu.ifba.inf008.shell.util.IconHelper.createIconView;
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -40,6 +43,7 @@ public class UIController extends Application implements IUIController{
     private VBox welcomeContent;
 
     private final Map<String, VBox> pluginCards = new HashMap<>();
+    private final Map<String, Runnable> pluginCardActions = new HashMap<>();
     private final Map<Tab, IRefreshable> refreshableControllers = new HashMap<>();
 
 
@@ -49,6 +53,7 @@ public class UIController extends Application implements IUIController{
     @Override
     public void init() {
         uiController = this;
+        StartupTrace.mark("javafx toolkit ready");
     }
 
     public static UIController getInstance() {
@@ -57,16 +62,9 @@ public class UIController extends Application implements IUIController{
 
     @Override
     public void start(Stage primaryStage) {
+        StartupTrace.Span span = StartupTrace.begin("main window");
         primaryStage.setTitle("BookStore Blackbird");
-        primaryStage.setOnCloseRequest(event -> {
-            System.out.println("🔄 Application shutting down...");
-
-            JPAUtil.closeFactory();
-
-            Platform.exit();
-            
-            System.exit(0);
-        });
+        primaryStage.setOnCloseRequest(event -> shutdown());
 
         Image appIcon = IconHelper.loadIcon("/icons/bookStore-icon.png");
         if (appIcon != null) {
@@ -109,9 +107,40 @@ public class UIController extends Application implements IUIController{
 
         primaryStage.setScene(scene);
         primaryStage.setResizable(true);
+        traceFirstFrame(scene);
         primaryStage.show();
+        span.close();
 
         Core.getInstance().getPluginController().init();
+
+        if (StartupTrace.EXIT_WHEN_READY) {
+            CompletableFuture.allOf(StartupTrace.reached(StartupTrace.FIRST_FRAME), StartupTrace.reached(StartupTrace.READY))
+                .thenRun(() -> Platform.runLater(this::shutdown));
+        }
+    }
+
+    private void shutdown() {
+        System.out.println("🔄 Application shutting down...");
+
+        BackgroundLoader.shutdown();
+        JPAUtil.closeFactory();
+
+        Platform.exit();
+
+        System.exit(0);
+    }
+
+    /** Marca o primeiro pulso depois que a janela aparece: o layout está pronto e o quadro vai para a tela. */
+    private void traceFirstFrame(Scene scene) {
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                StartupTrace.mark(StartupTrace.FIRST_FRAME);
+                Runnable self = this;
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(self));
+            }
+        };
+        scene.addPostLayoutPulseListener(listener);
     }
 
     private void createWelcomeTab(){
@@ -214,8 +243,19 @@ public class UIController extends Application implements IUIController{
         VBox card = createWelcomeCard(icon, title, description, action);
         card.setId("plugin-card-" + pluginName);
 
-        cardsContainer.getChildren().add(card);
-        pluginCards.put(pluginName, card);
+        // Um plugin ativado sob demanda substitui, na mesma posição, o card desenhado pelo manifesto
+        VBox previous = pluginCards.put(pluginName, card);
+        int index = previous == null ? -1 : cardsContainer.getChildren().indexOf(previous);
+        if (index >= 0) {
+            cardsContainer.getChildren().set(index, card);
+        } else {
+            cardsContainer.getChildren().add(card);
+        }
+        if (action != null) {
+            pluginCardActions.put(pluginName, action);
+        } else {
+            pluginCardActions.remove(pluginName);
+        }
 
         System.out.println("✅ Plugin card added successfully: " + pluginName);
     }
@@ -223,6 +263,7 @@ public class UIController extends Application implements IUIController{
     @Override
     public void removePluginCard(String pluginName){
         VBox card = pluginCards.remove(pluginName);
+        pluginCardActions.remove(pluginName);
         if (card != null) {
             cardsContainer.getChildren().remove(card);
         }
@@ -232,6 +273,16 @@ public class UIController extends Application implements IUIController{
         }
     }   
 
+    @Override
+    public boolean openPluginCard(String pluginName) {
+        Runnable action = pluginCardActions.get(pluginName);
+        if (action == null) {
+            return false;
+        }
+        action.run();
+        return true;
+    }
+
     private VBox createWelcomeCard(ImageView icon, String title, String description, Runnable action){
         VBox card = new VBox(15);
         card.setAlignment(Pos.CENTER);
@@ -281,6 +332,13 @@ public class UIController extends Application implements IUIController{
             menuBar.getMenus().add(newMenu);
         }
 
+        // Reaproveita o item já criado a partir do manifesto de um plugin ainda não ativado
+        for (MenuItem item : newMenu.getItems()) {
+            if (menuItemText.equals(item.getText())) {
+                return item;
+            }
+        }
+
         MenuItem menuItem = new MenuItem(menuItemText);
         newMenu.getItems().add(menuItem);
 
@@ -309,14 +367,54 @@ public class UIController extends Application implements IUIController{
     @Override
     public boolean createRefreshableTab(String tabText, Node contents, IRefreshable controller) {
         boolean isNewTab = createTab(tabText, contents);
-        
+        if (!isNewTab) {
+            // A aba aberta continua com o seu controlador; este não chegou a ser exibido
+            controller.dispose();
+            return false;
+        }
+
         for(Tab tab : tabPane.getTabs()){
             if(tab.getText().equals(tabText)){
                 refreshableControllers.put(tab, controller);
+                tab.setOnClosed(event -> disposeController(tab));
                 break;
             }
         }
-        return isNewTab;
+        return true;
+    }
+
+    private void disposeController(Tab tab) {
+        IRefreshable controller = refreshableControllers.remove(tab);
+        if (controller != null) {
+            try {
+                controller.dispose();
+            } catch (Exception e) {
+                System.err.println("Error disposing tab " + tab.getText() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void removeTab(String tabText) {
+        tabPane.getTabs().removeIf(tab -> {
+            if (!tab.getText().equals(tabText)) {
+                return false;
+            }
+            disposeController(tab);
+            tab.setContent(null);
+            return true;
+        });
+    }
+
+    @Override
+    public void removeMenuItem(String menuText, String menuItemText) {
+        menuBar.getMenus().removeIf(menu -> {
+            if (!menu.getText().equals(menuText)) {
+                return false;
+            }
+            menu.getItems().removeIf(item -> menuItemText.equals(item.getText()));
+            return menu.getItems().isEmpty();
+        });
     }
 
     @Override
@@ -0,0 +1,21 @@
+package br.edu.ifba.inf008.shell.event;
+
+/**
+ * Eventos publicados pelos DAOs no {@code IEventBus} depois do commit. Assine um tipo
+ * específico (ex.: {@link BookChanged}) ou {@code EntityEvent} para receber todos.
+ */
+public sealed interface EntityEvent {
+  enum Change { CREATED, UPDATED, DELETED }
+
+  Change change();
+
+  /** Livro criado, alterado (inclusive o estoque, por um empréstimo) ou removido. */
+  record BookChanged(int bookId, Change change) implements EntityEvent {
+  }
+
+  record UserChanged(int userId, Change change) implements EntityEvent {
+  }
+
+  record LoanChanged(int loanId, Change change) implements EntityEvent {
+  }
+}
@@ -0,0 +1,50 @@
+package br.edu.ifba.inf008.shell.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Empréstimos de um livro desde sempre e quantos seguem ativos, mantidos por
+ * {@link br.edu.ifba.inf008.shell.persistence.LoanStatistics}.
+ */
+@Entity
+@Table(name = "book_loan_stats", indexes = @Index(name = "idx_book_loan_stats_total", columnList = "loans_total"))
+public class BookLoanStats {
+  @Id
+  @Column(name = "book_id")
+  private Integer bookId;
+
+  @Column(name = "loans_total", nullable = false)
+  private long loansTotal;
+
+  @Column(name = "loans_active", nullable = false)
+  private long loansActive;
+
+  public BookLoanStats() {}
+
+  public BookLoanStats(Integer bookId, long loansTotal, long loansActive) {
+    this.bookId = bookId;
+    this.loansTotal = loansTotal;
+    this.loansActive = loansActive;
+  }
+
+  public Integer getBookId() {
+    return bookId;
+  }
+
+  public long getLoansTotal() {
+    return loansTotal;
+  }
+
+  public long getLoansActive() {
+    return loansActive;
+  }
+
+  @Override
+  public String toString() {
+    return "BookLoanStats{book=" + bookId + ", total=" + loansTotal + ", active=" + loansActive + "}";
+  }
+}
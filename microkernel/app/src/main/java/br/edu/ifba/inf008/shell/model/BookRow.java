@@ -0,0 +1,25 @@
+package br.edu.ifba.inf008.shell.model;
+
+/** Linha de livro para listas; imutável e sem estado de persistência. */
+public record BookRow(
+  Integer bookId,
+  String title,
+  String author,
+  String isbn,
+  Integer publishedYear,
+  Integer copiesAvailable
+) {
+  /** SELECT ... FROM para consultas JPQL, com alias {@code b}. */
+  public static final String SELECT_FROM =
+    "SELECT new br.edu.ifba.inf008.shell.model.BookRow(b.bookId, b.title, b.author, b.isbn, b.publishedYear, b.copiesAvailable)"
+    + " FROM Book b";
+
+  public static BookRow of(Book book) {
+    return new BookRow(book.getBookId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+      book.getPublishedYear(), book.getCopiesAvailable());
+  }
+
+  public Book toBook() {
+    return new Book(bookId, title, author, isbn, publishedYear, copiesAvailable);
+  }
+}
@@ -9,23 +9,46 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedEntityGraphs;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "loans")
+@Table(name = "loans", indexes = {
+  @Index(name = "idx_loans_return_loan_date", columnList = "return_date, loan_date"),
+  @Index(name = "idx_loans_loan_date", columnList = "loan_date"),
+  @Index(name = "idx_loans_user_return", columnList = "user_id, return_date")
+})
+@NamedEntityGraphs({
+  @NamedEntityGraph(name = Loan.GRAPH_LIST, attributeNodes = {
+    @NamedAttributeNode("user"), @NamedAttributeNode("book")
+  }),
+  @NamedEntityGraph(name = Loan.GRAPH_REPORT, attributeNodes = {
+    @NamedAttributeNode("user"), @NamedAttributeNode("book")
+  })
+})
 public class Loan {
+  /** Tela de empréstimos: nome do usuário e título do livro. */
+  public static final String GRAPH_LIST = "Loan.list";
+  /** Relatórios e exportação CSV: usuário (nome, email) e livro (título, autor). */
+  public static final String GRAPH_REPORT = "Loan.report";
+
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loans_seq")
+  @SequenceGenerator(name = "loans_seq", sequenceName = "loans_seq", allocationSize = 50)
   @Column(name = "loan_id")
   private Integer loanId;
 
-  @ManyToOne(fetch = FetchType.EAGER)
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id", nullable = false)
   private User user;
 
-  @ManyToOne(fetch = FetchType.EAGER)
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "book_id", nullable = false)
   private Book book;
 
@@ -0,0 +1,91 @@
+package br.edu.ifba.inf008.shell.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Empréstimos abertos e devolvidos em um dia, mantidos por
+ * {@link br.edu.ifba.inf008.shell.persistence.LoanStatistics}. Os ativos ao fim de um dia são a
+ * soma de {@code loansOpened - loansReturned} de todos os dias até ele.
+ * <p>
+ * Cada dia se divide em até {@code LoanStatistics.DAILY_SLOTS} linhas ({@code slot}), para que
+ * empréstimos simultâneos não disputem a mesma linha; os totais do dia são a soma delas, e uma
+ * linha sozinha pode até ficar negativa.
+ */
+@Entity
+@IdClass(LoanDailyStats.Key.class)
+@Table(name = "loan_daily_stats")
+public class LoanDailyStats {
+  @Id
+  @Column(name = "stat_date")
+  private LocalDate statDate;
+
+  @Id
+  @Column(name = "slot")
+  private int slot;
+
+  @Column(name = "loans_opened", nullable = false)
+  private long loansOpened;
+
+  @Column(name = "loans_returned", nullable = false)
+  private long loansReturned;
+
+  public LoanDailyStats() {}
+
+  public LoanDailyStats(LocalDate statDate, int slot, long loansOpened, long loansReturned) {
+    this.statDate = statDate;
+    this.slot = slot;
+    this.loansOpened = loansOpened;
+    this.loansReturned = loansReturned;
+  }
+
+  public LocalDate getStatDate() {
+    return statDate;
+  }
+
+  public int getSlot() {
+    return slot;
+  }
+
+  public long getLoansOpened() {
+    return loansOpened;
+  }
+
+  public long getLoansReturned() {
+    return loansReturned;
+  }
+
+  @Override
+  public String toString() {
+    return "LoanDailyStats{" + statDate + "#" + slot + ", opened=" + loansOpened + ", returned=" + loansReturned + "}";
+  }
+
+  public static class Key implements Serializable {
+    private LocalDate statDate;
+    private int slot;
+
+    public Key() {}
+
+    public Key(LocalDate statDate, int slot) {
+      this.statDate = statDate;
+      this.slot = slot;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key key && slot == key.slot && Objects.equals(statDate, key.statDate);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(statDate, slot);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package br.edu.ifba.inf008.shell.model;
+
+import java.time.LocalDate;
+
+/**
+ * Linha de empréstimo para listas e relatórios: só as colunas exibidas,
+ * sem entidades gerenciadas nem associações.
+ */
+public record LoanRow(
+  Integer loanId,
+  String userName,
+  String userEmail,
+  String bookTitle,
+  String bookAuthor,
+  LocalDate loanDate,
+  LocalDate returnDate
+) {
+  /** SELECT ... FROM para consultas JPQL, com aliases {@code l} (Loan), {@code u} (User) e {@code b} (Book). */
+  public static final String SELECT_FROM =
+    "SELECT new br.edu.ifba.inf008.shell.model.LoanRow(l.loanId, u.name, u.email, b.title, b.author, l.loanDate, l.returnDate)"
+    + " FROM Loan l JOIN l.user u JOIN l.book b";
+
+  public boolean isActive() {
+    return returnDate == null;
+  }
+}
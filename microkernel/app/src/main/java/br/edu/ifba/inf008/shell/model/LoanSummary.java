@@ -0,0 +1,16 @@
+package br.edu.ifba.inf008.shell.model;
+
+import java.time.LocalDate;
+
+/**
+ * Movimento de empréstimos num período, calculado pelos agregados diários: abertos e
+ * devolvidos dentro dele e os ativos no início e no fim. Datas nulas são período aberto.
+ */
+public record LoanSummary(
+  LocalDate from,
+  LocalDate to,
+  long opened,
+  long returned,
+  long activeAtStart,
+  long activeAtEnd
+) {}
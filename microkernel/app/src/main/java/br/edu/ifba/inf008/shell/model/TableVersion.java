@@ -0,0 +1,67 @@
+package br.edu.ifba.inf008.shell.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Escritas feitas numa entidade por qualquer instância da aplicação, mantidas por
+ * {@link br.edu.ifba.inf008.shell.persistence.TableVersions}. Como em {@link LoanDailyStats},
+ * cada entidade se divide em linhas por {@code slot} e a versão é a soma delas.
+ */
+@Entity
+@IdClass(TableVersion.Key.class)
+@Table(name = "table_versions")
+public class TableVersion {
+  @Id
+  @Column(name = "entity_name", length = 64)
+  private String entityName;
+
+  @Id
+  @Column(name = "slot")
+  private int slot;
+
+  @Column(name = "write_count", nullable = false)
+  private long writeCount;
+
+  public TableVersion() {}
+
+  public String getEntityName() {
+    return entityName;
+  }
+
+  public int getSlot() {
+    return slot;
+  }
+
+  public long getWriteCount() {
+    return writeCount;
+  }
+
+  public static class Key implements Serializable {
+    private String entityName;
+    private int slot;
+
+    public Key() {}
+
+    public Key(String entityName, int slot) {
+      this.entityName = entityName;
+      this.slot = slot;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key key && slot == key.slot && Objects.equals(entityName, key.entityName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(entityName, slot);
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package br.edu.ifba.inf008.shell.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Empréstimos de um usuário desde sempre e quantos seguem ativos, mantidos por
+ * {@link br.edu.ifba.inf008.shell.persistence.LoanStatistics}.
+ */
+@Entity
+@Table(name = "user_loan_stats", indexes = @Index(name = "idx_user_loan_stats_total", columnList = "loans_total"))
+public class UserLoanStats {
+  @Id
+  @Column(name = "user_id")
+  private Integer userId;
+
+  @Column(name = "loans_total", nullable = false)
+  private long loansTotal;
+
+  @Column(name = "loans_active", nullable = false)
+  private long loansActive;
+
+  public UserLoanStats() {}
+
+  public UserLoanStats(Integer userId, long loansTotal, long loansActive) {
+    this.userId = userId;
+    this.loansTotal = loansTotal;
+    this.loansActive = loansActive;
+  }
+
+  public Integer getUserId() {
+    return userId;
+  }
+
+  public long getLoansTotal() {
+    return loansTotal;
+  }
+
+  public long getLoansActive() {
+    return loansActive;
+  }
+
+  @Override
+  public String toString() {
+    return "UserLoanStats{user=" + userId + ", total=" + loansTotal + ", active=" + loansActive + "}";
+  }
+}
@@ -0,0 +1,24 @@
+package br.edu.ifba.inf008.shell.model;
+
+import java.time.LocalDateTime;
+
+/** Linha de usuário para listas; imutável e sem estado de persistência. */
+public record UserRow(
+  Integer userId,
+  String name,
+  String email,
+  LocalDateTime registeredAt
+) {
+  /** SELECT ... FROM para consultas JPQL, com alias {@code u}. */
+  public static final String SELECT_FROM =
+    "SELECT new br.edu.ifba.inf008.shell.model.UserRow(u.userId, u.name, u.email, u.registeredAt)"
+    + " FROM User u";
+
+  public static UserRow of(User user) {
+    return new UserRow(user.getUserId(), user.getName(), user.getEmail(), user.getRegisteredAt());
+  }
+
+  public User toUser() {
+    return new User(userId, name, email, registeredAt);
+  }
+}
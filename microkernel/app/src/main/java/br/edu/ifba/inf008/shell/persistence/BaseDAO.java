@@ -1,41 +1,128 @@
 package br.edu.ifba.inf008.shell.persistence;
 
-import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.query.Query;
 
 import br.edu.ifba.inf008.interfaces.IDAO;
+import br.edu.ifba.inf008.interfaces.IEventBus;
+import br.edu.ifba.inf008.interfaces.SortOrder;
+import br.edu.ifba.inf008.shell.EventBus;
+import br.edu.ifba.inf008.shell.event.EntityEvent;
+import br.edu.ifba.inf008.shell.event.EntityEvent.Change;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.SingularAttribute;
 
 public abstract class BaseDAO<T, ID> implements IDAO<T, ID> {
-  protected EntityManager getEntityManager(){
-    if (isTestEnvironment()) {
-      try {
-        Class<?> testJPAUtilClass = Class.forName("br.edu.ifba.inf008.plugins.user.persistence.TestJPAUtil");
+  /** Tamanho padrão dos lotes JDBC; pode ser alterado com -Dbookstore.jdbc.batch_size. */
+  public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("bookstore.jdbc.batch_size", 50);
 
-        java.lang.reflect.Method getEntityManagerMethod = testJPAUtilClass.getMethod("getEntityManager");
+  /** Linhas buscadas por ida ao banco em {@link #streamAll()}; -Dbookstore.jdbc.fetch_size. */
+  public static final int DEFAULT_FETCH_SIZE = Integer.getInteger("bookstore.jdbc.fetch_size", 500);
 
-        return (EntityManager) getEntityManagerMethod.invoke(null);
-      } catch (ClassNotFoundException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-        return JPAUtil.getEntityManager();
-      }
+  private final EntityManagerProvider entityManagerProvider;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private int fetchSize = DEFAULT_FETCH_SIZE;
+  private volatile SessionFactory sessionFactory;
+  private IEventBus eventBus = EventBus.getInstance();
+
+  protected BaseDAO() {
+    this(JPAUtil.getEntityManagerProvider());
+  }
+
+  protected BaseDAO(EntityManagerProvider entityManagerProvider) {
+    this.entityManagerProvider = entityManagerProvider;
+  }
+
+  /**
+   * Versão das entidades informadas no banco ({@link TableVersions}): muda a cada escrita que
+   * altera alguma delas, feita por este ou por outro terminal. Serve de marca d'água para
+   * recarregar uma lista ou um índice só quando a tabela mudou; custa uma consulta, então deve
+   * ser chamado fora da thread do JavaFX.
+   */
+  public long dataVersion(Class<?>... entities) {
+    try (EntityManager em = getEntityManager()) {
+      return TableVersions.read(em, entities);
     }
-    return JPAUtil.getEntityManager();
   }
-  
-  private boolean isTestEnvironment() {
-    String stackTrace = java.util.Arrays.toString(Thread.currentThread().getStackTrace());
-    boolean isTest = stackTrace.contains("Test") || 
-                     System.getProperty("maven.test.skip") != null ||
-                     System.getProperty("surefire.test.class.path") != null;
-    
-    try {
-      String resourcePath = getClass().getClassLoader().getResource("META-INF/persistence.xml").toString();
-      isTest = isTest || resourcePath.contains("test-classes");
-    } catch (Exception e) {
-      // Se não conseguir acessar o resource, assume que não é teste
+
+  /** Como {@link #dataVersion(Class...)}, para chaves como {@link TableVersions#BOOK_CATALOG}. */
+  public long dataVersion(String... names) {
+    try (EntityManager em = getEntityManager()) {
+      return TableVersions.read(em, List.of(names));
     }
-    
-    return isTest;
+  }
+
+  /**
+   * Entidades alteradas pelas escritas deste DAO; por padrão, só a própria. DAOs que também mexem
+   * em outras tabelas (ex.: o estoque de livros num empréstimo) devem incluí-las.
+   */
+  protected List<Class<?>> getWrittenEntities() {
+    return List.of(getEntityClass());
+  }
+
+  /**
+   * Chaves de {@link TableVersions} somadas por cada escrita deste DAO; por padrão, os nomes de
+   * {@link #getWrittenEntities()}.
+   */
+  protected List<String> getWrittenVersions() {
+    return getWrittenEntities().stream().map(Class::getSimpleName).toList();
+  }
+
+  /**
+   * Evento publicado depois que {@code entity} é gravada pelos métodos padrão (save, update, delete
+   * e as versões em lote); {@code null}, o padrão, não publica nada.
+   */
+  protected EntityEvent changeEvent(T entity, Change change) {
+    return null;
+  }
+
+  /** Publica no barramento do núcleo; chamar só depois do commit. Eventos nulos são ignorados. */
+  protected void publish(EntityEvent event) {
+    if (event != null) {
+      eventBus.publish(event);
+    }
+  }
+
+  protected void publish(Collection<? extends EntityEvent> events) {
+    events.forEach(this::publish);
+  }
+
+  public void setEventBus(IEventBus eventBus) {
+    this.eventBus = eventBus;
+  }
+
+  private void publishAll(Collection<T> entities, Change change) {
+    if (entities != null) {
+      entities.forEach(entity -> publish(changeEvent(entity, change)));
+    }
+  }
+
+  /** Chamado logo antes de cada commit de escrita, para segurar o bloqueio da versão o mínimo possível. */
+  private void markWritten(EntityManager em) {
+    TableVersions.bump(em, getWrittenVersions());
+  }
+
+  protected EntityManager getEntityManager(){
+    return entityManagerProvider.createEntityManager();
   }
 
   @Override
@@ -44,6 +131,7 @@ public abstract class BaseDAO<T, ID> implements IDAO<T, ID> {
       try{
         em.getTransaction().begin();
         em.persist(entity);
+        markWritten(em);
         em.getTransaction().commit();
       } catch (Exception e) {
         em.getTransaction().rollback();
@@ -52,6 +140,7 @@ public abstract class BaseDAO<T, ID> implements IDAO<T, ID> {
         em.close();
       }
     }
+    publish(changeEvent(entity, Change.CREATED));
   }
 
   @Override
@@ -59,7 +148,11 @@ public abstract class BaseDAO<T, ID> implements IDAO<T, ID> {
     try (EntityManager em = getEntityManager()) {
       try {
         Class<T> entityClass = getEntityClass();
-        return em.find(entityClass, id);
+        String graph = getDefaultEntityGraph();
+        if (graph == null) {
+          return em.find(entityClass, id);
+        }
+        return em.find(entityClass, id, Map.of(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(graph)));
       } finally {
         em.close();
       }
@@ -72,19 +165,137 @@ public abstract class BaseDAO<T, ID> implements IDAO<T, ID> {
       try {
         Class<T> entityClass = getEntityClass();
         String lpql = "SELECT e FROM " + entityClass.getSimpleName() + " e"; 
-        return em.createQuery(lpql, entityClass).getResultList();
+        TypedQuery<T> query = withEntityGraph(em, em.createQuery(lpql, entityClass), getDefaultEntityGraph());
+        return (entityClass.isAnnotationPresent(Cacheable.class) ? cacheable(query) : query).getResultList();
       } finally {
         em.close();
       }
     }
   }
 
+  @Override
+  public List<T> findPage(ID afterId, int limit, SortOrder order) {
+    try (EntityManager em = getEntityManager()) {
+      String idName = getIdAttributeName(em);
+      boolean ascending = order != SortOrder.DESCENDING;
+      StringBuilder jpql = new StringBuilder(getSelectAllQuery());
+      if (afterId != null) {
+        jpql.append(" WHERE e.").append(idName).append(ascending ? " > :afterId" : " < :afterId");
+      }
+      jpql.append(" ORDER BY e.").append(idName).append(ascending ? " ASC" : " DESC");
+
+      TypedQuery<T> query = withEntityGraph(em, em.createQuery(jpql.toString(), getEntityClass()), getDefaultEntityGraph())
+        .setMaxResults(limit);
+      if (afterId != null) {
+        query.setParameter("afterId", afterId);
+      }
+      return query.getResultList();
+    }
+  }
+
+  /**
+   * Usa uma StatelessSession (sem contexto de persistência) e um cursor forward-only
+   * com {@link #getFetchSize()} linhas por ida ao banco. As entidades retornadas são destacadas.
+   */
+  @Override
+  public Stream<T> streamAll() {
+    return stream(session -> {
+      String jpql = getSelectAllQuery() + " ORDER BY e." + getIdAttributeName(session.getFactory().getMetamodel());
+      Query<T> query = session.createQuery(jpql, getEntityClass());
+      String graph = getDefaultEntityGraph();
+      if (graph != null) {
+        query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getFactory().findEntityGraphByName(graph));
+      }
+      return query;
+    });
+  }
+
+  /**
+   * Percorre a consulta montada por {@code query} numa StatelessSession, por um cursor
+   * forward-only com {@link #getFetchSize()} linhas por ida ao banco. Com HikariCP, a sessão usa
+   * uma conexão própria, fora do pool ({@link StreamingConnections}), então uma leitura longa não
+   * dispara o aviso de vazamento. O stream precisa ser fechado, o que libera a sessão e a conexão.
+   */
+  protected <R> Stream<R> stream(Function<StatelessSession, Query<R>> query) {
+    SessionFactory factory = getSessionFactory();
+    Connection connection;
+    try {
+      connection = StreamingConnections.open(factory);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Cannot open a connection for streaming", e);
+    }
+    StatelessSession session = connection == null
+      ? factory.openStatelessSession()
+      : factory.withStatelessOptions().connection(connection).openStatelessSession();
+    Runnable close = () -> {
+      session.close();
+      if (connection != null) {
+        try {
+          connection.close();
+        } catch (SQLException e) {
+          System.err.println("Error closing streaming connection: " + e.getMessage());
+        }
+      }
+    };
+    try {
+      return query.apply(session)
+        .setFetchSize(fetchSize)
+        .stream()
+        .onClose(close);
+    } catch (RuntimeException e) {
+      close.run();
+      throw e;
+    }
+  }
+
+
+  /**
+   * Marca a consulta para o cache de consultas. O resultado é invalidado sempre que
+   * uma das tabelas consultadas recebe escrita, então só vale para leituras frequentes.
+   */
+  protected static <R> TypedQuery<R> cacheable(TypedQuery<R> query) {
+    return query.setHint(HibernateHints.HINT_CACHEABLE, true);
+  }
+
+  /**
+   * Nome do entity graph aplicado em findById, findAll, findPage e streamAll.
+   * Nulo (padrão) carrega apenas o que o mapeamento define como EAGER.
+   */
+  protected String getDefaultEntityGraph() {
+    return null;
+  }
+
+  /** Aplica o entity graph nomeado como fetch graph; associações fora dele ficam lazy. */
+  protected static <R> TypedQuery<R> withEntityGraph(EntityManager em, TypedQuery<R> query, String graphName) {
+    if (graphName == null) {
+      return query;
+    }
+    return query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(graphName));
+  }
+
+  /**
+   * JPQL base (alias {@code e}) usada por {@link #findPage} e {@link #streamAll()}.
+   */
+  protected String getSelectAllQuery() {
+    return "SELECT e FROM " + getEntityClass().getSimpleName() + " e";
+  }
+
+  protected SessionFactory getSessionFactory() {
+    if (sessionFactory == null) {
+      try (EntityManager em = getEntityManager()) {
+        sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactory.class);
+      }
+    }
+    return sessionFactory;
+  }
+
   @Override
   public void update(T entity) {
     try (EntityManager em = getEntityManager()) {
       try {
         em.getTransaction().begin();
         em.merge(entity);
+        markWritten(em);
         em.getTransaction().commit();
       } catch (Exception e) {
         em.getTransaction().rollback();
@@ -93,6 +304,7 @@ public abstract class BaseDAO<T, ID> implements IDAO<T, ID> {
         em.close();
       }
     }
+    publish(changeEvent(entity, Change.UPDATED));
   }
 
   @Override
@@ -101,7 +313,9 @@ public abstract class BaseDAO<T, ID> implements IDAO<T, ID> {
       try {
         em.getTransaction().begin();
         T managedEntity = em.merge(entity);
+        beforeDelete(em, List.of(em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(managedEntity)));
         em.remove(managedEntity);
+        markWritten(em);
         em.getTransaction().commit();
       } catch (Exception e) {
         em.getTransaction().rollback();
@@ -110,6 +324,147 @@ public abstract class BaseDAO<T, ID> implements IDAO<T, ID> {
         em.close();
       }
     }
+    publish(changeEvent(entity, Change.DELETED));
+  }
+
+  @Override
+  public void saveAll(Collection<T> entities) {
+    executeInBatches(entities, EntityManager::persist);
+    publishAll(entities, Change.CREATED);
+  }
+
+  @Override
+  public void updateAll(Collection<T> entities) {
+    executeInBatches(entities, EntityManager::merge);
+    publishAll(entities, Change.UPDATED);
+  }
+
+  /**
+   * Chamado na transação de {@link #delete} e {@link #deleteAll}, antes de remover as entidades
+   * com esses ids; serve para acertar dados derivados de linhas que o banco apaga em cascata.
+   */
+  protected void beforeDelete(EntityManager em, List<Object> ids) {
+  }
+
+  /**
+   * Remove as entidades com um DELETE por lote de ids, sem carregá-las no contexto de persistência.
+   */
+  @Override
+  public void deleteAll(Collection<T> entities) {
+    if (entities == null || entities.isEmpty()) {
+      return;
+    }
+    try (EntityManager em = getEntityManager()) {
+      try {
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        Class<T> entityClass = getEntityClass();
+        String jpql = "DELETE FROM " + entityClass.getSimpleName() + " e WHERE e." + getIdAttributeName(em) + " IN :ids";
+
+        em.getTransaction().begin();
+        List<Object> ids = new ArrayList<>(batchSize);
+        for (T entity : entities) {
+          ids.add(util.getIdentifier(entity));
+          if (ids.size() == batchSize) {
+            beforeDelete(em, ids);
+            em.createQuery(jpql).setParameter("ids", ids).executeUpdate();
+            ids.clear();
+          }
+        }
+        if (!ids.isEmpty()) {
+          beforeDelete(em, ids);
+          em.createQuery(jpql).setParameter("ids", ids).executeUpdate();
+        }
+        markWritten(em);
+        em.getTransaction().commit();
+      } catch (RuntimeException e) {
+        if (em.getTransaction().isActive()) {
+          em.getTransaction().rollback();
+        }
+        throw e;
+      }
+    }
+    publishAll(entities, Change.DELETED);
+  }
+
+  protected void executeInTransaction(Consumer<EntityManager> work) {
+    try (EntityManager em = getEntityManager()) {
+      try {
+        em.getTransaction().begin();
+        work.accept(em);
+        markWritten(em);
+        em.getTransaction().commit();
+      } catch (RuntimeException e) {
+        if (em.getTransaction().isActive()) {
+          em.getTransaction().rollback();
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Aplica a operação a cada entidade em uma única transação, usando lotes JDBC
+   * e esvaziando o contexto de persistência a cada {@link #getBatchSize()} entidades.
+   */
+  protected void executeInBatches(Collection<? extends T> entities, BiConsumer<EntityManager, T> operation) {
+    if (entities == null || entities.isEmpty()) {
+      return;
+    }
+    try (EntityManager em = getEntityManager()) {
+      try {
+        em.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        em.getTransaction().begin();
+        int count = 0;
+        for (T entity : entities) {
+          operation.accept(em, entity);
+          if (++count % batchSize == 0) {
+            em.flush();
+            em.clear();
+          }
+        }
+        markWritten(em);
+        em.getTransaction().commit();
+      } catch (RuntimeException e) {
+        if (em.getTransaction().isActive()) {
+          em.getTransaction().rollback();
+        }
+        throw e;
+      }
+    }
+  }
+
+  protected String getIdAttributeName(EntityManager em) {
+    return getIdAttributeName(em.getMetamodel());
+  }
+
+  private String getIdAttributeName(Metamodel metamodel) {
+    return metamodel.entity(getEntityClass()).getSingularAttributes().stream()
+      .filter(SingularAttribute::isId)
+      .map(SingularAttribute::getName)
+      .findFirst()
+      .orElseThrow(() -> new IllegalStateException("No id attribute mapped for " + getEntityClass().getSimpleName()));
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+    }
+    this.batchSize = batchSize;
+  }
+
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  public void setFetchSize(int fetchSize) {
+    if (fetchSize < 1) {
+      throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+    }
+    this.fetchSize = fetchSize;
   }
 
   protected abstract Class<T> getEntityClass();
@@ -0,0 +1,49 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import br.edu.ifba.inf008.shell.model.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Movimenta {@code Book.copiesAvailable} com a linha do livro travada ({@code SELECT ... FOR
+ * UPDATE}) até o fim da transação: dois empréstimos simultâneos da última cópia não podem ambos
+ * ter sucesso. A alteração passa pela entidade gerenciada, então só o livro alterado sai do cache
+ * de segundo nível; um UPDATE em massa em HQL invalidaria a região {@code books} inteira e as
+ * consultas em cache. Deve ser chamado dentro de uma transação.
+ */
+public final class BookInventory {
+  private BookInventory() {}
+
+  /** Retira uma cópia; {@code false} se o livro não existe ou não tem cópias disponíveis. */
+  public static boolean take(EntityManager em, Integer bookId) {
+    Book book = lock(em, bookId);
+    if (book == null || book.getCopiesAvailable() == null || book.getCopiesAvailable() <= 0) {
+      return false;
+    }
+    book.setCopiesAvailable(book.getCopiesAvailable() - 1);
+    return true;
+  }
+
+  public static void release(EntityManager em, Integer bookId) {
+    Book book = lock(em, bookId);
+    if (book != null) {
+      book.setCopiesAvailable(book.getCopiesAvailable() == null ? 1 : book.getCopiesAvailable() + 1);
+    }
+  }
+
+  /**
+   * O livro gerenciado, relido do banco com a trava. {@code refresh} em vez de {@code find}: o
+   * livro pode já estar no contexto (ex.: pelo empréstimo), e {@code find} com trava não relê o
+   * estado de uma instância já carregada.
+   */
+  private static Book lock(EntityManager em, Integer bookId) {
+    try {
+      Book book = em.getReference(Book.class, bookId);
+      em.refresh(book, LockModeType.PESSIMISTIC_WRITE);
+      return book;
+    } catch (EntityNotFoundException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Retrato dos contadores do cache de segundo nível e do cache de consultas.
+ * Os valores só são coletados com {@code hibernate.generate_statistics=true}.
+ */
+public record CacheStatistics(
+  long secondLevelHits,
+  long secondLevelMisses,
+  long secondLevelPuts,
+  long queryHits,
+  long queryMisses,
+  long queryPuts,
+  Map<String, Region> regions
+) {
+
+  public record Region(long hits, long misses, long puts, long elementsInMemory) {
+  }
+
+  public static CacheStatistics of(EntityManagerFactory factory) {
+    Statistics statistics = factory.unwrap(SessionFactory.class).getStatistics();
+
+    Map<String, Region> regions = new LinkedHashMap<>();
+    for (String name : statistics.getSecondLevelCacheRegionNames()) {
+      CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+      if (region != null) {
+        regions.put(name, new Region(
+          region.getHitCount(),
+          region.getMissCount(),
+          region.getPutCount(),
+          region.getElementCountInMemory()
+        ));
+      }
+    }
+
+    return new CacheStatistics(
+      statistics.getSecondLevelCacheHitCount(),
+      statistics.getSecondLevelCacheMissCount(),
+      statistics.getSecondLevelCachePutCount(),
+      statistics.getQueryCacheHitCount(),
+      statistics.getQueryCacheMissCount(),
+      statistics.getQueryCachePutCount(),
+      Map.copyOf(regions)
+    );
+  }
+
+  public double secondLevelHitRatio() {
+    long total = secondLevelHits + secondLevelMisses;
+    return total == 0 ? 0 : (double) secondLevelHits / total;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("CacheStatistics{");
+    sb.append("hits=").append(secondLevelHits);
+    sb.append(", misses=").append(secondLevelMisses);
+    sb.append(", puts=").append(secondLevelPuts);
+    sb.append(", hitRatio=").append(String.format("%.2f", secondLevelHitRatio()));
+    sb.append(", queryHits=").append(queryHits);
+    sb.append(", queryMisses=").append(queryMisses);
+    sb.append(", regions=").append(regions);
+    sb.append('}');
+    return sb.toString();
+  }
+}
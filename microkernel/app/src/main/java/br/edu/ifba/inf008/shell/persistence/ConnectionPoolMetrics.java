@@ -0,0 +1,117 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Coleta métricas do pool HikariCP usado por uma EntityManagerFactory:
+ * conexões ativas/ociosas, threads aguardando e um histograma do tempo de aquisição.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+  /** Limites superiores (exclusivos) dos buckets do histograma, em microssegundos. */
+  static final long[] ACQUIRE_BUCKETS_MICROS = {
+    50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000
+  };
+
+  private final LongAdder[] acquireBuckets = new LongAdder[ACQUIRE_BUCKETS_MICROS.length + 1];
+  private final LongAdder acquireCount = new LongAdder();
+  private final LongAdder acquireTotalNanos = new LongAdder();
+  private final LongAccumulator acquireMaxNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder timeouts = new LongAdder();
+  private final HikariDataSource dataSource;
+
+  ConnectionPoolMetrics(HikariDataSource dataSource) {
+    this.dataSource = dataSource;
+    for (int i = 0; i < acquireBuckets.length; i++) {
+      acquireBuckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Registra o coletor no pool da factory informada.
+   *
+   * @return o coletor, ou {@code null} se a factory não usa HikariCP
+   */
+  public static ConnectionPoolMetrics attach(EntityManagerFactory factory) {
+    ConnectionProvider provider = factory.unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(ConnectionProvider.class);
+
+    if (provider == null || !provider.isUnwrappableAs(DataSource.class)) {
+      return null;
+    }
+    DataSource dataSource = provider.unwrap(DataSource.class);
+    if (!(dataSource instanceof HikariDataSource hikari)) {
+      return null;
+    }
+
+    ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(hikari);
+    hikari.setMetricsTrackerFactory(metrics);
+    return metrics;
+  }
+
+  @Override
+  public IMetricsTracker create(String poolName, PoolStats poolStats) {
+    return new IMetricsTracker() {
+      @Override
+      public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        recordAcquire(elapsedAcquiredNanos);
+      }
+
+      @Override
+      public void recordConnectionTimeout() {
+        timeouts.increment();
+      }
+    };
+  }
+
+  void recordAcquire(long nanos) {
+    long micros = nanos / 1_000;
+    int bucket = 0;
+    while (bucket < ACQUIRE_BUCKETS_MICROS.length && micros >= ACQUIRE_BUCKETS_MICROS[bucket]) {
+      bucket++;
+    }
+    acquireBuckets[bucket].increment();
+    acquireCount.increment();
+    acquireTotalNanos.add(nanos);
+    acquireMaxNanos.accumulate(nanos);
+  }
+
+  public PoolStatistics snapshot() {
+    HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+
+    long[] counts = new long[acquireBuckets.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = acquireBuckets[i].sum();
+    }
+
+    return new PoolStatistics(
+      dataSource.getPoolName(),
+      pool != null ? pool.getActiveConnections() : 0,
+      pool != null ? pool.getIdleConnections() : 0,
+      pool != null ? pool.getTotalConnections() : 0,
+      pool != null ? pool.getThreadsAwaitingConnection() : 0,
+      dataSource.getMinimumIdle(),
+      dataSource.getMaximumPoolSize(),
+      acquireCount.sum(),
+      acquireTotalNanos.sum(),
+      acquireMaxNanos.get(),
+      timeouts.sum(),
+      ACQUIRE_BUCKETS_MICROS.clone(),
+      counts
+    );
+  }
+}
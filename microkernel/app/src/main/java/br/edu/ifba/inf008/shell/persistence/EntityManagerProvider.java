@@ -0,0 +1,14 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Fonte de EntityManagers usada pelos DAOs.
+ * <p>
+ * A implementação é resolvida uma única vez (ver {@link JPAUtil#getEntityManagerProvider()})
+ * e injetada no construtor de {@link BaseDAO}; testes injetam a própria factory.
+ */
+@FunctionalInterface
+public interface EntityManagerProvider {
+  EntityManager createEntityManager();
+}
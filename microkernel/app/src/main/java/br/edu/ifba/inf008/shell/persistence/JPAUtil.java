@@ -1,5 +1,9 @@
 package br.edu.ifba.inf008.shell.persistence;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
@@ -10,12 +14,31 @@ import jakarta.persistence.Persistence;
  */
 public class JPAUtil {
     
+  private static final String POOL_PROPERTY_PREFIX = "hibernate.hikari.";
+
+  /** Persistence unit usada pela aplicação; pode ser trocada com -Dbookstore.persistence.unit. */
+  public static final String PERSISTENCE_UNIT =
+    System.getProperty("bookstore.persistence.unit", "bookstore-pu");
+
   private static final EntityManagerFactory FACTORY = 
-    Persistence.createEntityManagerFactory("bookstore-pu");
+    Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, poolOverrides());
+
+  private static final EntityManagerProvider PROVIDER = FACTORY::createEntityManager;
+
+  private static final ConnectionPoolMetrics POOL_METRICS = ConnectionPoolMetrics.attach(FACTORY);
 
   static {
+    // O esquema é versionado em db/migration; desative com -Dbookstore.schema.migrate=false
+    if (Boolean.parseBoolean(System.getProperty("bookstore.schema.migrate", "true"))) {
+      SchemaMigrator.migrate(FACTORY);
+    }
+
     Runtime.getRuntime().addShutdownHook(new Thread(() -> {
       System.out.println("Closing database connections...");
+      getPoolStatistics().ifPresent(stats -> System.out.println("Connection pool: " + stats));
+      if (FACTORY.isOpen()) {
+        System.out.println("Second-level cache: " + getCacheStatistics());
+      }
       closeFactory();
     }));
   }
@@ -24,6 +47,10 @@ public class JPAUtil {
     return FACTORY.createEntityManager();
   }
 
+  public static EntityManagerProvider getEntityManagerProvider() {
+    return PROVIDER;
+  }
+
   public static Object getEntityManagerAsObject() {
     return FACTORY.createEntityManager();
   }
@@ -35,6 +62,29 @@ public class JPAUtil {
     }
   }
     
+  /**
+   * Estatísticas atuais do pool de conexões (ativas, ociosas, threads aguardando
+   * e histograma do tempo de aquisição). Vazio se o pool não estiver em uso.
+   */
+  public static Optional<PoolStatistics> getPoolStatistics() {
+    return POOL_METRICS == null ? Optional.empty() : Optional.of(POOL_METRICS.snapshot());
+  }
+
+  /** Contadores de acerto/falha do cache de segundo nível e do cache de consultas. */
+  public static CacheStatistics getCacheStatistics() {
+    return CacheStatistics.of(FACTORY);
+  }
+
+  private static Map<String, Object> poolOverrides() {
+    Map<String, Object> overrides = new HashMap<>();
+    System.getProperties().forEach((key, value) -> {
+      if (key.toString().startsWith(POOL_PROPERTY_PREFIX)) {
+        overrides.put(key.toString(), value);
+      }
+    });
+    return overrides;
+  }
+    
   public static void closeFactory() {
     if (FACTORY != null && FACTORY.isOpen()) {
       try{
@@ -0,0 +1,246 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import br.edu.ifba.inf008.shell.model.BookLoanStats;
+import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.LoanDailyStats;
+import br.edu.ifba.inf008.shell.model.UserLoanStats;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Mantém os agregados de empréstimos ({@link LoanDailyStats}, {@link BookLoanStats} e
+ * {@link UserLoanStats}) junto com as escritas de empréstimos, com incrementos na mesma
+ * transação: quem grava um empréstimo informa o antes e o depois, e só as linhas afetadas
+ * mudam. Deve ser chamado dentro de uma transação.
+ * <p>
+ * Acréscimos são um {@link Upsert} no banco, então duas transações que criam a mesma linha
+ * não derrubam uma à outra. O dia vai para um {@code slot} sorteado entre {@link #DAILY_SLOTS},
+ * para que empréstimos simultâneos não fiquem em fila no bloqueio da linha de hoje.
+ * <p>
+ * Escritas que não passam por aqui (cargas em lote, SQL manual) deixam os agregados
+ * defasados até um {@link #rebuild(EntityManager)}.
+ */
+public final class LoanStatistics {
+  /** Linhas por dia em {@code loan_daily_stats}; -Dbookstore.stats.daily_slots. */
+  public static final int DAILY_SLOTS = Integer.getInteger("bookstore.stats.daily_slots", 16);
+
+  /** Recalcula os agregados a partir da tabela de empréstimos; o SQL da migração V3, tudo no slot 0. */
+  public static final List<String> REBUILD_SQL = List.of(
+    "DELETE FROM loan_daily_stats",
+    "DELETE FROM book_loan_stats",
+    "DELETE FROM user_loan_stats",
+    "INSERT INTO loan_daily_stats (stat_date, slot, loans_opened, loans_returned)"
+      + " SELECT stat_date, 0, SUM(opened), SUM(returned) FROM ("
+      + " SELECT loan_date AS stat_date, COUNT(*) AS opened, 0 AS returned FROM loans GROUP BY loan_date"
+      + " UNION ALL"
+      + " SELECT return_date, 0, COUNT(*) FROM loans WHERE return_date IS NOT NULL GROUP BY return_date"
+      + ") daily GROUP BY stat_date",
+    "INSERT INTO book_loan_stats (book_id, loans_total, loans_active)"
+      + " SELECT book_id, COUNT(*), SUM(CASE WHEN return_date IS NULL THEN 1 ELSE 0 END) FROM loans GROUP BY book_id",
+    "INSERT INTO user_loan_stats (user_id, loans_total, loans_active)"
+      + " SELECT user_id, COUNT(*), SUM(CASE WHEN return_date IS NULL THEN 1 ELSE 0 END) FROM loans GROUP BY user_id");
+
+  private static final Upsert DAY = new Upsert("loan_daily_stats",
+    new String[] {"stat_date", "slot"}, new String[] {"DATE", "SMALLINT"}, "loans_opened", "loans_returned");
+  private static final Upsert BOOK = new Upsert("book_loan_stats",
+    new String[] {"book_id"}, new String[] {"INT"}, "loans_total", "loans_active");
+  private static final Upsert USER = new Upsert("user_loan_stats",
+    new String[] {"user_id"}, new String[] {"INT"}, "loans_total", "loans_active");
+
+  private LoanStatistics() {}
+
+  /** O que um empréstimo conta nos agregados; capture antes de alterar a entidade gerenciada. */
+  public record Snapshot(Integer userId, Integer bookId, LocalDate loanDate, LocalDate returnDate) {
+    public static Snapshot of(Loan loan) {
+      return new Snapshot(loan.getUser().getUserId(), loan.getBook().getBookId(), loan.getLoanDate(), loan.getReturnDate());
+    }
+  }
+
+  /** Troca a contribuição de {@code before} pela de {@code after}; nulo para empréstimo criado ou removido. */
+  public static void change(EntityManager em, Snapshot before, Snapshot after) {
+    Deltas deltas = new Deltas();
+    if (before != null) {
+      deltas.add(before, -1);
+    }
+    if (after != null) {
+      deltas.add(after, 1);
+    }
+    deltas.apply(em);
+  }
+
+  /**
+   * Retira dos agregados os empréstimos que casam com {@code condition} (JPQL sobre o alias
+   * {@code l}, com o parâmetro {@code :ids}), antes de uma exclusão em massa deles, como a
+   * de um usuário ou livro. Agrupa no banco, então custa uma consulta por agregado.
+   */
+  public static void removeLoans(EntityManager em, String condition, Collection<?> ids) {
+    Deltas deltas = new Deltas();
+    String from = " FROM Loan l WHERE " + condition;
+    for (Object[] row : em.createQuery("SELECT l.loanDate, COUNT(l)" + from + " GROUP BY l.loanDate", Object[].class)
+        .setParameter("ids", ids).getResultList()) {
+      deltas.day((LocalDate) row[0], -(Long) row[1], 0);
+    }
+    for (Object[] row : em.createQuery("SELECT l.returnDate, COUNT(l)" + from
+        + " AND l.returnDate IS NOT NULL GROUP BY l.returnDate", Object[].class).setParameter("ids", ids).getResultList()) {
+      deltas.day((LocalDate) row[0], 0, -(Long) row[1]);
+    }
+    String counts = ", COUNT(l), SUM(CASE WHEN l.returnDate IS NULL THEN 1 ELSE 0 END)" + from;
+    for (Object[] row : em.createQuery("SELECT l.book.bookId" + counts + " GROUP BY l.book.bookId", Object[].class)
+        .setParameter("ids", ids).getResultList()) {
+      deltas.book((Integer) row[0], -(Long) row[1], -(Long) row[2]);
+    }
+    for (Object[] row : em.createQuery("SELECT l.user.userId" + counts + " GROUP BY l.user.userId", Object[].class)
+        .setParameter("ids", ids).getResultList()) {
+      deltas.user((Integer) row[0], -(Long) row[1], -(Long) row[2]);
+    }
+    deltas.apply(em);
+  }
+
+  /** Refaz os agregados do zero com {@link #REBUILD_SQL}. */
+  public static void rebuild(EntityManager em) {
+    for (String sql : REBUILD_SQL) {
+      em.createNativeQuery(sql).executeUpdate();
+    }
+  }
+
+  /**
+   * Variações acumuladas por dia, livro e usuário; zeros não chegam ao banco. Uma linha
+   * inexistente só é criada para acréscimos: retirar de uma linha que não existe indica
+   * agregados já defasados, e não vale gravar contagens negativas.
+   */
+  private static class Deltas {
+    private final Map<LocalDate, long[]> days = new HashMap<>();
+    private final Map<Integer, long[]> books = new HashMap<>();
+    private final Map<Integer, long[]> users = new HashMap<>();
+
+    void add(Snapshot loan, int sign) {
+      long active = loan.returnDate() == null ? sign : 0;
+      day(loan.loanDate(), sign, 0);
+      if (loan.returnDate() != null) {
+        day(loan.returnDate(), 0, sign);
+      }
+      book(loan.bookId(), sign, active);
+      user(loan.userId(), sign, active);
+    }
+
+    void day(LocalDate day, long opened, long returned) {
+      long[] delta = days.computeIfAbsent(day, key -> new long[2]);
+      delta[0] += opened;
+      delta[1] += returned;
+    }
+
+    void book(Integer bookId, long total, long active) {
+      long[] delta = books.computeIfAbsent(bookId, key -> new long[2]);
+      delta[0] += total;
+      delta[1] += active;
+    }
+
+    void user(Integer userId, long total, long active) {
+      long[] delta = users.computeIfAbsent(userId, key -> new long[2]);
+      delta[0] += total;
+      delta[1] += active;
+    }
+
+    void apply(EntityManager em) {
+      days.forEach((day, delta) -> {
+        if (isZero(delta)) {
+          return;
+        }
+        if (isIncrease(delta)) {
+          DAY.execute(em, delta, day, ThreadLocalRandom.current().nextInt(DAILY_SLOTS));
+          return;
+        }
+        // Retiradas vão para qualquer slot do dia: só a soma deles importa
+        Integer slot = em.createQuery("SELECT MIN(s.slot) FROM LoanDailyStats s WHERE s.statDate = :day", Integer.class)
+          .setParameter("day", day)
+          .getSingleResult();
+        if (slot == null) {
+          return;
+        }
+        em.createQuery("UPDATE LoanDailyStats s SET s.loansOpened = s.loansOpened + :opened,"
+            + " s.loansReturned = s.loansReturned + :returned WHERE s.statDate = :day AND s.slot = :slot")
+          .setParameter("opened", delta[0])
+          .setParameter("returned", delta[1])
+          .setParameter("day", day)
+          .setParameter("slot", slot)
+          .executeUpdate();
+      });
+      books.forEach((bookId, delta) -> {
+        if (isZero(delta)) {
+          return;
+        }
+        if (isIncrease(delta)) {
+          BOOK.execute(em, delta, bookId);
+        } else {
+          updateTotals(em, "BookLoanStats", "bookId", bookId, delta);
+        }
+      });
+      users.forEach((userId, delta) -> {
+        if (isZero(delta)) {
+          return;
+        }
+        if (isIncrease(delta)) {
+          USER.execute(em, delta, userId);
+        } else {
+          updateTotals(em, "UserLoanStats", "userId", userId, delta);
+        }
+      });
+      // Linhas que chegaram a zero somem, como se tivessem sido recalculadas por rebuild
+      deleteEmptied(em, "DELETE FROM LoanDailyStats s WHERE s.statDate IN :ids", emptiedDays(em,
+        decreased(days, delta -> delta[0] < 0 || delta[1] < 0)));
+      deleteEmptied(em, "DELETE FROM BookLoanStats s WHERE s.loansTotal = 0 AND s.bookId IN :ids",
+        decreased(books, delta -> delta[0] < 0));
+      deleteEmptied(em, "DELETE FROM UserLoanStats s WHERE s.loansTotal = 0 AND s.userId IN :ids",
+        decreased(users, delta -> delta[0] < 0));
+    }
+
+    /** Dias cujos slots somam zero; o MariaDB não aceita a subconsulta na mesma tabela do DELETE. */
+    private static List<LocalDate> emptiedDays(EntityManager em, List<LocalDate> days) {
+      if (days.isEmpty()) {
+        return days;
+      }
+      return em.createQuery("SELECT s.statDate FROM LoanDailyStats s WHERE s.statDate IN :days GROUP BY s.statDate"
+          + " HAVING SUM(s.loansOpened) = 0 AND SUM(s.loansReturned) = 0", LocalDate.class)
+        .setParameter("days", days)
+        .getResultList();
+    }
+
+    /** Só linhas com a contagem diminuída podem ter zerado; devoluções e novos empréstimos não apagam nada. */
+    private static <K> List<K> decreased(Map<K, long[]> deltas, Predicate<long[]> decrease) {
+      return deltas.entrySet().stream()
+        .filter(entry -> decrease.test(entry.getValue()))
+        .map(Map.Entry::getKey)
+        .toList();
+    }
+
+    private static void deleteEmptied(EntityManager em, String jpql, List<?> ids) {
+      if (!ids.isEmpty()) {
+        em.createQuery(jpql).setParameter("ids", ids).executeUpdate();
+      }
+    }
+
+    private static int updateTotals(EntityManager em, String entity, String idName, Integer id, long[] delta) {
+      return em.createQuery("UPDATE " + entity + " s SET s.loansTotal = s.loansTotal + :total,"
+          + " s.loansActive = s.loansActive + :active WHERE s." + idName + " = :id")
+        .setParameter("total", delta[0])
+        .setParameter("active", delta[1])
+        .setParameter("id", id)
+        .executeUpdate();
+    }
+
+    private static boolean isZero(long[] delta) {
+      return delta[0] == 0 && delta[1] == 0;
+    }
+
+    private static boolean isIncrease(long[] delta) {
+      return delta[0] >= 0 && delta[1] >= 0;
+    }
+  }
+}
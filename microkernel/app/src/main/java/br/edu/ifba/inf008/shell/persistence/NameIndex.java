@@ -0,0 +1,329 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de autocompletar por prefixo sobre nomes (usuários, títulos de livros).
+ * <p>
+ * Guarda, em arrays ordenados, o nome normalizado a partir de cada início de palavra junto com
+ * o id, de modo que "lord" encontra "The Lord of the Rings". A consulta é uma busca binária
+ * seguida de uma varredura só das entradas com o prefixo; nomes que começam com o texto vêm antes.
+ * <p>
+ * As instâncias {@link #USERS} e {@link #BOOKS} são compartilhadas pelos DAOs: quem consulta
+ * carrega o índice com {@link #loadIfOlder(long, Supplier)}, que recarrega quando a versão da
+ * tabela no banco ({@link TableVersions}) passou da última carga, e as escritas deste processo o
+ * atualizam na hora com {@link #put(int, String)} e {@link #remove(int)}, ignoradas enquanto ele
+ * não foi carregado. Depois delas, {@link #acknowledge(long)} evita que o próprio incremento da
+ * versão force uma recarga.
+ */
+public final class NameIndex {
+  public static final NameIndex USERS = new NameIndex();
+  public static final NameIndex BOOKS = new NameIndex();
+
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+  private String[] keys = new String[0];
+  private int[] ids = new int[0];
+  private boolean[] leading = new boolean[0];
+  private int size;
+  private final Map<Integer, String> names = new HashMap<>();
+  private boolean loaded;
+  private long loadedVersion;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Texto sem acentos, em minúsculas e sem espaços nas pontas; {@code null} vira "". */
+  public static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    String decomposed = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+    return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+  public boolean isLoaded() {
+    lock.readLock().lock();
+    try {
+      return loaded;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Carrega todos os nomes (id para nome) se o índice ainda não foi carregado. */
+  public void loadIfEmpty(Supplier<Map<Integer, String>> source) {
+    if (isLoaded()) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      if (!loaded) {
+        load(source.get());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Carrega todos os nomes se o índice ainda não foi carregado ou se a última carga veio de uma
+   * versão do banco anterior a {@code version}. A versão deve ser lida antes de chamar: uma
+   * escrita durante a carga deixa o índice com a versão antiga e a próxima consulta recarrega.
+   */
+  public void loadIfOlder(long version, Supplier<Map<Integer, String>> source) {
+    lock.readLock().lock();
+    try {
+      if (loaded && loadedVersion >= version) {
+        return;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    Map<Integer, String> names = source.get();
+    lock.writeLock().lock();
+    try {
+      if (!loaded || loadedVersion < version) {
+        load(names);
+        loadedVersion = version;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Depois de uma escrita deste processo já aplicada com {@link #put}/{@link #remove}: se a versão
+   * do banco avançou só pelo incremento dessa transação, o índice continua em dia e não precisa
+   * ser recarregado. Com outra escrita no meio, a versão não bate e a próxima carga recarrega.
+   */
+  public void acknowledge(long version) {
+    lock.writeLock().lock();
+    try {
+      if (loaded && version == loadedVersion + 1) {
+        loadedVersion = version;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Descarta o conteúdo; a próxima consulta recarrega do banco. */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      keys = new String[0];
+      ids = new int[0];
+      leading = new boolean[0];
+      size = 0;
+      names.clear();
+      loaded = false;
+      loadedVersion = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void put(int id, String name) {
+    lock.writeLock().lock();
+    try {
+      if (!loaded) {
+        return;
+      }
+      unindex(id);
+      String normalized = normalize(name);
+      names.put(id, normalized);
+      forEachWordStart(normalized, start -> insert(normalized.substring(start), id, start == 0));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(int id) {
+    lock.writeLock().lock();
+    try {
+      if (loaded) {
+        unindex(id);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Até {@code limit} ids cujo nome tem uma palavra começando com o texto; primeiro os nomes
+   * que começam com ele, depois os demais, cada grupo em ordem alfabética.
+   */
+  public int[] complete(String text, int limit) {
+    String prefix = normalize(text);
+    if (prefix.isEmpty() || limit <= 0) {
+      return new int[0];
+    }
+    lock.readLock().lock();
+    try {
+      int[] first = new int[limit];
+      int[] rest = new int[limit];
+      int firstCount = 0;
+      int restCount = 0;
+      for (int i = lowerBound(prefix, Integer.MIN_VALUE); i < size && firstCount < limit; i++) {
+        if (!keys[i].startsWith(prefix)) {
+          break;
+        }
+        if (leading[i]) {
+          first[firstCount++] = ids[i];
+        } else if (restCount < limit && !contains(rest, restCount, ids[i])) {
+          rest[restCount++] = ids[i];
+        }
+      }
+
+      int[] result = Arrays.copyOf(first, Math.min(limit, firstCount + restCount));
+      int count = firstCount;
+      for (int i = 0; i < restCount && count < result.length; i++) {
+        if (!contains(first, firstCount, rest[i])) {
+          result[count++] = rest[i];
+        }
+      }
+      return count == result.length ? result : Arrays.copyOf(result, count);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return names.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void load(Map<Integer, String> source) {
+    names.clear();
+    int total = 0;
+    String[] normalized = new String[source.size()];
+    int[] sourceIds = new int[source.size()];
+    int n = 0;
+    for (Map.Entry<Integer, String> entry : source.entrySet()) {
+      sourceIds[n] = entry.getKey();
+      normalized[n] = normalize(entry.getValue());
+      total += countWordStarts(normalized[n]);
+      n++;
+    }
+
+    Integer[] order = new Integer[total];
+    String[] newKeys = new String[total];
+    int[] newIds = new int[total];
+    boolean[] newLeading = new boolean[total];
+    int[] next = {0};
+    for (int i = 0; i < n; i++) {
+      String name = normalized[i];
+      int id = sourceIds[i];
+      names.put(id, name);
+      forEachWordStart(name, start -> {
+        newKeys[next[0]] = name.substring(start);
+        newIds[next[0]] = id;
+        newLeading[next[0]] = start == 0;
+        order[next[0]] = next[0];
+        next[0]++;
+      });
+    }
+    Arrays.sort(order, (a, b) -> compare(newKeys[a], newIds[a], newKeys[b], newIds[b]));
+
+    keys = new String[total];
+    ids = new int[total];
+    leading = new boolean[total];
+    for (int i = 0; i < total; i++) {
+      keys[i] = newKeys[order[i]];
+      ids[i] = newIds[order[i]];
+      leading[i] = newLeading[order[i]];
+    }
+    size = total;
+    loaded = true;
+  }
+
+  private void unindex(int id) {
+    String previous = names.remove(id);
+    if (previous == null) {
+      return;
+    }
+    forEachWordStart(previous, start -> {
+      int pos = lowerBound(previous.substring(start), id);
+      if (pos < size && ids[pos] == id && keys[pos].equals(previous.substring(start))) {
+        System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        System.arraycopy(leading, pos + 1, leading, pos, size - pos - 1);
+        size--;
+        keys[size] = null;
+      }
+    });
+  }
+
+  private void insert(String key, int id, boolean isLeading) {
+    if (size == keys.length) {
+      int capacity = size + (size >> 1) + 8;
+      keys = Arrays.copyOf(keys, capacity);
+      ids = Arrays.copyOf(ids, capacity);
+      leading = Arrays.copyOf(leading, capacity);
+    }
+    int pos = lowerBound(key, id);
+    System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+    System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+    System.arraycopy(leading, pos, leading, pos + 1, size - pos);
+    keys[pos] = key;
+    ids[pos] = id;
+    leading[pos] = isLeading;
+    size++;
+  }
+
+  /** Primeira posição cuja entrada (chave, id) não é menor que a informada. */
+  private int lowerBound(String key, int id) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(keys[mid], ids[mid], key, id) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static int compare(String keyA, int idA, String keyB, int idB) {
+    int byKey = keyA.compareTo(keyB);
+    return byKey != 0 ? byKey : Integer.compare(idA, idB);
+  }
+
+  private static boolean contains(int[] values, int count, int value) {
+    for (int i = 0; i < count; i++) {
+      if (values[i] == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int countWordStarts(String name) {
+    int[] count = {0};
+    forEachWordStart(name, start -> count[0]++);
+    return count[0];
+  }
+
+  private static void forEachWordStart(String name, IntConsumer action) {
+    for (int i = 0; i < name.length(); i++) {
+      boolean wordChar = Character.isLetterOrDigit(name.charAt(i));
+      if (wordChar && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))) {
+        action.accept(i);
+      }
+    }
+  }
+}
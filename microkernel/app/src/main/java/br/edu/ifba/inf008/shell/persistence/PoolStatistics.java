@@ -0,0 +1,63 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+/**
+ * Retrato imutável do estado do pool de conexões em um instante.
+ * <p>
+ * {@code acquireBucketCounts[i]} conta as aquisições com duração menor que
+ * {@code acquireBucketBoundsMicros[i]}; a última posição conta as que excederam o maior limite.
+ */
+public record PoolStatistics(
+  String poolName,
+  int activeConnections,
+  int idleConnections,
+  int totalConnections,
+  int threadsAwaitingConnection,
+  int minimumIdle,
+  int maximumPoolSize,
+  long acquireCount,
+  long acquireTotalNanos,
+  long acquireMaxNanos,
+  long acquireTimeouts,
+  long[] acquireBucketBoundsMicros,
+  long[] acquireBucketCounts
+) {
+
+  public double acquireMeanMicros() {
+    return acquireCount == 0 ? 0 : acquireTotalNanos / 1_000.0 / acquireCount;
+  }
+
+  /** Estimativa do percentil (0-100) do tempo de aquisição, pelo limite superior do bucket. */
+  public long acquirePercentileMicros(double percentile) {
+    if (acquireCount == 0) {
+      return 0;
+    }
+    long target = (long) Math.ceil(acquireCount * percentile / 100.0);
+    long seen = 0;
+    for (int i = 0; i < acquireBucketCounts.length; i++) {
+      seen += acquireBucketCounts[i];
+      if (seen >= target) {
+        return i < acquireBucketBoundsMicros.length ? acquireBucketBoundsMicros[i] : acquireMaxNanos / 1_000;
+      }
+    }
+    return acquireMaxNanos / 1_000;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("PoolStatistics{");
+    sb.append("pool=").append(poolName);
+    sb.append(", active=").append(activeConnections);
+    sb.append(", idle=").append(idleConnections);
+    sb.append(", total=").append(totalConnections);
+    sb.append(", waiting=").append(threadsAwaitingConnection);
+    sb.append(", min=").append(minimumIdle);
+    sb.append(", max=").append(maximumPoolSize);
+    sb.append(", acquires=").append(acquireCount);
+    sb.append(", meanAcquireMicros=").append(String.format("%.1f", acquireMeanMicros()));
+    sb.append(", p99AcquireMicros=").append(acquirePercentileMicros(99));
+    sb.append(", timeouts=").append(acquireTimeouts);
+    sb.append('}');
+    return sb.toString();
+  }
+}
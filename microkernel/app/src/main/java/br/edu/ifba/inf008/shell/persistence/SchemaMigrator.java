@@ -0,0 +1,55 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Aplica as migrações versionadas de {@code db/migration} (Flyway) no banco da aplicação.
+ * <p>
+ * Bancos criados antes das migrações (por {@code docker/init.sql} ou pelo antigo
+ * {@code hbm2ddl.auto=update}) são marcados na versão 1 e recebem apenas as versões seguintes.
+ */
+public final class SchemaMigrator {
+  public static final String LOCATION = "classpath:db/migration";
+  public static final String BASELINE_VERSION = "1";
+
+  private SchemaMigrator() {}
+
+  /** Migra o banco usado pela factory, reaproveitando o pool de conexões dela. */
+  public static MigrateResult migrate(EntityManagerFactory factory) {
+    ConnectionProvider provider = factory.unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(ConnectionProvider.class);
+
+    if (provider == null || !provider.isUnwrappableAs(DataSource.class)) {
+      throw new IllegalStateException("Connection provider does not expose a DataSource");
+    }
+    return migrate(provider.unwrap(DataSource.class));
+  }
+
+  public static MigrateResult migrate(DataSource dataSource) {
+    return migrate(dataSource, null);
+  }
+
+  /**
+   * Migra até a versão informada ({@code null} para a mais recente).
+   */
+  public static MigrateResult migrate(DataSource dataSource, String targetVersion) {
+    FluentConfiguration configuration = Flyway.configure(SchemaMigrator.class.getClassLoader())
+      .dataSource(dataSource)
+      .locations(LOCATION)
+      .baselineOnMigrate(true)
+      .baselineVersion(BASELINE_VERSION);
+    if (targetVersion != null) {
+      configuration.target(targetVersion);
+    }
+    return configuration.load().migrate();
+  }
+}
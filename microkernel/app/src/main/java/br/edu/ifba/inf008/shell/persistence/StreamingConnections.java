@@ -0,0 +1,51 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Conexões próprias, fora do pool HikariCP, para os cursores longos ({@link BaseDAO#streamAll()},
+ * exportações de relatório). Um cursor pode ficar aberto bem mais que
+ * {@code hibernate.hikari.leakDetectionThreshold} sem ser um vazamento: no pool, ele geraria um
+ * aviso falso e ainda ocuparia uma das conexões usadas pelas telas.
+ */
+final class StreamingConnections {
+  private StreamingConnections() {}
+
+  /**
+   * Conexão nova com a URL, o usuário e as propriedades do pool da factory, que quem chama
+   * fecha; {@code null} se a factory não usa HikariCP configurado por {@code jdbcUrl} (ex.: nos
+   * testes), caso em que o cursor usa o pool normal.
+   */
+  static Connection open(SessionFactory factory) throws SQLException {
+    ConnectionProvider provider = factory.unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(ConnectionProvider.class);
+    if (provider == null || !provider.isUnwrappableAs(DataSource.class)) {
+      return null;
+    }
+    if (!(provider.unwrap(DataSource.class) instanceof HikariDataSource hikari) || hikari.getJdbcUrl() == null) {
+      return null;
+    }
+
+    Properties properties = new Properties();
+    properties.putAll(hikari.getDataSourceProperties());
+    if (hikari.getUsername() != null) {
+      properties.setProperty("user", hikari.getUsername());
+    }
+    if (hikari.getPassword() != null) {
+      properties.setProperty("password", hikari.getPassword());
+    }
+    return DriverManager.getConnection(hikari.getJdbcUrl(), properties);
+  }
+}
@@ -0,0 +1,61 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Marca d'água das entidades no banco ({@code table_versions}): cada transação de escrita dos
+ * DAOs soma 1 à versão das entidades que alterou, na mesma transação, então a versão também
+ * muda com as escritas feitas em outro terminal. Quem guarda resultados de consultas compara
+ * {@link #read} com a versão da última carga, numa consulta por chave, para saber se estão
+ * desatualizados.
+ * <p>
+ * O incremento vai para um {@code slot} sorteado entre {@link #SLOTS}, para que escritas
+ * simultâneas na mesma tabela não esperem umas pelas outras.
+ */
+public final class TableVersions {
+  /** Linhas por entidade em {@code table_versions}; -Dbookstore.versions.slots. */
+  public static final int SLOTS = Integer.getInteger("bookstore.versions.slots", 8);
+
+  /**
+   * Versão só do texto do acervo (título, autor e ISBN), somada pelas escritas do DAO de livros.
+   * Ao contrário da versão de {@code Book}, não muda com o estoque a cada empréstimo.
+   */
+  public static final String BOOK_CATALOG = "BookCatalog";
+
+  private static final Upsert BUMP = new Upsert("table_versions",
+    new String[] {"entity_name", "slot"}, new String[] {"VARCHAR(64)", "SMALLINT"}, "write_count");
+  private static final long[] ONE = {1};
+
+  private TableVersions() {}
+
+  /**
+   * Soma 1 à versão de cada chave (o nome simples da entidade ou uma chave como
+   * {@link #BOOK_CATALOG}); chamar dentro da transação da escrita, de preferência no fim.
+   */
+  public static void bump(EntityManager em, Collection<String> names) {
+    for (String name : names) {
+      BUMP.execute(em, ONE, name, ThreadLocalRandom.current().nextInt(SLOTS));
+    }
+  }
+
+  /** Soma das versões das entidades informadas; só cresce, a cada escrita em qualquer uma delas. */
+  public static long read(EntityManager em, Class<?>... entities) {
+    List<String> names = new ArrayList<>(entities.length);
+    for (Class<?> entity : entities) {
+      names.add(entity.getSimpleName());
+    }
+    return read(em, names);
+  }
+
+  /** Soma das versões das chaves informadas. */
+  public static long read(EntityManager em, Collection<String> names) {
+    return em.createQuery("SELECT COALESCE(SUM(v.writeCount), 0) FROM TableVersion v WHERE v.entityName IN :names", Long.class)
+      .setParameter("names", names)
+      .getSingleResult();
+  }
+}
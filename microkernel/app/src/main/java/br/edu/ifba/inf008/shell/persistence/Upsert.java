@@ -0,0 +1,83 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Soma contadores numa linha, criando-a se não existir, num único comando:
+ * {@code INSERT ... ON DUPLICATE KEY UPDATE} no MariaDB, {@code MERGE} nos demais. O SQL de
+ * cada dialeto é montado uma vez; os tipos das chaves servem aos CASTs do MERGE.
+ */
+final class Upsert {
+  private final String mysql;
+  private final String standard;
+
+  Upsert(String table, String[] keys, String[] keyTypes, String... counters) {
+    String columns = String.join(", ", keys) + ", " + String.join(", ", counters);
+    mysql = "INSERT INTO " + table + " (" + columns + ") VALUES (" + "?, ".repeat(keys.length + counters.length - 1) + "?)"
+      + " ON DUPLICATE KEY UPDATE " + Arrays.stream(counters)
+        .map(counter -> counter + " = " + counter + " + VALUES(" + counter + ")")
+        .collect(Collectors.joining(", "));
+
+    StringBuilder source = new StringBuilder();
+    StringBuilder match = new StringBuilder();
+    for (int i = 0; i < keys.length; i++) {
+      source.append("CAST(? AS ").append(keyTypes[i]).append(") AS ").append(keys[i]).append(", ");
+      match.append(i == 0 ? "" : " AND ").append("t.").append(keys[i]).append(" = d.").append(keys[i]);
+    }
+    source.append(Arrays.stream(counters)
+      .map(counter -> "CAST(? AS BIGINT) AS " + counter)
+      .collect(Collectors.joining(", ")));
+    standard = "MERGE INTO " + table + " t USING (SELECT " + source + ") d ON (" + match + ")"
+      + " WHEN MATCHED THEN UPDATE SET " + Arrays.stream(counters)
+        .map(counter -> counter + " = t." + counter + " + d." + counter)
+        .collect(Collectors.joining(", "))
+      + " WHEN NOT MATCHED THEN INSERT (" + columns + ") VALUES ("
+      + Arrays.stream(keys).map(key -> "d." + key).collect(Collectors.joining(", ")) + ", "
+      + Arrays.stream(counters).map(counter -> "d." + counter).collect(Collectors.joining(", ")) + ")";
+  }
+
+  /**
+   * Roda pela conexão JDBC da sessão: uma violação de chave lançada pelo Hibernate marcaria a
+   * transação para rollback. O MERGE do H2 não é atômico (outra transação pode criar a linha
+   * entre a busca e o INSERT); nesse caso a linha já existe e a segunda tentativa a atualiza.
+   */
+  void execute(EntityManager em, long[] deltas, Object... key) {
+    String sql = isMySql(em) ? mysql : standard;
+    em.unwrap(Session.class).doWork(connection -> {
+      try {
+        run(connection, sql, deltas, key);
+      } catch (SQLIntegrityConstraintViolationException e) {
+        run(connection, sql, deltas, key);
+      }
+    });
+  }
+
+  private static void run(Connection connection, String sql, long[] deltas, Object[] key) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      int position = 1;
+      for (Object value : key) {
+        statement.setObject(position++, value);
+      }
+      for (long delta : deltas) {
+        statement.setLong(position++, delta);
+      }
+      statement.executeUpdate();
+    }
+  }
+
+  private static boolean isMySql(EntityManager em) {
+    return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+      .getJdbcServices().getDialect() instanceof MySQLDialect;
+  }
+}
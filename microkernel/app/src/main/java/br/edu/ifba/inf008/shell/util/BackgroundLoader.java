@@ -0,0 +1,162 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.control.Control;
+import javafx.scene.control.ProgressIndicator;
+
+/**
+ * Executa consultas fora da thread do JavaFX e entrega o resultado nela com {@link Platform#runLater}.
+ * <p>
+ * Cada controller usa uma instância própria: um novo {@link #load} torna obsoleto o pedido
+ * anterior, cujo resultado é descartado, de modo que só a resposta mais recente chega à tela.
+ * As consultas rodam em um pool limitado compartilhado por todos os plugins
+ * ({@code -Dbookstore.ui.loader_threads}, padrão 4).
+ */
+public class BackgroundLoader {
+  private static final int THREADS = Integer.getInteger("bookstore.ui.loader_threads", 4);
+  private static final int QUEUE_CAPACITY = 256;
+
+  private static final ExecutorService EXECUTOR = createExecutor();
+
+  private final Executor uiExecutor;
+  private final AtomicLong generation = new AtomicLong();
+  private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(false);
+  private volatile Future<?> current;
+
+  public BackgroundLoader() {
+    this(Platform::runLater);
+  }
+
+  /** @param uiExecutor onde os callbacks rodam; nos testes, pode ser {@code Runnable::run} */
+  public BackgroundLoader(Executor uiExecutor) {
+    this.uiExecutor = uiExecutor;
+  }
+
+  public <T> void load(Callable<T> query, Consumer<T> onSuccess) {
+    load(query, onSuccess, error -> System.err.println("Background query failed: " + error.getMessage()));
+  }
+
+  /**
+   * Roda {@code query} em segundo plano e chama {@code onSuccess} (ou {@code onError}) na thread
+   * da interface, a menos que outro {@code load} ou {@link #cancel()} tenha vindo depois.
+   */
+  public <T> void load(Callable<T> query, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+    long request = startRequest();
+    try {
+      current = EXECUTOR.submit(() -> {
+        try {
+          T result = query.call();
+          deliver(request, () -> onSuccess.accept(result));
+        } catch (Exception e) {
+          deliver(request, () -> onError.accept(e));
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      deliver(request, () -> onError.accept(e));
+    }
+  }
+
+  /**
+   * Como {@link #load}, para escritas sem resultado. Uma nova chamada também descarta o callback
+   * da anterior (a escrita em si não é desfeita), então quem grava deve usar uma instância própria
+   * e bloquear novos pedidos enquanto ela trabalha, por exemplo com {@link #disableWhileLoading}.
+   */
+  public void run(Runnable work, Runnable onSuccess, Consumer<Throwable> onError) {
+    load(() -> {
+      work.run();
+      return null;
+    }, result -> onSuccess.run(), onError);
+  }
+
+  /** Descarta o pedido em andamento, se houver; a consulta já iniciada termina mas é ignorada. */
+  public void cancel() {
+    generation.incrementAndGet();
+    if (current != null) {
+      current.cancel(false);
+      current = null;
+    }
+    loading.set(false);
+  }
+
+  public ReadOnlyBooleanProperty loadingProperty() {
+    return loading.getReadOnlyProperty();
+  }
+
+  public boolean isLoading() {
+    return loading.get();
+  }
+
+  /**
+   * Mostra o carregamento na lista ou tabela: cursor de espera e, enquanto ela estiver vazia,
+   * um indicador de progresso no lugar do placeholder.
+   */
+  public void showLoadingOn(Control view, ObjectProperty<Node> placeholder) {
+    Node idle = placeholder.get();
+    ProgressIndicator indicator = new ProgressIndicator();
+    indicator.setMaxSize(40, 40);
+    loading.addListener((obs, wasLoading, isLoading) -> {
+      view.setCursor(isLoading ? Cursor.WAIT : null);
+      placeholder.set(isLoading ? indicator : idle);
+    });
+  }
+
+  /** Desabilita os controles (ex.: o botão de salvar e a lista) enquanto um pedido está em andamento. */
+  public void disableWhileLoading(Node... nodes) {
+    for (Node node : nodes) {
+      node.disableProperty().bind(loading);
+    }
+  }
+
+  /** Pool compartilhado, para quem precisa de várias tarefas simultâneas (ex.: páginas de {@link PagedList}). */
+  public static Executor sharedExecutor() {
+    return EXECUTOR;
+  }
+
+  /** Encerra o pool; chamado no encerramento da aplicação. */
+  public static void shutdown() {
+    EXECUTOR.shutdownNow();
+  }
+
+  private long startRequest() {
+    if (current != null) {
+      current.cancel(false);
+    }
+    long request = generation.incrementAndGet();
+    loading.set(true);
+    return request;
+  }
+
+  private void deliver(long request, Runnable callback) {
+    uiExecutor.execute(() -> {
+      if (generation.get() != request) {
+        return;
+      }
+      current = null;
+      loading.set(false);
+      callback.run();
+    });
+  }
+
+  private static ExecutorService createExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(QUEUE_CAPACITY), new DaemonThreadFactory("bookstore-loader"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
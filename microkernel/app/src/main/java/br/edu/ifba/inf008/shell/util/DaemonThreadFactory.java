@@ -0,0 +1,35 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads daemon numeradas ({@code prefixo-1}, {@code prefixo-2}...) para os pools do shell.
+ * <p>
+ * Uma thread nova herda da que a criou o class loader de contexto e as classes na pilha (via
+ * {@code AccessControlContext}). Como os pools compartilhados criam threads sob demanda, a
+ * primeira tarefa submetida por um plugin prenderia o class loader dele enquanto a thread
+ * vivesse, impedindo o plugin de ser descarregado; por isso as threads são criadas num
+ * contexto neutro, com o class loader do shell.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+  private final String prefix;
+  private final AtomicInteger count = new AtomicInteger();
+
+  public DaemonThreadFactory(String prefix) {
+    this.prefix = prefix;
+  }
+
+  @Override
+  @SuppressWarnings("removal")
+  public Thread newThread(Runnable runnable) {
+    return AccessController.doPrivileged((PrivilegedAction<Thread>) () -> {
+      Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setContextClassLoader(DaemonThreadFactory.class.getClassLoader());
+      return thread;
+    });
+  }
+}
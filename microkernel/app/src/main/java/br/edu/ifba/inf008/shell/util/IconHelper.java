@@ -1,6 +1,7 @@
 package br.edu.ifba.inf008.shell.util;
 
 import java.io.InputStream;
+import java.net.URL;
 
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -49,6 +50,24 @@ public class IconHelper {
         return new ImageView();
     }
 
+    /**
+     * Ícone lido de um recurso do class loader, em segundo plano; usado para os cards
+     * montados a partir do manifesto, antes de qualquer classe do plugin ser carregada.
+     */
+    public static ImageView createIconView(ClassLoader classLoader, String iconPath, double size) {
+        URL resource = classLoader.getResource(iconPath.startsWith("/") ? iconPath.substring(1) : iconPath);
+        if (resource == null) {
+            System.err.println("❌ Error loading icon: " + iconPath + " - not found");
+            return new ImageView();
+        }
+        ImageView iconView = new ImageView(new Image(resource.toExternalForm(), size, size, true, true, true));
+        iconView.setFitHeight(size);
+        iconView.setFitWidth(size);
+        iconView.setPreserveRatio(true);
+        iconView.setSmooth(true);
+        return iconView;
+    }
+
     public static ImageView createIconView(String iconPath) {
         return createIconView(iconPath, 64.0);
     }
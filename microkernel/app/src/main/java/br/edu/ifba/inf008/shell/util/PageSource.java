@@ -0,0 +1,46 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Origem paginada de linhas para {@link PagedList}. Os dois métodos rodam fora da thread do
+ * JavaFX; filtro e ordenação ficam na consulta, não na lista.
+ */
+public interface PageSource<T> {
+
+  /** Total de linhas; chamado uma vez por carga da lista. */
+  int count();
+
+  /** Linhas de {@code offset} até {@code offset + limit - 1}, na ordem da consulta. */
+  List<T> fetch(int offset, int limit);
+
+  /**
+   * Origem para resultados já pequenos e calculados em memória (ex.: busca pelo índice de
+   * livros): a consulta roda em {@link #count()} e as páginas são fatias da lista.
+   */
+  static <T> PageSource<T> of(Callable<List<T>> query) {
+    return new PageSource<>() {
+      private volatile List<T> rows = List.of();
+
+      @Override
+      public int count() {
+        try {
+          rows = query.call();
+        } catch (RuntimeException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+        return rows.size();
+      }
+
+      @Override
+      public List<T> fetch(int offset, int limit) {
+        List<T> current = rows;
+        int from = Math.min(offset, current.size());
+        return current.subList(from, Math.min(current.size(), from + limit));
+      }
+    };
+  }
+}
@@ -0,0 +1,320 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Lista somente leitura para ListView/TableView que busca as linhas por páginas, sob demanda.
+ * <p>
+ * O componente virtualizado só pede as linhas visíveis; uma página ausente devolve {@code null}
+ * (célula vazia) e é buscada em segundo plano, avisando a lista quando chega. No máximo
+ * {@code maxPages} páginas ficam em memória: ao passar do limite, sai a mais distante da que chegou.
+ * Uma página que, na vez dela no executor, já é de uma origem trocada ou está a mais de
+ * {@code maxPages} páginas da última pedida (a rolagem passou dela) não é buscada. Se o executor
+ * recusar a tarefa (fila cheia), a página volta a ser pedida no próximo {@link #get(int)}; erros
+ * da busca vão para o {@code onError} de {@link #setSource(PageSource, Consumer)}.
+ * <p>
+ * {@link #refresh(Consumer)} atualiza a lista no lugar: só recarrega se a versão dos dados
+ * (ex.: {@code bookDAO.dataVersion(Book.class)}, lida no banco em segundo plano) mudou desde a
+ * última carga e, nesse caso, busca de novo apenas as páginas carregadas e avisa só as linhas
+ * que mudaram.
+ * Todos os métodos devem ser chamados na thread do JavaFX.
+ */
+public class PagedList<T> extends ObservableListBase<T> {
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  public static final int DEFAULT_MAX_PAGES = 10;
+
+  private final BackgroundLoader countLoader;
+  private final LongSupplier version;
+  private final Executor pageExecutor;
+  private final Executor uiExecutor;
+  private final int pageSize;
+  private final int maxPages;
+
+  private final Map<Integer, List<T>> pages = new HashMap<>();
+  private final Set<Integer> requested = new HashSet<>();
+  private PageSource<T> source;
+  private Consumer<Throwable> onError;
+  /** Escrita só na thread do JavaFX; lida pelas tarefas de página para desistir de páginas velhas. */
+  private volatile long generation;
+  /** Última página pedida por {@link #get(int)}, que acompanha a rolagem. */
+  private volatile int focusPage;
+  private long loadedVersion = -1;
+  private int size;
+
+  /**
+   * @param version versão dos dados exibidos; muda a cada escrita que pode afetar a lista. Roda
+   *     fora da thread do JavaFX, antes da contagem.
+   */
+  public PagedList(BackgroundLoader countLoader, LongSupplier version) {
+    this(countLoader, version, BackgroundLoader.sharedExecutor(), Platform::runLater, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+  }
+
+  public PagedList(BackgroundLoader countLoader, LongSupplier version, Executor pageExecutor, Executor uiExecutor,
+      int pageSize, int maxPages) {
+    if (pageSize < 1 || maxPages < 1) {
+      throw new IllegalArgumentException("pageSize and maxPages must be at least 1");
+    }
+    this.countLoader = countLoader;
+    this.version = version;
+    this.pageExecutor = pageExecutor;
+    this.uiExecutor = uiExecutor;
+    this.pageSize = pageSize;
+    this.maxPages = maxPages;
+  }
+
+  /** Troca a origem; a contagem roda pelo {@code countLoader}, que descarta cargas anteriores. */
+  public void setSource(PageSource<T> source, Consumer<Throwable> onError) {
+    this.source = source;
+    this.onError = onError;
+    reload(onError);
+  }
+
+  /** Recarrega a origem atual (após uma escrita, por exemplo): recontagem e páginas novas. */
+  public void reload(Consumer<Throwable> onError) {
+    PageSource<T> current = source;
+    if (current == null) {
+      return;
+    }
+    long request = ++generation;
+    countLoader.load(() -> new Snapshot<T>(version.getAsLong(), current.count(), Map.of()), snapshot -> {
+      if (request == generation) {
+        loadedVersion = snapshot.version();
+        reset(snapshot.count());
+      }
+    }, onError);
+  }
+
+  /**
+   * Atualiza a lista sem recomeçá-la: em segundo plano, lê a versão dos dados e, se ela mudou, a
+   * contagem e as páginas carregadas são buscadas de novo e só as linhas diferentes são avisadas.
+   * Nada acontece com uma carga ainda em andamento, que já vai trazer os dados atuais.
+   */
+  public void refresh(Consumer<Throwable> onError) {
+    PageSource<T> current = source;
+    if (current == null || countLoader.isLoading()) {
+      return;
+    }
+    // A geração só avança se houver mudança; antes disso, as páginas a caminho continuam valendo
+    long request = generation;
+    long known = loadedVersion;
+    List<Integer> loaded = new ArrayList<>(pages.keySet());
+    countLoader.load(() -> {
+      long dataVersion = version.getAsLong();
+      if (dataVersion == known) {
+        return null;
+      }
+      int count = current.count();
+      Map<Integer, List<T>> fresh = new HashMap<>();
+      for (int page : loaded) {
+        if (page * pageSize < count) {
+          fresh.put(page, List.copyOf(current.fetch(page * pageSize, pageSize)));
+        }
+      }
+      return new Snapshot<>(dataVersion, count, fresh);
+    }, snapshot -> {
+      if (request == generation && snapshot != null) {
+        generation++;
+        loadedVersion = snapshot.version();
+        apply(snapshot);
+      }
+    }, onError);
+  }
+
+  @Override
+  public T get(int index) {
+    Objects.checkIndex(index, size);
+    int page = index / pageSize;
+    focusPage = page;
+    List<T> rows = pages.get(page);
+    if (rows == null) {
+      request(page);
+      return null;
+    }
+    int offset = index % pageSize;
+    return offset < rows.size() ? rows.get(offset) : null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** Só procura nas páginas carregadas, para não buscar a lista inteira. */
+  @Override
+  public int indexOf(Object item) {
+    for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+      int offset = entry.getValue().indexOf(item);
+      if (offset >= 0) {
+        return entry.getKey() * pageSize + offset;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean contains(Object item) {
+    return indexOf(item) >= 0;
+  }
+
+  public int getLoadedPageCount() {
+    return pages.size();
+  }
+
+  private void reset(int count) {
+    int previous = size;
+    pages.clear();
+    requested.clear();
+    size = count;
+    beginChange();
+    if (previous > 0) {
+      nextRemove(0, new PlaceholderList<>(previous));
+    }
+    if (count > 0) {
+      nextAdd(0, count);
+    }
+    endChange();
+  }
+
+  /** Troca as páginas pelas novas e avisa só as linhas alteradas, as que entraram e as que saíram. */
+  private void apply(Snapshot<T> snapshot) {
+    Map<Integer, List<T>> previous = new HashMap<>(pages);
+    Set<Integer> touched = new TreeSet<>(previous.keySet());
+    touched.addAll(requested);
+    requested.clear();
+    pages.clear();
+    pages.putAll(snapshot.pages());
+
+    int oldSize = size;
+    int newSize = snapshot.count();
+    size = newSize;
+    beginChange();
+    for (int page : touched) {
+      List<T> before = previous.get(page);
+      List<T> after = pages.get(page);
+      int to = Math.min(Math.min(oldSize, newSize), (page + 1) * pageSize);
+      for (int i = page * pageSize; i < to; i++) {
+        int offset = i % pageSize;
+        T oldRow = before != null && offset < before.size() ? before.get(offset) : null;
+        T newRow = after != null && offset < after.size() ? after.get(offset) : null;
+        if (before == null || !Objects.equals(oldRow, newRow)) {
+          nextUpdate(i);
+        }
+      }
+    }
+    if (newSize > oldSize) {
+      nextAdd(oldSize, newSize);
+    } else if (newSize < oldSize) {
+      nextRemove(newSize, new PlaceholderList<>(oldSize - newSize));
+    }
+    endChange();
+  }
+
+  private void request(int page) {
+    if (!requested.add(page)) {
+      return;
+    }
+    long request = generation;
+    PageSource<T> current = source;
+    Consumer<Throwable> errors = onError;
+    try {
+      pageExecutor.execute(() -> {
+        if (request != generation || Math.abs(page - focusPage) > maxPages) {
+          uiExecutor.execute(() -> forget(request, page));
+          return;
+        }
+        List<T> rows;
+        try {
+          rows = current.fetch(page * pageSize, pageSize);
+        } catch (RuntimeException e) {
+          uiExecutor.execute(() -> {
+            if (request == generation) {
+              requested.remove(page);
+              if (errors != null) {
+                errors.accept(e);
+              }
+            }
+          });
+          return;
+        }
+        uiExecutor.execute(() -> arrive(request, page, rows));
+      });
+    } catch (RejectedExecutionException e) {
+      requested.remove(page);
+    }
+  }
+
+  /** Página que não foi buscada: pode ser pedida de novo, se ainda for da origem atual. */
+  private void forget(long request, int page) {
+    if (request == generation) {
+      requested.remove(page);
+    }
+  }
+
+  private void arrive(long request, int page, List<T> rows) {
+    if (request != generation) {
+      return;
+    }
+    requested.remove(page);
+    pages.put(page, List.copyOf(rows));
+    evictFarthestFrom(page);
+
+    int from = page * pageSize;
+    int to = Math.min(size, from + pageSize);
+    if (from >= to) {
+      return;
+    }
+    beginChange();
+    for (int i = from; i < to; i++) {
+      nextUpdate(i);
+    }
+    endChange();
+  }
+
+  private void evictFarthestFrom(int page) {
+    while (pages.size() > maxPages) {
+      int farthest = page;
+      for (int loaded : pages.keySet()) {
+        if (Math.abs(loaded - page) > Math.abs(farthest - page)) {
+          farthest = loaded;
+        }
+      }
+      pages.remove(farthest);
+    }
+  }
+
+  private record Snapshot<T>(long version, int count, Map<Integer, List<T>> pages) {
+  }
+
+  /** Lista de {@code null}s só para informar quantas linhas saíram em uma recarga. */
+  private static final class PlaceholderList<E> extends java.util.AbstractList<E> {
+    private final int size;
+
+    PlaceholderList(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public E get(int index) {
+      return null;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javafx.application.Platform;
+
+/**
+ * Caminho das buscas das telas de gerenciamento, da digitação até o banco.
+ * <ul>
+ *   <li>{@link #debounce(Runnable)}: a busca só roda depois de {@code -Dbookstore.ui.search_debounce_ms}
+ *   (padrão 250) sem digitação; cada tecla reinicia a espera.</li>
+ *   <li>{@link #query(Object, Callable)}: consultas iguais em andamento ao mesmo tempo rodam uma vez só,
+ *   e o resultado fica guardado por {@code -Dbookstore.ui.search_ttl_ms} (padrão 5000).</li>
+ * </ul>
+ * A versão informada no construtor (ex.: {@code () -> bookDAO.dataVersion(Book.class)}) invalida o
+ * cache: um resultado calculado antes de uma escrita, deste ou de outro terminal, não é reaproveitado.
+ * Ela é lida a cada {@link #query}, na thread da consulta. O cancelamento de buscas superadas fica com o
+ * {@link BackgroundLoader} de cada tela. As chaves não podem ser nulas (um record por tela serve bem).
+ */
+public class SearchPipeline {
+  public static final long DEBOUNCE_MILLIS = Long.getLong("bookstore.ui.search_debounce_ms", 250);
+  public static final long TTL_MILLIS = Long.getLong("bookstore.ui.search_ttl_ms", 5000);
+  private static final int MAX_ENTRIES = 64;
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+    new DaemonThreadFactory("bookstore-search-debounce"));
+
+  private final long debounceMillis;
+  private final long ttlMillis;
+  private final LongSupplier version;
+  private final Executor uiExecutor;
+  private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final Map<Object, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+  private ScheduledFuture<?> pending;
+
+  public SearchPipeline(LongSupplier version) {
+    this(DEBOUNCE_MILLIS, TTL_MILLIS, version, Platform::runLater);
+  }
+
+  /** @param uiExecutor onde a busca adiada roda; nos testes, pode ser {@code Runnable::run} */
+  public SearchPipeline(long debounceMillis, long ttlMillis, LongSupplier version, Executor uiExecutor) {
+    this.debounceMillis = debounceMillis;
+    this.ttlMillis = ttlMillis;
+    this.version = version;
+    this.uiExecutor = uiExecutor;
+  }
+
+  /** Agenda a busca, descartando a que ainda esperava; ela roda na thread da interface. */
+  public synchronized void debounce(Runnable search) {
+    cancelPending();
+    pending = SCHEDULER.schedule(() -> uiExecutor.execute(search), debounceMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Descarta a busca agendada, quando o usuário busca na hora (botão ou Enter). */
+  public synchronized void cancelPending() {
+    if (pending != null) {
+      pending.cancel(false);
+      pending = null;
+    }
+  }
+
+  /**
+   * Resultado de {@code loader} para a chave: do cache, se ainda válido; da consulta já em andamento
+   * com a mesma chave (e sem escrita no meio), se houver; senão, roda {@code loader} na thread atual.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T query(Object key, Callable<T> loader) throws Exception {
+    long current = version.getAsLong();
+    Entry cached = cached(key, current);
+    if (cached != null) {
+      return (T) cached.value;
+    }
+
+    Object flightKey = List.of(key, current);
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> running = inFlight.putIfAbsent(flightKey, mine);
+    if (running != null) {
+      try {
+        return (T) running.get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof Exception cause ? cause : e;
+      }
+    }
+
+    try {
+      T value = loader.call();
+      synchronized (cache) {
+        cache.put(key, new Entry(value, current, System.currentTimeMillis() + ttlMillis));
+      }
+      mine.complete(value);
+      return value;
+    } catch (Exception e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(flightKey, mine);
+    }
+  }
+
+  /** Origem paginada cujas contagens e páginas passam por {@link #query(Object, Callable)}. */
+  public <T> PageSource<T> cached(Object key, PageSource<T> source) {
+    return new PageSource<>() {
+      @Override
+      public int count() {
+        return unchecked(() -> query(List.of(key, "count"), source::count));
+      }
+
+      @Override
+      public List<T> fetch(int offset, int limit) {
+        return unchecked(() -> query(List.of(key, offset, limit), () -> source.fetch(offset, limit)));
+      }
+    };
+  }
+
+  private Entry cached(Object key, long current) {
+    synchronized (cache) {
+      Entry entry = cache.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (entry.version != current || entry.expiresAt < System.currentTimeMillis()) {
+        cache.remove(key);
+        return null;
+      }
+      return entry;
+    }
+  }
+
+  private static <T> T unchecked(Callable<T> call) {
+    try {
+      return call.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private record Entry(Object value, long version, long expiresAt) {
+  }
+}
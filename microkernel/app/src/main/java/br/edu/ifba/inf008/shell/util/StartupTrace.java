@@ -0,0 +1,129 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Linha do tempo da partida: intervalos ({@link #begin(String)}) e marcos ({@link #mark(String)})
+ * medidos em milissegundos desde o início do processo, não desde o {@code main}, para que a
+ * subida da JVM também apareça.
+ * <p>
+ * Os eventos são sempre registrados, o que custa poucos microssegundos. Com
+ * {@code -Dbookstore.startup.trace=true}, cada marco é impresso assim que acontece e a tabela
+ * completa no marco {@link #READY}; com {@code -Dbookstore.startup.exit_when_ready=true}, a
+ * aplicação fecha sozinha ao chegar nele (usado para gerar o arquivo AppCDS e nos benchmarks).
+ */
+public final class StartupTrace {
+  public static final boolean ENABLED = Boolean.getBoolean("bookstore.startup.trace");
+  public static final boolean EXIT_WHEN_READY = Boolean.getBoolean("bookstore.startup.exit_when_ready");
+
+  /** Primeiro pulso do JavaFX depois que a janela principal foi exibida. */
+  public static final String FIRST_FRAME = "first frame";
+  /** Todos os plugins da partida terminaram e o banco foi aquecido. */
+  public static final String READY = "ready";
+
+  static final String PREFIX = "[startup] ";
+
+  private static final long ORIGIN = originNanos();
+  private static final ConcurrentLinkedQueue<Event> EVENTS = new ConcurrentLinkedQueue<>();
+  private static final Map<String, CompletableFuture<Long>> MARKS = new ConcurrentHashMap<>();
+
+  /**
+   * Um intervalo ou marco da partida; marcos têm {@code millis == -1}.
+   *
+   * @param atMillis início, em milissegundos desde o início do processo
+   */
+  public record Event(String name, String thread, long atMillis, long millis) {
+    public boolean isMark() {
+      return millis < 0;
+    }
+  }
+
+  /** Intervalo em andamento; o {@link #close()} registra a duração. */
+  public static final class Span implements AutoCloseable {
+    private final String name;
+    private final String thread = Thread.currentThread().getName();
+    private final long start = System.nanoTime();
+    private boolean closed;
+
+    private Span(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        EVENTS.add(new Event(name, thread, toMillis(start - ORIGIN), toMillis(System.nanoTime() - start)));
+      }
+    }
+  }
+
+  private StartupTrace() {}
+
+  public static Span begin(String name) {
+    return new Span(name);
+  }
+
+  /** Registra o marco uma única vez; chamadas repetidas com o mesmo nome são ignoradas. */
+  public static void mark(String name) {
+    long at = toMillis(System.nanoTime() - ORIGIN);
+    if (!reached(name).complete(at)) {
+      return;
+    }
+    EVENTS.add(new Event(name, Thread.currentThread().getName(), at, -1));
+    if (ENABLED) {
+      System.out.println(PREFIX + name + " at " + at + " ms");
+      if (READY.equals(name)) {
+        System.out.print(report());
+      }
+    }
+  }
+
+  /** Completa com o instante do marco (ms desde o início do processo) quando ele for registrado. */
+  public static CompletableFuture<Long> reached(String name) {
+    return MARKS.computeIfAbsent(name, key -> new CompletableFuture<>());
+  }
+
+  public static List<Event> events() {
+    List<Event> events = new ArrayList<>(EVENTS);
+    events.sort(Comparator.comparingLong(Event::atMillis));
+    return events;
+  }
+
+  /** Tabela com os eventos em ordem de início. */
+  public static String report() {
+    StringBuilder out = new StringBuilder(PREFIX).append("timeline (ms since process start)\n");
+    out.append(String.format("  %7s %7s  %-28s %s%n", "at", "took", "phase", "thread"));
+    for (Event event : events()) {
+      out.append(String.format("  %7d %7s  %-28s %s%n", event.atMillis(),
+        event.isMark() ? "" : String.valueOf(event.millis()), event.name(), event.thread()));
+    }
+    return out.toString();
+  }
+
+  /** Esquece os eventos registrados; só para testes. */
+  static void reset() {
+    EVENTS.clear();
+    MARKS.clear();
+  }
+
+  private static long originNanos() {
+    long now = System.nanoTime();
+    long sinceStart = ProcessHandle.current().info().startInstant()
+      .map(start -> System.currentTimeMillis() - start.toEpochMilli())
+      .filter(millis -> millis >= 0)
+      .orElse(0L);
+    return now - TimeUnit.MILLISECONDS.toNanos(sinceStart);
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
@@ -0,0 +1,12 @@
+-- Índices para os filtros usados pelas telas e relatórios.
+
+-- Empréstimos ativos (return_date IS NULL) e intervalos de loan_date nos relatórios
+CREATE INDEX idx_loans_return_loan_date ON loans (return_date, loan_date);
+-- Relatórios por período sem filtro de situação
+CREATE INDEX idx_loans_loan_date ON loans (loan_date);
+-- Empréstimos ativos de um usuário (exclusão de usuário, devolução em lote)
+CREATE INDEX idx_loans_user_return ON loans (user_id, return_date);
+-- Livros disponíveis (copies_available > 0)
+CREATE INDEX idx_books_copies_available ON books (copies_available);
+-- Busca e ordenação por nome; LIKE com curinga só no fim usa o índice
+CREATE INDEX idx_users_name ON users (name);
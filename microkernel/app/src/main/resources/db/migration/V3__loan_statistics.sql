@@ -0,0 +1,38 @@
+-- Agregados de empréstimos para os resumos de relatório, mantidos pelo LoanDAO
+-- (LoanStatistics) e preenchidos aqui a partir dos empréstimos existentes.
+
+-- Abertos e devolvidos por dia; os ativos num dia são a soma acumulada até ele
+CREATE TABLE loan_daily_stats (
+    stat_date DATE PRIMARY KEY,
+    loans_opened BIGINT NOT NULL,
+    loans_returned BIGINT NOT NULL
+);
+
+-- Totais e ativos por livro e por usuário
+CREATE TABLE book_loan_stats (
+    book_id INT PRIMARY KEY,
+    loans_total BIGINT NOT NULL,
+    loans_active BIGINT NOT NULL
+);
+CREATE INDEX idx_book_loan_stats_total ON book_loan_stats (loans_total);
+
+CREATE TABLE user_loan_stats (
+    user_id INT PRIMARY KEY,
+    loans_total BIGINT NOT NULL,
+    loans_active BIGINT NOT NULL
+);
+CREATE INDEX idx_user_loan_stats_total ON user_loan_stats (loans_total);
+
+INSERT INTO loan_daily_stats (stat_date, loans_opened, loans_returned)
+SELECT stat_date, SUM(opened), SUM(returned) FROM (
+    SELECT loan_date AS stat_date, COUNT(*) AS opened, 0 AS returned FROM loans GROUP BY loan_date
+    UNION ALL
+    SELECT return_date, 0, COUNT(*) FROM loans WHERE return_date IS NOT NULL GROUP BY return_date
+) daily
+GROUP BY stat_date;
+
+INSERT INTO book_loan_stats (book_id, loans_total, loans_active)
+SELECT book_id, COUNT(*), SUM(CASE WHEN return_date IS NULL THEN 1 ELSE 0 END) FROM loans GROUP BY book_id;
+
+INSERT INTO user_loan_stats (user_id, loans_total, loans_active)
+SELECT user_id, COUNT(*), SUM(CASE WHEN return_date IS NULL THEN 1 ELSE 0 END) FROM loans GROUP BY user_id;
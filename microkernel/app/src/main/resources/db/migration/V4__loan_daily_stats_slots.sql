@@ -0,0 +1,7 @@
+-- Divide cada dia de loan_daily_stats em linhas por slot: empréstimos simultâneos
+-- incrementam linhas diferentes em vez de esperar pelo bloqueio da linha do dia.
+-- As linhas existentes ficam no slot 0.
+
+ALTER TABLE loan_daily_stats ADD COLUMN slot SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE loan_daily_stats DROP PRIMARY KEY;
+ALTER TABLE loan_daily_stats ADD PRIMARY KEY (stat_date, slot);
@@ -0,0 +1,9 @@
+-- Versão de cada entidade, somada a cada transação de escrita dos DAOs (TableVersions):
+-- as listas comparam a soma dos slots para saber se outro terminal alterou a tabela.
+
+CREATE TABLE table_versions (
+    entity_name VARCHAR(64) NOT NULL,
+    slot SMALLINT NOT NULL,
+    write_count BIGINT NOT NULL,
+    PRIMARY KEY (entity_name, slot)
+);
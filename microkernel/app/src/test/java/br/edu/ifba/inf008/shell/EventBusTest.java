@@ -0,0 +1,97 @@
+package br.edu.ifba.inf008.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import br.edu.ifba.inf008.interfaces.ISubscription;
+import br.edu.ifba.inf008.shell.event.EntityEvent;
+import br.edu.ifba.inf008.shell.event.EntityEvent.BookChanged;
+import br.edu.ifba.inf008.shell.event.EntityEvent.Change;
+import br.edu.ifba.inf008.shell.event.EntityEvent.LoanChanged;
+
+public class EventBusTest {
+  /** Fila no lugar do executor: as entregas só rodam quando o teste a esvazia. */
+  private final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+  private final EventBus bus = new EventBus(tasks::add, 3);
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  @Test
+  void testEventsReachMatchingSubscribersInOrder() {
+    List<Object> books = new ArrayList<>();
+    List<Object> all = new ArrayList<>();
+    bus.subscribe(BookChanged.class, books::add);
+    bus.subscribe(EntityEvent.class, all::add);
+
+    bus.publish(new BookChanged(1, Change.UPDATED));
+    bus.publish(new LoanChanged(7, Change.CREATED));
+    bus.publish(new BookChanged(2, Change.DELETED));
+    assertTrue(books.isEmpty(), "Publishing should not run handlers on the caller's thread");
+    runTasks();
+
+    assertEquals(List.of(new BookChanged(1, Change.UPDATED), new BookChanged(2, Change.DELETED)), books);
+    assertEquals(3, all.size(), "Subscribing to the interface should receive every entity event");
+    assertEquals(new LoanChanged(7, Change.CREATED), all.get(1));
+  }
+
+  @Test
+  void testFullQueueDropsOnlyForThatSubscriber() {
+    List<Object> slow = new ArrayList<>();
+    ISubscription slowSubscription = bus.subscribe(BookChanged.class, slow::add);
+    List<Object> fast = new ArrayList<>();
+    ISubscription fastSubscription = bus.subscribe(BookChanged.class, Runnable::run, fast::add);
+
+    for (int i = 0; i < 5; i++) {
+      bus.publish(new BookChanged(i, Change.UPDATED));
+    }
+
+    assertEquals(5, fast.size());
+    assertEquals(0, fastSubscription.getDroppedCount());
+    assertEquals(2, slowSubscription.getDroppedCount(), "Only three events fit in the slow queue");
+    runTasks();
+    assertEquals(List.of(0, 1, 2), slow.stream().map(event -> ((BookChanged) event).bookId()).toList());
+  }
+
+  @Test
+  void testClosedSubscriptionStopsReceiving() {
+    List<Object> received = new ArrayList<>();
+    ISubscription subscription = bus.subscribe(BookChanged.class, Runnable::run, received::add);
+    bus.publish(new BookChanged(1, Change.CREATED));
+    subscription.close();
+    bus.publish(new BookChanged(2, Change.CREATED));
+
+    assertEquals(1, received.size());
+    assertEquals(0, bus.getSubscriberCount());
+  }
+
+  @Test
+  void testSharedBusDeliversOffThePublisherThread() throws InterruptedException {
+    List<String> threads = new CopyOnWriteArrayList<>();
+    CountDownLatch delivered = new CountDownLatch(1);
+    ISubscription subscription = EventBus.getInstance().subscribe(LoanChanged.class, event -> {
+      threads.add(Thread.currentThread().getName());
+      delivered.countDown();
+    });
+    try {
+      EventBus.getInstance().publish(new LoanChanged(1, Change.UPDATED));
+      assertTrue(delivered.await(5, TimeUnit.SECONDS));
+      assertNotEquals(Thread.currentThread().getName(), threads.get(0));
+    } finally {
+      subscription.close();
+    }
+  }
+}
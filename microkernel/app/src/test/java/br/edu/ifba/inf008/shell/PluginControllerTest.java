@@ -0,0 +1,485 @@
+package br.edu.ifba.inf008.shell;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import br.edu.ifba.inf008.interfaces.IPlugin;
+import br.edu.ifba.inf008.interfaces.IRefreshable;
+import br.edu.ifba.inf008.interfaces.IUIController;
+import br.edu.ifba.inf008.shell.PluginManifest.Card;
+import br.edu.ifba.inf008.shell.PluginManifest.MenuEntry;
+import br.edu.ifba.inf008.shell.PluginStartupReport.Status;
+import javafx.scene.Node;
+import javafx.scene.control.MenuItem;
+import javafx.scene.image.ImageView;
+
+public class PluginControllerTest {
+  private final ExecutorService workers = Executors.newFixedThreadPool(4);
+  private final ExecutorService ui = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-ui"));
+  private final FakeUI fakeUI = new FakeUI();
+  private final PluginController controller = new PluginController(new File("."), ui, () -> fakeUI, () -> {});
+  private final Map<String, IPlugin> plugins = new HashMap<>();
+  private final List<String> events = new CopyOnWriteArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    workers.shutdownNow();
+    ui.shutdownNow();
+  }
+
+  /** Plugin que anota em {@link #events} quando carrega e quando registra a interface. */
+  private IPlugin plugin(String id, Runnable onLoad) {
+    IPlugin plugin = new IPlugin() {
+      @Override
+      public boolean load() {
+        onLoad.run();
+        events.add("load " + id);
+        return true;
+      }
+
+      @Override
+      public boolean init() {
+        events.add("init " + id + " on " + Thread.currentThread().getName());
+        return true;
+      }
+    };
+    plugins.put(id, plugin);
+    return plugin;
+  }
+
+  private final List<String> instantiated = new CopyOnWriteArrayList<>();
+
+  private IPlugin instantiate(PluginManifest manifest) {
+    instantiated.add(manifest.id());
+    return plugins.get(manifest.id());
+  }
+
+  private PluginStartupReport start(PluginManifest... manifests) throws Exception {
+    return controller.start(List.of(manifests), this::instantiate, manifest -> getClass().getClassLoader(), () -> {}, workers)
+      .get(5, TimeUnit.SECONDS);
+  }
+
+  private static PluginManifest manifest(String id, String... requires) {
+    return new PluginManifest(id, "test." + id, List.of(requires));
+  }
+
+  @Test
+  void testIndependentPluginsLoadConcurrentlyAndInitOnTheUiThread() throws Exception {
+    CountDownLatch bothLoading = new CountDownLatch(2);
+    Runnable awaitOther = () -> {
+      bothLoading.countDown();
+      try {
+        assertTrue(bothLoading.await(5, TimeUnit.SECONDS), "Independent plugins should load at the same time");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    plugin("book-plugin", awaitOther);
+    plugin("user-plugin", awaitOther);
+
+    PluginStartupReport report = start(manifest("book-plugin"), manifest("user-plugin"));
+
+    assertTrue(events.contains("init book-plugin on test-ui"));
+    assertTrue(events.contains("init user-plugin on test-ui"));
+    assertEquals(Status.STARTED, report.find("book-plugin").orElseThrow().status());
+    assertEquals(Status.STARTED, report.find("user-plugin").orElseThrow().status());
+  }
+
+  @Test
+  void testDependentStartsAfterItsDependenciesFinished() throws Exception {
+    plugin("loan-plugin", () -> {});
+    plugin("book-plugin", () -> {});
+    plugin("user-plugin", () -> {});
+
+    start(manifest("loan-plugin", "user-plugin", "book-plugin"), manifest("book-plugin"), manifest("user-plugin"));
+
+    int loanLoad = events.indexOf("load loan-plugin");
+    assertTrue(loanLoad > events.indexOf("init book-plugin on test-ui"));
+    assertTrue(loanLoad > events.indexOf("init user-plugin on test-ui"));
+    assertEquals("init loan-plugin on test-ui", events.get(events.size() - 1));
+  }
+
+  @Test
+  void testPluginsWithBrokenDependenciesAreSkipped() throws Exception {
+    plugins.put("book-plugin", new IPlugin() {
+      @Override
+      public boolean init() {
+        throw new IllegalStateException("no scene");
+      }
+    });
+    plugin("loan-plugin", () -> {});
+    plugin("orphan-plugin", () -> {});
+    plugin("a-plugin", () -> {});
+    plugin("b-plugin", () -> {});
+    plugin("user-plugin", () -> {});
+
+    PluginStartupReport report = start(
+      manifest("book-plugin"),
+      manifest("loan-plugin", "book-plugin"),
+      manifest("orphan-plugin", "missing-plugin"),
+      manifest("a-plugin", "b-plugin"),
+      manifest("b-plugin", "a-plugin"),
+      manifest("user-plugin"));
+
+    assertEquals(Status.FAILED, report.find("book-plugin").orElseThrow().status());
+    assertEquals("dependency book-plugin did not start", report.find("loan-plugin").orElseThrow().detail());
+    assertEquals("missing dependency missing-plugin", report.find("orphan-plugin").orElseThrow().detail());
+    assertEquals(Status.SKIPPED, report.find("a-plugin").orElseThrow().status());
+    assertEquals(Status.SKIPPED, report.find("b-plugin").orElseThrow().status());
+    assertEquals(Status.STARTED, report.find("user-plugin").orElseThrow().status(), "Unrelated plugins should still start");
+    assertEquals(List.of("load user-plugin", "init user-plugin on test-ui"), events);
+  }
+
+  @Test
+  void testWarmUpRunsOnceAlongsideThePlugins() throws Exception {
+    CountDownLatch warmUps = new CountDownLatch(2);
+    plugin("book-plugin", () -> {});
+
+    PluginStartupReport report = controller.start(List.of(manifest("book-plugin")),
+        this::instantiate, manifest -> getClass().getClassLoader(), warmUps::countDown, workers)
+      .get(5, TimeUnit.SECONDS);
+
+    assertEquals(1, warmUps.getCount());
+    assertTrue(report.warmUpMillis() >= 0);
+    assertTrue(report.toString().contains("book-plugin"));
+  }
+
+  /** Guarda cards e itens de menu como o {@code UIController}: mesmo id ou texto substitui. */
+  private static final class FakeUI implements IUIController {
+    final Map<String, Runnable> cards = new ConcurrentHashMap<>();
+    final Map<String, MenuItem> menuItems = new ConcurrentHashMap<>();
+    final List<String> opened = new CopyOnWriteArrayList<>();
+
+    @Override
+    public MenuItem createMenuItem(String menuText, String menuItemText) {
+      return menuItems.computeIfAbsent(menuText + "/" + menuItemText, key -> new MenuItem(menuItemText));
+    }
+
+    @Override
+    public boolean createTab(String tabText, Node contents) {
+      opened.add(tabText);
+      return true;
+    }
+
+    @Override
+    public boolean createRefreshableTab(String tabText, Node contents, IRefreshable controller) {
+      return createTab(tabText, contents);
+    }
+
+    @Override
+    public void removeTab(String tabText) {
+      opened.remove(tabText);
+    }
+
+    @Override
+    public void removeMenuItem(String menuText, String menuItemText) {
+      menuItems.remove(menuText + "/" + menuItemText);
+    }
+
+    @Override
+    public void showAlert(String title, String message) {
+      opened.add(title + ": " + message);
+    }
+
+    @Override
+    public void showConfirmation(String title, String message, Runnable onConfirm) {
+    }
+
+    @Override
+    public void addPluginCard(String pluginName, ImageView icon, String title, String description, Runnable action) {
+      cards.put(pluginName, action);
+    }
+
+    @Override
+    public void removePluginCard(String pluginName) {
+      cards.remove(pluginName);
+    }
+
+    @Override
+    public boolean openPluginCard(String pluginName) {
+      Runnable action = cards.get(pluginName);
+      if (action == null) {
+        return false;
+      }
+      action.run();
+      return true;
+    }
+  }
+
+  /** Plugin real em miniatura: o {@code init()} registra o mesmo card e item do manifesto. */
+  private IPlugin screenPlugin(String id, String menuItem) {
+    IPlugin plugin = new IPlugin() {
+      @Override
+      public boolean init() {
+        events.add("init " + id);
+        Runnable open = () -> fakeUI.createTab(id + " tab", null);
+        fakeUI.createMenuItem("Management", menuItem).setOnAction(event -> open.run());
+        fakeUI.addPluginCard(id, null, id, "", open);
+        return true;
+      }
+    };
+    plugins.put(id, plugin);
+    return plugin;
+  }
+
+  private static PluginManifest lazyManifest(String id, String menuItem, String... requires) {
+    return new PluginManifest(id, "test." + id, List.of(requires),
+      new Card(id + " title", "", null), List.of(new MenuEntry("Management", menuItem)));
+  }
+
+  private void runOnUi(Runnable action) throws Exception {
+    ui.submit(action).get(5, TimeUnit.SECONDS);
+  }
+
+  /** Espera as tarefas que a ativação deixou na fila do executor da interface. */
+  private void awaitUi() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      runOnUi(() -> {});
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  void testLazyPluginsAreOnlyDrawnFromTheManifestAtStartup() throws Exception {
+    screenPlugin("book-plugin", "Books");
+    screenPlugin("loan-plugin", "Loans");
+
+    PluginStartupReport report = start(lazyManifest("book-plugin", "Books"), lazyManifest("loan-plugin", "Loans", "book-plugin"));
+
+    assertTrue(instantiated.isEmpty(), "No plugin class should be loaded before it is used");
+    assertEquals(Status.DEFERRED, report.find("book-plugin").orElseThrow().status());
+    assertTrue(fakeUI.cards.containsKey("loan-plugin"));
+    assertTrue(fakeUI.menuItems.containsKey("Management/Books"));
+  }
+
+  @Test
+  void testEagerActivationStartsLazyPluginsAtStartup() throws Exception {
+    screenPlugin("book-plugin", "Books");
+    screenPlugin("loan-plugin", "Loans");
+    System.setProperty("bookstore.plugins.activation", "eager");
+    PluginController eager;
+    try {
+      eager = new PluginController(new File("."), ui, () -> fakeUI, () -> {});
+    } finally {
+      System.clearProperty("bookstore.plugins.activation");
+    }
+
+    PluginStartupReport report = eager.start(List.of(lazyManifest("book-plugin", "Books"), lazyManifest("loan-plugin", "Loans", "book-plugin")),
+      this::instantiate, manifest -> getClass().getClassLoader(), () -> {}, workers).get(5, TimeUnit.SECONDS);
+
+    assertEquals(List.of("book-plugin", "loan-plugin"), instantiated, "Every plugin class should be loaded for the training run");
+    assertEquals(Status.STARTED, report.find("book-plugin").orElseThrow().status());
+    assertEquals(Status.STARTED, report.find("loan-plugin").orElseThrow().status());
+  }
+
+  @Test
+  void testFirstUseActivatesThePluginAndForwardsTheAction() throws Exception {
+    screenPlugin("book-plugin", "Books");
+    screenPlugin("loan-plugin", "Loans");
+    screenPlugin("user-plugin", "Users");
+    start(lazyManifest("book-plugin", "Books"), lazyManifest("loan-plugin", "Loans", "book-plugin"),
+      lazyManifest("user-plugin", "Users"));
+
+    runOnUi(() -> fakeUI.openPluginCard("loan-plugin"));
+    awaitUi();
+
+    assertEquals(List.of("book-plugin", "loan-plugin"), instantiated, "Dependencies are activated first");
+    assertEquals(List.of("loan-plugin tab"), fakeUI.opened);
+
+    runOnUi(() -> fakeUI.menuItems.get("Management/Users").fire());
+    awaitUi();
+    runOnUi(() -> fakeUI.openPluginCard("loan-plugin"));
+
+    assertEquals(List.of("loan-plugin tab", "user-plugin tab", "loan-plugin tab"), fakeUI.opened);
+    assertEquals(1, events.stream().filter("init loan-plugin"::equals).count(), "A plugin is activated only once");
+  }
+
+  @Test
+  void testActivationThatFailsShowsAnAlertInsteadOfLooping() throws Exception {
+    plugins.put("book-plugin", new IPlugin() {
+      @Override
+      public boolean init() {
+        return true;
+      }
+    });
+    start(lazyManifest("book-plugin", "Books"));
+
+    runOnUi(() -> fakeUI.openPluginCard("book-plugin"));
+    awaitUi();
+    runOnUi(() -> fakeUI.openPluginCard("book-plugin"));
+    awaitUi();
+
+    assertTrue(fakeUI.opened.isEmpty(), "A plugin that did not claim its card should not be reopened forever");
+    assertEquals(1, instantiated.size());
+  }
+
+  /**
+   * Compila um plugin de verdade num JAR à parte, fora do classpath dos testes, para que ele
+   * só possa ser carregado pelo class loader do próprio plugin.
+   */
+  private static File buildPluginJar(Path dir, String title) throws IOException {
+    Path sources = Files.createDirectories(dir.resolve("src/leaktest"));
+    Path classes = Files.createDirectories(dir.resolve("classes"));
+    Files.writeString(sources.resolve("LeakPlugin.java"), """
+      package leaktest;
+
+      import br.edu.ifba.inf008.interfaces.IPlugin;
+      import br.edu.ifba.inf008.shell.EventBus;
+      import br.edu.ifba.inf008.shell.util.BackgroundLoader;
+
+      public class LeakPlugin implements IPlugin {
+        /** Um megabyte por versão carregada, para que um vazamento também apareça no heap. */
+        private static final byte[] BALLAST = new byte[1 << 20];
+
+        @Override
+        public boolean init() {
+          EventBus.getInstance().subscribe(String.class, event -> BALLAST[0]++);
+          new BackgroundLoader(Runnable::run).load(() -> BALLAST.length, length -> {});
+          return true;
+        }
+      }
+      """);
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assertEquals(0, compiler.run(null, null, null, "-d", classes.toString(),
+      "-cp", System.getProperty("java.class.path"), sources.resolve("LeakPlugin.java").toString()));
+
+    Manifest manifest = new Manifest();
+    Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue(PluginManifest.ID, "leak-plugin");
+    attributes.putValue(PluginManifest.CLASS, "leaktest.LeakPlugin");
+    if (title != null) {
+      attributes.putValue(PluginManifest.TITLE, title);
+      attributes.putValue(PluginManifest.MENU, "Management/Leaks");
+    }
+    File jar = dir.resolve("LeakPlugin.jar").toFile();
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+      out.putNextEntry(new JarEntry("leaktest/LeakPlugin.class"));
+      out.write(Files.readAllBytes(classes.resolve("leaktest/LeakPlugin.class")));
+      out.closeEntry();
+    }
+    return jar;
+  }
+
+  private PluginController reloadingController(Path dir) throws Exception {
+    PluginController reloading = new PluginController(dir.toFile(), ui, () -> fakeUI, () -> {});
+    reloading.start(List.of(), manifest -> {
+      try {
+        ClassLoader loader = reloading.getClassLoader(manifest.id()).orElseThrow();
+        return (IPlugin) Class.forName(manifest.className(), true, loader).getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException(e);
+      }
+    }, manifest -> reloading.getClassLoader(manifest.id()).orElseThrow(), () -> {}, workers).get(5, TimeUnit.SECONDS);
+    return reloading;
+  }
+
+  @Test
+  void testRepeatedReloadsDoNotLeakPluginClassLoaders(@TempDir Path dir) throws Exception {
+    File jar = buildPluginJar(dir, null);
+    PluginController reloading = reloadingController(dir);
+    int subscribers = EventBus.getInstance().getSubscriberCount();
+    long unloadedClasses = ManagementFactory.getClassLoadingMXBean().getUnloadedClassCount();
+    List<WeakReference<ClassLoader>> loaders = new ArrayList<>();
+
+    for (int i = 0; i < 20; i++) {
+      assertTrue(reloading.reload(jar).get(5, TimeUnit.SECONDS));
+      loaders.add(new WeakReference<>(reloading.getClassLoader("leak-plugin").orElseThrow()));
+      assertEquals(subscribers + 1, EventBus.getInstance().getSubscriberCount(),
+        "The previous version's subscriptions should be closed on reload");
+    }
+    reloading.unload("leak-plugin").get(5, TimeUnit.SECONDS);
+    assertEquals(subscribers, EventBus.getInstance().getSubscriberCount());
+    assertTrue(reloading.getClassLoader("leak-plugin").isEmpty());
+
+    for (int i = 0; i < 20 && loaders.stream().anyMatch(ref -> ref.get() != null); i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    assertEquals(0, loaders.stream().filter(ref -> ref.get() != null).count(),
+      "Unloaded plugin class loaders should be garbage collected");
+    assertTrue(ManagementFactory.getClassLoadingMXBean().getUnloadedClassCount() > unloadedClasses,
+      "Plugin classes should be unloaded from Metaspace");
+  }
+
+  @Test
+  void testReloadReplacesTheCardAndMenuOfALazyPlugin(@TempDir Path dir) throws Exception {
+    File jar = buildPluginJar(dir, "Leaks");
+    PluginController reloading = reloadingController(dir);
+
+    assertTrue(reloading.reload(jar).get(5, TimeUnit.SECONDS));
+    runOnUi(() -> {});
+    Runnable firstCard = fakeUI.cards.get("leak-plugin");
+    assertTrue(fakeUI.menuItems.containsKey("Management/Leaks"));
+
+    assertTrue(reloading.reload(jar).get(5, TimeUnit.SECONDS));
+    runOnUi(() -> {});
+    assertTrue(fakeUI.cards.containsKey("leak-plugin"));
+    assertNotSame(firstCard, fakeUI.cards.get("leak-plugin"), "The old card should have been replaced");
+
+    reloading.remove(jar).get(5, TimeUnit.SECONDS);
+    assertFalse(fakeUI.cards.containsKey("leak-plugin"));
+    assertFalse(fakeUI.menuItems.containsKey("Management/Leaks"));
+  }
+
+  @Test
+  void testManifestIsReadFromTheJar(@TempDir Path dir) throws IOException {
+    Manifest manifest = new Manifest();
+    Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue(PluginManifest.ID, "loan-plugin");
+    attributes.putValue(PluginManifest.CLASS, "br.edu.ifba.inf008.plugins.LoanPlugin");
+    attributes.putValue(PluginManifest.REQUIRES, "user-plugin, book-plugin");
+    attributes.putValue(PluginManifest.TITLE, "Loan Management");
+    attributes.putValue(PluginManifest.DESCRIPTION, "Track book loans.");
+    attributes.putValue(PluginManifest.ICON, "icons/logo.png");
+    attributes.putValue(PluginManifest.MENU, "Management/Loans, Reports/Overdue, broken");
+    File described = dir.resolve("LoanPlugin.jar").toFile();
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(described), manifest)) {
+      jar.flush();
+    }
+    File legacy = dir.resolve("OldPlugin.jar").toFile();
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(legacy))) {
+      jar.flush();
+    }
+
+    assertEquals(new PluginManifest("loan-plugin", "br.edu.ifba.inf008.plugins.LoanPlugin",
+      List.of("user-plugin", "book-plugin"),
+      new Card("Loan Management", "Track book loans.", "icons/logo.png"),
+      List.of(new MenuEntry("Management", "Loans"), new MenuEntry("Reports", "Overdue"))),
+      PluginManifest.read(described));
+    PluginManifest old = PluginManifest.read(legacy);
+    assertEquals(new PluginManifest("OldPlugin", "br.edu.ifba.inf008.plugins.OldPlugin", List.of()), old);
+    assertFalse(old.isLazy(), "Plugins without a card are started eagerly");
+  }
+}
@@ -0,0 +1,32 @@
+package br.edu.ifba.inf008.shell;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PluginWatcherTest {
+  @Test
+  void testJarChangesAreReportedOnceAfterTheWritesSettle(@TempDir Path dir) throws Exception {
+    LinkedBlockingQueue<String> changes = new LinkedBlockingQueue<>();
+    try (PluginWatcher watcher = new PluginWatcher(dir, 200,
+        file -> changes.add("changed " + file.getName()), file -> changes.add("removed " + file.getName()))) {
+      Path jar = dir.resolve("BookPlugin.jar");
+      for (int i = 0; i < 5; i++) {
+        Files.write(jar, new byte[] {(byte) i});
+      }
+      Files.writeString(dir.resolve("notes.txt"), "not a plugin");
+
+      assertEquals("changed BookPlugin.jar", changes.poll(5, TimeUnit.SECONDS));
+      assertNull(changes.poll(500, TimeUnit.MILLISECONDS), "A burst of writes should be reported once");
+
+      Files.delete(jar);
+      assertEquals("removed BookPlugin.jar", changes.poll(5, TimeUnit.SECONDS));
+    }
+  }
+}
@@ -1,10 +1,16 @@
 package br.edu.ifba.inf008.shell.persistence;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
 
 public class BaseDAOTest {
@@ -22,4 +28,37 @@ public class BaseDAOTest {
       emf.close();
     }
   }
+
+  @Test
+  void testStreamsReadThroughAConnectionOutsideTheHikariPool() {
+    EntityManagerFactory emf = Persistence.createEntityManagerFactory("bookstore-test-pu", Map.of(
+      "hibernate.connection.provider_class", "org.hibernate.hikaricp.internal.HikariCPConnectionProvider",
+      "hibernate.hikari.maximumPoolSize", "2",
+      "hibernate.hikari.leakDetectionThreshold", "2000"
+    ));
+    try {
+      ConnectionPoolMetrics metrics = ConnectionPoolMetrics.attach(emf);
+      BaseDAO<Object, Integer> dao = new BaseDAO<>(emf::createEntityManager) {
+        @Override
+        protected Class<Object> getEntityClass() {
+          return Object.class;
+        }
+      };
+      dao.setFetchSize(10);
+
+      try (Stream<Long> numbers = dao.stream(session -> session.createNativeQuery("SELECT X FROM SYSTEM_RANGE(1, 100)", Long.class))) {
+        Iterator<Long> rows = numbers.iterator();
+        assertEquals(1L, rows.next());
+        assertEquals(0, metrics.snapshot().activeConnections(), "An open cursor should not hold a pooled connection");
+        long count = 1;
+        while (rows.hasNext()) {
+          rows.next();
+          count++;
+        }
+        assertEquals(100, count);
+      }
+    } finally {
+      emf.close();
+    }
+  }
 }
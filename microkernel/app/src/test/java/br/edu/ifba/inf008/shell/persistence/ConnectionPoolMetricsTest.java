@@ -0,0 +1,82 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+public class ConnectionPoolMetricsTest {
+  private EntityManagerFactory emf;
+  private ConnectionPoolMetrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    emf = Persistence.createEntityManagerFactory("bookstore-test-pu", Map.of(
+      "hibernate.connection.provider_class", "org.hibernate.hikaricp.internal.HikariCPConnectionProvider",
+      "hibernate.hikari.minimumIdle", "1",
+      "hibernate.hikari.maximumPoolSize", "3"
+    ));
+    metrics = ConnectionPoolMetrics.attach(emf);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (emf != null && emf.isOpen()) {
+      emf.close();
+    }
+  }
+
+  @Test
+  void testSnapshotReflectsPoolConfiguration() {
+    assertNotNull(metrics, "Hikari pool should be detected");
+
+    PoolStatistics stats = metrics.snapshot();
+    assertEquals(1, stats.minimumIdle());
+    assertEquals(3, stats.maximumPoolSize());
+  }
+
+  @Test
+  void testActiveConnectionsAndAcquireHistogram() {
+    try (EntityManager em = emf.createEntityManager()) {
+      em.unwrap(Session.class).doWork(connection -> {
+        PoolStatistics stats = metrics.snapshot();
+        assertEquals(1, stats.activeConnections(), "Connection in use should be reported as active");
+      });
+    }
+
+    for (int i = 0; i < 10; i++) {
+      try (EntityManager em = emf.createEntityManager()) {
+        em.createNativeQuery("SELECT 1").getSingleResult();
+      }
+    }
+
+    PoolStatistics stats = metrics.snapshot();
+    assertEquals(0, stats.activeConnections());
+    assertTrue(stats.acquireCount() >= 11, "Every checkout should be recorded");
+    assertEquals(stats.acquireCount(), Arrays.stream(stats.acquireBucketCounts()).sum());
+    assertTrue(stats.acquirePercentileMicros(50) > 0);
+  }
+
+  @Test
+  void testAttachWithoutPoolReturnsNull() {
+    EntityManagerFactory plain = Persistence.createEntityManagerFactory("bookstore-test-pu", Map.of(
+      "hibernate.connection.provider_class", "org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl"
+    ));
+    try {
+      assertNull(ConnectionPoolMetrics.attach(plain));
+    } finally {
+      plain.close();
+    }
+  }
+}
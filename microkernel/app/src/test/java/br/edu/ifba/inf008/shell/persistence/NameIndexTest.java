@@ -0,0 +1,86 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class NameIndexTest {
+  private NameIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new NameIndex();
+    index.loadIfEmpty(() -> Map.of(
+      1, "The Lord of the Rings",
+      2, "Lord Jim",
+      3, "Lords and Ladies",
+      4, "Overlord",
+      5, "São Bernardo"
+    ));
+  }
+
+  @Test
+  void testLeadingMatchesComeBeforeWordMatches() {
+    assertArrayEquals(new int[] {2, 3, 1}, index.complete("lord", 10));
+    assertArrayEquals(new int[] {1}, index.complete("lord of", 10));
+    assertArrayEquals(new int[] {5}, index.complete("SAO b", 10));
+    assertArrayEquals(new int[0], index.complete("verlord", 10));
+  }
+
+  @Test
+  void testLimitKeepsTheBestMatches() {
+    assertArrayEquals(new int[] {2, 3}, index.complete("lord", 2));
+    assertArrayEquals(new int[0], index.complete(" ", 5));
+  }
+
+  @Test
+  void testPutAndRemoveUpdateIncrementally() {
+    index.put(6, "Lord of Light");
+    index.put(2, "Jim");
+    index.remove(3);
+
+    assertArrayEquals(new int[] {6, 1}, index.complete("lord", 10));
+    assertArrayEquals(new int[] {2}, index.complete("jim", 10));
+    assertEquals(5, index.size());
+  }
+
+  @Test
+  void testWritesAreIgnoredUntilLoaded() {
+    NameIndex empty = new NameIndex();
+    empty.put(1, "Ignored");
+    assertFalse(empty.isLoaded());
+
+    Map<Integer, String> names = new HashMap<>();
+    names.put(2, "Loaded");
+    empty.loadIfEmpty(() -> names);
+    empty.loadIfEmpty(() -> Map.of(3, "Not used"));
+
+    assertTrue(empty.isLoaded());
+    assertArrayEquals(new int[] {2}, empty.complete("lo", 10));
+    assertArrayEquals(new int[0], empty.complete("ign", 10));
+  }
+
+  @Test
+  void testAcknowledgedWritesKeepTheLoadedVersion() {
+    NameIndex versioned = new NameIndex();
+    versioned.loadIfOlder(3, () -> Map.of(1, "Ana"));
+    versioned.put(2, "Bruno");
+    versioned.acknowledge(4);
+    versioned.loadIfOlder(4, () -> {
+      throw new AssertionError("A write acknowledged right after the load should not reload");
+    });
+    assertArrayEquals(new int[] {2}, versioned.complete("bru", 10));
+
+    versioned.acknowledge(6);
+    assertThrows(IllegalStateException.class, () -> versioned.loadIfOlder(6, () -> {
+      throw new IllegalStateException("reloaded");
+    }), "A write from elsewhere in between should still reload");
+  }
+}
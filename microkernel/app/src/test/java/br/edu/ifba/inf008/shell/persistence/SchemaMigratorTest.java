@@ -0,0 +1,115 @@
+package br.edu.ifba.inf008.shell.persistence;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.flywaydb.core.api.output.MigrateResult;
+import org.h2.jdbcx.JdbcDataSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class SchemaMigratorTest {
+
+  private static JdbcDataSource dataSource(String name) {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MariaDB;DB_CLOSE_DELAY=-1");
+    dataSource.setUser("sa");
+    return dataSource;
+  }
+
+  private static Set<String> indexNames(JdbcDataSource dataSource) throws SQLException {
+    Set<String> names = new HashSet<>();
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES")) {
+      while (rs.next()) {
+        names.add(rs.getString(1).toLowerCase());
+      }
+    }
+    return names;
+  }
+
+  @Test
+  void testEmptyDatabaseGetsSchemaAndIndexes() throws SQLException {
+    JdbcDataSource dataSource = dataSource("migrate_empty");
+
+    MigrateResult result = SchemaMigrator.migrate(dataSource);
+
+    assertEquals(5, result.migrationsExecuted);
+    Set<String> indexes = indexNames(dataSource);
+    assertTrue(indexes.contains("idx_loans_return_loan_date"));
+    assertTrue(indexes.contains("idx_loans_user_return"));
+    assertTrue(indexes.contains("idx_books_copies_available"));
+    assertTrue(indexes.contains("idx_users_name"));
+  }
+
+  @Test
+  void testMigrateIsIdempotent() {
+    JdbcDataSource dataSource = dataSource("migrate_twice");
+
+    SchemaMigrator.migrate(dataSource);
+    MigrateResult second = SchemaMigrator.migrate(dataSource);
+
+    assertEquals(0, second.migrationsExecuted);
+  }
+
+  @Test
+  void testExistingSchemaIsBaselinedAndOnlyGetsIndexes() throws SQLException {
+    JdbcDataSource dataSource = dataSource("migrate_existing");
+    SchemaMigrator.migrate(dataSource, SchemaMigrator.BASELINE_VERSION);
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE \"flyway_schema_history\"");
+    }
+    assertFalse(indexNames(dataSource).contains("idx_users_name"));
+
+    MigrateResult result = SchemaMigrator.migrate(dataSource);
+
+    assertEquals(4, result.migrationsExecuted);
+    assertTrue(indexNames(dataSource).contains("idx_users_name"));
+  }
+
+  @Test
+  void testStatisticsMigrationAggregatesExistingLoans() throws SQLException {
+    JdbcDataSource dataSource = dataSource("migrate_statistics");
+    SchemaMigrator.migrate(dataSource, "2");
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      statement.execute("INSERT INTO users (user_id, name, email) VALUES (1, 'Ana', 'ana@example.com'), (2, 'Bia', 'bia@example.com')");
+      statement.execute("INSERT INTO books (book_id, title, author, isbn) VALUES (1, 'Livro', 'Autor', '123')");
+      statement.execute("INSERT INTO loans (user_id, book_id, loan_date, return_date) VALUES"
+        + " (1, 1, DATE '2024-01-01', DATE '2024-01-03'),"
+        + " (2, 1, DATE '2024-01-01', NULL),"
+        + " (1, 1, DATE '2024-01-03', NULL)");
+    }
+
+    SchemaMigrator.migrate(dataSource);
+
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement()) {
+      assertEquals("2024-01-01:2:0,2024-01-03:1:1", join(statement.executeQuery(
+        "SELECT stat_date, loans_opened, loans_returned FROM loan_daily_stats WHERE slot = 0 ORDER BY stat_date")));
+      assertEquals("1:3:2", join(statement.executeQuery(
+        "SELECT book_id, loans_total, loans_active FROM book_loan_stats")));
+      assertEquals("1:2:1,2:1:1", join(statement.executeQuery(
+        "SELECT user_id, loans_total, loans_active FROM user_loan_stats ORDER BY user_id")));
+    }
+  }
+
+  private static String join(ResultSet rs) throws SQLException {
+    StringBuilder rows = new StringBuilder();
+    try (rs) {
+      while (rs.next()) {
+        rows.append(rows.isEmpty() ? "" : ",")
+          .append(rs.getString(1)).append(':').append(rs.getLong(2)).append(':').append(rs.getLong(3));
+      }
+    }
+    return rows.toString();
+  }
+}
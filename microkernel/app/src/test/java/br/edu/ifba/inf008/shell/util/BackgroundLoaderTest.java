@@ -0,0 +1,110 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class BackgroundLoaderTest {
+  /** Fila no lugar da thread do JavaFX: os callbacks só rodam quando o teste a esvazia. */
+  private final LinkedBlockingQueue<Runnable> uiQueue = new LinkedBlockingQueue<>();
+  private final BackgroundLoader loader = new BackgroundLoader(uiQueue::add);
+
+  private void runNextUiTask() throws InterruptedException {
+    Runnable task = uiQueue.poll(5, TimeUnit.SECONDS);
+    assertTrue(task != null, "A callback should have been posted to the UI thread");
+    task.run();
+  }
+
+  /** Roda os callbacks já postados; pedidos cancelados antes de começar não postam nenhum. */
+  private void runPendingUiTasks() throws InterruptedException {
+    Runnable task;
+    while ((task = uiQueue.poll(200, TimeUnit.MILLISECONDS)) != null) {
+      task.run();
+    }
+  }
+
+  @Test
+  void testQueryRunsOffCallerThreadAndResultIsDeliveredOnUiExecutor() throws InterruptedException {
+    AtomicReference<String> queryThread = new AtomicReference<>();
+    List<String> results = new ArrayList<>();
+
+    loader.load(() -> {
+      queryThread.set(Thread.currentThread().getName());
+      return "rows";
+    }, results::add);
+    assertTrue(loader.isLoading());
+
+    runNextUiTask();
+
+    assertNotEquals(Thread.currentThread().getName(), queryThread.get());
+    assertEquals(List.of("rows"), results);
+    assertFalse(loader.isLoading());
+  }
+
+  @Test
+  void testNewerRequestDiscardsStaleResult() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> results = new ArrayList<>();
+
+    loader.load(() -> {
+      release.await();
+      return "stale";
+    }, results::add);
+    loader.load(() -> "fresh", results::add);
+    release.countDown();
+
+    runNextUiTask();
+    runPendingUiTasks();
+
+    assertEquals(List.of("fresh"), results);
+    assertFalse(loader.isLoading());
+  }
+
+  @Test
+  void testCancelDropsPendingResultAndErrorsReachOnError() throws InterruptedException {
+    List<Object> delivered = new ArrayList<>();
+
+    loader.load(() -> "ignored", delivered::add);
+    loader.cancel();
+    assertFalse(loader.isLoading());
+    runPendingUiTasks();
+    assertTrue(delivered.isEmpty(), "Cancelled request should not deliver");
+
+    loader.load(() -> {
+      throw new IllegalStateException("boom");
+    }, delivered::add, error -> delivered.add(error.getMessage()));
+    runNextUiTask();
+
+    assertEquals(List.of("boom"), delivered);
+  }
+
+  @Test
+  void testRunWritesOffCallerThreadAndReportsCompletion() throws InterruptedException {
+    AtomicReference<String> workThread = new AtomicReference<>();
+    List<Object> delivered = new ArrayList<>();
+
+    loader.run(() -> workThread.set(Thread.currentThread().getName()), () -> delivered.add("done"), delivered::add);
+    assertTrue(loader.isLoading());
+    runNextUiTask();
+
+    assertNotEquals(Thread.currentThread().getName(), workThread.get());
+    assertEquals(List.of("done"), delivered);
+    assertFalse(loader.isLoading());
+
+    loader.run(() -> {
+      throw new IllegalStateException("constraint");
+    }, () -> delivered.add("unexpected"), error -> delivered.add(error.getMessage()));
+    runNextUiTask();
+
+    assertEquals(List.of("done", "constraint"), delivered);
+  }
+}
@@ -0,0 +1,252 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import javafx.collections.ListChangeListener;
+
+public class PagedListTest {
+  /** Fila no lugar da thread do JavaFX; as páginas são buscadas na própria thread do teste. */
+  private final LinkedBlockingQueue<Runnable> uiQueue = new LinkedBlockingQueue<>();
+  private final BackgroundLoader loader = new BackgroundLoader(uiQueue::add);
+  private final AtomicLong version = new AtomicLong();
+  private final PagedList<Integer> list = new PagedList<>(loader, version::get, Runnable::run, uiQueue::add, 10, 3);
+  private final List<Integer> fetchedOffsets = new ArrayList<>();
+  private final List<Integer> rows = new ArrayList<>();
+
+  private PageSource<Integer> numbers(int count) {
+    return new PageSource<>() {
+      @Override
+      public int count() {
+        return count;
+      }
+
+      @Override
+      public List<Integer> fetch(int offset, int limit) {
+        fetchedOffsets.add(offset);
+        return IntStream.range(offset, Math.min(count, offset + limit)).boxed().toList();
+      }
+    };
+  }
+
+  private void runPendingUiTasks() throws InterruptedException {
+    Runnable task;
+    while ((task = uiQueue.poll(200, TimeUnit.MILLISECONDS)) != null) {
+      task.run();
+    }
+  }
+
+  private void failOnError(Throwable error) {
+    throw new AssertionError(error);
+  }
+
+  @Test
+  void testRowsAreNullUntilTheirPageArrives() throws InterruptedException {
+    List<ListChangeListener.Change<? extends Integer>> changes = new ArrayList<>();
+    list.addListener((ListChangeListener<Integer>) changes::add);
+
+    list.setSource(numbers(95), this::failOnError);
+    runPendingUiTasks();
+    assertEquals(95, list.size(), "Size should come from count() without fetching rows");
+    assertTrue(fetchedOffsets.isEmpty());
+
+    assertNull(list.get(42));
+    assertNull(list.get(47), "Same page should be requested only once");
+    runPendingUiTasks();
+
+    assertEquals(List.of(40), fetchedOffsets);
+    assertEquals(42, list.get(42));
+
+    assertNull(list.get(94));
+    runPendingUiTasks();
+    assertEquals(94, list.get(94), "Short last page should fill the tail of the list");
+    assertEquals(List.of(40, 90), fetchedOffsets);
+    assertEquals(3, changes.size(), "One change for the reset and one per arriving page");
+  }
+
+  @Test
+  void testPagesFarthestFromTheViewportAreEvicted() throws InterruptedException {
+    list.setSource(numbers(1000), this::failOnError);
+    runPendingUiTasks();
+
+    for (int index : new int[] {0, 100, 200, 210}) {
+      list.get(index);
+      runPendingUiTasks();
+    }
+
+    assertEquals(3, list.getLoadedPageCount());
+    assertEquals(200, list.get(200));
+    assertEquals(100, list.get(100));
+    assertNull(list.get(0), "Page 0 was the farthest from page 21 and should have been evicted");
+    assertEquals(-1, list.indexOf(5), "indexOf should only look at loaded pages");
+    assertEquals(210, list.indexOf(210));
+  }
+
+  @Test
+  void testPagesFromAReplacedSourceAreDropped() throws InterruptedException {
+    list.setSource(numbers(50), this::failOnError);
+    runPendingUiTasks();
+    list.get(0);
+
+    list.setSource(PageSource.of(() -> List.of(7, 8, 9)), this::failOnError);
+    runPendingUiTasks();
+
+    assertEquals(3, list.size());
+    assertEquals(0, list.getLoadedPageCount(), "Stale page should not be cached");
+    assertNull(list.get(1));
+    runPendingUiTasks();
+    assertEquals(List.of(7, 8, 9), List.of(list.get(0), list.get(1), list.get(2)));
+  }
+
+  /** Origem sobre {@link #rows}, que o teste altera como se fosse a tabela. */
+  private PageSource<Integer> table() {
+    return new PageSource<>() {
+      @Override
+      public int count() {
+        return rows.size();
+      }
+
+      @Override
+      public List<Integer> fetch(int offset, int limit) {
+        fetchedOffsets.add(offset);
+        return List.copyOf(rows.subList(offset, Math.min(rows.size(), offset + limit)));
+      }
+    };
+  }
+
+  @Test
+  void testRefreshWithoutWritesDoesNothing() throws InterruptedException {
+    IntStream.range(0, 25).forEach(rows::add);
+    list.setSource(table(), this::failOnError);
+    runPendingUiTasks();
+    list.get(0);
+    runPendingUiTasks();
+
+    List<ListChangeListener.Change<? extends Integer>> changes = new ArrayList<>();
+    list.addListener((ListChangeListener<Integer>) changes::add);
+    fetchedOffsets.clear();
+
+    list.refresh(this::failOnError);
+    runPendingUiTasks();
+
+    assertTrue(fetchedOffsets.isEmpty(), "Unchanged data should not be queried again");
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  void testRefreshAppliesOnlyTheChangedRowsInPlace() throws InterruptedException {
+    IntStream.range(0, 25).forEach(rows::add);
+    list.setSource(table(), this::failOnError);
+    runPendingUiTasks();
+    list.get(0);
+    runPendingUiTasks();
+
+    List<String> changes = new ArrayList<>();
+    list.addListener((ListChangeListener<Integer>) change -> {
+      while (change.next()) {
+        if (change.wasUpdated()) {
+          changes.add("update " + change.getFrom() + "-" + change.getTo());
+        } else if (change.wasAdded()) {
+          changes.add("add " + change.getFrom() + "-" + change.getTo());
+        }
+      }
+    });
+    fetchedOffsets.clear();
+
+    rows.set(3, 300);
+    rows.add(25);
+    version.incrementAndGet();
+    list.refresh(this::failOnError);
+    runPendingUiTasks();
+
+    assertEquals(List.of(0), fetchedOffsets, "Only the loaded page should be fetched again");
+    assertEquals(List.of("add 25-26", "update 3-4"), changes, "JavaFX reports additions before updates");
+    assertEquals(300, list.get(3));
+    assertEquals(26, list.size());
+  }
+
+  @Test
+  void testRejectedPageIsRequestedAgainOnTheNextGet() throws InterruptedException {
+    boolean[] full = {true};
+    PagedList<Integer> bounded = new PagedList<>(loader, version::get, task -> {
+      if (full[0]) {
+        throw new RejectedExecutionException("queue full");
+      }
+      task.run();
+    }, uiQueue::add, 10, 3);
+    bounded.setSource(numbers(50), this::failOnError);
+    runPendingUiTasks();
+
+    assertNull(bounded.get(5), "A full queue should not escape get()");
+    full[0] = false;
+    assertNull(bounded.get(5));
+    runPendingUiTasks();
+    assertEquals(5, bounded.get(5));
+    assertEquals(List.of(0), fetchedOffsets);
+  }
+
+  @Test
+  void testFetchErrorsGoToTheSourceErrorHandler() throws InterruptedException {
+    RuntimeException failure = new IllegalStateException("database down");
+    List<Throwable> errors = new ArrayList<>();
+    boolean[] failing = {true};
+    list.setSource(new PageSource<>() {
+      @Override
+      public int count() {
+        return 20;
+      }
+
+      @Override
+      public List<Integer> fetch(int offset, int limit) {
+        if (failing[0]) {
+          throw failure;
+        }
+        return IntStream.range(offset, offset + limit).boxed().toList();
+      }
+    }, errors::add);
+    runPendingUiTasks();
+
+    list.get(0);
+    runPendingUiTasks();
+    assertEquals(1, errors.size());
+    assertSame(failure, errors.get(0));
+
+    failing[0] = false;
+    assertNull(list.get(0), "A failed page should be requested again");
+    runPendingUiTasks();
+    assertEquals(0, list.get(0));
+  }
+
+  @Test
+  void testQueuedPagesOfAReplacedSourceOrFarFromTheViewportAreNotFetched() throws InterruptedException {
+    List<Runnable> pageQueue = new ArrayList<>();
+    PagedList<Integer> queued = new PagedList<>(loader, version::get, pageQueue::add, uiQueue::add, 10, 3);
+    queued.setSource(numbers(1000), this::failOnError);
+    runPendingUiTasks();
+
+    queued.get(0);
+    queued.get(500);
+    pageQueue.forEach(Runnable::run);
+    pageQueue.clear();
+    runPendingUiTasks();
+    assertEquals(List.of(500), fetchedOffsets, "Page 0 was scrolled past before its turn");
+
+    queued.get(0);
+    queued.setSource(numbers(1000), this::failOnError);
+    runPendingUiTasks();
+    pageQueue.forEach(Runnable::run);
+    runPendingUiTasks();
+    assertEquals(List.of(500), fetchedOffsets, "A page of the replaced source should not be fetched");
+  }
+}
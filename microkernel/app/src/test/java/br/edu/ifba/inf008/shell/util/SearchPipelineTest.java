@@ -0,0 +1,90 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class SearchPipelineTest {
+  private final AtomicLong version = new AtomicLong();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private String load(String value) {
+    calls.incrementAndGet();
+    return value;
+  }
+
+  @Test
+  void testRapidTypingRunsOnlyTheLastSearch() throws InterruptedException {
+    LinkedBlockingQueue<Runnable> uiQueue = new LinkedBlockingQueue<>();
+    SearchPipeline pipeline = new SearchPipeline(50, 1000, version::get, uiQueue::add);
+    StringBuilder ran = new StringBuilder();
+
+    for (String typed : List.of("d", "du", "dun", "dune")) {
+      pipeline.debounce(() -> ran.append(typed));
+    }
+    Runnable search = uiQueue.poll(5, TimeUnit.SECONDS);
+    search.run();
+    assertNull(uiQueue.poll(200, TimeUnit.MILLISECONDS), "Superseded searches should not run");
+    assertEquals("dune", ran.toString());
+
+    pipeline.debounce(() -> ran.append("!"));
+    pipeline.cancelPending();
+    assertNull(uiQueue.poll(200, TimeUnit.MILLISECONDS), "Cancelled search should not run");
+  }
+
+  @Test
+  void testResultsAreCachedUntilTtlOrAWrite() throws Exception {
+    SearchPipeline pipeline = new SearchPipeline(0, 200, version::get, Runnable::run);
+
+    assertEquals("a", pipeline.query("key", () -> load("a")));
+    assertEquals("a", pipeline.query("key", () -> load("b")), "Second query should come from the cache");
+    assertEquals(1, calls.get());
+
+    version.incrementAndGet();
+    assertEquals("c", pipeline.query("key", () -> load("c")), "A write should invalidate the cache");
+
+    Thread.sleep(300);
+    assertEquals("d", pipeline.query("key", () -> load("d")), "Expired entry should be reloaded");
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  void testConcurrentIdenticalQueriesRunOnce() throws Exception {
+    SearchPipeline pipeline = new SearchPipeline(0, 0, version::get, Runnable::run);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+    try {
+      Future<String> first = threads.submit(() -> pipeline.query("key", () -> {
+        started.countDown();
+        release.await();
+        return load("rows");
+      }));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      List<Future<String>> joined = List.of(
+        threads.submit(() -> pipeline.query("key", () -> load("other"))),
+        threads.submit(() -> pipeline.query("key", () -> load("other"))));
+      Thread.sleep(100);
+      release.countDown();
+
+      assertEquals("rows", first.get(5, TimeUnit.SECONDS));
+      for (Future<String> future : joined) {
+        assertEquals("rows", future.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(1, calls.get(), "Queries waiting on the same key should share one load");
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+}
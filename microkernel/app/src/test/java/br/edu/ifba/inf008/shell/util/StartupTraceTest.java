@@ -0,0 +1,62 @@
+package br.edu.ifba.inf008.shell.util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StartupTraceTest {
+  @BeforeEach
+  void setUp() {
+    StartupTrace.reset();
+  }
+
+  @Test
+  void testSpansAndMarksAreRecordedInOrderSinceProcessStart() throws Exception {
+    StartupTrace.mark("main");
+    try (StartupTrace.Span span = StartupTrace.begin("database warm-up")) {
+      Thread.sleep(20);
+    }
+    StartupTrace.mark(StartupTrace.FIRST_FRAME);
+
+    List<StartupTrace.Event> events = StartupTrace.events();
+    assertEquals(List.of("main", "database warm-up", StartupTrace.FIRST_FRAME),
+      events.stream().map(StartupTrace.Event::name).toList());
+    assertTrue(events.get(0).isMark());
+    assertFalse(events.get(1).isMark());
+    assertTrue(events.get(1).millis() >= 20, "The span should cover the work inside it");
+    assertTrue(events.get(2).atMillis() >= events.get(1).atMillis() + events.get(1).millis());
+    assertTrue(events.get(0).atMillis() > 0, "Times are measured from process start, not from the first event");
+  }
+
+  @Test
+  void testMarksAreRecordedOnceAndCompleteTheirFutures() throws Exception {
+    CompletableFuture<Long> ready = StartupTrace.reached(StartupTrace.READY);
+    assertFalse(ready.isDone());
+
+    StartupTrace.mark(StartupTrace.READY);
+    StartupTrace.mark(StartupTrace.READY);
+
+    long at = ready.get(1, TimeUnit.SECONDS);
+    assertEquals(1, StartupTrace.events().size());
+    assertEquals(at, StartupTrace.events().get(0).atMillis());
+    assertTrue(StartupTrace.reached(StartupTrace.READY).isDone());
+  }
+
+  @Test
+  void testReportListsEveryPhase() {
+    StartupTrace.begin("main window").close();
+    StartupTrace.mark(StartupTrace.FIRST_FRAME);
+
+    String report = StartupTrace.report();
+
+    assertTrue(report.startsWith(StartupTrace.PREFIX));
+    assertTrue(report.contains("main window"));
+    assertTrue(report.contains(StartupTrace.FIRST_FRAME));
+  }
+}
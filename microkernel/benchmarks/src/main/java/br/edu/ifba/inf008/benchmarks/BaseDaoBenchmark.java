@@ -0,0 +1,81 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import br.edu.ifba.inf008.plugins.user.persistence.UserDAO;
+import br.edu.ifba.inf008.shell.model.User;
+
+/**
+ * Operações genéricas de {@code BaseDAO} (save, findById, findAll, update, delete), medidas
+ * pelo {@link UserDAO}, o DAO cujas sobrescritas menos acrescentam ao caminho padrão.
+ */
+public class BaseDaoBenchmark extends DaoBenchmark {
+  private static final int UPDATED_USERS = 1_000;
+
+  private final AtomicLong sequence = new AtomicLong();
+  private UserDAO userDAO;
+  private User[] updatedUsers;
+
+  @Override
+  protected void setUp() {
+    userDAO = new UserDAO(provider);
+    updatedUsers = new User[UPDATED_USERS];
+    for (int i = 0; i < UPDATED_USERS; i++) {
+      updatedUsers[i] = loadUser(randomUserId());
+    }
+  }
+
+  /** Um usuário novo, sem empréstimos, gravado antes de cada chamada de {@link #delete}. */
+  @State(Scope.Thread)
+  public static class Deletable {
+    User user;
+
+    @Setup(Level.Invocation)
+    public void create(BaseDaoBenchmark benchmark) {
+      user = benchmark.newUser();
+      benchmark.userDAO.save(user);
+    }
+  }
+
+  private User newUser() {
+    long n = sequence.incrementAndGet();
+    return new User("Benchmark " + n, "bench" + n + "@example.com");
+  }
+
+  @Benchmark
+  public User save() {
+    User user = newUser();
+    userDAO.save(user);
+    return user;
+  }
+
+  @Benchmark
+  public User findById() {
+    return userDAO.findById(randomUserId());
+  }
+
+  @Benchmark
+  public List<User> findAll() {
+    return userDAO.findAll();
+  }
+
+  @Benchmark
+  public User update() {
+    User user = updatedUsers[(int) (sequence.incrementAndGet() % UPDATED_USERS)];
+    user.setName("Updated " + sequence.get());
+    userDAO.update(user);
+    return user;
+  }
+
+  @Benchmark
+  public void delete(Deletable deletable) {
+    userDAO.delete(deletable.user);
+  }
+}
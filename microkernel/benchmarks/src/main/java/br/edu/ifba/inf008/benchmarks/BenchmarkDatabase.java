@@ -0,0 +1,79 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.cfg.Configuration;
+
+import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.TableVersion;
+import br.edu.ifba.inf008.shell.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+/**
+ * Cria bancos H2 em memória com o mesmo mapeamento da aplicação para os benchmarks.
+ */
+public final class BenchmarkDatabase {
+  private BenchmarkDatabase() {}
+
+  public static EntityManagerFactory create(String name) {
+    return configure("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "create");
+  }
+
+  /** Banco H2 em modo MariaDB cujo esquema é criado pelas migrações, não pelo Hibernate. */
+  public static DataSource dataSource(String name) {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL(migratedUrl(name));
+    dataSource.setUser("sa");
+    return dataSource;
+  }
+
+  /** Abre uma factory sobre um banco já migrado com {@link #dataSource(String)}. */
+  public static EntityManagerFactory connect(String name) {
+    return configure(migratedUrl(name), "none");
+  }
+
+  /**
+   * Abre a unidade de persistência da própria aplicação (lotes JDBC, cache de segundo nível,
+   * HikariCP) sobre um banco já migrado, trocando só a conexão e o dialeto.
+   */
+  public static EntityManagerFactory application(String name) {
+    Map<String, Object> overrides = new HashMap<>();
+    overrides.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+    overrides.put("jakarta.persistence.jdbc.url", migratedUrl(name));
+    overrides.put("jakarta.persistence.jdbc.user", "sa");
+    overrides.put("jakarta.persistence.jdbc.password", "");
+    overrides.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+    overrides.put("hibernate.show_sql", "false");
+    overrides.put("hibernate.format_sql", "false");
+    overrides.put("hibernate.hikari.leakDetectionThreshold", "0");
+    // O nome da unidade vem de JPAUtil, mas carregar JPAUtil abriria a conexão com o MariaDB
+    return Persistence.createEntityManagerFactory("bookstore-pu", overrides);
+  }
+
+  private static String migratedUrl(String name) {
+    // Sem o cache de resultados do H2, cada execução percorre o plano de acesso de fato
+    return "jdbc:h2:mem:" + name + ";MODE=MariaDB;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0";
+  }
+
+  private static EntityManagerFactory configure(String url, String hbm2ddl) {
+    Configuration configuration = new Configuration()
+      .addAnnotatedClass(User.class)
+      .addAnnotatedClass(Book.class)
+      .addAnnotatedClass(Loan.class)
+      .addAnnotatedClass(TableVersion.class)
+      .setProperty("hibernate.connection.driver_class", "org.h2.Driver")
+      .setProperty("hibernate.connection.url", url)
+      .setProperty("hibernate.connection.username", "sa")
+      .setProperty("hibernate.connection.password", "")
+      .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+      .setProperty("hibernate.hbm2ddl.auto", hbm2ddl)
+      .setProperty("hibernate.show_sql", "false");
+    return configuration.buildSessionFactory();
+  }
+}
@@ -0,0 +1,95 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import br.edu.ifba.inf008.interfaces.SortOrder;
+import br.edu.ifba.inf008.plugins.book.persistence.BookDAO;
+import br.edu.ifba.inf008.plugins.book.persistence.BookSearchIndex;
+import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.BookRow;
+
+/**
+ * Variantes de busca do {@link BookDAO}: pelo índice de trigramas (título, autor, ISBN), por
+ * {@code LIKE} no banco (páginas e contagem da lista) e a montagem do próprio índice.
+ */
+public class BookDaoBenchmark extends DaoBenchmark {
+  private static final int PAGE_SIZE = 50;
+  private static final int SAMPLES = 100;
+
+  private BookDAO bookDAO;
+  private Book[] samples;
+
+  @Override
+  protected void setUp() {
+    bookDAO = new BookDAO(provider);
+    bookDAO.getSearchIndex();
+    samples = new Book[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) {
+      samples[i] = loadBook(randomBookId());
+    }
+  }
+
+  private Book sample() {
+    return samples[randomBookId() % SAMPLES];
+  }
+
+  /** As duas primeiras palavras de um título gerado ("The Silent") casam com uns 2% dos livros. */
+  private String titlePrefix() {
+    String title = sample().getTitle();
+    int second = title.indexOf(' ', title.indexOf(' ') + 1);
+    return second < 0 ? title : title.substring(0, second);
+  }
+
+  @Benchmark
+  public List<Book> findAllByTitle() {
+    return bookDAO.findAll("title", titlePrefix());
+  }
+
+  @Benchmark
+  public List<Book> findAllByAuthor() {
+    return bookDAO.findAll("author", sample().getAuthor());
+  }
+
+  @Benchmark
+  public List<Book> findAllByIsbn() {
+    return bookDAO.findAll("isbn", sample().getIsbn());
+  }
+
+  @Benchmark
+  public List<Book> findAvailableBooks() {
+    return bookDAO.findAvailableBooks();
+  }
+
+  @Benchmark
+  public List<Book> findAvailableBooksByTitle() {
+    return bookDAO.findAvailableBooks("title", titlePrefix());
+  }
+
+  @Benchmark
+  public List<BookRow> findRowsByTitle() {
+    return bookDAO.findRows("title", titlePrefix(), false);
+  }
+
+  @Benchmark
+  public List<BookRow> findRowsPage() {
+    int offset = Math.max(0, randomBookId() - PAGE_SIZE);
+    return bookDAO.findRows(null, null, false, offset, PAGE_SIZE, SortOrder.ASCENDING);
+  }
+
+  @Benchmark
+  public List<BookRow> findRowsLikePage() {
+    return bookDAO.findRows("title", titlePrefix(), false, 0, PAGE_SIZE, SortOrder.ASCENDING);
+  }
+
+  @Benchmark
+  public int countRowsLike() {
+    return bookDAO.countRows("title", titlePrefix(), false);
+  }
+
+  @Benchmark
+  public BookSearchIndex buildSearchIndex() {
+    return new BookDAO(provider).getSearchIndex();
+  }
+}
@@ -0,0 +1,132 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.edu.ifba.inf008.benchmarks.data.DataGenerator;
+import br.edu.ifba.inf008.benchmarks.data.GeneratorOptions;
+import br.edu.ifba.inf008.benchmarks.data.JdbcSink;
+import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.User;
+import br.edu.ifba.inf008.shell.persistence.EntityManagerProvider;
+import br.edu.ifba.inf008.shell.persistence.SchemaMigrator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Base dos benchmarks dos DAOs: um H2 em memória migrado até a versão atual e populado pelo
+ * {@link DataGenerator} com {@code loans} empréstimos ({@code -p loans=10000,1000000,10000000}),
+ * com as proporções de {@link GeneratorOptions#forLoans(int)}. Os DAOs usam a unidade de
+ * persistência da aplicação, com o cache de segundo nível ligado.
+ * <p>
+ * O livro {@link #STOCKED_BOOK_ID} tem estoque ilimitado, para que os benchmarks de escrita
+ * possam abrir empréstimos sem esgotar as cópias.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class DaoBenchmark {
+  public static final int STOCKED_BOOK_ID = 1;
+
+  @Param({"10000"})
+  public int loans;
+
+  protected int users;
+  protected int books;
+  protected LocalDate from;
+  protected LocalDate until;
+  protected EntityManagerFactory factory;
+  protected EntityManagerProvider provider;
+
+  @Setup(Level.Trial)
+  public void setUpDatabase() throws SQLException, IOException {
+    GeneratorOptions options = GeneratorOptions.forLoans(loans);
+    users = options.users();
+    books = options.books();
+    from = options.from();
+    until = options.until();
+
+    String name = getClass().getSimpleName() + "_" + loans;
+    DataSource dataSource = BenchmarkDatabase.dataSource(name);
+    SchemaMigrator.migrate(dataSource);
+    try (JdbcSink sink = new JdbcSink(dataSource, options.batchSize())) {
+      new DataGenerator(options).generate(sink);
+    }
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("UPDATE books SET copies_available = " + Integer.MAX_VALUE / 2 + " WHERE book_id = " + STOCKED_BOOK_ID);
+    }
+
+    factory = BenchmarkDatabase.application(name);
+    provider = factory::createEntityManager;
+    setUp();
+  }
+
+  /** Cria os DAOs; roda depois que o banco está pronto. */
+  protected abstract void setUp();
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    factory.close();
+  }
+
+  protected int randomUserId() {
+    return ThreadLocalRandom.current().nextInt(1, users + 1);
+  }
+
+  protected int randomBookId() {
+    return ThreadLocalRandom.current().nextInt(1, books + 1);
+  }
+
+  protected int randomLoanId() {
+    return ThreadLocalRandom.current().nextInt(1, loans + 1);
+  }
+
+  /** Dia dentro do período populado, para consultas por data. */
+  protected LocalDate dayBeforeLast(int days) {
+    return until.minusDays(days);
+  }
+
+  /** Meio do período populado. */
+  protected LocalDate midpoint() {
+    return from.plusDays(ChronoUnit.DAYS.between(from, until) / 2);
+  }
+
+  /** Carrega uma entidade destacada, para ser usada como associação nos empréstimos novos. */
+  protected <T> T load(Class<T> type, int id) {
+    try (EntityManager em = factory.createEntityManager()) {
+      return em.find(type, id);
+    }
+  }
+
+  protected User loadUser(int id) {
+    return load(User.class, id);
+  }
+
+  protected Book loadBook(int id) {
+    return load(Book.class, id);
+  }
+}
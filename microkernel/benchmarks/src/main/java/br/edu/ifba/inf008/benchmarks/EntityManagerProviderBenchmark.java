@@ -0,0 +1,116 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.persistence.EntityManagerProvider;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Compara o custo por chamada de obter um EntityManager pela detecção de ambiente
+ * via stack trace (implementação anterior dos DAOs) com o provider injetado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityManagerProviderBenchmark {
+  private EntityManagerFactory factory;
+  private EntityManagerProvider provider;
+  private Integer bookId;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    factory = BenchmarkDatabase.create("provider_bench");
+    provider = factory::createEntityManager;
+
+    try (EntityManager em = factory.createEntityManager()) {
+      em.getTransaction().begin();
+      Book book = new Book("Benchmark", "Author", "bench-0001", 2024, 1);
+      em.persist(book);
+      em.getTransaction().commit();
+      bookId = book.getBookId();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    factory.close();
+  }
+
+  @Benchmark
+  public boolean legacyEnvironmentDetection() {
+    return isTestEnvironmentInPlugin() || isTestEnvironmentInBaseDAO();
+  }
+
+  @Benchmark
+  public Book legacyFindById() {
+    try (EntityManager em = legacyGetEntityManager()) {
+      return em.find(Book.class, bookId);
+    }
+  }
+
+  @Benchmark
+  public Book providerFindById() {
+    try (EntityManager em = provider.createEntityManager()) {
+      return em.find(Book.class, bookId);
+    }
+  }
+
+  /** Reproduz o caminho antigo: o DAO do plugin e o BaseDAO faziam cada um a sua detecção. */
+  private EntityManager legacyGetEntityManager() {
+    if (isTestEnvironmentInPlugin()) {
+      return lookupTestEntityManager();
+    }
+    if (isTestEnvironmentInBaseDAO()) {
+      return lookupTestEntityManager();
+    }
+    return factory.createEntityManager();
+  }
+
+  private EntityManager lookupTestEntityManager() {
+    try {
+      Class<?> testJPAUtilClass = Class.forName("br.edu.ifba.inf008.plugins.book.persistence.TestJPAUtil");
+      return (EntityManager) testJPAUtilClass.getMethod("getEntityManager").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return factory.createEntityManager();
+    }
+  }
+
+  private boolean isTestEnvironmentInPlugin() {
+    String stackTrace = Arrays.toString(Thread.currentThread().getStackTrace());
+    return stackTrace.contains("Test") ||
+           System.getProperty("surefire.test.class.path") != null;
+  }
+
+  private boolean isTestEnvironmentInBaseDAO() {
+    String stackTrace = Arrays.toString(Thread.currentThread().getStackTrace());
+    boolean isTest = stackTrace.contains("Test") ||
+                     System.getProperty("maven.test.skip") != null ||
+                     System.getProperty("surefire.test.class.path") != null;
+    try {
+      String resourcePath = getClass().getClassLoader().getResource("META-INF/persistence.xml").toString();
+      isTest = isTest || resourcePath.contains("test-classes");
+    } catch (Exception e) {
+      // sem persistence.xml no classpath
+    }
+    return isTest;
+  }
+}
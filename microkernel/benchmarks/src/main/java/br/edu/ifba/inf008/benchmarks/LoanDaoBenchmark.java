@@ -0,0 +1,88 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import br.edu.ifba.inf008.plugins.loan.persistence.LoanDAO;
+import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.User;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Escritas do {@link LoanDAO}, que além do empréstimo atualizam o estoque do livro na mesma
+ * transação. Os empréstimos novos usam o livro de estoque ilimitado.
+ */
+public class LoanDaoBenchmark extends DaoBenchmark {
+  private static final int UPDATED_LOANS = 1_000;
+
+  private final AtomicLong sequence = new AtomicLong();
+  private LoanDAO loanDAO;
+  private Book stockedBook;
+  private User[] borrowers;
+  private Loan[] updatedLoans;
+
+  @Override
+  protected void setUp() {
+    loanDAO = new LoanDAO(provider);
+    stockedBook = loadBook(STOCKED_BOOK_ID);
+    borrowers = new User[UPDATED_LOANS];
+    for (int i = 0; i < UPDATED_LOANS; i++) {
+      borrowers[i] = loadUser(randomUserId());
+    }
+    // Só empréstimos já devolvidos: mudar a data não mexe no estoque
+    try (EntityManager em = factory.createEntityManager()) {
+      List<Loan> returned = em.createQuery(
+          "SELECT l FROM Loan l JOIN FETCH l.user JOIN FETCH l.book"
+            + " WHERE l.returnDate IS NOT NULL AND l.loanId >= :first ORDER BY l.loanId", Loan.class)
+        .setParameter("first", randomLoanId() / 2)
+        .setMaxResults(UPDATED_LOANS)
+        .getResultList();
+      updatedLoans = returned.toArray(new Loan[0]);
+    }
+  }
+
+  private Loan newLoan() {
+    User borrower = borrowers[(int) (sequence.incrementAndGet() % UPDATED_LOANS)];
+    return new Loan(borrower, stockedBook, LocalDate.now(), null);
+  }
+
+  /** Um empréstimo ativo, aberto antes de cada chamada de {@link #returnLoan}. */
+  @State(Scope.Thread)
+  public static class ActiveLoan {
+    Loan loan;
+
+    @Setup(Level.Invocation)
+    public void open(LoanDaoBenchmark benchmark) {
+      loan = benchmark.newLoan();
+      benchmark.loanDAO.save(loan);
+    }
+  }
+
+  @Benchmark
+  public Loan save() {
+    Loan loan = newLoan();
+    loanDAO.save(loan);
+    return loan;
+  }
+
+  @Benchmark
+  public void returnLoan(ActiveLoan active) {
+    loanDAO.returnLoan(active.loan);
+  }
+
+  @Benchmark
+  public Loan update() {
+    Loan loan = updatedLoans[(int) (sequence.incrementAndGet() % updatedLoans.length)];
+    loan.setReturnDate(loan.getLoanDate().plusDays(1 + sequence.get() % 28));
+    loanDAO.update(loan);
+    return loan;
+  }
+}
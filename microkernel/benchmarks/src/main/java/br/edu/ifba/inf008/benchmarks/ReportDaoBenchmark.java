@@ -0,0 +1,148 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.TearDown;
+
+import br.edu.ifba.inf008.interfaces.SortOrder;
+import br.edu.ifba.inf008.plugins.report.export.ReportExporter;
+import br.edu.ifba.inf008.plugins.report.persistence.LoanFilter;
+import br.edu.ifba.inf008.plugins.report.persistence.ReportDAO;
+import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.LoanRow;
+import br.edu.ifba.inf008.shell.model.LoanSummary;
+
+/**
+ * Consultas do {@link ReportDAO}. As que carregam todos os empréstimos (findAll, findByStatus
+ * com devolvidos, "before" perto do fim) crescem com a escala e, a partir de 1 milhão de
+ * empréstimos, pedem {@code -jvmArgsAppend -Xmx8g}.
+ */
+public class ReportDaoBenchmark extends DaoBenchmark {
+  private ReportDAO reportDAO;
+  private ReportExporter exporter;
+  private Path exportFile;
+  private LocalDate middle;
+  private LocalDate lastMonth;
+  private LocalDate lastDay;
+  private LoanFilter userFilter;
+
+  @Override
+  protected void setUp() {
+    reportDAO = new ReportDAO(provider);
+    exporter = new ReportExporter(reportDAO);
+    try {
+      exportFile = Files.createTempFile("report-export", ".csv");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    middle = midpoint();
+    lastMonth = dayBeforeLast(30);
+    lastDay = dayBeforeLast(0);
+    userFilter = LoanFilter.all().withUser(1).withOrder(SortOrder.DESCENDING).withLimit(50);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteExport() throws IOException {
+    Files.deleteIfExists(exportFile);
+  }
+
+  @Benchmark
+  public List<Loan> findAll() {
+    return reportDAO.findAll();
+  }
+
+  @Benchmark
+  public List<Loan> findBefore() {
+    return reportDAO.findByInitialDate(middle, "before");
+  }
+
+  @Benchmark
+  public List<Loan> findAfter() {
+    return reportDAO.findByInitialDate(lastMonth, "after");
+  }
+
+  @Benchmark
+  public List<Loan> findOnDate() {
+    return reportDAO.findByInitialDate(middle, "onDate");
+  }
+
+  @Benchmark
+  public List<Loan> findBetween() {
+    return reportDAO.findByInitialAndFinalDate(lastMonth, lastDay);
+  }
+
+  @Benchmark
+  public List<Loan> findActive() {
+    return reportDAO.findByStatus(true);
+  }
+
+  @Benchmark
+  public List<Loan> findReturned() {
+    return reportDAO.findByStatus(false);
+  }
+
+  @Benchmark
+  public long countActive() {
+    return reportDAO.countRows(LoanFilter.all().withActive(true));
+  }
+
+  @Benchmark
+  public List<Loan> findActiveBetween() {
+    return reportDAO.findByStatusAndInitialAndFinalDate(true, lastMonth, lastDay);
+  }
+
+  @Benchmark
+  public List<Loan> findActiveAfter() {
+    return reportDAO.findByStatusAndInitialDate(true, lastMonth, "after");
+  }
+
+  /** Um usuário ativo, os mais recentes primeiro, limitado como numa tela de histórico. */
+  @Benchmark
+  public List<LoanRow> findRowsForUser() {
+    return reportDAO.findRows(userFilter);
+  }
+
+  @Benchmark
+  public List<LoanRow> findRowsAllTime() {
+    return reportDAO.findRows(LoanFilter.all());
+  }
+
+  @Benchmark
+  public List<LoanRow> findRowsActiveAfter() {
+    return reportDAO.findRows(LoanFilter.of("after", lastMonth, null).withActive(true));
+  }
+
+  @Benchmark
+  public List<LoanRow> findRowsBetween() {
+    return reportDAO.findRows(LoanFilter.of("between", lastMonth, lastDay));
+  }
+
+  /** O relatório inteiro em CSV pelo cursor: não depende de -Xmx como {@link #findRowsAllTime}. */
+  @Benchmark
+  public long exportAllTime() throws IOException {
+    return exporter.export(LoanFilter.all(), exportFile, (written, total) -> {}, () -> false);
+  }
+
+  /** Mesmo período de {@link #findRowsBetween}, pelos agregados diários: no máximo uma linha por dia. */
+  @Benchmark
+  public LoanSummary summarizeBetween() {
+    return reportDAO.summarize(LoanFilter.of("between", lastMonth, lastDay));
+  }
+
+  @Benchmark
+  public LoanSummary summarizeAllTime() {
+    return reportDAO.summarize(LoanFilter.all());
+  }
+
+  @Benchmark
+  public List<LoanSummary> findDailySummaries() {
+    return reportDAO.findDailySummaries(lastMonth, lastDay);
+  }
+}
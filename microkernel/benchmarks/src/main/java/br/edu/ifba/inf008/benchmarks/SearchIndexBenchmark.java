@@ -0,0 +1,129 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.edu.ifba.inf008.benchmarks.data.DataGenerator;
+import br.edu.ifba.inf008.benchmarks.data.GeneratorOptions;
+import br.edu.ifba.inf008.benchmarks.data.JdbcSink;
+import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.User;
+import br.edu.ifba.inf008.shell.persistence.SchemaMigrator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Latência das consultas de filtro das telas e relatórios antes (esquema da versão 1,
+ * só PKs e únicos) e depois (versão 2, índices de busca) da migração de índices, com
+ * {@value #LOANS} empréstimos gerados pelo {@link DataGenerator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark {
+  private static final int LOANS = 100_000;
+
+  @Param({"1", "2"})
+  public String schemaVersion;
+
+  private EntityManagerFactory factory;
+  private LocalDate lastMonth;
+  private int middleUserId;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException, IOException {
+    GeneratorOptions options = GeneratorOptions.forLoans(LOANS);
+    String name = "index_bench_v" + schemaVersion;
+    DataSource dataSource = BenchmarkDatabase.dataSource(name);
+    SchemaMigrator.migrate(dataSource, schemaVersion);
+    try (JdbcSink sink = new JdbcSink(dataSource, options.batchSize())) {
+      new DataGenerator(options).generate(sink);
+    }
+
+    factory = BenchmarkDatabase.connect(name);
+    lastMonth = options.until().minusDays(30);
+    middleUserId = options.users() / 2;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    factory.close();
+  }
+
+  @Benchmark
+  public Long countActiveLoans() {
+    try (EntityManager em = factory.createEntityManager()) {
+      return em.createQuery("SELECT COUNT(l) FROM Loan l WHERE l.returnDate IS NULL", Long.class)
+        .getSingleResult();
+    }
+  }
+
+  @Benchmark
+  public List<Loan> activeLoansSince() {
+    try (EntityManager em = factory.createEntityManager()) {
+      return em.createQuery(
+          "SELECT l FROM Loan l WHERE l.returnDate IS NULL AND l.loanDate >= :initialDate", Loan.class)
+        .setParameter("initialDate", lastMonth)
+        .getResultList();
+    }
+  }
+
+  @Benchmark
+  public List<Loan> activeLoansOfUser() {
+    try (EntityManager em = factory.createEntityManager()) {
+      return em.createQuery(
+          "SELECT l FROM Loan l WHERE l.user.userId = :userId AND l.returnDate IS NULL", Loan.class)
+        .setParameter("userId", middleUserId)
+        .getResultList();
+    }
+  }
+
+  @Benchmark
+  public List<Loan> loansOnDate() {
+    try (EntityManager em = factory.createEntityManager()) {
+      return em.createQuery("SELECT l FROM Loan l WHERE l.loanDate = :initialDate", Loan.class)
+        .setParameter("initialDate", lastMonth)
+        .getResultList();
+    }
+  }
+
+  @Benchmark
+  public List<Book> availableBooks() {
+    try (EntityManager em = factory.createEntityManager()) {
+      return em.createQuery("SELECT b FROM Book b WHERE b.copiesAvailable > 0", Book.class)
+        .getResultList();
+    }
+  }
+
+  @Benchmark
+  public List<User> usersByNamePrefix() {
+    try (EntityManager em = factory.createEntityManager()) {
+      return em.createQuery("SELECT u FROM User u WHERE u.name LIKE :field", User.class)
+        .setParameter("field", "Ana S%")
+        .getResultList();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package br.edu.ifba.inf008.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.edu.ifba.inf008.shell.util.StartupTrace;
+
+/**
+ * Tempo até o primeiro quadro da janela principal, com e sem o arquivo AppCDS gerado pelo
+ * perfil {@code appcds} do módulo {@code app}.
+ * <p>
+ * Cada invocação sobe a aplicação num processo novo e mede do disparo até o marco
+ * {@link StartupTrace#FIRST_FRAME} aparecer na saída. Precisa de uma tela (ou Xvfb), do banco
+ * no ar e de ser executado da pasta {@code microkernel/}; os caminhos podem ser trocados com
+ * {@code -jvmArgsAppend "-Dbookstore.app.jar=... -Dbookstore.app.archive=..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+  private static final String FIRST_FRAME_LINE = "[startup] " + StartupTrace.FIRST_FRAME;
+
+  @Param({"none", "appcds"})
+  public String archive;
+
+  private List<String> command;
+  private Process process;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    File jar = new File(System.getProperty("bookstore.app.jar", "app/target/executable-1.0-SNAPSHOT.jar"));
+    File sharedArchive = new File(System.getProperty("bookstore.app.archive", "app/target/bookstore.jsa"));
+    if (!jar.isFile()) {
+      throw new IllegalStateException(jar + " not found; build it with: mvn -pl app package -Pappcds");
+    }
+
+    command = new ArrayList<>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    if (archive.equals("appcds")) {
+      if (!sharedArchive.isFile()) {
+        throw new IllegalStateException(sharedArchive + " not found; build it with: mvn -pl app package -Pappcds");
+      }
+      command.add("-XX:SharedArchiveFile=" + sharedArchive.getPath());
+    }
+    command.add("-Dbookstore.startup.trace=true");
+    command.add("-Dbookstore.plugins.hot_reload=false");
+    command.add("-jar");
+    command.add(jar.getPath());
+  }
+
+  @Benchmark
+  public void timeToFirstFrame() throws IOException {
+    process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    Deque<String> lastLines = new ArrayDeque<>();
+    String line;
+    while ((line = output.readLine()) != null) {
+      if (line.startsWith(FIRST_FRAME_LINE)) {
+        return;
+      }
+      lastLines.addLast(line);
+      if (lastLines.size() > 20) {
+        lastLines.removeFirst();
+      }
+    }
+    throw new IllegalStateException("Application exited before showing its window:\n" + String.join("\n", lastLines));
+  }
+
+  /** O resto da partida fica fora da medição: o processo é encerrado logo depois do primeiro quadro. */
+  @TearDown(Level.Invocation)
+  public void stopApplication() throws InterruptedException {
+    if (process != null) {
+      process.destroyForcibly().waitFor();
+      process = null;
+    }
+  }
+}
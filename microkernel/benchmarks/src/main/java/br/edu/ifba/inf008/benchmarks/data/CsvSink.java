@@ -0,0 +1,158 @@
+package br.edu.ifba.inf008.benchmarks.data;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import br.edu.ifba.inf008.shell.persistence.LoanStatistics;
+
+/**
+ * Grava {@code users.csv}, {@code books.csv} e {@code loans.csv} (sem cabeçalho, separados por
+ * vírgula, data de devolução vazia nos ativos) e os scripts que carregam esses arquivos de uma
+ * vez num banco já migrado:
+ * <ul>
+ *   <li>{@code load-mariadb.sql}, com {@code LOAD DATA LOCAL INFILE}; rode da pasta dos arquivos,
+ *       com {@code mariadb --local-infile=1 ... < load-mariadb.sql};</li>
+ *   <li>{@code load-h2.sql}, com {@code CSVREAD} e caminhos absolutos ({@code RUNSCRIPT FROM ...}).</li>
+ * </ul>
+ * Os dois terminam reajustando as sequences e recalculando os agregados de {@link LoanStatistics}.
+ * Os textos gerados não têm vírgulas, aspas nem quebras de linha, então não há escape.
+ */
+public class CsvSink implements DataSink {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Path directory;
+  private Writer users;
+  private Writer books;
+  private Writer loans;
+
+  public CsvSink(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+  }
+
+  @Override
+  public void user(int id, String name, String email, LocalDateTime registeredAt) throws IOException {
+    if (users == null) {
+      users = open("users.csv");
+    }
+    users.write(Integer.toString(id));
+    users.write(',');
+    users.write(name);
+    users.write(',');
+    users.write(email);
+    users.write(',');
+    users.write(registeredAt.toLocalDate().toString());
+    users.write(' ');
+    writeTwoDigits(users, registeredAt.getHour());
+    users.write(':');
+    writeTwoDigits(users, registeredAt.getMinute());
+    users.write(":00\n");
+  }
+
+  @Override
+  public void book(int id, String title, String author, String isbn, int publishedYear, int copiesAvailable)
+      throws IOException {
+    if (books == null) {
+      books = open("books.csv");
+    }
+    books.write(Integer.toString(id));
+    books.write(',');
+    books.write(title);
+    books.write(',');
+    books.write(author);
+    books.write(',');
+    books.write(isbn);
+    books.write(',');
+    books.write(Integer.toString(publishedYear));
+    books.write(',');
+    books.write(Integer.toString(copiesAvailable));
+    books.write('\n');
+  }
+
+  @Override
+  public void loan(int id, int userId, int bookId, LocalDate loanDate, LocalDate returnDate) throws IOException {
+    if (loans == null) {
+      loans = open("loans.csv");
+    }
+    loans.write(Integer.toString(id));
+    loans.write(',');
+    loans.write(Integer.toString(userId));
+    loans.write(',');
+    loans.write(Integer.toString(bookId));
+    loans.write(',');
+    loans.write(loanDate.toString());
+    loans.write(',');
+    if (returnDate != null) {
+      loans.write(returnDate.toString());
+    }
+    loans.write('\n');
+  }
+
+  @Override
+  public void finish(int userCount, int bookCount, int loanCount) throws IOException {
+    close();
+    String afterLoad = "ALTER SEQUENCE users_seq RESTART WITH " + (userCount + 1) + ";\n"
+      + "ALTER SEQUENCE books_seq RESTART WITH " + (bookCount + 1) + ";\n"
+      + "ALTER SEQUENCE loans_seq RESTART WITH " + (loanCount + 1) + ";\n"
+      + String.join(";\n", LoanStatistics.REBUILD_SQL) + ";\n";
+
+    Files.writeString(directory.resolve("load-mariadb.sql"), """
+      -- Carrega os CSVs desta pasta num banco já migrado e vazio. Rode desta pasta:
+      --   mariadb --local-infile=1 -h 127.0.0.1 -P 3307 -u bookstore_user -p bookstore < load-mariadb.sql
+      SET foreign_key_checks = 0;
+      SET unique_checks = 0;
+      LOAD DATA LOCAL INFILE 'users.csv' INTO TABLE users FIELDS TERMINATED BY ',' LINES TERMINATED BY '\\n'
+        (user_id, name, email, registered_at);
+      LOAD DATA LOCAL INFILE 'books.csv' INTO TABLE books FIELDS TERMINATED BY ',' LINES TERMINATED BY '\\n'
+        (book_id, title, author, isbn, published_year, copies_available);
+      LOAD DATA LOCAL INFILE 'loans.csv' INTO TABLE loans FIELDS TERMINATED BY ',' LINES TERMINATED BY '\\n'
+        (loan_id, user_id, book_id, loan_date, @return_date) SET return_date = NULLIF(@return_date, '');
+      SET unique_checks = 1;
+      SET foreign_key_checks = 1;
+      """ + afterLoad, StandardCharsets.UTF_8);
+
+    Files.writeString(directory.resolve("load-h2.sql"), """
+      -- Carrega os CSVs num banco H2 já migrado e vazio: RUNSCRIPT FROM '<esta pasta>/load-h2.sql'
+      INSERT INTO users (user_id, name, email, registered_at)
+        SELECT * FROM CSVREAD('%s', 'USER_ID,NAME,EMAIL,REGISTERED_AT', 'charset=UTF-8');
+      INSERT INTO books (book_id, title, author, isbn, published_year, copies_available)
+        SELECT * FROM CSVREAD('%s', 'BOOK_ID,TITLE,AUTHOR,ISBN,PUBLISHED_YEAR,COPIES_AVAILABLE', 'charset=UTF-8');
+      INSERT INTO loans (loan_id, user_id, book_id, loan_date, return_date)
+        SELECT LOAN_ID, USER_ID, BOOK_ID, LOAN_DATE, NULLIF(RETURN_DATE, '')
+        FROM CSVREAD('%s', 'LOAN_ID,USER_ID,BOOK_ID,LOAN_DATE,RETURN_DATE', 'charset=UTF-8');
+      """.formatted(absolute("users.csv"), absolute("books.csv"), absolute("loans.csv")) + afterLoad,
+      StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Writer writer : new Writer[] {users, books, loans}) {
+      if (writer != null) {
+        writer.close();
+      }
+    }
+    users = null;
+    books = null;
+    loans = null;
+  }
+
+  private Writer open(String name) throws IOException {
+    return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(directory.resolve(name)), StandardCharsets.UTF_8),
+      BUFFER_SIZE);
+  }
+
+  private String absolute(String name) {
+    return directory.resolve(name).toAbsolutePath().toString().replace("'", "''");
+  }
+
+  private static void writeTwoDigits(Writer writer, int value) throws IOException {
+    writer.write('0' + value / 10);
+    writer.write('0' + value % 10);
+  }
+}
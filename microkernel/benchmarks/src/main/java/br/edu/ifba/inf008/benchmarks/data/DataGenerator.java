@@ -0,0 +1,289 @@
+package br.edu.ifba.inf008.benchmarks.data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import br.edu.ifba.inf008.shell.persistence.SchemaMigrator;
+
+/**
+ * Gera usuários, livros e empréstimos sintéticos em qualquer escala, sempre iguais para as
+ * mesmas {@link GeneratorOptions}:
+ * <ul>
+ *   <li>o volume diário de empréstimos cresce ano a ano, cai nos fins de semana e segue o
+ *       calendário letivo (picos em março e setembro, vales em julho e dezembro);</li>
+ *   <li>poucos títulos concentram a maior parte dos empréstimos e poucos usuários fazem a maior
+ *       parte deles (Zipf, {@code book-skew} e {@code user-skew});</li>
+ *   <li>os livros se agrupam em autores prolíficos ({@code author-skew});</li>
+ *   <li>os devolvidos ficam em média {@code mean-loan-days} dias fora; {@code active-ratio} nunca
+ *       volta, e os abertos há menos tempo que o prazo continuam ativos;</li>
+ *   <li>{@code copies_available} já desconta os empréstimos ativos de cada livro.</li>
+ * </ul>
+ * As linhas vão direto para um {@link DataSink}, sem ficarem em memória: só a popularidade e os
+ * ativos por livro ocupam espaço proporcional à escala. Da pasta {@code microkernel/}:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar br.edu.ifba.inf008.benchmarks.data.DataGenerator \
+ *   --loans=10000000 --csv=target/dataset
+ * java -cp benchmarks/target/benchmarks.jar br.edu.ifba.inf008.benchmarks.data.DataGenerator \
+ *   --loans=1000000 --jdbc="jdbc:mariadb://127.0.0.1:3307/bookstore?useBulkStmts=true" \
+ *   --user=bookstore_user --password=...
+ * </pre>
+ */
+public class DataGenerator {
+  /** Peso de segunda a domingo. */
+  private static final double[] WEEKDAY_WEIGHT = {1.0, 1.0, 1.0, 1.05, 1.1, 0.6, 0.3};
+  /** Peso de janeiro a dezembro, seguindo o calendário letivo. */
+  private static final double[] MONTH_WEIGHT = {0.6, 1.0, 1.2, 1.1, 1.0, 0.8, 0.6, 1.0, 1.2, 1.1, 1.0, 0.5};
+  private static final int MAX_LOAN_DAYS = 120;
+  private static final int PROGRESS_ROWS = 1_000_000;
+
+  private static final String[] FIRST_NAMES = {
+    "Alice", "Bruno", "Carla", "Daniel", "Elisa", "Felipe", "Gabriela", "Hugo", "Isabel", "Joao",
+    "Karina", "Lucas", "Marina", "Nicolas", "Olivia", "Pedro", "Rafaela", "Samuel", "Tatiana", "Vitor",
+    "Ana", "Carlos", "Beatriz", "Diego", "Fernanda", "George", "Helena", "Igor", "Julia", "Mateus"};
+  private static final String[] LAST_NAMES = {
+    "Silva", "Santos", "Oliveira", "Souza", "Lima", "Pereira", "Costa", "Almeida", "Ferreira", "Rodrigues",
+    "Gomes", "Martins", "Araujo", "Barbosa", "Ribeiro", "Carvalho", "Rocha", "Dias", "Moreira", "Nunes",
+    "Johnson", "Smith", "White", "Brown", "Taylor", "Miller", "Wilson", "Clark", "Walker", "Young"};
+  private static final String[] ADJECTIVES = {
+    "Silent", "Hidden", "Lost", "Golden", "Broken", "Endless", "Northern", "Crimson", "Forgotten", "Last",
+    "Secret", "Distant", "Burning", "Quiet", "Wild", "Ancient", "Hollow", "Bright", "Frozen", "Restless"};
+  private static final String[] NOUNS = {
+    "River", "Garden", "Empire", "Voyage", "Library", "Storm", "Dream", "Kingdom", "Harbor", "Mirror",
+    "Shadow", "Letter", "Island", "Machine", "Promise", "Forest", "Winter", "Journey", "Tower", "Song"};
+  private static final String[] PLACES = {
+    "Salvador", "Lisbon", "the North", "the Sea", "Bahia", "the Mountains", "Avalon", "Recife",
+    "the Desert", "Tomorrow", "the Valley", "Porto", "the Stars", "Ouro Preto", "the City", "Olinda"};
+
+  private final GeneratorOptions options;
+  private final LocalDate[] calendar;
+  private final int[] loansPerDay;
+  private final ZipfSampler bookPopularity;
+  private final ZipfSampler userActivity;
+  private final ZipfSampler authorShare;
+
+  @FunctionalInterface
+  private interface LoanConsumer {
+    void accept(int id, int userId, int bookId, int day, int returnDay) throws IOException;
+  }
+
+  /** Totais gerados; {@code activeLoans} são os empréstimos sem data de devolução. */
+  public record Summary(int users, int books, int loans, int activeLoans, long millis) {
+    @Override
+    public String toString() {
+      return String.format("%,d users, %,d books, %,d loans (%,d active) in %.1f s",
+        users, books, loans, activeLoans, millis / 1000.0);
+    }
+  }
+
+  public DataGenerator(GeneratorOptions options) {
+    this.options = options;
+    int days = (int) ChronoUnit.DAYS.between(options.from(), options.until()) + 1;
+    calendar = new LocalDate[days];
+    for (int day = 0; day < days; day++) {
+      calendar[day] = options.from().plusDays(day);
+    }
+    loansPerDay = distribute(options.loans(), calendar, options.yearlyGrowth());
+    bookPopularity = new ZipfSampler(options.books(), options.bookSkew());
+    userActivity = new ZipfSampler(options.users(), options.userSkew());
+    authorShare = new ZipfSampler(options.authors(), options.authorSkew());
+  }
+
+  public GeneratorOptions getOptions() {
+    return options;
+  }
+
+  /** Gera tudo em silêncio, como nos benchmarks. */
+  public Summary generate(DataSink sink) throws IOException {
+    return generate(sink, loans -> {});
+  }
+
+  /** Como {@link #generate(DataSink)}, avisando {@code progress} a cada {@value #PROGRESS_ROWS} empréstimos gravados. */
+  public Summary generate(DataSink sink, IntConsumer progress) throws IOException {
+    long start = System.nanoTime();
+    // Primeira passada só conta os ativos por livro, para o estoque; a segunda repete o sorteio
+    int[] activePerBook = new int[options.books() + 1];
+    int[] active = new int[1];
+    forEachLoan((id, userId, bookId, day, returnDay) -> {
+      if (returnDay < 0) {
+        activePerBook[bookId]++;
+        active[0]++;
+      }
+    });
+
+    writeUsers(sink);
+    writeBooks(sink, activePerBook);
+    forEachLoan((id, userId, bookId, day, returnDay) -> {
+      sink.loan(id, userId, bookId, calendar[day], returnDay < 0 ? null : options.from().plusDays(returnDay));
+      if (id % PROGRESS_ROWS == 0) {
+        progress.accept(id);
+      }
+    });
+    sink.finish(options.users(), options.books(), options.loans());
+
+    return new Summary(options.users(), options.books(), options.loans(), active[0],
+      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /** Divide o total entre os dias pelos pesos, sem perder nenhum empréstimo no arredondamento. */
+  static int[] distribute(int loans, LocalDate[] calendar, double yearlyGrowth) {
+    double[] cumulative = new double[calendar.length];
+    double total = 0;
+    for (int day = 0; day < calendar.length; day++) {
+      LocalDate date = calendar[day];
+      total += Math.pow(1 + yearlyGrowth, day / 365.0)
+        * WEEKDAY_WEIGHT[date.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue()]
+        * MONTH_WEIGHT[date.getMonthValue() - 1];
+      cumulative[day] = total;
+    }
+    int[] perDay = new int[calendar.length];
+    long assigned = 0;
+    for (int day = 0; day < calendar.length; day++) {
+      long upTo = day == calendar.length - 1 ? loans : Math.round(cumulative[day] / total * loans);
+      perDay[day] = (int) (upTo - assigned);
+      assigned = upTo;
+    }
+    return perDay;
+  }
+
+  private void forEachLoan(LoanConsumer consumer) throws IOException {
+    Random random = new Random(options.seed() * 31 + 3);
+    int lastDay = calendar.length - 1;
+    int id = 0;
+    for (int day = 0; day < calendar.length; day++) {
+      for (int i = 0; i < loansPerDay[day]; i++) {
+        int userId = userActivity.sample(random);
+        int bookId = bookPopularity.sample(random);
+        int returnDay = -1;
+        if (random.nextDouble() >= options.activeRatio()) {
+          int length = 1 + (int) Math.min(MAX_LOAN_DAYS, -options.meanLoanDays() * Math.log(1 - random.nextDouble()));
+          returnDay = day + length <= lastDay ? day + length : -1;
+        }
+        consumer.accept(++id, userId, bookId, day, returnDay);
+      }
+    }
+  }
+
+  private void writeUsers(DataSink sink) throws IOException {
+    Random random = new Random(options.seed() * 31 + 1);
+    for (int id = 1; id <= options.users(); id++) {
+      String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+      String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+      LocalDateTime registeredAt = options.from().minusDays(random.nextInt(730))
+        .atTime(8 + random.nextInt(12), random.nextInt(60));
+      sink.user(id, first + " " + last,
+        first.toLowerCase(Locale.ROOT) + "." + last.toLowerCase(Locale.ROOT) + id + "@example.com", registeredAt);
+    }
+  }
+
+  private void writeBooks(DataSink sink, int[] activePerBook) throws IOException {
+    Random random = new Random(options.seed() * 31 + 2);
+    int bestsellers = Math.max(1, options.books() / 100);
+    int lastYear = options.until().getYear();
+    for (int id = 1; id <= options.books(); id++) {
+      int copies = 1 + random.nextInt(3) + (bookPopularity.rank(id) < bestsellers ? 4 : 0);
+      copies = Math.max(copies, activePerBook[id]);
+      int age = (int) Math.min(200, -20 * Math.log(1 - random.nextDouble()));
+      sink.book(id, title(random), author(authorShare.sample(random)), isbn(id), lastYear - age,
+        copies - activePerBook[id]);
+    }
+  }
+
+  private static String title(Random random) {
+    String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+    String noun = NOUNS[random.nextInt(NOUNS.length)];
+    return switch (random.nextInt(3)) {
+      case 0 -> "The " + adjective + " " + noun;
+      case 1 -> noun + "s of " + PLACES[random.nextInt(PLACES.length)];
+      default -> "The " + noun + " of the " + adjective + " " + NOUNS[random.nextInt(NOUNS.length)];
+    };
+  }
+
+  /** Nome único e estável para cada autor: primeiro nome, inicial do meio e sobrenome. */
+  static String author(int author) {
+    int index = author - 1;
+    int combinations = FIRST_NAMES.length * 26 * LAST_NAMES.length;
+    String name = FIRST_NAMES[index % FIRST_NAMES.length] + " "
+      + (char) ('A' + index / FIRST_NAMES.length % 26) + ". "
+      + LAST_NAMES[index / (FIRST_NAMES.length * 26) % LAST_NAMES.length];
+    return index < combinations ? name : name + " " + (index / combinations + 1);
+  }
+
+  /** ISBN-13 válido com prefixo 978 e o id nos 9 dígitos seguintes. */
+  static String isbn(int id) {
+    char[] digits = String.format("978%09d0", id).toCharArray();
+    int sum = 0;
+    for (int i = 0; i < 12; i++) {
+      sum += (digits[i] - '0') * (i % 2 == 0 ? 1 : 3);
+    }
+    digits[12] = (char) ('0' + (10 - sum % 10) % 10);
+    return new String(digits);
+  }
+
+  /**
+   * {@code --csv=<pasta>} grava arquivos de carga em lote; {@code --jdbc=<url>} (com
+   * {@code --user} e {@code --password}) migra o banco e grava direto nele. As demais opções
+   * são as de {@link GeneratorOptions#from(Map)}.
+   */
+  public static void main(String[] args) throws IOException {
+    Map<String, String> values = new HashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Expected --option=value, got " + args[i]);
+      }
+      String option = args[i].substring(2);
+      int equals = option.indexOf('=');
+      if (equals >= 0) {
+        values.put(option.substring(0, equals), option.substring(equals + 1));
+      } else if (i + 1 < args.length) {
+        values.put(option, args[++i]);
+      } else {
+        throw new IllegalArgumentException("Missing value for --" + option);
+      }
+    }
+    String csv = values.remove("csv");
+    String jdbc = values.remove("jdbc");
+    String user = values.remove("user");
+    String password = values.remove("password");
+    if ((csv == null) == (jdbc == null)) {
+      throw new IllegalArgumentException("Use exactly one of --csv=<dir> or --jdbc=<url>");
+    }
+
+    DataGenerator generator = new DataGenerator(GeneratorOptions.from(values));
+    Summary summary;
+    if (csv != null) {
+      try (CsvSink sink = new CsvSink(Path.of(csv))) {
+        summary = generator.generate(sink, DataGenerator::printProgress);
+      }
+    } else {
+      HikariConfig config = new HikariConfig();
+      config.setJdbcUrl(jdbc);
+      config.setUsername(user);
+      config.setPassword(password);
+      config.setMaximumPoolSize(1);
+      try (HikariDataSource dataSource = new HikariDataSource(config)) {
+        SchemaMigrator.migrate(dataSource);
+        try (JdbcSink sink = new JdbcSink(dataSource, generator.getOptions().batchSize())) {
+          summary = generator.generate(sink, DataGenerator::printProgress);
+        }
+      }
+    }
+    System.out.println("Generated " + summary);
+  }
+
+  private static void printProgress(int loans) {
+    System.out.printf("  %,d loans%n", loans);
+  }
+}
@@ -0,0 +1,22 @@
+package br.edu.ifba.inf008.benchmarks.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Destino das linhas do {@link DataGenerator}, recebidas na ordem das chaves estrangeiras:
+ * todos os usuários, depois os livros e por fim os empréstimos, cada tabela em ordem de id.
+ */
+public interface DataSink extends Closeable {
+  void user(int id, String name, String email, LocalDateTime registeredAt) throws IOException;
+
+  void book(int id, String title, String author, String isbn, int publishedYear, int copiesAvailable) throws IOException;
+
+  /** @param returnDate {@code null} para empréstimos ativos */
+  void loan(int id, int userId, int bookId, LocalDate loanDate, LocalDate returnDate) throws IOException;
+
+  /** Chamado depois da última linha, com o total de cada tabela. */
+  void finish(int users, int books, int loans) throws IOException;
+}
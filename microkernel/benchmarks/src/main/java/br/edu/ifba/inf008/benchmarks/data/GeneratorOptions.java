@@ -0,0 +1,97 @@
+package br.edu.ifba.inf008.benchmarks.data;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parâmetros do {@link DataGenerator}. A mesma combinação (incluindo {@code seed}) gera sempre
+ * os mesmos dados.
+ *
+ * @param authors      autores distintos entre os livros
+ * @param from         primeiro dia com empréstimos
+ * @param until        último dia com empréstimos ("hoje" para os dados gerados)
+ * @param activeRatio  fração dos empréstimos nunca devolvidos; os abertos há menos tempo que o
+ *                     prazo também ficam ativos
+ * @param meanLoanDays duração média dos empréstimos devolvidos
+ * @param bookSkew     expoente Zipf da popularidade dos livros (0 = uniforme, 1 = poucos títulos
+ *                     concentram a maior parte dos empréstimos)
+ * @param userSkew     expoente Zipf da atividade dos usuários
+ * @param authorSkew   expoente Zipf de livros por autor (poucos autores com muitos livros)
+ * @param yearlyGrowth crescimento anual do volume de empréstimos
+ * @param batchSize    linhas por lote JDBC
+ */
+public record GeneratorOptions(int users, int books, int authors, int loans, LocalDate from, LocalDate until,
+                               double activeRatio, double meanLoanDays, double bookSkew, double userSkew,
+                               double authorSkew, double yearlyGrowth, long seed, int batchSize) {
+  public static final LocalDate DEFAULT_UNTIL = LocalDate.of(2025, 6, 30);
+
+  public GeneratorOptions {
+    if (users < 1 || books < 1 || authors < 1 || loans < 0) {
+      throw new IllegalArgumentException("users, books and authors must be positive and loans not negative");
+    }
+    if (from.isAfter(until)) {
+      throw new IllegalArgumentException("from must not be after until: " + from + " > " + until);
+    }
+    if (activeRatio < 0 || activeRatio > 1) {
+      throw new IllegalArgumentException("active-ratio must be between 0 and 1: " + activeRatio);
+    }
+    if (meanLoanDays < 1 || bookSkew < 0 || userSkew < 0 || authorSkew < 0 || batchSize < 1) {
+      throw new IllegalArgumentException("mean-loan-days, batch-size and the skews must be positive");
+    }
+  }
+
+  /** 1 usuário a cada 20 empréstimos, 1 livro a cada 10 e 1 autor a cada 10 livros, em 5 anos. */
+  public static GeneratorOptions forLoans(int loans) {
+    int books = Math.max(100, loans / 10);
+    return new GeneratorOptions(Math.max(100, loans / 20), books, Math.max(10, books / 10), loans,
+      DEFAULT_UNTIL.minusYears(5).plusDays(1), DEFAULT_UNTIL,
+      0.02, 14, 1.0, 0.8, 1.1, 0.1, 42, 5_000);
+  }
+
+  /**
+   * Opções no formato da linha de comando ({@code loans=1000000}, {@code book-skew=1.2}...).
+   * Contagens omitidas seguem {@link #forLoans(int)}; chaves desconhecidas são rejeitadas.
+   */
+  public static GeneratorOptions from(Map<String, String> values) {
+    Map<String, String> remaining = new HashMap<>(values);
+    GeneratorOptions defaults = forLoans(intValue(remaining, "loans", 100_000));
+    LocalDate until = dateValue(remaining, "until", defaults.until());
+    int books = intValue(remaining, "books", defaults.books());
+    GeneratorOptions options = new GeneratorOptions(
+      intValue(remaining, "users", defaults.users()),
+      books,
+      intValue(remaining, "authors", Math.max(10, books / 10)),
+      defaults.loans(),
+      dateValue(remaining, "from", until.minusYears(5).plusDays(1)),
+      until,
+      doubleValue(remaining, "active-ratio", defaults.activeRatio()),
+      doubleValue(remaining, "mean-loan-days", defaults.meanLoanDays()),
+      doubleValue(remaining, "book-skew", defaults.bookSkew()),
+      doubleValue(remaining, "user-skew", defaults.userSkew()),
+      doubleValue(remaining, "author-skew", defaults.authorSkew()),
+      doubleValue(remaining, "yearly-growth", defaults.yearlyGrowth()),
+      Long.parseLong(remaining.getOrDefault("seed", String.valueOf(defaults.seed()))),
+      intValue(remaining, "batch-size", defaults.batchSize()));
+    remaining.remove("seed");
+    if (!remaining.isEmpty()) {
+      throw new IllegalArgumentException("Unknown options: " + remaining.keySet());
+    }
+    return options;
+  }
+
+  private static int intValue(Map<String, String> values, String key, int defaultValue) {
+    String value = values.remove(key);
+    return value == null ? defaultValue : Integer.parseInt(value.replace("_", ""));
+  }
+
+  private static double doubleValue(Map<String, String> values, String key, double defaultValue) {
+    String value = values.remove(key);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+
+  private static LocalDate dateValue(Map<String, String> values, String key, LocalDate defaultValue) {
+    String value = values.remove(key);
+    return value == null ? defaultValue : LocalDate.parse(value);
+  }
+}
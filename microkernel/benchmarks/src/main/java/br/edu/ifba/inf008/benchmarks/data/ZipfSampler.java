@@ -0,0 +1,66 @@
+package br.edu.ifba.inf008.benchmarks.data;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Sorteia ids de 1 a {@code size} com popularidade Zipf: o k-ésimo mais popular tem peso
+ * {@code 1 / k^exponent} (expoente 0 é uniforme). As posições no ranking são espalhadas pelos
+ * ids por uma permutação fixa, para que os populares não sejam sempre os primeiros ids.
+ */
+final class ZipfSampler {
+  private final int size;
+  private final double[] cumulative;
+  private final long stride;
+  private final long inverseStride;
+
+  ZipfSampler(int size, double exponent) {
+    this.size = size;
+    if (exponent == 0) {
+      cumulative = null;
+    } else {
+      cumulative = new double[size];
+      double total = 0;
+      for (int rank = 0; rank < size; rank++) {
+        total += 1 / Math.pow(rank + 1, exponent);
+        cumulative[rank] = total;
+      }
+    }
+    stride = coprimeStride(size);
+    inverseStride = size == 1 ? 0 : BigInteger.valueOf(stride).modInverse(BigInteger.valueOf(size)).longValue();
+  }
+
+  int sample(Random random) {
+    return id(sampleRank(random));
+  }
+
+  /** Posição no ranking (0 = mais popular) sorteada segundo os pesos. */
+  int sampleRank(Random random) {
+    if (cumulative == null) {
+      return random.nextInt(size);
+    }
+    int index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[size - 1]);
+    return Math.min(size - 1, index >= 0 ? index : -index - 1);
+  }
+
+  int id(int rank) {
+    return (int) (rank * stride % size) + 1;
+  }
+
+  int rank(int id) {
+    return (int) ((id - 1) * inverseStride % size);
+  }
+
+  /** Passo primo com {@code size}, perto da razão áurea, para a permutação ranking → id. */
+  private static long coprimeStride(int size) {
+    if (size <= 2) {
+      return 1;
+    }
+    long stride = Math.max(1, (long) (size * 0.6180339887));
+    while (BigInteger.valueOf(stride).gcd(BigInteger.valueOf(size)).intValue() != 1) {
+      stride++;
+    }
+    return stride;
+  }
+}
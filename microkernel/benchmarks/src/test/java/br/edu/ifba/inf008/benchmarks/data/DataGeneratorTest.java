@@ -0,0 +1,169 @@
+package br.edu.ifba.inf008.benchmarks.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import br.edu.ifba.inf008.benchmarks.BenchmarkDatabase;
+import br.edu.ifba.inf008.shell.persistence.SchemaMigrator;
+
+public class DataGeneratorTest {
+  private static final GeneratorOptions OPTIONS = GeneratorOptions.forLoans(20_000);
+
+  /** Resume o que foi gerado, sem guardar as linhas. */
+  private static class SummarySink implements DataSink {
+    int users;
+    int books;
+    int loans;
+    int active;
+    int lateReturns;
+    long copies;
+    long hash = 17;
+    int[] loansPerBook = new int[OPTIONS.books() + 1];
+
+    @Override
+    public void user(int id, String name, String email, LocalDateTime registeredAt) {
+      users++;
+      hash = hash * 31 + (id + name + email + registeredAt).hashCode();
+    }
+
+    @Override
+    public void book(int id, String title, String author, String isbn, int publishedYear, int copiesAvailable) {
+      books++;
+      copies += copiesAvailable;
+      assertTrue(copiesAvailable >= 0, "copies of book " + id);
+      assertEquals(13, isbn.length());
+      hash = hash * 31 + (id + title + author + isbn + publishedYear + copiesAvailable).hashCode();
+    }
+
+    @Override
+    public void loan(int id, int userId, int bookId, LocalDate loanDate, LocalDate returnDate) {
+      loans++;
+      loansPerBook[bookId]++;
+      if (returnDate == null) {
+        active++;
+      } else if (!returnDate.isAfter(loanDate) || returnDate.isAfter(OPTIONS.until())) {
+        lateReturns++;
+      }
+      hash = hash * 31 + (id + " " + userId + " " + bookId + loanDate + returnDate).hashCode();
+    }
+
+    @Override
+    public void finish(int userCount, int bookCount, int loanCount) {}
+
+    @Override
+    public void close() {}
+  }
+
+  private static SummarySink generate(GeneratorOptions options) throws IOException {
+    SummarySink sink = new SummarySink();
+    new DataGenerator(options).generate(sink);
+    return sink;
+  }
+
+  @Test
+  void testSameOptionsGenerateSameData() throws IOException {
+    SummarySink first = generate(OPTIONS);
+    SummarySink second = generate(OPTIONS);
+    GeneratorOptions otherSeed = new GeneratorOptions(OPTIONS.users(), OPTIONS.books(), OPTIONS.authors(),
+      OPTIONS.loans(), OPTIONS.from(), OPTIONS.until(), OPTIONS.activeRatio(), OPTIONS.meanLoanDays(),
+      OPTIONS.bookSkew(), OPTIONS.userSkew(), OPTIONS.authorSkew(), OPTIONS.yearlyGrowth(), 7, OPTIONS.batchSize());
+
+    assertEquals(first.hash, second.hash);
+    assertNotEquals(first.hash, generate(otherSeed).hash);
+  }
+
+  @Test
+  void testGeneratesExactCountsAndRealisticDistributions() throws IOException {
+    SummarySink sink = generate(OPTIONS);
+
+    assertEquals(OPTIONS.users(), sink.users);
+    assertEquals(OPTIONS.books(), sink.books);
+    assertEquals(OPTIONS.loans(), sink.loans);
+    assertEquals(0, sink.lateReturns);
+    // 2% nunca devolvidos, mais os abertos nas últimas semanas
+    assertTrue(sink.active > OPTIONS.loans() * 0.02 && sink.active < OPTIONS.loans() * 0.05, "active: " + sink.active);
+    // Com Zipf 1.0, o 1% mais popular concentra bem mais que 1% dos empréstimos
+    int[] sorted = sink.loansPerBook.clone();
+    Arrays.sort(sorted);
+    int top = 0;
+    for (int i = sorted.length - OPTIONS.books() / 100; i < sorted.length; i++) {
+      top += sorted[i];
+    }
+    assertTrue(top > OPTIONS.loans() * 0.3, "top 1% of books: " + top);
+  }
+
+  @Test
+  void testDailyVolumeFollowsWeekdaysAndMatchesTotal() {
+    LocalDate[] week = new LocalDate[7];
+    for (int day = 0; day < week.length; day++) {
+      week[day] = LocalDate.of(2024, 3, 4).plusDays(day);
+    }
+    int[] perDay = DataGenerator.distribute(1_000, week, 0);
+
+    assertEquals(1_000, Arrays.stream(perDay).sum());
+    assertTrue(perDay[0] > perDay[5] && perDay[5] > perDay[6], Arrays.toString(perDay));
+  }
+
+  @Test
+  void testIsbnHasValidCheckDigitAndAuthorsAreUnique() {
+    assertEquals("9780000000019", DataGenerator.isbn(1));
+    assertEquals("9781234567897", DataGenerator.isbn(123456789));
+    assertEquals(100_000, IntStream.rangeClosed(1, 100_000)
+      .mapToObj(DataGenerator::author).distinct().count());
+  }
+
+  @Test
+  void testJdbcAndCsvSinksLoadTheSameRows(@TempDir Path directory) throws IOException, SQLException {
+    DataSource jdbc = BenchmarkDatabase.dataSource("generator_jdbc");
+    SchemaMigrator.migrate(jdbc);
+    try (JdbcSink sink = new JdbcSink(jdbc, 1_000)) {
+      new DataGenerator(OPTIONS).generate(sink);
+    }
+
+    DataSource csv = BenchmarkDatabase.dataSource("generator_csv");
+    SchemaMigrator.migrate(csv);
+    try (CsvSink sink = new CsvSink(directory)) {
+      new DataGenerator(OPTIONS).generate(sink);
+    }
+    try (Connection connection = csv.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("RUNSCRIPT FROM '" + directory.resolve("load-h2.sql").toAbsolutePath() + "'");
+    }
+
+    String totals = "SELECT (SELECT COUNT(*) FROM users), (SELECT COUNT(*) FROM books),"
+      + " (SELECT COUNT(*) FROM loans), (SELECT COUNT(*) FROM loans WHERE return_date IS NULL),"
+      + " (SELECT SUM(copies_available) FROM books), (SELECT MAX(registered_at) FROM users)";
+    assertEquals(query(jdbc, totals), query(csv, totals));
+    String nextLoanId = (OPTIONS.loans() + 1) + "|";
+    assertEquals(nextLoanId, query(jdbc, "SELECT NEXT VALUE FOR loans_seq"));
+    assertEquals(nextLoanId, query(csv, "SELECT NEXT VALUE FOR loans_seq"));
+  }
+
+  private static String query(DataSource dataSource, String sql) throws SQLException {
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+         ResultSet result = statement.executeQuery(sql)) {
+      result.next();
+      StringBuilder row = new StringBuilder();
+      for (int column = 1; column <= result.getMetaData().getColumnCount(); column++) {
+        row.append(result.getString(column)).append('|');
+      }
+      return row.toString();
+    }
+  }
+}
@@ -41,3 +41,9 @@ INSERT INTO loans (user_id, book_id, loan_date, return_date) VALUES
 (1, 2, '2025-07-01', NULL),
 (2, 1, '2025-07-03', '2025-07-07'),
 (3, 3, '2025-07-05', NULL);
+
+-- Sequences usadas pelo Hibernate para gerar ids em lote (pooled-lo, incremento 50).
+-- Devem começar após o maior id já existente em cada tabela.
+CREATE SEQUENCE users_seq START WITH 4 INCREMENT BY 50;
+CREATE SEQUENCE books_seq START WITH 4 INCREMENT BY 50;
+CREATE SEQUENCE loans_seq START WITH 4 INCREMENT BY 50;
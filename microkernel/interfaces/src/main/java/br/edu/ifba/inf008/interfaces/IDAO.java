@@ -1,6 +1,8 @@
 package br.edu.ifba.inf008.interfaces;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface IDAO<T, ID> {
   void save(T entity);
@@ -8,4 +10,20 @@ public interface IDAO<T, ID> {
   List<T> findAll();
   void update(T entity);
   void delete(T entity);
+
+  void saveAll(Collection<T> entities);
+  void updateAll(Collection<T> entities);
+  void deleteAll(Collection<T> entities);
+
+  /**
+   * Página por keyset: até {@code limit} entidades com id depois de {@code afterId}
+   * na ordem pedida. {@code afterId} nulo retorna a primeira página.
+   */
+  List<T> findPage(ID afterId, int limit, SortOrder order);
+
+  /**
+   * Percorre a tabela inteira com memória constante. O stream mantém uma conexão
+   * aberta e deve ser fechado (try-with-resources).
+   */
+  Stream<T> streamAll();
 }
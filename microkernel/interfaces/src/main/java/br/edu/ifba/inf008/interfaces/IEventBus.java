@@ -0,0 +1,20 @@
+package br.edu.ifba.inf008.interfaces;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Barramento de eventos entre plugins. {@link #publish(Object)} não bloqueia: cada assinante tem
+ * uma fila limitada própria e recebe os eventos em ordem, fora da thread de quem publicou.
+ * Um evento é entregue a todo assinante cujo tipo o aceita (assinar uma interface recebe as implementações).
+ */
+public interface IEventBus
+{
+    public abstract void publish(Object event);
+
+    /** Assina os eventos do tipo; o handler roda no pool de eventos do barramento. */
+    public abstract <E> ISubscription subscribe(Class<E> eventType, Consumer<? super E> handler);
+
+    /** Como {@link #subscribe(Class, Consumer)}, mas o handler roda no executor informado (ex.: {@code Platform::runLater}). */
+    public abstract <E> ISubscription subscribe(Class<E> eventType, Executor executor, Consumer<? super E> handler);
+}
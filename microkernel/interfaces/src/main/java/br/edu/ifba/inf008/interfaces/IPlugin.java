@@ -1,5 +1,22 @@
 package br.edu.ifba.inf008.interfaces;
 
 public interface IPlugin{
+    /**
+     * Preparação fora da thread do JavaFX (carregar recursos, montar índices), chamada numa
+     * thread de trabalho antes de {@link #init()}. Não deve tocar na cena.
+     */
+    public default boolean load() {
+        return true;
+    }
+
+    /** Registro na interface (menus, abas, cards); sempre chamado na thread do JavaFX. */
     public abstract boolean init();
+
+    /**
+     * Chamado na thread do JavaFX antes de o plugin ser descarregado ou trocado por outra versão
+     * do JAR. Deve fechar as abas que abriu e soltar o que registrou fora do próprio plugin; o
+     * shell já remove o card, os itens de menu do manifesto e as assinaturas do barramento.
+     */
+    public default void unload() {
+    }
 }
@@ -2,4 +2,10 @@ package br.edu.ifba.inf008.interfaces;
 
 public interface IRefreshable {
     void refresh();
+
+    /**
+     * Chamado quando a aba do controlador é fechada, ou logo após a criação se a aba já estava
+     * aberta com outro controlador; deve cancelar assinaturas de eventos e cargas pendentes.
+     */
+    default void dispose() {}
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package br.edu.ifba.inf008.interfaces;
+
+/** Assinatura de {@link IEventBus}; {@link #close()} para de receber eventos. */
+public interface ISubscription extends AutoCloseable
+{
+    @Override
+    public abstract void close();
+
+    /** Eventos descartados porque a fila do assinante estava cheia. */
+    public abstract long getDroppedCount();
+}
@@ -9,9 +9,13 @@ public interface IUIController
     public abstract MenuItem createMenuItem(String menuText, String menuItemText);
     public abstract boolean createTab(String tabText, Node contents);
     public abstract boolean createRefreshableTab(String tabText, Node contents, IRefreshable controller);
+    public abstract void removeTab(String tabText);
+    public abstract void removeMenuItem(String menuText, String menuItemText);
     public abstract void showAlert(String title, String message);
     public abstract void showConfirmation(String title, String message, Runnable onConfirm);
 
     public abstract void addPluginCard(String pluginName, ImageView icon, String title, String description, Runnable action);
     public abstract void removePluginCard(String pluginName);
+    /** Executa a ação do card como se ele tivesse sido clicado; false se não houver card com ação. */
+    public abstract boolean openPluginCard(String pluginName);
 }
@@ -0,0 +1,6 @@
+package br.edu.ifba.inf008.interfaces;
+
+public enum SortOrder {
+    ASCENDING,
+    DESCENDING
+}
@@ -6,7 +6,6 @@ import br.edu.ifba.inf008.interfaces.ICore;
 import br.edu.ifba.inf008.interfaces.IPlugin;
 import br.edu.ifba.inf008.interfaces.IUIController;
 import br.edu.ifba.inf008.plugins.book.ui.BookManagementController;
-import br.edu.ifba.inf008.shell.persistence.JPAUtil;
 import static br.edu.ifba.inf008.shell.util.IconHelper.createIconView;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
@@ -14,14 +13,19 @@ import javafx.scene.control.MenuItem;
 import javafx.scene.image.ImageView;
 
 public class BookPlugin implements IPlugin {
+  private ImageView logo;
+
   @Override
-  public boolean init(){
-    try {
-      JPAUtil.warmUp();
-    } catch (Exception e) {
-      System.err.println("Warning: Could not initialize database connection: " + e.getMessage());
-    }
+  public boolean load() {
+    logo = createIconView(
+      this.getClass(),
+      "/br/edu/ifba/inf008/plugins/book/ui/icons/logo.png"
+    );
+    return true;
+  }
 
+  @Override
+  public boolean init(){
     try{
       IUIController uiController = ICore.getInstance().getUIController();
 
@@ -48,10 +52,6 @@ public class BookPlugin implements IPlugin {
       };
 
       menuItem.setOnAction(e -> openBooksInterface.run());
-      ImageView logo = createIconView(
-        this.getClass(),
-        "/br/edu/ifba/inf008/plugins/book/ui/icons/logo.png"
-      );
       uiController.addPluginCard(
         "book-plugin",
         logo,
@@ -66,4 +66,9 @@ public class BookPlugin implements IPlugin {
       return false;
     }
   }
+
+  @Override
+  public void unload() {
+    ICore.getInstance().getUIController().removeTab("Book Management");
+  }
 }
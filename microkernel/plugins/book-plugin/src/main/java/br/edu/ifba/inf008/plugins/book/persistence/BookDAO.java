@@ -1,40 +1,61 @@
 package br.edu.ifba.inf008.plugins.book.persistence;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+import br.edu.ifba.inf008.interfaces.SortOrder;
+import br.edu.ifba.inf008.shell.event.EntityEvent;
+import br.edu.ifba.inf008.shell.event.EntityEvent.BookChanged;
+import br.edu.ifba.inf008.shell.event.EntityEvent.Change;
 import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.BookRow;
 import br.edu.ifba.inf008.shell.persistence.BaseDAO;
+import br.edu.ifba.inf008.shell.persistence.EntityManagerProvider;
+import br.edu.ifba.inf008.shell.persistence.LoanStatistics;
+import br.edu.ifba.inf008.shell.persistence.NameIndex;
+import br.edu.ifba.inf008.shell.persistence.TableVersions;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 
 public class BookDAO extends BaseDAO<Book, Integer> {
-  
-  @Override
-  protected Class<Book> getEntityClass() {
-    return Book.class;
+  /** Máximo de ids por cláusula IN ao carregar os resultados do índice de busca. */
+  private static final int MAX_IDS_PER_QUERY = 1000;
+
+  /** Índice publicado e a versão do acervo ({@link TableVersions#BOOK_CATALOG}) que ele reflete. */
+  private volatile BookSearchIndex searchIndex;
+  private volatile long indexedVersion;
+  /** Escritas deste DAO feitas durante uma montagem do índice; {@code null} fora dela. Guardado por {@code this}. */
+  private List<Consumer<BookSearchIndex>> pendingWrites;
+  /** Uma montagem por vez; quem chega durante uma espera por ela e usa o resultado. */
+  private final Object buildLock = new Object();
+
+  public BookDAO() {
+    super();
   }
 
-  @Override
-  protected EntityManager getEntityManager() {
-    if (isTestEnvironment()) {
-      try {
-        Class<?> testJPAUtilClass = Class.forName("br.edu.ifba.inf008.plugins.book.persistence.TestJPAUtil");
-        java.lang.reflect.Method getEntityManagerMethod = testJPAUtilClass.getMethod("getEntityManager");
-        return (EntityManager) getEntityManagerMethod.invoke(null);
-      } catch (ClassNotFoundException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-        return super.getEntityManager();
-      }
-    }
-    return super.getEntityManager();
+  public BookDAO(EntityManagerProvider entityManagerProvider) {
+    super(entityManagerProvider);
   }
 
-  private boolean isTestEnvironment() {
-    String stackTrace = java.util.Arrays.toString(Thread.currentThread().getStackTrace());
-    return stackTrace.contains("Test") || 
-           System.getProperty("surefire.test.class.path") != null;
+  @Override
+  protected Class<Book> getEntityClass() {
+    return Book.class;
   }
 
   public List<Book> findAll(String searchField, String fieldSubString) {
+    BookSearchIndex.Field field = BookSearchIndex.Field.of(searchField);
+    if (field != null) {
+      List<Book> results = findIndexed("SELECT b FROM Book b WHERE b.bookId IN :ids", Book.class,
+        Book::getBookId, field, fieldSubString);
+      return results.isEmpty() ? null : results;
+    }
     try (EntityManager em = getEntityManager()) {
       try {
         List<Book> results = em.createQuery(
@@ -51,9 +72,9 @@ public class BookDAO extends BaseDAO<Book, Integer> {
   public List<Book> findAvailableBooks(){
     try (EntityManager em = getEntityManager()) {
       try{
-        List<Book> results = em.createQuery(
+        List<Book> results = cacheable(em.createQuery(
           "SELECT b FROM Book b WHERE b.copiesAvailable > 0", Book.class
-        )
+        ))
           .getResultList();
         return results.isEmpty() ? null : results;
       } finally {
@@ -63,6 +84,12 @@ public class BookDAO extends BaseDAO<Book, Integer> {
   }
 
   public List<Book> findAvailableBooks(String searchField, String fieldSubString) {
+    BookSearchIndex.Field field = BookSearchIndex.Field.of(searchField);
+    if (field != null) {
+      List<Book> results = findIndexed("SELECT b FROM Book b WHERE b.copiesAvailable > 0 AND b.bookId IN :ids",
+        Book.class, Book::getBookId, field, fieldSubString);
+      return results.isEmpty() ? null : results;
+    }
     try (EntityManager em = getEntityManager()) {
       try {
         List<Book> results = em.createQuery(
@@ -76,4 +103,248 @@ public class BookDAO extends BaseDAO<Book, Integer> {
       } 
     }
   }
+
+  public List<BookRow> findRows() {
+    return findRows(null, null, false);
+  }
+
+  /**
+   * Projeção para a lista de livros. {@code searchField} nulo não filtra por texto;
+   * {@code availableOnly} mantém só livros com cópias disponíveis.
+   */
+  public List<BookRow> findRows(String searchField, String fieldSubString, boolean availableOnly) {
+    BookSearchIndex.Field field = BookSearchIndex.Field.of(searchField);
+    if (field != null) {
+      String jpql = BookRow.SELECT_FROM + " WHERE b.bookId IN :ids" + (availableOnly ? " AND b.copiesAvailable > 0" : "");
+      return findIndexed(jpql, BookRow.class, BookRow::bookId, field, fieldSubString);
+    }
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<BookRow> query = em.createQuery(BookRow.SELECT_FROM + rowFilter(searchField, availableOnly), BookRow.class);
+      return bindRowFilter(query, searchField, fieldSubString).getResultList();
+    }
+  }
+
+  /**
+   * Total de linhas da busca por {@code LIKE} no banco, para a lista paginada. Buscas por
+   * título, autor e ISBN passam pelo índice em {@link #findRows(String, String, boolean)}.
+   */
+  public int countRows(String searchField, String fieldSubString, boolean availableOnly) {
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<Long> query = em.createQuery("SELECT COUNT(b) FROM Book b" + rowFilter(searchField, availableOnly), Long.class);
+      return bindRowFilter(query, searchField, fieldSubString).getSingleResult().intValue();
+    }
+  }
+
+  /** Uma página da busca por {@code LIKE}, ordenada pelo id no banco. */
+  public List<BookRow> findRows(String searchField, String fieldSubString, boolean availableOnly,
+      int offset, int limit, SortOrder order) {
+    String jpql = BookRow.SELECT_FROM + rowFilter(searchField, availableOnly)
+      + " ORDER BY b.bookId" + (order == SortOrder.DESCENDING ? " DESC" : " ASC");
+    try (EntityManager em = getEntityManager()) {
+      return bindRowFilter(em.createQuery(jpql, BookRow.class), searchField, fieldSubString)
+        .setFirstResult(offset)
+        .setMaxResults(limit)
+        .getResultList();
+    }
+  }
+
+  private static String rowFilter(String searchField, boolean availableOnly) {
+    StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+    if (availableOnly) {
+      where.append(" AND b.copiesAvailable > 0");
+    }
+    if (searchField != null) {
+      where.append(" AND b.").append(searchField).append(" LIKE :field");
+    }
+    return where.toString();
+  }
+
+  private static <R> TypedQuery<R> bindRowFilter(TypedQuery<R> query, String searchField, String fieldSubString) {
+    if (searchField != null) {
+      query.setParameter("field", "%" + fieldSubString + "%");
+    }
+    return query;
+  }
+
+  /**
+   * Índice de trigramas de título, autor e ISBN, montado na primeira busca e mantido
+   * pelas operações de escrita deste DAO.
+   * <p>
+   * Cada chamada compara a versão do acervo no banco com a do índice, numa consulta por chave;
+   * se outro terminal (ou outro {@code BookDAO}) cadastrou, alterou ou removeu livros, o índice é
+   * montado de novo a partir do banco. Escritas deste DAO durante a montagem ficam em fila e são
+   * aplicadas ao índice novo antes de ele ser publicado.
+   */
+  public BookSearchIndex getSearchIndex() {
+    long version = dataVersion(TableVersions.BOOK_CATALOG);
+    BookSearchIndex index = searchIndex;
+    if (index != null && indexedVersion >= version) {
+      return index;
+    }
+    synchronized (buildLock) {
+      index = searchIndex;
+      if (index != null && indexedVersion >= version) {
+        return index;
+      }
+      synchronized (this) {
+        pendingWrites = new ArrayList<>();
+      }
+      BookSearchIndex built;
+      try (Stream<Book> books = streamAll()) {
+        built = BookSearchIndex.of(books);
+      } catch (RuntimeException e) {
+        synchronized (this) {
+          pendingWrites = null;
+        }
+        throw e;
+      }
+      synchronized (this) {
+        pendingWrites.forEach(write -> write.accept(built));
+        pendingWrites = null;
+        searchIndex = built;
+        indexedVersion = Math.max(indexedVersion, version);
+      }
+      return built;
+    }
+  }
+
+  /**
+   * Carrega os ids devolvidos pelo índice com a consulta informada (que recebe {@code :ids})
+   * e mantém a ordem de relevância do índice.
+   */
+  private <R> List<R> findIndexed(String jpql, Class<R> resultClass, Function<R, Integer> idOf,
+      BookSearchIndex.Field field, String fieldSubString) {
+    int[] ids = getSearchIndex().search(field, fieldSubString, Integer.MAX_VALUE);
+    List<R> results = new ArrayList<>(ids.length);
+    if (ids.length == 0) {
+      return results;
+    }
+    Map<Integer, Integer> rank = new HashMap<>(ids.length * 2);
+    for (int i = 0; i < ids.length; i++) {
+      rank.put(ids[i], i);
+    }
+
+    try (EntityManager em = getEntityManager()) {
+      List<Integer> chunk = new ArrayList<>(Math.min(ids.length, MAX_IDS_PER_QUERY));
+      for (int i = 0; i < ids.length; i++) {
+        chunk.add(ids[i]);
+        if (chunk.size() == MAX_IDS_PER_QUERY || i == ids.length - 1) {
+          results.addAll(em.createQuery(jpql, resultClass).setParameter("ids", chunk).getResultList());
+          chunk.clear();
+        }
+      }
+    }
+    results.sort(Comparator.comparing(row -> rank.get(idOf.apply(row))));
+    return results;
+  }
+
+  @Override
+  public void save(Book book) {
+    super.save(book);
+    reindex(book);
+    acknowledgeWrite();
+  }
+
+  @Override
+  public void update(Book book) {
+    super.update(book);
+    reindex(book);
+    acknowledgeWrite();
+  }
+
+  @Override
+  public void delete(Book book) {
+    super.delete(book);
+    unindex(book);
+    acknowledgeWrite();
+  }
+
+  @Override
+  public void saveAll(Collection<Book> books) {
+    super.saveAll(books);
+    if (books != null && !books.isEmpty()) {
+      books.forEach(this::reindex);
+      acknowledgeWrite();
+    }
+  }
+
+  @Override
+  public void updateAll(Collection<Book> books) {
+    super.updateAll(books);
+    if (books != null && !books.isEmpty()) {
+      books.forEach(this::reindex);
+      acknowledgeWrite();
+    }
+  }
+
+  @Override
+  public void deleteAll(Collection<Book> books) {
+    super.deleteAll(books);
+    if (books != null && !books.isEmpty()) {
+      books.forEach(this::unindex);
+      acknowledgeWrite();
+    }
+  }
+
+  /** Além de {@code Book}, soma a versão do acervo, que só estas escritas alteram. */
+  @Override
+  protected List<String> getWrittenVersions() {
+    return List.of(Book.class.getSimpleName(), TableVersions.BOOK_CATALOG);
+  }
+
+  /** O banco apaga os empréstimos do livro em cascata; eles saem antes dos agregados. */
+  @Override
+  protected void beforeDelete(EntityManager em, List<Object> ids) {
+    LoanStatistics.removeLoans(em, "l.book.bookId IN :ids", ids);
+  }
+
+  @Override
+  protected EntityEvent changeEvent(Book book, Change change) {
+    return book.getBookId() == null ? null : new BookChanged(book.getBookId(), change);
+  }
+
+  private void reindex(Book book) {
+    if (book.getBookId() == null) {
+      return;
+    }
+    NameIndex.BOOKS.put(book.getBookId(), book.getTitle());
+    applyToIndex(index -> index.put(book));
+  }
+
+  private void unindex(Book book) {
+    if (book.getBookId() == null) {
+      return;
+    }
+    NameIndex.BOOKS.remove(book.getBookId());
+    int bookId = book.getBookId();
+    applyToIndex(index -> index.remove(bookId));
+  }
+
+  /** Aplica uma escrita já gravada ao índice publicado, ou a põe na fila se ele está sendo montado. */
+  private synchronized void applyToIndex(Consumer<BookSearchIndex> write) {
+    if (pendingWrites != null) {
+      pendingWrites.add(write);
+    } else if (searchIndex != null) {
+      write.accept(searchIndex);
+    }
+  }
+
+  /**
+   * Depois de uma escrita deste DAO já aplicada aos índices: se a versão do acervo avançou só pelo
+   * incremento dessa transação, o índice de busca e o de títulos ({@link NameIndex#BOOKS})
+   * continuam em dia e não precisam ser remontados. Com outra escrita no meio, a versão não bate
+   * e a próxima consulta remonta os índices.
+   */
+  private void acknowledgeWrite() {
+    if (searchIndex == null && !NameIndex.BOOKS.isLoaded()) {
+      return;
+    }
+    long version = dataVersion(TableVersions.BOOK_CATALOG);
+    NameIndex.BOOKS.acknowledge(version);
+    synchronized (this) {
+      if (pendingWrites == null && version == indexedVersion + 1) {
+        indexedVersion = version;
+      }
+    }
+  }
 }
@@ -0,0 +1,398 @@
+package br.edu.ifba.inf008.plugins.book.persistence;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.persistence.NameIndex;
+
+/**
+ * Índice invertido de trigramas sobre título, autor e ISBN, mantido em memória.
+ * <p>
+ * Cada trigrama aponta para uma lista ordenada de ids em {@code int[]}. A busca intersecta as
+ * listas dos trigramas do texto, confirma a substring no texto indexado e ordena por relevância:
+ * igual, começa com, início de palavra e, por fim, contém. A comparação ignora maiúsculas e acentos.
+ * Textos com menos de três caracteres não têm trigramas e são procurados percorrendo os documentos.
+ * <p>
+ * Trigramas e documentos ficam em tabelas de endereçamento aberto com chaves {@code long}
+ * ({@link LongTable}), sem um {@code Long}/{@code Integer} e um nó de mapa por entrada.
+ */
+public final class BookSearchIndex {
+  /** Atributos de {@link Book} cobertos pelo índice. */
+  public enum Field {
+    TITLE("title"), AUTHOR("author"), ISBN("isbn");
+
+    private final String attribute;
+
+    Field(String attribute) {
+      this.attribute = attribute;
+    }
+
+    /** Campo para o nome do atributo JPA, ou {@code null} se o atributo não é indexado. */
+    public static Field of(String attribute) {
+      for (Field field : values()) {
+        if (field.attribute.equals(attribute)) {
+          return field;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final LongTable<PostingList> postings = new LongTable<>();
+  private final LongTable<String[]> documents = new LongTable<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public static BookSearchIndex of(Stream<Book> books) {
+    BookSearchIndex index = new BookSearchIndex();
+    books.forEach(index::put);
+    return index;
+  }
+
+  public void put(Book book) {
+    put(book.getBookId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+  }
+
+  /** Indexa o livro, substituindo a versão anterior se ele já estava no índice. */
+  public void put(int bookId, String title, String author, String isbn) {
+    String[] texts = {normalize(title), normalize(author), normalize(isbn)};
+    lock.writeLock().lock();
+    try {
+      unindex(bookId);
+      documents.put(bookId, texts);
+      for (Field field : Field.values()) {
+        for (long gram : trigrams(field, texts[field.ordinal()])) {
+          PostingList list = postings.get(gram);
+          if (list == null) {
+            list = new PostingList();
+            postings.put(gram, list);
+          }
+          list.add(bookId);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(int bookId) {
+    lock.writeLock().lock();
+    try {
+      unindex(bookId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Ids dos livros cujo campo contém o texto, do mais para o menos relevante.
+   *
+   * @param field campo pesquisado, ou {@code null} para título, autor e ISBN
+   * @param limit número máximo de ids devolvidos
+   */
+  public int[] search(Field field, String text, int limit) {
+    String query = normalize(text);
+    if (query.isEmpty() || limit <= 0) {
+      return new int[0];
+    }
+    Field[] fields = field == null ? Field.values() : new Field[] {field};
+
+    lock.readLock().lock();
+    try {
+      long[] ranked = new long[16];
+      int count = 0;
+      for (Field f : fields) {
+        int[] candidates = candidates(f, query);
+        for (int bookId : candidates) {
+          String indexed = documents.get(bookId)[f.ordinal()];
+          int score = score(indexed, query);
+          if (score < 0) {
+            continue;
+          }
+          if (count == ranked.length) {
+            ranked = Arrays.copyOf(ranked, count * 2);
+          }
+          ranked[count++] = pack(score, indexed.length(), bookId);
+        }
+      }
+      return topIds(ranked, count, limit, fields.length > 1);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private int[] candidates(Field field, String query) {
+    long[] grams = trigrams(field, query);
+    if (grams.length == 0) {
+      return documents.intKeys();
+    }
+    PostingList[] lists = new PostingList[grams.length];
+    for (int i = 0; i < grams.length; i++) {
+      lists[i] = postings.get(grams[i]);
+      if (lists[i] == null) {
+        return new int[0];
+      }
+    }
+    Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+    int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+    int size = result.length;
+    for (int i = 1; i < lists.length && size > 0; i++) {
+      int kept = 0;
+      for (int j = 0; j < size; j++) {
+        if (lists[i].contains(result[j])) {
+          result[kept++] = result[j];
+        }
+      }
+      size = kept;
+    }
+    return size == result.length ? result : Arrays.copyOf(result, size);
+  }
+
+  private void unindex(int bookId) {
+    String[] previous = documents.remove(bookId);
+    if (previous == null) {
+      return;
+    }
+    for (Field field : Field.values()) {
+      for (long gram : trigrams(field, previous[field.ordinal()])) {
+        PostingList list = postings.get(gram);
+        if (list != null && list.remove(bookId) && list.size == 0) {
+          postings.remove(gram);
+        }
+      }
+    }
+  }
+
+  /** 0 igual, 1 começa com, 2 início de palavra, 3 contém; -1 se não contém. */
+  private static int score(String indexed, String query) {
+    int at = indexed.indexOf(query);
+    if (at < 0) {
+      return -1;
+    }
+    if (at == 0) {
+      return indexed.length() == query.length() ? 0 : 1;
+    }
+    while (at > 0) {
+      if (!Character.isLetterOrDigit(indexed.charAt(at - 1))) {
+        return 2;
+      }
+      at = indexed.indexOf(query, at + 1);
+    }
+    return 3;
+  }
+
+  /** Relevância, tamanho do texto e id em um long, para ordenar sem objetos intermediários. */
+  private static long pack(int score, int length, int bookId) {
+    return ((long) score << 60) | ((long) Math.min(length, 0xFFFFFFF) << 32) | (bookId & 0xFFFFFFFFL);
+  }
+
+  private static int[] topIds(long[] ranked, int count, int limit, boolean distinct) {
+    Arrays.sort(ranked, 0, count);
+    int[] ids = new int[Math.min(count, limit)];
+    int size = 0;
+    LongTable<Boolean> seen = distinct ? new LongTable<>() : null;
+    for (int i = 0; i < count && size < ids.length; i++) {
+      int bookId = (int) ranked[i];
+      if (seen == null || seen.put(bookId, Boolean.TRUE) == null) {
+        ids[size++] = bookId;
+      }
+    }
+    return size == ids.length ? ids : Arrays.copyOf(ids, size);
+  }
+
+  private static long[] trigrams(Field field, String text) {
+    if (text.length() < 3) {
+      return new long[0];
+    }
+    long[] grams = new long[text.length() - 2];
+    for (int i = 0; i < grams.length; i++) {
+      grams[i] = ((long) field.ordinal() << 48)
+        | ((long) text.charAt(i) << 32)
+        | ((long) text.charAt(i + 1) << 16)
+        | text.charAt(i + 2);
+    }
+    Arrays.sort(grams);
+    int unique = 0;
+    for (int i = 0; i < grams.length; i++) {
+      if (i == 0 || grams[i] != grams[unique - 1]) {
+        grams[unique++] = grams[i];
+      }
+    }
+    return unique == grams.length ? grams : Arrays.copyOf(grams, unique);
+  }
+
+  private static String normalize(String text) {
+    return NameIndex.normalize(text);
+  }
+
+  /** Ids em ordem crescente; livros novos costumam ter o maior id e entram no fim. */
+  private static final class PostingList {
+    private int[] ids = new int[4];
+    private int size;
+
+    void add(int id) {
+      if (size > 0 && ids[size - 1] >= id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+          return;
+        }
+        insertAt(-pos - 1, id);
+        return;
+      }
+      insertAt(size, id);
+    }
+
+    boolean contains(int id) {
+      return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    boolean remove(int id) {
+      int pos = Arrays.binarySearch(ids, 0, size, id);
+      if (pos < 0) {
+        return false;
+      }
+      System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+      size--;
+      return true;
+    }
+
+    private void insertAt(int pos, int id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+      }
+      System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+      ids[pos] = id;
+      size++;
+    }
+  }
+
+  /**
+   * Mapa de {@code long} para objeto com sondagem linear; a remoção desloca as entradas seguintes
+   * em vez de deixar marcas. {@link Long#MIN_VALUE} marca posição livre e não pode ser chave
+   * (trigramas são positivos e um id {@code int} nunca chega a ele). Não é thread-safe; o índice protege com o seu lock.
+   */
+  private static final class LongTable<V> {
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    LongTable() {
+      allocate(16);
+    }
+
+    int size() {
+      return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+      int mask = keys.length - 1;
+      for (int i = slot(key, mask); keys[i] != FREE; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return (V) values[i];
+        }
+      }
+      return null;
+    }
+
+    /** Associa o valor à chave e devolve o anterior, ou {@code null} se a chave era nova. */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+      if ((size + 1) * 2 > keys.length) {
+        grow();
+      }
+      int mask = keys.length - 1;
+      int i = slot(key, mask);
+      for (; keys[i] != FREE; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          V previous = (V) values[i];
+          values[i] = value;
+          return previous;
+        }
+      }
+      keys[i] = key;
+      values[i] = value;
+      size++;
+      return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+      int mask = keys.length - 1;
+      int gap = slot(key, mask);
+      while (keys[gap] != key) {
+        if (keys[gap] == FREE) {
+          return null;
+        }
+        gap = (gap + 1) & mask;
+      }
+      V previous = (V) values[gap];
+      for (int i = (gap + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+        // A entrada em i pode ocupar o buraco se a posição de origem dela não fica entre o buraco e i.
+        if (((i - slot(keys[i], mask)) & mask) >= ((i - gap) & mask)) {
+          keys[gap] = keys[i];
+          values[gap] = values[i];
+          gap = i;
+        }
+      }
+      keys[gap] = FREE;
+      values[gap] = null;
+      size--;
+      return previous;
+    }
+
+    /** Chaves como {@code int}, em ordem arbitrária; usado para os ids dos documentos. */
+    int[] intKeys() {
+      int[] result = new int[size];
+      int n = 0;
+      for (long key : keys) {
+        if (key != FREE) {
+          result[n++] = (int) key;
+        }
+      }
+      return result;
+    }
+
+    private void grow() {
+      long[] oldKeys = keys;
+      Object[] oldValues = values;
+      allocate(oldKeys.length * 2);
+      int mask = keys.length - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] != FREE) {
+          int i = slot(oldKeys[j], mask);
+          while (keys[i] != FREE) {
+            i = (i + 1) & mask;
+          }
+          keys[i] = oldKeys[j];
+          values[i] = oldValues[j];
+        }
+      }
+    }
+
+    private void allocate(int capacity) {
+      keys = new long[capacity];
+      Arrays.fill(keys, FREE);
+      values = new Object[capacity];
+    }
+
+    private static int slot(long key, int mask) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+  }
+}
@@ -4,11 +4,19 @@ import java.util.List;
 
 import br.edu.ifba.inf008.interfaces.ICore;
 import br.edu.ifba.inf008.interfaces.IRefreshable;
+import br.edu.ifba.inf008.interfaces.ISubscription;
 import br.edu.ifba.inf008.interfaces.IUIController;
+import br.edu.ifba.inf008.interfaces.SortOrder;
 import br.edu.ifba.inf008.plugins.book.persistence.BookDAO;
+import br.edu.ifba.inf008.plugins.book.persistence.BookSearchIndex;
+import br.edu.ifba.inf008.shell.event.EntityEvent.BookChanged;
 import br.edu.ifba.inf008.shell.model.Book;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import br.edu.ifba.inf008.shell.model.BookRow;
+import br.edu.ifba.inf008.shell.util.BackgroundLoader;
+import br.edu.ifba.inf008.shell.util.PageSource;
+import br.edu.ifba.inf008.shell.util.PagedList;
+import br.edu.ifba.inf008.shell.util.SearchPipeline;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
@@ -24,6 +32,10 @@ import javafx.scene.layout.Priority;
 
 public class BookManagementController implements IRefreshable{
   BookDAO bookDAO = new BookDAO();
+  private final BackgroundLoader loader = new BackgroundLoader();
+  /** Escritas; a lista e o botão de salvar ficam desabilitados enquanto rodam. */
+  private final BackgroundLoader actions = new BackgroundLoader();
+  private final SearchPipeline searches = new SearchPipeline(() -> bookDAO.dataVersion(Book.class));
 
   @FXML private TextField searchField;
   @FXML private ToggleGroup searchTypeToggleGroup;
@@ -34,23 +46,39 @@ public class BookManagementController implements IRefreshable{
   @FXML private TextField formYearField;
   @FXML private TextField formCopiesField;
   @FXML private Button saveButton;
-  @FXML private ListView<Book> bookListView;
+  @FXML private ListView<BookRow> bookListView;
 
   private IUIController uiController;
-  private final ObservableList<Book> books = FXCollections.observableArrayList();
-  private Book currentBook = null;
+  private ISubscription changes;
+  private final PagedList<BookRow> books = new PagedList<>(loader, () -> bookDAO.dataVersion(Book.class));
+  private BookRow currentBook = null;
   private boolean isUpdating = false;
 
   @Override
   public void refresh() {
-    loadInitialData();
-    
+    boolean filtered = !searchField.getText().isBlank() || availableOnlyCheckBox.isSelected();
+
     searchField.clear();
     availableOnlyCheckBox.setSelected(false);
+    searches.cancelPending();
+    if (filtered) {
+      loadInitialData();
+    } else {
+      reloadRows();
+    }
 
     handleClear();
   }
 
+  /** A aba fechou (ou nunca abriu): para de receber eventos de livros e descarta buscas pendentes. */
+  @Override
+  public void dispose() {
+    if (changes != null) {
+      changes.close();
+    }
+    searches.cancelPending();
+  }
+
   @FXML
     public void initialize() {
     this.uiController = ICore.getInstance().getUIController();
@@ -67,18 +95,62 @@ public class BookManagementController implements IRefreshable{
       }
     });
 
-    loadInitialData();
     bookListView.setItems(books);
+    loader.showLoadingOn(bookListView, bookListView.placeholderProperty());
+    actions.disableWhileLoading(bookListView, saveButton);
+    loadInitialData();
+
+    searchField.textProperty().addListener((observable, oldValue, newValue) -> searches.debounce(this::handleSearch));
+    availableOnlyCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> searches.debounce(this::handleSearch));
+
+    // Empréstimos feitos em outra aba mudam o estoque: atualiza só as linhas afetadas
+    changes = ICore.getInstance().getEventBus().subscribe(BookChanged.class, Platform::runLater, event -> reloadRows());
 
     configureBookCellFactory();
   }
 
   private void loadInitialData() {
-    books.setAll(bookDAO.findAll());
+    loadRows(null, null, false);
+  }
+
+  /**
+   * Lista paginada: a contagem e as páginas são consultadas fora da thread do JavaFX, e uma nova
+   * busca descarta a anterior. Buscas por título, autor e ISBN vêm do índice em memória, já
+   * ordenadas por relevância; as demais são paginadas no banco. Resultados recentes vêm do
+   * {@link SearchPipeline} enquanto nenhuma escrita acontecer.
+   */
+  private void loadRows(String searchType, String text, boolean availableOnly) {
+    Search search = new Search(searchType, text, availableOnly);
+    PageSource<BookRow> source;
+    if (BookSearchIndex.Field.of(searchType) != null) {
+      source = PageSource.of(() -> searches.query(search, () -> bookDAO.findRows(searchType, text, availableOnly)));
+    } else {
+      source = searches.cached(search, new PageSource<>() {
+        @Override
+        public int count() {
+          return bookDAO.countRows(searchType, text, availableOnly);
+        }
+
+        @Override
+        public List<BookRow> fetch(int offset, int limit) {
+          return bookDAO.findRows(searchType, text, availableOnly, offset, limit, SortOrder.ASCENDING);
+        }
+      });
+    }
+    books.setSource(source, this::showLoadError);
+  }
+
+  /** Atualiza no lugar só as linhas que mudaram; sem escritas em livros desde a última carga, não consulta nada. */
+  private void reloadRows() {
+    books.refresh(this::showLoadError);
+  }
+
+  private void showLoadError(Throwable error) {
+    uiController.showAlert("Error", "Failed to load books: " + error.getMessage());
   }
 
   private void configureBookCellFactory() {
-    bookListView.setCellFactory(lv -> new ListCell<Book>(){
+    bookListView.setCellFactory(lv -> new ListCell<BookRow>(){
       private final HBox hbox = new HBox(10);
       private final Label label = new Label();
       private final Button infoButton = new Button("ℹ️");
@@ -96,13 +168,13 @@ public class BookManagementController implements IRefreshable{
       }
 
       @Override
-      protected void updateItem(Book book, boolean empty) {
+      protected void updateItem(BookRow book, boolean empty) {
       super.updateItem(book, empty);
       if (empty || book == null) {
           setText(null);
           setGraphic(null);
       } else {
-          label.setText("ID: " + book.getBookId() + " | " +book.getTitle() + " (" + book.getPublishedYear() + ") - " + book.getAuthor() + " - ISBN: " + book.getIsbn() + " - Copies: " + book.getCopiesAvailable());
+          label.setText("ID: " + book.bookId() + " | " +book.title() + " (" + book.publishedYear() + ") - " + book.author() + " - ISBN: " + book.isbn() + " - Copies: " + book.copiesAvailable());
           setGraphic(hbox);
 
           infoButton.setOnAction(event -> handleInfo(getItem()));
@@ -137,41 +209,32 @@ public class BookManagementController implements IRefreshable{
     }
 
     if(isUpdating && currentBook != null) {
-      Book updatedBook = new Book(currentBook.getBookId(), title, author, isbn, publishedYear, copiesAvailable);
-      int bookIndex = books.indexOf(currentBook);
-      if (bookIndex == -1) {
-        this.uiController.showAlert("Error", "Book not found for update.");
-        return;
-      }
+      Book updatedBook = new Book(currentBook.bookId(), title, author, isbn, publishedYear, copiesAvailable);
       uiController.showConfirmation(
           "Update Book", 
-          "Are you sure you want to update the book " + currentBook.getTitle() + "?", 
-          () -> {
-              try {
-                  bookDAO.update(updatedBook);
-                  books.set(bookIndex, updatedBook);
-                  bookListView.setItems(books);
+          "Are you sure you want to update the book " + currentBook.title() + "?", 
+          () -> actions.run(
+              () -> bookDAO.update(updatedBook),
+              () -> {
+                  reloadRows();
                   uiController.showAlert("Success", "Book updated successfully!");
-              } catch (Exception e) {
-                  uiController.showAlert("Error", "Failed to update book: " + e.getMessage());
-              }
-          }
+              },
+              error -> uiController.showAlert("Error", "Failed to update book: " + error.getMessage())
+          )
       );
     } else {
       Book newBook = new Book(title, author, isbn, publishedYear, copiesAvailable);
       uiController.showConfirmation(
           "Create Book", 
           "Are you sure you want to create the book " + newBook.getTitle() + "?", 
-          () -> {
-              try {
-                  bookDAO.save(newBook);
-                  books.add(newBook);
-                  bookListView.setItems(books);
+          () -> actions.run(
+              () -> bookDAO.save(newBook),
+              () -> {
+                  reloadRows();
                   uiController.showAlert("Success", "Book created successfully!");
-              } catch (Exception e) {
-                  uiController.showAlert("Error", "Failed to create book: " + e.getMessage());
-              }
-          }
+              },
+              error -> uiController.showAlert("Error", "Failed to create book: " + error.getMessage())
+          )
       );
     }
     handleClear();
@@ -179,34 +242,16 @@ public class BookManagementController implements IRefreshable{
 
   @FXML
   private void handleSearch(){
+    searches.cancelPending();
     String field = searchField.getText().toLowerCase().trim();
 
     if (field.isEmpty()) {
-      if(availableOnlyCheckBox.isSelected()) {
-        books.setAll(bookDAO.findAvailableBooks());
-      } else {
-        books.setAll(bookDAO.findAll());
-      }
-      bookListView.setItems(books);
+      loadRows(null, null, availableOnlyCheckBox.isSelected());
       return;
     }
     String searchType = (String) searchTypeToggleGroup.getSelectedToggle().getUserData();
 
-    List<Book> searchResults;
-
-    if(availableOnlyCheckBox.isSelected()) {
-      searchResults = bookDAO.findAvailableBooks(searchType, field);
-    } else {
-      searchResults = bookDAO.findAll(searchType, field);
-    }
-
-    if (searchResults != null && !searchResults.isEmpty()) {
-      books.setAll(searchResults);
-    } else {
-      books.clear();
-    }
-
-    bookListView.setItems(books);
+    loadRows(searchType, field, availableOnlyCheckBox.isSelected());
   }
 
   @FXML
@@ -221,36 +266,37 @@ public class BookManagementController implements IRefreshable{
     saveButton.setText("Create Book");
   }
 
-  private void handleDelete(Book book){
+  private void handleDelete(BookRow book){
     uiController.showConfirmation(
         "Delete Book", 
-        "Are you sure you want to delete the book " + book.getTitle() + "?", 
-        () -> {
-            try {
-                bookDAO.delete(book);
-                books.remove(book);
-                bookListView.setItems(books);
+        "Are you sure you want to delete the book " + book.title() + "?", 
+        () -> actions.run(
+            () -> bookDAO.delete(book.toBook()),
+            () -> {
+                reloadRows();
                 uiController.showAlert("Success", "Book deleted successfully!");
-            } catch (Exception e) {
-                uiController.showAlert("Error", "Failed to delete book: " + e.getMessage());
-            }
-        }
+            },
+            error -> uiController.showAlert("Error", "Failed to delete book: " + error.getMessage())
+        )
     );
   }
 
-  private void handleUpdate(Book book){
+  private void handleUpdate(BookRow book){
     currentBook = book;
     isUpdating = true;
-    formTitleField.setText(book.getTitle());
-    formAuthorField.setText(book.getAuthor());
-    formIsbnField.setText(book.getIsbn());
-    formYearField.setText(String.valueOf(book.getPublishedYear()));
-    formCopiesField.setText(String.valueOf(book.getCopiesAvailable()));
+    formTitleField.setText(book.title());
+    formAuthorField.setText(book.author());
+    formIsbnField.setText(book.isbn());
+    formYearField.setText(String.valueOf(book.publishedYear()));
+    formCopiesField.setText(String.valueOf(book.copiesAvailable()));
     saveButton.setText("Update Book");
   }
 
-  private void handleInfo(Book book){
-    uiController.showAlert("Book info", "Id: " + book.getBookId() + "\nTitle: " + book.getTitle() + "\nAuthor: " + book.getAuthor() +
-        "\nPublished Year: " + book.getPublishedYear() + "\nISBN: " + book.getIsbn() + "\nCopies Available: " + book.getCopiesAvailable());
+  private void handleInfo(BookRow book){
+    uiController.showAlert("Book info", "Id: " + book.bookId() + "\nTitle: " + book.title() + "\nAuthor: " + book.author() +
+        "\nPublished Year: " + book.publishedYear() + "\nISBN: " + book.isbn() + "\nCopies Available: " + book.copiesAvailable());
 }
+
+  private record Search(String searchType, String text, boolean availableOnly) {
+  }
 }
@@ -1,7 +1,9 @@
 package br.edu.ifba.inf008.plugins.book.persistence;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -9,11 +11,14 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import br.edu.ifba.inf008.interfaces.SortOrder;
 import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.BookRow;
 import jakarta.persistence.EntityManager;
  
 public class BookDAOTest {
@@ -32,7 +37,7 @@ public class BookDAOTest {
 
   @BeforeEach
   void setUp(){
-    bookDAO = new BookDAO();
+    bookDAO = new BookDAO(TestJPAUtil::getEntityManager);
     createdBooks = new ArrayList<>();
 
     String uniqueIsbn = String.valueOf((long)(Math.random() * 1_000_000_0000L));
@@ -231,4 +236,164 @@ public class BookDAOTest {
     }
     assertTrue(availableBooks.stream().noneMatch(b -> "Available 3".equals(b.getTitle())), "'Available 3' should not be in the available books list");
   }
-}
\ No newline at end of file
+
+  @Test
+  void testSaveAllUpdateAllDeleteAllInBatches(){
+    bookDAO.setBatchSize(3);
+    List<Book> batch = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      batch.add(new Book("Batch Book " + i, "Batch Author", "batch-" + i, 2020, i));
+    }
+
+    bookDAO.saveAll(batch);
+    createdBooks.addAll(batch);
+    for (Book book : batch) {
+      assertNotNull(book.getBookId(), "Every book in the batch should have an ID");
+    }
+    assertEquals(10, bookDAO.findAll("author", "Batch Author").size());
+
+    batch.forEach(book -> book.setAuthor("Batch Author Updated"));
+    bookDAO.updateAll(batch);
+    assertEquals(10, bookDAO.findAll("author", "Batch Author Updated").size());
+
+    bookDAO.deleteAll(batch);
+    assertNull(bookDAO.findAll("author", "Batch Author"), "All books in the batch should be deleted");
+  }
+
+  @Test
+  void testFindPageWalksKeysetInBothDirections(){
+    List<Book> batch = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      batch.add(new Book("Page Book " + i, "Page Author", "page-" + i, 2020, 1));
+    }
+    bookDAO.saveAll(batch);
+    createdBooks.addAll(batch);
+
+    List<Integer> ascending = new ArrayList<>();
+    List<Book> page = bookDAO.findPage(null, 3, SortOrder.ASCENDING);
+    while (!page.isEmpty()) {
+      assertTrue(page.size() <= 3, "Page should respect the limit");
+      page.forEach(book -> ascending.add(book.getBookId()));
+      page = bookDAO.findPage(page.get(page.size() - 1).getBookId(), 3, SortOrder.ASCENDING);
+    }
+    List<Integer> descending = new ArrayList<>();
+    page = bookDAO.findPage(null, 3, SortOrder.DESCENDING);
+    while (!page.isEmpty()) {
+      page.forEach(book -> descending.add(book.getBookId()));
+      page = bookDAO.findPage(page.get(page.size() - 1).getBookId(), 3, SortOrder.DESCENDING);
+    }
+
+    assertEquals(bookDAO.findAll().size(), ascending.size(), "Keyset walk should visit every book once");
+    assertEquals(ascending.stream().sorted().toList(), ascending, "Ascending pages should be ordered by id");
+    Collections.reverse(descending);
+    assertEquals(ascending, descending, "Descending walk should mirror the ascending one");
+  }
+
+  @Test
+  void testStreamAllVisitsEveryBookInIdOrder(){
+    List<Book> batch = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      batch.add(new Book("Stream Book " + i, "Stream Author", "stream-" + i, 2020, 1));
+    }
+    bookDAO.saveAll(batch);
+    createdBooks.addAll(batch);
+    bookDAO.setFetchSize(2);
+
+    List<Integer> streamed;
+    try (Stream<Book> books = bookDAO.streamAll()) {
+      streamed = books.map(Book::getBookId).toList();
+    }
+
+    assertEquals(bookDAO.findAll().size(), streamed.size(), "Stream should return every book");
+    assertEquals(streamed.stream().sorted().toList(), streamed, "Stream should be ordered by id");
+  }
+
+  @Test
+  void testFindRowsFiltersBySearchFieldAndAvailability(){
+    Book available = saveAndTrack(new Book("Row Book", "Row Author", "row-1", 2021, 2));
+    saveAndTrack(new Book("Row Book Out", "Row Author", "row-2", 2021, 0));
+
+    List<BookRow> rows = bookDAO.findRows("author", "Row Author", false);
+    assertEquals(2, rows.size());
+
+    List<BookRow> availableRows = bookDAO.findRows("author", "Row Author", true);
+    assertEquals(List.of(BookRow.of(available)), availableRows, "Only the available book should be projected");
+    assertTrue(bookDAO.findRows().size() >= 2);
+  }
+
+  @Test
+  void testPagedRowsAreCountedAndSlicedInTheQuery(){
+    List<Book> paged = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      paged.add(saveAndTrack(new Book("Paged Book " + i, "Paged Author", "paged-" + i, 2020, i == 4 ? 0 : 1)));
+    }
+
+    assertEquals(5, bookDAO.countRows("author", "Paged Author", false));
+    assertEquals(4, bookDAO.countRows("author", "Paged Author", true));
+
+    List<BookRow> firstPage = bookDAO.findRows("author", "Paged Author", false, 0, 2, SortOrder.ASCENDING);
+    List<BookRow> lastPage = bookDAO.findRows("author", "Paged Author", false, 4, 2, SortOrder.ASCENDING);
+    assertEquals(List.of(BookRow.of(paged.get(0)), BookRow.of(paged.get(1))), firstPage);
+    assertEquals(List.of(BookRow.of(paged.get(4))), lastPage);
+
+    List<BookRow> newestAvailable = bookDAO.findRows("author", "Paged Author", true, 0, 1, SortOrder.DESCENDING);
+    assertEquals(List.of(BookRow.of(paged.get(3))), newestAvailable);
+  }
+
+  @Test
+  void testWritesAdvanceTheDataVersionInTheDatabase(){
+    long before = bookDAO.dataVersion(Book.class);
+    Book book = saveAndTrack(new Book("Counted Book", "Count Author", "count-1", 2020, 1));
+    assertEquals(before + 1, bookDAO.dataVersion(Book.class));
+
+    bookDAO.findRows("author", "Count Author", false);
+    assertEquals(before + 1, bookDAO.dataVersion(Book.class), "Reads should not count as writes");
+
+    // Outra instância, como a de outro terminal: a versão vem do banco, não do DAO
+    BookDAO otherDesk = new BookDAO(TestJPAUtil::getEntityManager);
+    book.setCopiesAvailable(2);
+    otherDesk.update(book);
+    assertEquals(before + 2, bookDAO.dataVersion(Book.class));
+  }
+
+  @Test
+  void testSearchIndexFollowsSaveUpdateAndDelete(){
+    Book book = saveAndTrack(new Book("Indexed Dune", "Frank Herbert", "idx-1", 1965, 1));
+    assertEquals(List.of(book.getBookId()), bookDAO.findRows("title", "indexed dune", false).stream()
+      .map(BookRow::bookId).toList(), "Search should build the index on first use");
+
+    book.setTitle("Indexed Children of Dune");
+    bookDAO.update(book);
+    assertEquals(1, bookDAO.findRows("title", "children", false).size(), "Updated title should be searchable");
+    assertTrue(bookDAO.findRows("title", "indexed dune", false).isEmpty(), "Old title should no longer match");
+
+    Book sequel = saveAndTrack(new Book("Indexed Dune Messiah", "Frank Herbert", "idx-2", 1969, 1));
+    List<Integer> ranked = bookDAO.findRows("author", "herbert", false).stream().map(BookRow::bookId).toList();
+    assertEquals(List.of(book.getBookId(), sequel.getBookId()), ranked);
+
+    bookDAO.delete(sequel);
+    assertNull(bookDAO.findAll("isbn", "idx-2"), "Deleted book should leave the index");
+  }
+
+  @Test
+  void testSearchIndexSeesBooksWrittenByAnotherDesk(){
+    Book local = saveAndTrack(new Book("Desk Local Atlas", "Desk Author", "desk-1", 2001, 1));
+    BookSearchIndex index = bookDAO.getSearchIndex();
+    Book second = saveAndTrack(new Book("Desk Local Almanac", "Desk Author", "desk-2", 2002, 1));
+    assertSame(index, bookDAO.getSearchIndex(), "Own writes should keep the index without a rebuild");
+
+    BookDAO otherDesk = new BookDAO(TestJPAUtil::getEntityManager);
+    Book remote = new Book("Desk Remote Atlas", "Other Author", "desk-3", 2003, 1);
+    otherDesk.save(remote);
+    createdBooks.add(remote);
+    assertEquals(List.of(remote.getBookId()), bookDAO.findRows("title", "remote atlas", false).stream()
+      .map(BookRow::bookId).toList(), "A book saved at another desk should be found");
+
+    local.setTitle("Desk Renamed Globe");
+    otherDesk.update(local);
+    otherDesk.delete(second);
+    assertEquals(1, bookDAO.findRows("title", "renamed globe", false).size());
+    assertTrue(bookDAO.findRows("title", "local atlas", false).isEmpty(), "Old title should no longer match");
+    assertNull(bookDAO.findAll("isbn", "desk-2"), "A book deleted at another desk should leave the index");
+  }
+}
@@ -0,0 +1,75 @@
+package br.edu.ifba.inf008.plugins.book.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import br.edu.ifba.inf008.plugins.book.persistence.BookSearchIndex.Field;
+
+public class BookSearchIndexTest {
+  private BookSearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new BookSearchIndex();
+    index.put(1, "The Lord of the Rings", "J. R. R. Tolkien", "9780544003415");
+    index.put(2, "Lord", "Anonymous", "9780000000001");
+    index.put(3, "Overlord", "Someone", "9780000000002");
+    index.put(4, "Lords and Ladies", "Terry Pratchett", "9780061056925");
+    index.put(5, "Memórias Póstumas de Brás Cubas", "Machado de Assis", "9788525406491");
+  }
+
+  @Test
+  void testRanksExactThenPrefixThenWordThenSubstring() {
+    assertArrayEquals(new int[] {2, 4, 1, 3}, index.search(Field.TITLE, "lord", 10));
+  }
+
+  @Test
+  void testIgnoresCaseAndAccents() {
+    assertArrayEquals(new int[] {5}, index.search(Field.TITLE, "POSTUMAS", 10));
+    assertArrayEquals(new int[] {5}, index.search(Field.TITLE, "brás", 10));
+  }
+
+  @Test
+  void testSearchAllFieldsReturnsEachBookOnce() {
+    index.put(6, "Tolkien: A Biography", "Humphrey Carpenter", "9780618057023");
+
+    assertArrayEquals(new int[] {6, 1}, index.search(null, "tolkien", 10));
+    assertArrayEquals(new int[] {1}, index.search(null, "9780544", 10));
+  }
+
+  @Test
+  void testPutReplacesAndRemoveDropsBook() {
+    index.put(3, "Underlord", "Someone", "9780000000002");
+    assertArrayEquals(new int[] {3}, index.search(Field.TITLE, "underlord", 10));
+    assertArrayEquals(new int[0], index.search(Field.TITLE, "overlord", 10));
+
+    index.remove(1);
+    assertArrayEquals(new int[0], index.search(Field.AUTHOR, "tolkien", 10));
+    assertEquals(4, index.size());
+  }
+
+  @Test
+  void testShortQueriesAndLimit() {
+    assertArrayEquals(new int[] {1, 4}, index.search(Field.AUTHOR, "r", 2));
+    assertArrayEquals(new int[] {1}, index.search(Field.AUTHOR, "r", 1));
+    assertArrayEquals(new int[0], index.search(Field.TITLE, "  ", 10));
+  }
+
+  @Test
+  void testManyPutsAndRemovesKeepEveryRemainingBookSearchable() {
+    for (int id = 100; id < 2100; id++) {
+      index.put(id, "Volume " + id, "Author " + (id % 7), "isbn-" + id);
+    }
+    for (int id = 100; id < 2100; id += 2) {
+      index.remove(id);
+    }
+
+    assertEquals(1005, index.size());
+    for (int id = 101; id < 2100; id += 2) {
+      assertArrayEquals(new int[] {id}, index.search(Field.ISBN, "isbn-" + id, 1));
+    }
+    assertArrayEquals(new int[0], index.search(Field.ISBN, "isbn-1000", 10));
+  }
+}
@@ -1,46 +1,60 @@
 package br.edu.ifba.inf008.plugins.loan.persistence;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import br.edu.ifba.inf008.interfaces.SortOrder;
+import br.edu.ifba.inf008.shell.event.EntityEvent;
+import br.edu.ifba.inf008.shell.event.EntityEvent.BookChanged;
+import br.edu.ifba.inf008.shell.event.EntityEvent.Change;
+import br.edu.ifba.inf008.shell.event.EntityEvent.LoanChanged;
 import br.edu.ifba.inf008.shell.model.Book;
 import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.LoanRow;
 import br.edu.ifba.inf008.shell.model.User;
 import br.edu.ifba.inf008.shell.persistence.BaseDAO;
+import br.edu.ifba.inf008.shell.persistence.BookInventory;
+import br.edu.ifba.inf008.shell.persistence.EntityManagerProvider;
+import br.edu.ifba.inf008.shell.persistence.LoanStatistics;
+import br.edu.ifba.inf008.shell.persistence.LoanStatistics.Snapshot;
+import br.edu.ifba.inf008.shell.persistence.NameIndex;
+import br.edu.ifba.inf008.shell.persistence.TableVersions;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 
 public class LoanDAO extends BaseDAO<Loan, Integer> {
-  
+  public LoanDAO() {
+    super();
+  }
+
+  public LoanDAO(EntityManagerProvider entityManagerProvider) {
+    super(entityManagerProvider);
+  }
+
   @Override
   protected Class<Loan> getEntityClass() {
     return Loan.class;
   }
 
-  @Override  
-  protected EntityManager getEntityManager() {
-    if (isTestEnvironment()) {
-      try {
-        Class<?> testJPAUtilClass = Class.forName("br.edu.ifba.inf008.plugins.loan.persistence.TestJPAUtil");
-        java.lang.reflect.Method getEntityManagerMethod = testJPAUtilClass.getMethod("getEntityManager");
-        return (EntityManager) getEntityManagerMethod.invoke(null);
-      } catch (ClassNotFoundException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-        return super.getEntityManager();
-      }
-    }
-    return super.getEntityManager();
+  @Override
+  protected String getDefaultEntityGraph() {
+    return Loan.GRAPH_LIST;
   }
 
-  private boolean isTestEnvironment() {
-    String stackTrace = java.util.Arrays.toString(Thread.currentThread().getStackTrace());
-    return stackTrace.contains("Test") || 
-           System.getProperty("surefire.test.class.path") != null;
+  /** Empréstimos e devoluções também mudam o estoque dos livros. */
+  @Override
+  protected List<Class<?>> getWrittenEntities() {
+    return List.of(Loan.class, Book.class);
   }
 
   public List<Loan> findAll(String fieldSubString){
     try (EntityManager em = getEntityManager()){
       try{
-        List<Loan> results = em.createQuery(
-          "SELECT l FROM Loan l JOIN l.user u JOIN l.book b WHERE u.name LIKE :field OR u.email LIKE :field", Loan.class)
+        List<Loan> results = withEntityGraph(em, em.createQuery(
+          "SELECT l FROM Loan l JOIN l.user u JOIN l.book b WHERE u.name LIKE :field OR u.email LIKE :field", Loan.class), Loan.GRAPH_LIST)
           .setParameter("field", "%" + fieldSubString + "%")
           .getResultList();
         return results.isEmpty() ? null : results;
@@ -52,159 +66,257 @@ public class LoanDAO extends BaseDAO<Loan, Integer> {
 
   public List<Loan> findActiveLoans() {
     try (EntityManager em = getEntityManager()) {
-      return em.createQuery(
+      return withEntityGraph(em, em.createQuery(
         "SELECT l FROM Loan l WHERE l.returnDate IS NULL", Loan.class
-      ).getResultList();
+      ), Loan.GRAPH_LIST).getResultList();
     }
   }
 
   public List<Loan> findActiveLoans(String fieldSubString) {
     try (EntityManager em = getEntityManager()) {
-      return em.createQuery(
-        "SELECT l FROM Loan l JOIN l.user u WHERE l.returnDate IS NULL AND (u.name LIKE :field OR u.email LIKE :field)", Loan.class)
+      return withEntityGraph(em, em.createQuery(
+        "SELECT l FROM Loan l JOIN l.user u WHERE l.returnDate IS NULL AND (u.name LIKE :field OR u.email LIKE :field)", Loan.class), Loan.GRAPH_LIST)
         .setParameter("field", "%" + fieldSubString + "%")
         .getResultList();
     }
   }
 
+  public List<LoanRow> findRows() {
+    return findRows(null, false);
+  }
+
+  /**
+   * Projeção para a lista de empréstimos. {@code fieldSubString} nulo não filtra
+   * por usuário; {@code activeOnly} mantém só empréstimos sem devolução.
+   */
+  public List<LoanRow> findRows(String fieldSubString, boolean activeOnly) {
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<LoanRow> query = em.createQuery(LoanRow.SELECT_FROM + rowFilter(fieldSubString, activeOnly), LoanRow.class);
+      return bindRowFilter(query, fieldSubString).getResultList();
+    }
+  }
+
+  /** Total de linhas de {@link #findRows(String, boolean)}, para a lista paginada. */
+  public int countRows(String fieldSubString, boolean activeOnly) {
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<Long> query = em.createQuery(
+        "SELECT COUNT(l) FROM Loan l JOIN l.user u JOIN l.book b" + rowFilter(fieldSubString, activeOnly), Long.class);
+      return bindRowFilter(query, fieldSubString).getSingleResult().intValue();
+    }
+  }
+
+  /** Uma página de {@link #findRows(String, boolean)}, ordenada pelo id no banco. */
+  public List<LoanRow> findRows(String fieldSubString, boolean activeOnly, int offset, int limit, SortOrder order) {
+    String jpql = LoanRow.SELECT_FROM + rowFilter(fieldSubString, activeOnly)
+      + " ORDER BY l.loanId" + (order == SortOrder.DESCENDING ? " DESC" : " ASC");
+    try (EntityManager em = getEntityManager()) {
+      return bindRowFilter(em.createQuery(jpql, LoanRow.class), fieldSubString)
+        .setFirstResult(offset)
+        .setMaxResults(limit)
+        .getResultList();
+    }
+  }
+
+  private static String rowFilter(String fieldSubString, boolean activeOnly) {
+    StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+    if (activeOnly) {
+      where.append(" AND l.returnDate IS NULL");
+    }
+    if (fieldSubString != null) {
+      where.append(" AND (u.name LIKE :field OR u.email LIKE :field)");
+    }
+    return where.toString();
+  }
+
+  private static <R> TypedQuery<R> bindRowFilter(TypedQuery<R> query, String fieldSubString) {
+    if (fieldSubString != null) {
+      query.setParameter("field", "%" + fieldSubString + "%");
+    }
+    return query;
+  }
+
+  public LoanRow findRow(Integer loanId) {
+    try (EntityManager em = getEntityManager()) {
+      List<LoanRow> rows = em.createQuery(LoanRow.SELECT_FROM + " WHERE l.loanId = :loanId", LoanRow.class)
+        .setParameter("loanId", loanId)
+        .getResultList();
+      return rows.isEmpty() ? null : rows.get(0);
+    }
+  }
+
   public List<User> listUsers() {
     try (EntityManager em = getEntityManager()) {
-      return em.createQuery(
+      return cacheable(em.createQuery(
         "SELECT u FROM User u", User.class
-      ).getResultList();
+      )).getResultList();
     }
   }
 
   public List<Book> listBooks() {
     try (EntityManager em = getEntityManager()) {
-      return em.createQuery(
+      return cacheable(em.createQuery(
         "SELECT b FROM Book b", Book.class
-      ).getResultList();
+      )).getResultList();
     }
   }
 
-  @Override
-  public void save(Loan loan){
+  /**
+   * Recarrega os índices de autocompletar ({@link NameIndex#USERS} e {@link NameIndex#BOOKS})
+   * cuja versão no banco mudou desde a última carga, por exemplo com um cadastro feito em outro
+   * terminal; os livros acompanham a versão do acervo ({@link TableVersions#BOOK_CATALOG}), que
+   * não muda com o estoque. Consulta o banco, então deve ser chamado fora da thread do JavaFX.
+   */
+  public void refreshNameIndexes() {
+    NameIndex.USERS.loadIfOlder(dataVersion(User.class), () -> loadNames("SELECT u.userId, u.name FROM User u"));
+    NameIndex.BOOKS.loadIfOlder(dataVersion(TableVersions.BOOK_CATALOG),
+      () -> loadNames("SELECT b.bookId, b.title FROM Book b"));
+  }
+
+  /**
+   * Ids de até {@code limit} usuários cujo nome tem uma palavra começando com o texto, pelo
+   * índice compartilhado {@link NameIndex#USERS}. Só consulta a memória, então pode rodar a cada
+   * tecla; vazio até {@link #refreshNameIndexes()} carregar o índice.
+   */
+  public int[] completeUsers(String text, int limit) {
+    return NameIndex.USERS.complete(text, limit);
+  }
+
+  /** Como {@link #completeUsers(String, int)}, sobre os títulos dos livros. */
+  public int[] completeBooks(String text, int limit) {
+    return NameIndex.BOOKS.complete(text, limit);
+  }
+
+  private Map<Integer, String> loadNames(String jpql) {
     try (EntityManager em = getEntityManager()) {
-      try{
-        em.getTransaction().begin();
-        
-        Book book = em.find(Book.class, loan.getBook().getBookId());
-        if (book.getCopiesAvailable() > 0){
-          book.setCopiesAvailable(book.getCopiesAvailable() - 1);
-          em.persist(loan);
-          em.merge(book);
-          em.getTransaction().commit();
-        }else{
-          em.getTransaction().rollback();
-          throw new IllegalStateException("No copies available for this book");
-        }
-      } finally {
-        em.close();
+      Map<Integer, String> names = new HashMap<>();
+      for (Object[] row : em.createQuery(jpql, Object[].class).getResultList()) {
+        names.put((Integer) row[0], (String) row[1]);
       }
+      return names;
     }
   }
 
-  public void returnLoan(Loan loan) {
-    try (EntityManager em = getEntityManager()) {
-      try{
-        em.getTransaction().begin();
-        
-        Loan managedLoan = em.find(Loan.class, loan.getLoanId());
-        managedLoan.returnBook();
+  @Override
+  public void save(Loan loan){
+    List<EntityEvent> events = new ArrayList<>();
+    executeInTransaction(em -> checkout(em, loan, events));
+    publish(events);
+  }
 
-        Book book = em.find(Book.class, managedLoan.getBook().getBookId());
-        book.setCopiesAvailable(book.getCopiesAvailable() + 1);
+  @Override
+  public void saveAll(Collection<Loan> loans) {
+    List<EntityEvent> events = new ArrayList<>();
+    executeInBatches(loans, (em, loan) -> checkout(em, loan, events));
+    publish(events);
+  }
 
-        em.merge(managedLoan);
-        em.merge(book);
-        em.getTransaction().commit();
-      } finally {
-        em.close();
-      }
-    }
+  public void returnLoan(Loan loan) {
+    List<EntityEvent> events = new ArrayList<>();
+    executeInTransaction(em -> {
+      Loan managedLoan = em.find(Loan.class, loan.getLoanId());
+      Snapshot before = Snapshot.of(managedLoan);
+      managedLoan.returnBook();
+      LoanStatistics.change(em, before, Snapshot.of(managedLoan));
+      release(em, managedLoan.getBook().getBookId(), events);
+      events.add(new LoanChanged(managedLoan.getLoanId(), Change.UPDATED));
+    });
+    publish(events);
   }
 
   @Override
   public void update(Loan loan){
-    try (EntityManager em = getEntityManager()) {
-      try{
-        em.getTransaction().begin();
-        
-        Loan managedLoan = em.find(Loan.class, loan.getLoanId());
-        Book oldBook = em.find(Book.class, managedLoan.getBook().getBookId());
-        Book newBook = em.find(Book.class, loan.getBook().getBookId());
-
-        boolean bookChanged = !oldBook.getBookId().equals(newBook.getBookId());
-        boolean wasReturned = managedLoan.getReturnDate() != null;
-        boolean isReturned = loan.getReturnDate() != null;
-
-        if (bookChanged) {
-          if (!wasReturned && isReturned) {
-            oldBook.setCopiesAvailable(oldBook.getCopiesAvailable() + 1);
-            em.merge(oldBook);
-          } else if (wasReturned && !isReturned) {
-            if (newBook.getCopiesAvailable() > 0) {
-              newBook.setCopiesAvailable(newBook.getCopiesAvailable() - 1);
-              em.merge(newBook);
-            } else {
-              em.getTransaction().rollback();
-              throw new IllegalStateException("No copies available for this book");
-            }
-          } else if (!wasReturned && !isReturned) {
-            oldBook.setCopiesAvailable(oldBook.getCopiesAvailable() + 1);
-            if (newBook.getCopiesAvailable() > 0) {
-              newBook.setCopiesAvailable(newBook.getCopiesAvailable() - 1);
-            } else {
-              em.getTransaction().rollback();
-              throw new IllegalStateException("No copies available for this book");
-            }
-            em.merge(oldBook);
-            em.merge(newBook);
-          }
-        } else {
-          if (!wasReturned && isReturned) {
-            oldBook.setCopiesAvailable(oldBook.getCopiesAvailable() + 1);
-            em.merge(oldBook);
-          } else if (wasReturned && !isReturned) {
-            if (oldBook.getCopiesAvailable() > 0) {
-              oldBook.setCopiesAvailable(oldBook.getCopiesAvailable() - 1);
-              em.merge(oldBook);
-            } else {
-              em.getTransaction().rollback();
-              throw new IllegalStateException("No copies available for this book");
-            }
-          }
-        }
-
-        em.merge(loan);
-
-        em.getTransaction().commit();
-      } finally {
-        em.close();
-      }
-    }
+    List<EntityEvent> events = new ArrayList<>();
+    executeInTransaction(em -> applyUpdate(em, loan, events));
+    publish(events);
+  }
+
+  @Override
+  public void updateAll(Collection<Loan> loans) {
+    List<EntityEvent> events = new ArrayList<>();
+    executeInBatches(loans, (em, loan) -> applyUpdate(em, loan, events));
+    publish(events);
   }
 
   @Override
   public void delete(Loan loan) {
-    try (EntityManager em = getEntityManager()) {
-      try{
-        em.getTransaction().begin();
-        Loan managedLoan = em.find(Loan.class, loan.getLoanId());
-
-        if (loan.getReturnDate() == null){
-          Book book = em.find(Book.class, managedLoan.getBook().getBookId());
-          book.setCopiesAvailable(book.getCopiesAvailable() + 1);
-          em.merge(book);
-        }
-
-        em.remove(managedLoan);
-        
-        em.getTransaction().commit();
-      } finally {
-        em.close();
+    List<EntityEvent> events = new ArrayList<>();
+    executeInTransaction(em -> remove(em, loan, events));
+    publish(events);
+  }
+
+  @Override
+  public void deleteAll(Collection<Loan> loans) {
+    List<EntityEvent> events = new ArrayList<>();
+    executeInBatches(loans, (em, loan) -> remove(em, loan, events));
+    publish(events);
+  }
+
+  @Override
+  protected EntityEvent changeEvent(Loan loan, Change change) {
+    return loan.getLoanId() == null ? null : new LoanChanged(loan.getLoanId(), change);
+  }
+
+  // Os métodos abaixo rodam dentro da transação e só acumulam os eventos, publicados após o commit.
+
+  private void checkout(EntityManager em, Loan loan, List<EntityEvent> events) {
+    takeCopy(em, loan.getBook().getBookId(), events);
+    em.persist(loan);
+    LoanStatistics.change(em, null, Snapshot.of(loan));
+    events.add(new LoanChanged(loan.getLoanId(), Change.CREATED));
+  }
+
+  private void applyUpdate(EntityManager em, Loan loan, List<EntityEvent> events) {
+    Loan managedLoan = em.find(Loan.class, loan.getLoanId());
+    Integer oldBookId = managedLoan.getBook().getBookId();
+    Integer newBookId = loan.getBook().getBookId();
+
+    boolean bookChanged = !oldBookId.equals(newBookId);
+    boolean wasReturned = managedLoan.getReturnDate() != null;
+    boolean isReturned = loan.getReturnDate() != null;
+
+    if (bookChanged) {
+      if (!wasReturned && isReturned) {
+        release(em, oldBookId, events);
+      } else if (wasReturned && !isReturned) {
+        takeCopy(em, newBookId, events);
+      } else if (!wasReturned && !isReturned) {
+        release(em, oldBookId, events);
+        takeCopy(em, newBookId, events);
       }
+    } else {
+      if (!wasReturned && isReturned) {
+        release(em, oldBookId, events);
+      } else if (wasReturned && !isReturned) {
+        takeCopy(em, oldBookId, events);
+      }
+    }
+
+    LoanStatistics.change(em, Snapshot.of(managedLoan), Snapshot.of(loan));
+    em.merge(loan);
+    events.add(new LoanChanged(loan.getLoanId(), Change.UPDATED));
+  }
+
+  private void remove(EntityManager em, Loan loan, List<EntityEvent> events) {
+    Loan managedLoan = em.find(Loan.class, loan.getLoanId());
+
+    if (loan.getReturnDate() == null){
+      release(em, managedLoan.getBook().getBookId(), events);
     }
+
+    LoanStatistics.change(em, Snapshot.of(managedLoan), null);
+    em.remove(managedLoan);
+    events.add(new LoanChanged(loan.getLoanId(), Change.DELETED));
+  }
+
+  private void takeCopy(EntityManager em, Integer bookId, List<EntityEvent> events) {
+    if (!BookInventory.take(em, bookId)) {
+      throw new IllegalStateException("No copies available for this book");
+    }
+    events.add(new BookChanged(bookId, Change.UPDATED));
+  }
+
+  private void release(EntityManager em, Integer bookId, List<EntityEvent> events) {
+    BookInventory.release(em, bookId);
+    events.add(new BookChanged(bookId, Change.UPDATED));
   }
 }
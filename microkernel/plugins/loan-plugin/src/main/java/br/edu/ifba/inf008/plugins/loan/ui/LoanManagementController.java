@@ -2,20 +2,31 @@ package br.edu.ifba.inf008.plugins.loan.ui;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import br.edu.ifba.inf008.interfaces.ICore;
 import br.edu.ifba.inf008.interfaces.IRefreshable;
+import br.edu.ifba.inf008.interfaces.ISubscription;
 import br.edu.ifba.inf008.interfaces.IUIController;
+import br.edu.ifba.inf008.interfaces.SortOrder;
 import br.edu.ifba.inf008.plugins.loan.persistence.LoanDAO;
+import br.edu.ifba.inf008.shell.event.EntityEvent;
+import br.edu.ifba.inf008.shell.event.EntityEvent.LoanChanged;
 import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.LoanRow;
 import br.edu.ifba.inf008.shell.model.User;
 import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.util.BackgroundLoader;
+import br.edu.ifba.inf008.shell.util.PageSource;
+import br.edu.ifba.inf008.shell.util.PagedList;
+import br.edu.ifba.inf008.shell.util.SearchPipeline;
 import javafx.util.StringConverter;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
@@ -33,6 +44,9 @@ import javafx.scene.layout.Pane;
 import javafx.scene.layout.Priority;
 
 public class LoanManagementController implements IRefreshable {
+  /** Máximo de sugestões exibidas pelos ComboBoxes de usuário e livro. */
+  private static final int SUGGESTIONS = 50;
+
   LoanDAO loanDAO = new LoanDAO();
 
   @FXML private TextField searchField;
@@ -43,45 +57,116 @@ public class LoanManagementController implements IRefreshable {
   @FXML private DatePicker loanDatePicker;
   @FXML private Label returnDateLabel;
   @FXML private DatePicker returnDatePicker;
-  @FXML private ListView<Loan> loanListView;
+  @FXML private ListView<LoanRow> loanListView;
   @FXML private Button saveButton;
   
 
   private IUIController uiController;
-  private final ObservableList<Loan> loans = FXCollections.observableArrayList();
+  private ISubscription changes;
+  private final BackgroundLoader loader = new BackgroundLoader();
+  private final BackgroundLoader choicesLoader = new BackgroundLoader();
+  /** Escritas e a carga do empréstimo no formulário; a lista e o botão ficam desabilitados enquanto rodam. */
+  private final BackgroundLoader actions = new BackgroundLoader();
+  private final SearchPipeline searches = new SearchPipeline(() -> loanDAO.dataVersion(Loan.class, User.class, Book.class));
+  private final PagedList<LoanRow> loans = new PagedList<>(loader, () -> loanDAO.dataVersion(Loan.class, User.class, Book.class));
+  private final ObservableList<User> userItems = FXCollections.observableArrayList();
+  private final ObservableList<Book> bookItems = FXCollections.observableArrayList();
+  private List<User> users = List.of();
+  private List<Book> books = List.of();
+  private Map<Integer, User> usersById = Map.of();
+  private Map<Integer, Book> booksById = Map.of();
+  private long choicesVersion = -1;
   private Loan currentLoan = null;
   private boolean isUpdating = false;
 
   @Override
   public void refresh() {
-    loadInitialData();
+    boolean filtered = !searchField.getText().isBlank() || activeLoansCheckBox.isSelected();
 
     searchField.clear(); 
+    searches.cancelPending();
+    if (filtered) {
+      loadInitialData();
+    } else {
+      reloadRows();
+    }
 
-    configureLoanComboBoxes();
+    loadComboBoxChoices(true);
 
     handleClear();
   }
+
+  /** A aba fechou (ou nunca abriu): para de receber eventos e descarta buscas pendentes. */
+  @Override
+  public void dispose() {
+    if (changes != null) {
+      changes.close();
+    }
+    searches.cancelPending();
+  }
+
+  /** Nomes de usuários e títulos aparecem nas linhas; usuários e livros também nos ComboBoxes. */
+  private void onEntityChanged(EntityEvent event) {
+    reloadRows();
+    if (!(event instanceof LoanChanged)) {
+      loadComboBoxChoices(true);
+    }
+  }
   
   @FXML
   public void initialize() {
     this.uiController = ICore.getInstance().getUIController();
 
-    loadInitialData();
     loanListView.setItems(loans);
+    loader.showLoadingOn(loanListView, loanListView.placeholderProperty());
+    actions.disableWhileLoading(loanListView, saveButton);
+    loadInitialData();
     configureLoanCellFactory();
 
+    searchField.textProperty().addListener((observable, oldValue, newValue) -> searchAsYouType());
+    activeLoansCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> searchAsYouType());
+    changes = ICore.getInstance().getEventBus().subscribe(EntityEvent.class, Platform::runLater, this::onEntityChanged);
+
     configureLoanComboBoxes();
+    loadComboBoxChoices(false);
 
     configureLoanDatePicker();
   }
 
   private void loadInitialData() {
-    loans.setAll(loanDAO.findAll());
+    loadRows(null, false);
+  }
+
+  /**
+   * Lista paginada no banco: a contagem e as páginas são consultadas fora da thread do JavaFX,
+   * só quando a linha aparece na tela, e uma nova busca descarta a anterior. Resultados recentes
+   * vêm do {@link SearchPipeline} enquanto nenhuma escrita acontecer.
+   */
+  private void loadRows(String text, boolean activeOnly) {
+    loans.setSource(searches.cached(new Search(text, activeOnly), new PageSource<>() {
+      @Override
+      public int count() {
+        return loanDAO.countRows(text, activeOnly);
+      }
+
+      @Override
+      public List<LoanRow> fetch(int offset, int limit) {
+        return loanDAO.findRows(text, activeOnly, offset, limit, SortOrder.ASCENDING);
+      }
+    }), this::showLoadError);
+  }
+
+  /** Atualiza no lugar só as linhas que mudaram; sem escritas em empréstimos, usuários ou livros, não consulta nada. */
+  private void reloadRows() {
+    loans.refresh(this::showLoadError);
+  }
+
+  private void showLoadError(Throwable error) {
+    uiController.showAlert("Error", "Failed to load loans: " + error.getMessage());
   }
 
   private void configureLoanCellFactory() {
-    loanListView.setCellFactory(lv -> new ListCell<Loan>(){
+    loanListView.setCellFactory(lv -> new ListCell<LoanRow>(){
       private final HBox hbox = new HBox(10);
       private final Label label = new Label();
       private final Button returnButton = new Button("Return");
@@ -101,16 +186,16 @@ public class LoanManagementController implements IRefreshable {
       }
 
       @Override
-      protected void updateItem(Loan loan, boolean empty) {
+      protected void updateItem(LoanRow loan, boolean empty) {
         super.updateItem(loan, empty);
         if (empty || loan == null) {
           setGraphic(null);
           setText(null);
         } else {
-          label.setText("ID: " + loan.getLoanId() + " | User: " + loan.getUser().getName() + " | Book: " + loan.getBook().getTitle() + " | Loan: " + formatDate(loan.getLoanDate()) + " - Return: " + formatDate(loan.getReturnDate()));
+          label.setText("ID: " + loan.loanId() + " | User: " + loan.userName() + " | Book: " + loan.bookTitle() + " | Loan: " + formatDate(loan.loanDate()) + " - Return: " + formatDate(loan.returnDate()));
           setGraphic(hbox);
 
-          if (loan.getReturnDate() != null) {
+          if (loan.returnDate() != null) {
             returnButton.setDisable(true);
           } else {
             returnButton.setDisable(false);
@@ -125,12 +210,10 @@ public class LoanManagementController implements IRefreshable {
   }
 
   private void configureLoanComboBoxes(){
-    List<User> users = loanDAO.listUsers();
-    List<Book> books = loanDAO.listBooks();
-    userComboBox.setItems(FXCollections.observableArrayList(users));
-    bookComboBox.setItems(FXCollections.observableArrayList(books));
+    userComboBox.setItems(userItems);
+    bookComboBox.setItems(bookItems);
 
-     userComboBox.setCellFactory(cb -> new ListCell<>() {
+    userComboBox.setCellFactory(cb -> new ListCell<>() {
       @Override
       protected void updateItem(User user, boolean empty) {
         super.updateItem(user, empty);
@@ -179,35 +262,81 @@ public class LoanManagementController implements IRefreshable {
     userComboBox.setEditable(true);
     bookComboBox.setEditable(true);
 
-    FilteredList<User> filteredUsers = new FilteredList<>(FXCollections.observableArrayList(users), p -> true);
-      userComboBox.setItems(filteredUsers);
-      userComboBox.getEditor().textProperty().addListener((obs, oldText, newText) -> Platform.runLater(() -> {
-        if (userComboBox.getSelectionModel().getSelectedItem() == null ||
-              !userComboBox.getSelectionModel().getSelectedItem().getName().equals(newText)) {
-          filteredUsers.setPredicate(user -> user.getName().toLowerCase().contains(newText.toLowerCase().trim()));
-        }
-      }));
-      
-      userComboBox.getEditor().setOnMouseClicked(e -> {
-        if (!userComboBox.isShowing()) {
-          userComboBox.show();
-        }
-      });
-
-      FilteredList<Book> filteredBooks = new FilteredList<>(FXCollections.observableArrayList(books), p -> true);
-      bookComboBox.setItems(filteredBooks);
-      bookComboBox.getEditor().textProperty().addListener((obs, oldText, newText) -> Platform.runLater(() -> {
-          if (bookComboBox.getSelectionModel().getSelectedItem() == null ||
-              !bookComboBox.getSelectionModel().getSelectedItem().getTitle().equals(newText)) {
-            filteredBooks.setPredicate(book -> book.getTitle().toLowerCase().contains(newText.toLowerCase().trim()));
-          }
-      }));
+    userComboBox.getEditor().textProperty().addListener((obs, oldText, newText) -> Platform.runLater(() -> {
+      if (userComboBox.getSelectionModel().getSelectedItem() == null ||
+            !userComboBox.getSelectionModel().getSelectedItem().getName().equals(newText)) {
+        userItems.setAll(newText == null || newText.isBlank()
+          ? users
+          : suggestions(loanDAO.completeUsers(newText, SUGGESTIONS), usersById));
+      }
+    }));
+
+    userComboBox.getEditor().setOnMouseClicked(e -> {
+      if (!userComboBox.isShowing()) {
+        userComboBox.show();
+      }
+    });
 
-      bookComboBox.getEditor().setOnMouseClicked(e -> {
-        if (!bookComboBox.isShowing()) {
-          bookComboBox.show();
+    bookComboBox.getEditor().textProperty().addListener((obs, oldText, newText) -> Platform.runLater(() -> {
+      if (bookComboBox.getSelectionModel().getSelectedItem() == null ||
+          !bookComboBox.getSelectionModel().getSelectedItem().getTitle().equals(newText)) {
+        bookItems.setAll(newText == null || newText.isBlank()
+          ? books
+          : suggestions(loanDAO.completeBooks(newText, SUGGESTIONS), booksById));
+      }
+    }));
+
+    bookComboBox.getEditor().setOnMouseClicked(e -> {
+      if (!bookComboBox.isShowing()) {
+        bookComboBox.show();
+      }
+    });
+  }
+
+  private record Choices(long version, List<User> users, List<Book> books) {}
+
+  /**
+   * Carrega usuários e livros dos ComboBoxes fora da thread do JavaFX; com {@code onlyIfChanged},
+   * só se a versão das tabelas no banco mudou desde a última carga, inclusive por outro terminal.
+   * Na mesma tarefa, põe em dia os índices do autocompletar, que as teclas só consultam em memória.
+   */
+  private void loadComboBoxChoices(boolean onlyIfChanged) {
+    long known = onlyIfChanged ? choicesVersion : -1;
+    choicesLoader.load(
+      () -> {
+        loanDAO.refreshNameIndexes();
+        long version = loanDAO.dataVersion(User.class, Book.class);
+        return version == known ? null : new Choices(version, loanDAO.listUsers(), loanDAO.listBooks());
+      },
+      choices -> {
+        if (choices == null) {
+          return;
         }
-      });
+        choicesVersion = choices.version();
+        users = choices.users();
+        usersById = new HashMap<>();
+        users.forEach(user -> usersById.put(user.getUserId(), user));
+        userItems.setAll(users);
+
+        books = choices.books();
+        booksById = new HashMap<>();
+        books.forEach(book -> booksById.put(book.getBookId(), book));
+        bookItems.setAll(books);
+      },
+      error -> uiController.showAlert("Error", "Failed to load users and books: " + error.getMessage())
+    );
+  }
+
+  /** Entidades dos ids sugeridos pelo autocompletar, na ordem de relevância. */
+  private static <T> List<T> suggestions(int[] ids, Map<Integer, T> byId) {
+    List<T> items = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      T item = byId.get(id);
+      if (item != null) {
+        items.add(item);
+      }
+    }
+    return items;
   }
 
   private void configureLoanDatePicker() {
@@ -305,56 +434,51 @@ public class LoanManagementController implements IRefreshable {
     
     if(isUpdating && currentLoan != null){
       Loan updatedLoan = new Loan(currentLoan.getLoanId(), selectedUser, selectedBook, selectedDate, returnDate);
-      int loanIndex = loans.indexOf(currentLoan);
-      if (loanIndex == -1) {
-        uiController.showAlert("Error", "Loan not found for update.");
-        return;
-      }
       uiController.showConfirmation(
           "Update Loan", 
           "Are you sure you want to update the loan for book " + selectedBook.getTitle() + "?", 
-          () -> {
-              try {
-                  loanDAO.update(updatedLoan);
-                  loans.set(loanIndex, updatedLoan);
-                  loanListView.setItems(loans);
+          () -> actions.run(
+              () -> loanDAO.update(updatedLoan),
+              () -> {
+                  reloadRows();
                   uiController.showAlert("Success", "Loan updated successfully!");
-              } catch (Exception e) {
-                  uiController.showAlert("Error", "Failed to update loan: " + e.getMessage());
-              }
-          }
+              },
+              error -> uiController.showAlert("Error", "Failed to update loan: " + error.getMessage())
+          )
       );
     }else{
       Loan newLoan = new Loan(selectedUser, selectedBook, selectedDate, null);
       uiController.showConfirmation(
         "Create Loan",
         "Are you sure you want to create a loan for book " + selectedBook.getTitle() + "?",
-        () -> {
-          try {
-            loanDAO.save(newLoan);
-            loans.add(newLoan);
-            loanListView.setItems(loans);
+        () -> actions.run(
+          () -> loanDAO.save(newLoan),
+          () -> {
+            reloadRows();
             uiController.showAlert("Success", "Loan created successfully!");
-          } catch (Exception e) {
-            uiController.showAlert("Error", "Failed to create loan: " + e.getMessage());
-          }
-        }
+          },
+          error -> uiController.showAlert("Error", "Failed to create loan: " + error.getMessage())
+        )
       );
     }
     handleClear();
   }
 
+  /** Busca enquanto digita só por nome/email; a busca por id continua no botão, para não alertar a cada tecla. */
+  private void searchAsYouType() {
+    if (!"loanId".equals(searchTypeToggleGroup.getSelectedToggle().getUserData())) {
+      searches.debounce(this::handleSearch);
+    }
+  }
+
   @FXML
   private void handleSearch(){
+    searches.cancelPending();
     String field = searchField.getText().toLowerCase().trim();
 
+    boolean activeOnly = activeLoansCheckBox.isSelected();
     if (field.isEmpty()) {
-      if(activeLoansCheckBox.isSelected()) {
-        loans.setAll(loanDAO.findActiveLoans());
-      } else {
-        loans.setAll(loanDAO.findAll());
-      }
-      loanListView.setItems(loans);
+      loadRows(null, activeOnly);
       return;
     }
     String searchType = (String) searchTypeToggleGroup.getSelectedToggle().getUserData();
@@ -362,13 +486,17 @@ public class LoanManagementController implements IRefreshable {
     if (searchType.equals("loanId")) {
       try {
         Integer loanId = Integer.parseInt(field);
-        Loan loan = loanDAO.findById(loanId);
-        if (loan != null) {
-          loans.setAll(loan);
-        } else {
-          uiController.showAlert("Not Found", "No loan found with ID: " + loanId);
-        }
-        loanListView.setItems(loans);
+        loader.load(
+          () -> loanDAO.findRow(loanId),
+          loan -> {
+            if (loan != null) {
+              loans.setSource(PageSource.of(() -> List.of(loan)), this::showLoadError);
+            } else {
+              uiController.showAlert("Not Found", "No loan found with ID: " + loanId);
+            }
+          },
+          error -> uiController.showAlert("Error", "Failed to load loan: " + error.getMessage())
+        );
         return;
       } catch (NumberFormatException e) {
         uiController.showAlert("Invalid input", "Please enter a valid loan ID.");
@@ -376,11 +504,7 @@ public class LoanManagementController implements IRefreshable {
       }
     }
 
-    loans.setAll(
-      activeLoansCheckBox.isSelected() ?
-      loanDAO.findActiveLoans(field) : loanDAO.findAll(field)
-    );
-    loanListView.setItems(loans);
+    loadRows(field, activeOnly);
   }
 
   @FXML
@@ -395,20 +519,30 @@ public class LoanManagementController implements IRefreshable {
     saveButton.setText("Create Loan");
   }
 
-  private void handleDelete(Loan loan){
-    uiController.showConfirmation("Delete Loan", "Are you sure you want to delete this loan?", () -> {
-      try {
-        loanDAO.delete(loan);
-        loans.remove(loan);
-        loanListView.setItems(loans);
+  private void handleDelete(LoanRow loan){
+    uiController.showConfirmation("Delete Loan", "Are you sure you want to delete this loan?", () -> actions.run(
+      () -> loanDAO.delete(loanDAO.findById(loan.loanId())),
+      () -> {
+        reloadRows();
         uiController.showAlert("Success", "Loan deleted successfully!");
-      } catch (Exception e) {
-        uiController.showAlert("Error", "Failed to delete loan: " + e.getMessage());
-      }
-    });
+      },
+      error -> uiController.showAlert("Error", "Failed to delete loan: " + error.getMessage())
+    ));
   }
   
-  private void handleUpdate(Loan loan){
+  private void handleUpdate(LoanRow row){
+    actions.load(
+      () -> loanDAO.findById(row.loanId()),
+      this::editLoan,
+      error -> uiController.showAlert("Error", "Failed to load loan: " + error.getMessage())
+    );
+  }
+
+  private void editLoan(Loan loan){
+    if (loan == null) {
+      uiController.showAlert("Error", "Loan not found for update.");
+      return;
+    }
     isUpdating = true;
     currentLoan = loan;
     userComboBox.setValue(loan.getUser());
@@ -420,32 +554,32 @@ public class LoanManagementController implements IRefreshable {
     saveButton.setText("Update Loan");
   }
   
-  private void handleInfo(Loan loan){
-    String message = "ID: " + loan.getLoanId() + "\n" +
-                     "User Name: " + loan.getUser().getName() + "\n" +
-                     "User Email: " + loan.getUser().getEmail() + "\n" +
-                     "Book Title: " + loan.getBook().getTitle() + "\n" +
-                     "Book Author: " + loan.getBook().getAuthor() + "\n" +
-                     "Loan Date: " + formatDate(loan.getLoanDate()) + "\n" +
-                     "Return Date: " + formatDate(loan.getReturnDate());
+  private void handleInfo(LoanRow loan){
+    String message = "ID: " + loan.loanId() + "\n" +
+                     "User Name: " + loan.userName() + "\n" +
+                     "User Email: " + loan.userEmail() + "\n" +
+                     "Book Title: " + loan.bookTitle() + "\n" +
+                     "Book Author: " + loan.bookAuthor() + "\n" +
+                     "Loan Date: " + formatDate(loan.loanDate()) + "\n" +
+                     "Return Date: " + formatDate(loan.returnDate());
     uiController.showAlert("Loan info", message);
   }
   
-  private void handleReturn(Loan loan){
-    uiController.showConfirmation("Return Book", "Are you sure you want to return this book?", () -> {
-      try {
-        loanDAO.returnLoan(loan);
-        Loan updatedLoan = loanDAO.findById(loan.getLoanId());
-        loans.set(loans.indexOf(loan), updatedLoan);
-        loanListView.setItems(loans);
+  private void handleReturn(LoanRow loan){
+    uiController.showConfirmation("Return Book", "Are you sure you want to return this book?", () -> actions.run(
+      () -> loanDAO.returnLoan(loanDAO.findById(loan.loanId())),
+      () -> {
+        reloadRows();
         uiController.showAlert("Success", "Book returned successfully!");
-      } catch (Exception e) {
-        uiController.showAlert("Error", "Failed to return book: " + e.getMessage());
-      }
-    });
+      },
+      error -> uiController.showAlert("Error", "Failed to return book: " + error.getMessage())
+    ));
   }
 
   private String formatDate(LocalDate date) {
     return date != null ? date.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")) : "N/A";
   }
+
+  private record Search(String text, boolean activeOnly) {
+  }
 }
@@ -0,0 +1,162 @@
+package br.edu.ifba.inf008.plugins.loan.persistence;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.BookLoanStats;
+import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.User;
+import br.edu.ifba.inf008.shell.model.UserLoanStats;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+/**
+ * Várias threads disputam as cópias do mesmo livro: o total de empréstimos nunca
+ * pode passar das cópias existentes e o estoque nunca fica negativo. Com livros
+ * diferentes, nenhuma delas pode falhar por criar a mesma linha de agregado.
+ */
+public class LoanCheckoutStressTest {
+  private static final int COPIES = 400;
+
+  private static EntityManagerFactory emf;
+  private static LoanDAO loanDAO;
+  private static User user;
+
+  @BeforeAll
+  static void setUp() {
+    emf = Persistence.createEntityManagerFactory("bookstore-test-pu", Map.of(
+      "jakarta.persistence.jdbc.url", "jdbc:h2:mem:bookstore_stress;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+      "hibernate.hikari.maximumPoolSize", "16",
+      "hibernate.generate_statistics", "false"
+    ));
+    loanDAO = new LoanDAO(emf::createEntityManager);
+
+    user = new User("Stress", "stress@test.com");
+    try (EntityManager em = emf.createEntityManager()) {
+      em.getTransaction().begin();
+      em.persist(user);
+      em.getTransaction().commit();
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    if (emf != null && emf.isOpen()) {
+      emf.close();
+    }
+  }
+
+  @ParameterizedTest(name = "{0} threads")
+  @ValueSource(ints = {1, 8, 64})
+  void testConcurrentCheckoutsNeverOversell(int threads) throws Exception {
+    Book book = new Book("Contended " + threads, "Author", "stress-" + threads, 2024, COPIES);
+    try (EntityManager em = emf.createEntityManager()) {
+      em.getTransaction().begin();
+      em.persist(book);
+      em.getTransaction().commit();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        int successes = 0;
+        while (true) {
+          try {
+            loanDAO.save(new Loan(user, book, LocalDate.now(), null));
+            successes++;
+          } catch (IllegalStateException e) {
+            return successes;
+          }
+        }
+      }));
+    }
+
+    start.countDown();
+    int successes = 0;
+    for (Future<Integer> result : results) {
+      successes += result.get(2, TimeUnit.MINUTES);
+    }
+    executor.shutdown();
+
+    try (EntityManager em = emf.createEntityManager()) {
+      Long loans = em.createQuery("SELECT COUNT(l) FROM Loan l WHERE l.book.bookId = :bookId", Long.class)
+        .setParameter("bookId", book.getBookId())
+        .getSingleResult();
+      Integer copiesLeft = em.find(Book.class, book.getBookId()).getCopiesAvailable();
+
+      assertEquals(COPIES, successes, "Every copy should be lent exactly once");
+      assertEquals(COPIES, loans.intValue(), "No loan should exist beyond the available copies");
+      assertEquals(0, copiesLeft, "Copies should never go negative");
+    }
+  }
+
+  /**
+   * Primeiro empréstimo de um dia novo, de um usuário novo e de livros novos, em várias threads:
+   * sem bloqueio de livro em comum, todas criam as mesmas linhas de agregado ao mesmo tempo.
+   */
+  @ParameterizedTest(name = "{0} threads")
+  @ValueSource(ints = {8, 32})
+  void testConcurrentFirstCheckoutsOfADayAllSucceed(int threads) throws Exception {
+    LocalDate day = LocalDate.of(2001, 1, 1).plusDays(threads);
+    User borrower = new User("Fresh " + threads, "fresh-" + threads + "@test.com");
+    List<Book> books = new ArrayList<>();
+    try (EntityManager em = emf.createEntityManager()) {
+      em.getTransaction().begin();
+      em.persist(borrower);
+      for (int i = 0; i < threads; i++) {
+        Book book = new Book("Fresh " + threads + "-" + i, "Author", "fresh-" + threads + "-" + i, 2024, 1);
+        em.persist(book);
+        books.add(book);
+      }
+      em.getTransaction().commit();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> results = new ArrayList<>();
+    for (Book book : books) {
+      results.add(executor.submit(() -> {
+        start.await();
+        loanDAO.save(new Loan(borrower, book, day, null));
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> result : results) {
+      result.get(2, TimeUnit.MINUTES);
+    }
+    executor.shutdown();
+
+    try (EntityManager em = emf.createEntityManager()) {
+      Long opened = em.createQuery("SELECT SUM(s.loansOpened) FROM LoanDailyStats s WHERE s.statDate = :day", Long.class)
+        .setParameter("day", day)
+        .getSingleResult();
+      UserLoanStats userStats = em.find(UserLoanStats.class, borrower.getUserId());
+
+      assertEquals(threads, opened.intValue(), "Every checkout should be counted on its day");
+      assertEquals(threads, userStats.getLoansTotal());
+      assertEquals(threads, userStats.getLoansActive());
+      for (Book book : books) {
+        assertEquals(1, em.find(BookLoanStats.class, book.getBookId()).getLoansTotal());
+      }
+    }
+  }
+}
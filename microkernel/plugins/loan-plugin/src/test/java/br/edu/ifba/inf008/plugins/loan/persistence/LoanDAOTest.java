@@ -1,18 +1,38 @@
 package br.edu.ifba.inf008.plugins.loan.persistence;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import br.edu.ifba.inf008.interfaces.SortOrder;
+import br.edu.ifba.inf008.shell.EventBus;
+import br.edu.ifba.inf008.shell.event.EntityEvent;
+import br.edu.ifba.inf008.shell.event.EntityEvent.BookChanged;
+import br.edu.ifba.inf008.shell.event.EntityEvent.Change;
+import br.edu.ifba.inf008.shell.event.EntityEvent.LoanChanged;
 import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.BookLoanStats;
 import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.LoanRow;
 import br.edu.ifba.inf008.shell.model.User;
+import br.edu.ifba.inf008.shell.model.UserLoanStats;
+import br.edu.ifba.inf008.shell.persistence.CacheStatistics;
+import br.edu.ifba.inf008.shell.persistence.LoanStatistics;
+import br.edu.ifba.inf008.shell.persistence.NameIndex;
+import br.edu.ifba.inf008.shell.persistence.TableVersions;
 import jakarta.persistence.EntityManager;
 
 public class LoanDAOTest {
@@ -22,10 +42,13 @@ public class LoanDAOTest {
 
   @BeforeEach
   void setUp() {
-    loanDAO = new LoanDAO();
+    loanDAO = new LoanDAO(TestJPAUtil::getEntityManager);
     em = TestJPAUtil.getEntityManager();
     em.getTransaction().begin();
     em.createQuery("DELETE FROM Loan").executeUpdate();
+    em.createQuery("DELETE FROM LoanDailyStats").executeUpdate();
+    em.createQuery("DELETE FROM BookLoanStats").executeUpdate();
+    em.createQuery("DELETE FROM UserLoanStats").executeUpdate();
     em.createQuery("DELETE FROM Book").executeUpdate();
     em.createQuery("DELETE FROM User").executeUpdate();
     em.getTransaction().commit();
@@ -54,7 +77,7 @@ public class LoanDAOTest {
 
   private Book getManagedBook(Book book) {
     Book managedBook;
-    try (EntityManager emDao = loanDAO.getEntityManager()) {
+    try (EntityManager emDao = TestJPAUtil.getEntityManager()) {
       managedBook = emDao.find(Book.class, book.getBookId());
     }
     return managedBook;
@@ -172,4 +195,324 @@ public class LoanDAOTest {
     assertEquals(1, afterUpdateBook1.getCopiesAvailable());
     assertEquals(0, afterUpdateBook2.getCopiesAvailable());
   }
+
+  @Test
+  void testSaveAllDecrementsCopiesAndRollsBackWhenExhausted() {
+    User user = createUser("User8", "user8@test.com");
+    Book book = createBook("Book8", "Author8", "123456783", 2022, 2);
+    Book managedBook = getManagedBook(book);
+
+    loanDAO.setBatchSize(1);
+    loanDAO.saveAll(List.of(
+      new Loan(user, managedBook, LocalDate.now(), null),
+      new Loan(user, managedBook, LocalDate.now(), null)
+    ));
+    assertEquals(0, getManagedBook(book).getCopiesAvailable());
+
+    List<Loan> exhausted = List.of(new Loan(user, managedBook, LocalDate.now(), null));
+    assertThrows(IllegalStateException.class, () -> loanDAO.saveAll(exhausted));
+    assertEquals(2, loanDAO.findActiveLoans().size(), "Failed batch should not persist any loan");
+  }
+
+  @Test
+  void testStreamAllFetchesUserAndBook() {
+    User user = createUser("Streamer", "streamer@test.com");
+    Book book = createBook("Streamed", "Author", "555000111", 2022, 3);
+    loanDAO.save(new Loan(user, getManagedBook(book), LocalDate.now(), null));
+    loanDAO.save(new Loan(user, getManagedBook(book), LocalDate.now(), null));
+
+    List<Loan> loans;
+    try (Stream<Loan> stream = loanDAO.streamAll()) {
+      loans = stream.toList();
+    }
+
+    assertEquals(2, loans.size());
+    for (Loan loan : loans) {
+      assertEquals("Streamer", loan.getUser().getName(), "User should be fetched with the loan");
+      assertEquals("Streamed", loan.getBook().getTitle(), "Book should be fetched with the loan");
+    }
+  }
+
+  @Test
+  void testCachedBookStaysConsistentAcrossCheckoutAndReturn() {
+    User user = createUser("Cached", "cached@test.com");
+    Book book = createBook("Cached Book", "Author", "777000111", 2022, 2);
+    getManagedBook(book);
+
+    CacheStatistics before = CacheStatistics.of(TestJPAUtil.getEntityManagerFactory());
+    Book cached = getManagedBook(book);
+    CacheStatistics afterRead = CacheStatistics.of(TestJPAUtil.getEntityManagerFactory());
+    assertTrue(afterRead.secondLevelHits() > before.secondLevelHits(), "Second read should hit the cache");
+
+    Loan loan = new Loan(user, cached, LocalDate.now(), null);
+    loanDAO.save(loan);
+    assertEquals(1, getManagedBook(book).getCopiesAvailable(), "Checkout should update the cached book");
+
+    loanDAO.returnLoan(loan);
+    assertEquals(2, getManagedBook(book).getCopiesAvailable(), "Return should update the cached book");
+  }
+
+  @Test
+  void testListBooksUsesQueryCacheUntilBooksChange() {
+    createBook("Listed", "Author", "888000111", 2022, 1);
+
+    loanDAO.listBooks();
+    CacheStatistics before = CacheStatistics.of(TestJPAUtil.getEntityManagerFactory());
+    loanDAO.listBooks();
+    CacheStatistics afterHit = CacheStatistics.of(TestJPAUtil.getEntityManagerFactory());
+    assertEquals(before.queryHits() + 1, afterHit.queryHits(), "Repeated listBooks should hit the query cache");
+
+    createBook("Listed 2", "Author", "888000112", 2022, 1);
+    List<Book> books = loanDAO.listBooks();
+    CacheStatistics afterWrite = CacheStatistics.of(TestJPAUtil.getEntityManagerFactory());
+    assertEquals(afterHit.queryHits(), afterWrite.queryHits(), "A write to books should invalidate the cached query");
+    assertEquals(2, books.size());
+  }
+
+  private List<Loan> assertSingleStatement(String method, Supplier<List<Loan>> query) {
+    Statistics statistics = TestJPAUtil.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    List<Loan> loans = query.get();
+    assertEquals(1, statistics.getPrepareStatementCount(), method + " should run a single SQL statement");
+    assertTrue(loans != null && !loans.isEmpty(), method + " should return loans");
+    for (Loan loan : loans) {
+      assertTrue(Hibernate.isInitialized(loan.getUser()), method + " should fetch the user");
+      assertTrue(Hibernate.isInitialized(loan.getBook()), method + " should fetch the book");
+    }
+    return loans;
+  }
+
+  @Test
+  void testListQueriesFetchUserAndBookInOneStatement() {
+    for (int i = 0; i < 3; i++) {
+      User user = createUser("Graph" + i, "graph" + i + "@test.com");
+      Book book = createBook("Graph Book " + i, "Author", "g" + i, 2022, 1);
+      loanDAO.save(new Loan(user, getManagedBook(book), LocalDate.now(), null));
+    }
+
+    assertSingleStatement("findAll", () -> loanDAO.findAll());
+    assertSingleStatement("findAll(field)", () -> loanDAO.findAll("graph"));
+    assertSingleStatement("findActiveLoans", () -> loanDAO.findActiveLoans());
+    assertSingleStatement("findActiveLoans(field)", () -> loanDAO.findActiveLoans("graph"));
+    assertSingleStatement("findPage", () -> loanDAO.findPage(null, 2, SortOrder.ASCENDING));
+    Integer loanId = loanDAO.findAll().get(0).getLoanId();
+    assertSingleStatement("findById", () -> List.of(loanDAO.findById(loanId)));
+    assertSingleStatement("streamAll", () -> {
+      try (Stream<Loan> loans = loanDAO.streamAll()) {
+        return loans.toList();
+      }
+    });
+  }
+
+  @Test
+  void testFindRowsProjectsLoanColumnsInOneStatement() {
+    User user = createUser("Row User", "row@test.com");
+    Book book = createBook("Row Book", "Row Author", "333000111", 2022, 2);
+    Loan active = new Loan(user, getManagedBook(book), LocalDate.now(), null);
+    loanDAO.save(active);
+    Loan returned = new Loan(user, getManagedBook(book), LocalDate.now().minusDays(5), null);
+    loanDAO.save(returned);
+    loanDAO.returnLoan(returned);
+
+    Statistics statistics = TestJPAUtil.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    List<LoanRow> rows = loanDAO.findRows("row@", false);
+    assertEquals(1, statistics.getPrepareStatementCount(), "findRows should run a single SQL statement");
+    assertEquals(0, statistics.getEntityLoadCount(), "findRows should not load entities");
+    assertEquals(2, rows.size());
+
+    List<LoanRow> activeRows = loanDAO.findRows(null, true);
+    assertEquals(1, activeRows.size());
+    LoanRow row = activeRows.get(0);
+    assertEquals(active.getLoanId(), row.loanId());
+    assertEquals("Row User", row.userName());
+    assertEquals("row@test.com", row.userEmail());
+    assertEquals("Row Book", row.bookTitle());
+    assertEquals("Row Author", row.bookAuthor());
+    assertTrue(row.isActive());
+    assertEquals(row, loanDAO.findRow(active.getLoanId()));
+  }
+
+  @Test
+  void testCheckoutAndReturnKeepOtherBooksInTheSecondLevelCache() {
+    User user = createUser("Cache User", "cache@test.com");
+    Book taken = createBook("Cache Taken", "Author", "666000111", 2022, 2);
+    Book other = createBook("Cache Other", "Author", "666000222", 2022, 2);
+    getManagedBook(other);
+
+    Loan loan = new Loan(user, getManagedBook(taken), LocalDate.now(), null);
+    loanDAO.save(loan);
+    Statistics statistics = TestJPAUtil.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    getManagedBook(other);
+    assertEquals(1, statistics.getSecondLevelCacheHitCount(), "A checkout should not evict unrelated books");
+    assertEquals(1, getManagedBook(taken).getCopiesAvailable());
+
+    loanDAO.returnLoan(loan);
+    statistics.clear();
+    getManagedBook(other);
+    assertEquals(1, statistics.getSecondLevelCacheHitCount(), "A return should not evict unrelated books");
+    assertEquals(2, getManagedBook(taken).getCopiesAvailable());
+  }
+
+  @Test
+  void testPagedRowsAreFilteredAndSortedInTheQuery() {
+    User user = createUser("Page User", "page@test.com");
+    User other = createUser("Other User", "other@test.com");
+    Book book = createBook("Page Book", "Page Author", "333000222", 2022, 10);
+    for (int i = 0; i < 5; i++) {
+      loanDAO.save(new Loan(i < 4 ? user : other, getManagedBook(book), LocalDate.now(), null));
+    }
+
+    assertEquals(4, loanDAO.countRows("page@", false));
+    List<LoanRow> all = loanDAO.findRows("page@", false);
+    List<LoanRow> firstPage = loanDAO.findRows("page@", false, 0, 3, SortOrder.ASCENDING);
+    List<LoanRow> lastPage = loanDAO.findRows("page@", false, 3, 3, SortOrder.ASCENDING);
+    assertEquals(3, firstPage.size());
+    assertEquals(1, lastPage.size());
+    assertTrue(firstPage.get(0).loanId() < firstPage.get(2).loanId());
+    assertTrue(firstPage.get(2).loanId() < lastPage.get(0).loanId());
+    assertEquals(all.size(), firstPage.size() + lastPage.size());
+
+    List<LoanRow> descending = loanDAO.findRows(null, true, 0, 1, SortOrder.DESCENDING);
+    assertEquals(5, loanDAO.countRows(null, true));
+    assertEquals("Other User", descending.get(0).userName());
+  }
+
+  @Test
+  void testCheckoutCountsAsAWriteToLoansAndBooksOnly() {
+    User user = createUser("Mark User", "mark@test.com");
+    Book book = createBook("Mark Book", "Mark Author", "333000333", 2022, 1);
+    long loans = loanDAO.dataVersion(Loan.class);
+    long books = loanDAO.dataVersion(Book.class);
+    long users = loanDAO.dataVersion(User.class);
+
+    loanDAO.save(new Loan(user, getManagedBook(book), LocalDate.now(), null));
+
+    assertEquals(loans + 1, loanDAO.dataVersion(Loan.class));
+    assertEquals(books + 1, loanDAO.dataVersion(Book.class), "Stock changed, so book lists must refresh");
+    assertEquals(users, loanDAO.dataVersion(User.class), "User lists should not refresh");
+  }
+
+  @Test
+  void testWritesPublishLoanAndStockEventsAfterCommit() {
+    List<Object> events = new ArrayList<>();
+    EventBus bus = new EventBus(Runnable::run, 100);
+    bus.subscribe(EntityEvent.class, events::add);
+    loanDAO.setEventBus(bus);
+    User user = createUser("Event User", "event@test.com");
+    Book book = createBook("Event Book", "Event Author", "333000444", 2022, 1);
+
+    Loan loan = new Loan(user, getManagedBook(book), LocalDate.now(), null);
+    loanDAO.save(loan);
+    assertEquals(List.of(new BookChanged(book.getBookId(), Change.UPDATED), new LoanChanged(loan.getLoanId(), Change.CREATED)), events);
+
+    events.clear();
+    assertThrows(IllegalStateException.class,
+      () -> loanDAO.save(new Loan(user, getManagedBook(book), LocalDate.now(), null)));
+    assertTrue(events.isEmpty(), "A rolled back checkout should not publish anything");
+
+    loanDAO.returnLoan(loan);
+    assertEquals(List.of(new BookChanged(book.getBookId(), Change.UPDATED), new LoanChanged(loan.getLoanId(), Change.UPDATED)), events);
+  }
+
+  @Test
+  void testCompleteUsersAndBooksFromSharedNameIndex() {
+    NameIndex.USERS.clear();
+    NameIndex.BOOKS.clear();
+    User ana = createUser("Ana Lima", "ana@test.com");
+    User bruno = createUser("Bruno Anacleto", "bruno@test.com");
+    createUser("Carla Souza", "carla@test.com");
+    Book book = createBook("O Cortiço", "Aluísio Azevedo", "111", 1890, 1);
+    loanDAO.refreshNameIndexes();
+
+    assertArrayEquals(new int[] {ana.getUserId(), bruno.getUserId()}, loanDAO.completeUsers("ana", 10),
+      "Names starting with the text should come before later words");
+    assertArrayEquals(new int[] {book.getBookId()}, loanDAO.completeBooks("cortico", 10));
+
+    NameIndex.USERS.put(ana.getUserId(), "Beatriz Lima");
+    assertArrayEquals(new int[] {bruno.getUserId()}, loanDAO.completeUsers("ana", 10),
+      "Writes through the shared index should be visible without reloading");
+  }
+
+  @Test
+  void testRefreshReloadsNamesWrittenAtAnotherDesk() {
+    NameIndex.USERS.clear();
+    NameIndex.BOOKS.clear();
+    User ana = createUser("Desk Ana", "desk.ana@test.com");
+    loanDAO.refreshNameIndexes();
+    assertArrayEquals(new int[] {ana.getUserId()}, loanDAO.completeUsers("desk", 10));
+    assertArrayEquals(new int[0], loanDAO.completeBooks("desk", 10));
+
+    // Outro terminal grava e soma a versão no banco, sem passar pelo índice deste processo
+    User other = new User("Desk Otto", "desk.otto@test.com");
+    Book book = new Book("Desk Manual", "Author", "555000111", 2020, 1);
+    em.getTransaction().begin();
+    em.persist(other);
+    em.persist(book);
+    TableVersions.bump(em, List.of(User.class.getSimpleName(), TableVersions.BOOK_CATALOG));
+    em.getTransaction().commit();
+    assertArrayEquals(new int[] {ana.getUserId()}, loanDAO.completeUsers("desk", 10),
+      "Completion should only read the index in memory");
+
+    loanDAO.refreshNameIndexes();
+    assertArrayEquals(new int[] {ana.getUserId(), other.getUserId()}, loanDAO.completeUsers("desk", 10));
+    assertArrayEquals(new int[] {book.getBookId()}, loanDAO.completeBooks("desk", 10));
+  }
+
+  @Test
+  void testStatisticsFollowEveryLoanWriteLikeARebuild() {
+    User ana = createUser("Stats Ana", "stats.ana@test.com");
+    User bia = createUser("Stats Bia", "stats.bia@test.com");
+    Book first = createBook("Stats Book A", "Author", "444000111", 2022, 3);
+    Book second = createBook("Stats Book B", "Author", "444000222", 2022, 3);
+    LocalDate day = LocalDate.of(2024, 3, 1);
+
+    Loan kept = new Loan(ana, getManagedBook(first), day, null);
+    Loan moved = new Loan(bia, getManagedBook(first), day, null);
+    loanDAO.save(kept);
+    loanDAO.save(moved);
+    assertEquals("2024-03-01:2:0,|" + first.getBookId() + ":2:2,|"
+      + ana.getUserId() + ":1:1," + bia.getUserId() + ":1:1,", statistics());
+    assertMatchesRebuild("after checkout");
+
+    loanDAO.returnLoan(kept);
+    assertMatchesRebuild("after return");
+
+    moved.setBook(getManagedBook(second));
+    moved.setLoanDate(day.plusDays(1));
+    loanDAO.update(moved);
+    assertMatchesRebuild("after update");
+
+    loanDAO.delete(moved);
+    assertMatchesRebuild("after delete");
+    assertEquals(-1, statistics().indexOf(bia.getUserId() + ":"), "Emptied rows should be removed");
+  }
+
+  /** Os três agregados numa linha, ordenados e com os slots de cada dia somados, para comparar com o rebuild. */
+  private static String statistics() {
+    try (EntityManager emStats = TestJPAUtil.getEntityManager()) {
+      StringBuilder text = new StringBuilder();
+      emStats.createQuery("SELECT s.statDate, SUM(s.loansOpened), SUM(s.loansReturned) FROM LoanDailyStats s"
+          + " GROUP BY s.statDate ORDER BY s.statDate", Object[].class).getResultList()
+        .forEach(s -> text.append(s[0]).append(':').append(s[1]).append(':').append(s[2]).append(','));
+      text.append('|');
+      emStats.createQuery("SELECT s FROM BookLoanStats s ORDER BY s.bookId", BookLoanStats.class).getResultList()
+        .forEach(s -> text.append(s.getBookId()).append(':').append(s.getLoansTotal()).append(':').append(s.getLoansActive()).append(','));
+      text.append('|');
+      emStats.createQuery("SELECT s FROM UserLoanStats s ORDER BY s.userId", UserLoanStats.class).getResultList()
+        .forEach(s -> text.append(s.getUserId()).append(':').append(s.getLoansTotal()).append(':').append(s.getLoansActive()).append(','));
+      return text.toString();
+    }
+  }
+
+  private static void assertMatchesRebuild(String when) {
+    String maintained = statistics();
+    try (EntityManager emStats = TestJPAUtil.getEntityManager()) {
+      emStats.getTransaction().begin();
+      LoanStatistics.rebuild(emStats);
+      emStats.getTransaction().commit();
+    }
+    assertEquals(statistics(), maintained, "Incremental statistics should match a rebuild " + when);
+  }
 }
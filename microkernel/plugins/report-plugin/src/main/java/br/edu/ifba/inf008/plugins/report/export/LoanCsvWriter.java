@@ -0,0 +1,174 @@
+package br.edu.ifba.inf008.plugins.report.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import br.edu.ifba.inf008.shell.model.LoanRow;
+
+/**
+ * Escreve {@link LoanRow}s em CSV (UTF-8) num canal. Cada campo é codificado direto num buffer
+ * de tamanho fixo, despejado no canal quando enche: não há String por linha nem
+ * {@code String.format}, e a memória usada não depende do número de linhas.
+ */
+public class LoanCsvWriter implements Closeable {
+  public static final String HEADER = "Loan ID,User Name,User Email,Book Title,Book Author,Loan Date,Return Date";
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] digits = new byte[11];
+
+  public LoanCsvWriter(WritableByteChannel channel) {
+    this(channel, BUFFER_SIZE);
+  }
+
+  LoanCsvWriter(WritableByteChannel channel, int bufferSize) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  public void writeHeader() throws IOException {
+    writeChars(HEADER, false);
+    newLine();
+  }
+
+  /** Datas no formato da tela (dd/MM/yyyy); texto com vírgula, aspas ou quebra de linha vai entre aspas. */
+  public void write(LoanRow row) throws IOException {
+    writeInt(row.loanId());
+    put((byte) ',');
+    writeField(row.userName());
+    put((byte) ',');
+    writeField(row.userEmail());
+    put((byte) ',');
+    writeField(row.bookTitle());
+    put((byte) ',');
+    writeField(row.bookAuthor());
+    put((byte) ',');
+    writeDate(row.loanDate());
+    put((byte) ',');
+    writeDate(row.returnDate());
+    newLine();
+  }
+
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void writeField(String value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    if (needsQuotes(value)) {
+      put((byte) '"');
+      writeChars(value, true);
+      put((byte) '"');
+    } else {
+      writeChars(value, false);
+    }
+  }
+
+  private static boolean needsQuotes(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Codifica em UTF-8 à mão; pares substitutos incompletos viram '?', como no encoder padrão. */
+  private void writeChars(String value, boolean doubleQuotes) throws IOException {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        if (c == '"' && doubleQuotes) {
+          put((byte) '"');
+        }
+        put((byte) c);
+      } else if (c < 0x800) {
+        put((byte) (0xC0 | c >> 6));
+        put((byte) (0x80 | c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        put((byte) (0xF0 | codePoint >> 18));
+        put((byte) (0x80 | codePoint >> 12 & 0x3F));
+        put((byte) (0x80 | codePoint >> 6 & 0x3F));
+        put((byte) (0x80 | codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        put((byte) '?');
+      } else {
+        put((byte) (0xE0 | c >> 12));
+        put((byte) (0x80 | c >> 6 & 0x3F));
+        put((byte) (0x80 | c & 0x3F));
+      }
+    }
+  }
+
+  private void writeDate(LocalDate date) throws IOException {
+    if (date == null) {
+      return;
+    }
+    writePadded(date.getDayOfMonth(), 2);
+    put((byte) '/');
+    writePadded(date.getMonthValue(), 2);
+    put((byte) '/');
+    writePadded(date.getYear(), 4);
+  }
+
+  private void writeInt(Integer value) throws IOException {
+    if (value != null) {
+      writePadded(value, 1);
+    }
+  }
+
+  private void writePadded(int value, int width) throws IOException {
+    long remaining = Math.abs((long) value);
+    int length = 0;
+    do {
+      digits[length++] = (byte) ('0' + remaining % 10);
+      remaining /= 10;
+    } while (remaining > 0);
+    if (value < 0) {
+      put((byte) '-');
+    }
+    for (int i = length; i < width; i++) {
+      put((byte) '0');
+    }
+    while (length > 0) {
+      put(digits[--length]);
+    }
+  }
+
+  private void newLine() throws IOException {
+    for (byte b : LINE_SEPARATOR) {
+      put(b);
+    }
+  }
+
+  private void put(byte b) throws IOException {
+    if (!buffer.hasRemaining()) {
+      flush();
+    }
+    buffer.put(b);
+  }
+}
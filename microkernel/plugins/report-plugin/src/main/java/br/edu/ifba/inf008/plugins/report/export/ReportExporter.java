@@ -0,0 +1,85 @@
+package br.edu.ifba.inf008.plugins.report.export;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import br.edu.ifba.inf008.plugins.report.persistence.LoanFilter;
+import br.edu.ifba.inf008.plugins.report.persistence.ReportDAO;
+import br.edu.ifba.inf008.shell.model.LoanRow;
+
+/**
+ * Exporta um relatório para CSV sem passar pela tabela da tela: as linhas vêm do cursor de
+ * {@link ReportDAO#streamRows} e vão direto para um {@link LoanCsvWriter}, uma por vez.
+ * O CSV é escrito num arquivo temporário ao lado do destino e só o substitui no fim, então
+ * um cancelamento ou erro não deixa um arquivo pela metade.
+ */
+public class ReportExporter {
+  /** Linhas entre avisos de progresso e verificações de cancelamento. */
+  static final int PROGRESS_INTERVAL = 10_000;
+
+  /** Chamado a cada {@link #PROGRESS_INTERVAL} linhas e no fim, na thread da exportação. */
+  @FunctionalInterface
+  public interface Progress {
+    void update(long written, long total);
+  }
+
+  private final ReportDAO reportDAO;
+
+  public ReportExporter(ReportDAO reportDAO) {
+    this.reportDAO = reportDAO;
+  }
+
+  /**
+   * Grava em {@code target} as linhas de {@code filter} (as mesmas de {@link ReportDAO#findRows})
+   * e devolve quantas foram escritas.
+   *
+   * @throws CancellationException se {@code cancelled} responder verdadeiro no meio da exportação
+   */
+  public long export(LoanFilter filter, Path target, Progress progress, BooleanSupplier cancelled) throws IOException {
+    long total = reportDAO.countRows(filter);
+    progress.update(0, total);
+
+    Path directory = target.toAbsolutePath().getParent();
+    Path partial = Files.createTempFile(directory, target.getFileName() + ".", ".part");
+    long written = 0;
+    try {
+      try (LoanCsvWriter writer = new LoanCsvWriter(FileChannel.open(partial, StandardOpenOption.WRITE));
+           Stream<LoanRow> rows = reportDAO.streamRows(filter)) {
+        writer.writeHeader();
+        Iterator<LoanRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+          writer.write(iterator.next());
+          if (++written % PROGRESS_INTERVAL == 0) {
+            if (cancelled.getAsBoolean()) {
+              throw new CancellationException("Export cancelled after " + written + " rows");
+            }
+            // Linhas inseridas depois da contagem não fazem a barra passar do fim
+            progress.update(written, Math.max(total, written));
+          }
+        }
+      }
+      move(partial, target);
+    } finally {
+      Files.deleteIfExists(partial);
+    }
+    progress.update(written, written);
+    return written;
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
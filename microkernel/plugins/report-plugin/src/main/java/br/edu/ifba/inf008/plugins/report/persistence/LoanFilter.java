@@ -0,0 +1,78 @@
+package br.edu.ifba.inf008.plugins.report.persistence;
+
+import java.time.LocalDate;
+
+import br.edu.ifba.inf008.interfaces.SortOrder;
+
+/**
+ * Critérios de uma consulta de relatório do {@link ReportDAO}. Campos nulos não filtram; as
+ * datas são da retirada e inclusivas. Imutável: os métodos {@code with...} devolvem cópias.
+ *
+ * @param from   primeiro dia de retirada, ou nulo para sem limite inferior
+ * @param to     último dia de retirada, ou nulo para sem limite superior
+ * @param active {@code true} só ativos, {@code false} só devolvidos, nulo para todos
+ * @param userId só empréstimos deste usuário
+ * @param bookId só empréstimos deste livro
+ * @param order  ordem pelo id do empréstimo
+ * @param limit  máximo de linhas, ou 0 para todas
+ */
+public record LoanFilter(LocalDate from, LocalDate to, Boolean active, Integer userId, Integer bookId,
+                         SortOrder order, int limit) {
+  private static final LoanFilter ALL = new LoanFilter(null, null, null, null, null, SortOrder.ASCENDING, 0);
+
+  public LoanFilter {
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new IllegalArgumentException("from must not be after to: " + from + " > " + to);
+    }
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
+    if (order == null) {
+      order = SortOrder.ASCENDING;
+    }
+  }
+
+  /** Todos os empréstimos, em ordem de id. */
+  public static LoanFilter all() {
+    return ALL;
+  }
+
+  /**
+   * O período dos tipos de busca da tela ({@code allTime}, {@code before}, {@code after},
+   * {@code onDate} e {@code between}); {@code finalDate} só conta em {@code between}.
+   */
+  public static LoanFilter of(String searchType, LocalDate initialDate, LocalDate finalDate) {
+    return switch (searchType) {
+      case "allTime" -> ALL;
+      case "before" -> ALL.withDates(null, initialDate);
+      case "after" -> ALL.withDates(initialDate, null);
+      case "onDate" -> ALL.withDates(initialDate, initialDate);
+      case "between" -> ALL.withDates(initialDate, finalDate);
+      default -> throw new IllegalArgumentException("Invalid search type: " + searchType);
+    };
+  }
+
+  public LoanFilter withDates(LocalDate from, LocalDate to) {
+    return new LoanFilter(from, to, active, userId, bookId, order, limit);
+  }
+
+  public LoanFilter withActive(Boolean active) {
+    return new LoanFilter(from, to, active, userId, bookId, order, limit);
+  }
+
+  public LoanFilter withUser(Integer userId) {
+    return new LoanFilter(from, to, active, userId, bookId, order, limit);
+  }
+
+  public LoanFilter withBook(Integer bookId) {
+    return new LoanFilter(from, to, active, userId, bookId, order, limit);
+  }
+
+  public LoanFilter withOrder(SortOrder order) {
+    return new LoanFilter(from, to, active, userId, bookId, order, limit);
+  }
+
+  public LoanFilter withLimit(int limit) {
+    return new LoanFilter(from, to, active, userId, bookId, order, limit);
+  }
+}
@@ -0,0 +1,86 @@
+package br.edu.ifba.inf008.plugins.report.persistence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.edu.ifba.inf008.interfaces.SortOrder;
+import br.edu.ifba.inf008.shell.model.LoanRow;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Traduz um {@link LoanFilter} em JPQL. O texto depende só de quais critérios estão presentes
+ * (o "formato"), nunca dos valores, que vão como parâmetros: cada formato gera sempre a mesma
+ * string, montada uma vez e guardada aqui, e o Hibernate interpreta cada uma só uma vez no
+ * cache de planos. São no máximo 96 formatos por projeção, qualquer que seja a combinação.
+ */
+final class LoanQueries {
+  /** Empréstimos como entidades; o grafo de entidade escolhe o que vem junto. */
+  static final String LOANS = "SELECT l FROM Loan l";
+  static final String ROWS = LoanRow.SELECT_FROM;
+  static final String COUNT = "SELECT COUNT(l) FROM Loan l";
+
+  private static final int FROM = 1;
+  private static final int TO = 1 << 1;
+  private static final int ACTIVE = 1 << 2;
+  private static final int RETURNED = 1 << 3;
+  private static final int USER = 1 << 4;
+  private static final int BOOK = 1 << 5;
+  private static final int DESCENDING = 1 << 6;
+
+  private record Key(String select, int shape, boolean ordered) {}
+
+  private static final Map<Key, String> JPQL = new ConcurrentHashMap<>();
+
+  private LoanQueries() {}
+
+  /** JPQL de {@code select} com os filtros de {@code filter} e, se {@code ordered}, a ordenação. */
+  static String jpql(String select, LoanFilter filter, boolean ordered) {
+    return JPQL.computeIfAbsent(new Key(select, shape(filter), ordered), LoanQueries::build);
+  }
+
+  /** Preenche os parâmetros que {@link #jpql} declarou para {@code filter} e aplica o limite. */
+  static <R> TypedQuery<R> bind(TypedQuery<R> query, LoanFilter filter) {
+    if (filter.from() != null) {
+      query.setParameter("from", filter.from());
+    }
+    if (filter.to() != null) {
+      query.setParameter("to", filter.to());
+    }
+    if (filter.userId() != null) {
+      query.setParameter("userId", filter.userId());
+    }
+    if (filter.bookId() != null) {
+      query.setParameter("bookId", filter.bookId());
+    }
+    if (filter.limit() > 0) {
+      query.setMaxResults(filter.limit());
+    }
+    return query;
+  }
+
+  private static int shape(LoanFilter filter) {
+    int shape = 0;
+    if (filter.from() != null) shape |= FROM;
+    if (filter.to() != null) shape |= TO;
+    if (filter.active() != null) shape |= filter.active() ? ACTIVE : RETURNED;
+    if (filter.userId() != null) shape |= USER;
+    if (filter.bookId() != null) shape |= BOOK;
+    if (filter.order() == SortOrder.DESCENDING) shape |= DESCENDING;
+    return shape;
+  }
+
+  private static String build(Key key) {
+    StringBuilder jpql = new StringBuilder(key.select()).append(" WHERE 1 = 1");
+    int shape = key.shape();
+    if ((shape & FROM) != 0) jpql.append(" AND l.loanDate >= :from");
+    if ((shape & TO) != 0) jpql.append(" AND l.loanDate <= :to");
+    if ((shape & ACTIVE) != 0) jpql.append(" AND l.returnDate IS NULL");
+    if ((shape & RETURNED) != 0) jpql.append(" AND l.returnDate IS NOT NULL");
+    if ((shape & USER) != 0) jpql.append(" AND l.user.userId = :userId");
+    if ((shape & BOOK) != 0) jpql.append(" AND l.book.bookId = :bookId");
+    if (key.ordered()) {
+      jpql.append(" ORDER BY l.loanId").append((shape & DESCENDING) != 0 ? " DESC" : " ASC");
+    }
+    return jpql.toString();
+  }
+}
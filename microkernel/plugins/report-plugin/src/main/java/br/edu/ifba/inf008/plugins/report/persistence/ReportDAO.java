@@ -1,146 +1,205 @@
 package br.edu.ifba.inf008.plugins.report.persistence;
 
-import java.lang.reflect.InvocationTargetException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.query.Query;
+
+import br.edu.ifba.inf008.shell.model.BookLoanStats;
 import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.LoanRow;
+import br.edu.ifba.inf008.shell.model.LoanSummary;
+import br.edu.ifba.inf008.shell.model.UserLoanStats;
 import br.edu.ifba.inf008.shell.persistence.BaseDAO;
+import br.edu.ifba.inf008.shell.persistence.EntityManagerProvider;
+import br.edu.ifba.inf008.shell.persistence.LoanStatistics;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 
+/**
+ * Consultas de relatório. Os filtros chegam como {@link LoanFilter} e viram JPQL por
+ * {@link LoanQueries}, uma string fixa por combinação de critérios.
+ */
 public class ReportDAO extends BaseDAO<Loan, Integer>{
-  private String getQuery(String searchType){
-    String baseQuery = "SELECT l FROM Loan l JOIN l.user u JOIN l.book b";
+  /** Soma do período nos agregados diários, indexada por (tem início) + 2 * (tem fim). */
+  private static final String[] PERIOD_TOTALS = new String[4];
 
-    switch (searchType) {
-      case "allTime" -> {
-        return baseQuery;
-      }
-      case "before" -> {
-        return baseQuery + " WHERE l.loanDate <= :initialDate";
-      }
-      case "after" -> {
-        return baseQuery + " WHERE l.loanDate >= :initialDate";
-      }
-      case "onDate" -> {
-        return baseQuery + " WHERE l.loanDate = :initialDate";
-      }
-      case "between" -> {
-        return baseQuery + " WHERE l.loanDate BETWEEN :initialDate AND :finalDate";
-      }
-      default -> throw new IllegalArgumentException("Invalid search type: " + searchType);
-    }
+  static {
+    String select = "SELECT COALESCE(SUM(s.loansOpened), 0), COALESCE(SUM(s.loansReturned), 0) FROM LoanDailyStats s";
+    PERIOD_TOTALS[0] = select;
+    PERIOD_TOTALS[1] = select + " WHERE s.statDate >= :from";
+    PERIOD_TOTALS[2] = select + " WHERE s.statDate <= :to";
+    PERIOD_TOTALS[3] = select + " WHERE s.statDate >= :from AND s.statDate <= :to";
   }
 
-  private String addStatusFilter(String baseQuery, boolean isActive) {
-    if (baseQuery.contains("WHERE")) {
-        return baseQuery + (isActive ? " AND l.returnDate IS NULL" : " AND l.returnDate IS NOT NULL");
-    } else {
-        return baseQuery + (isActive ? " WHERE l.returnDate IS NULL" : " WHERE l.returnDate IS NOT NULL");
-    }
-}
+  public ReportDAO() {
+    super();
+  }
+
+  public ReportDAO(EntityManagerProvider entityManagerProvider) {
+    super(entityManagerProvider);
+  }
+
+  @Override
+  protected String getDefaultEntityGraph() {
+    return Loan.GRAPH_REPORT;
+  }
 
   @Override
   protected Class<Loan> getEntityClass() {
     return Loan.class;
   }
 
-  @Override  
-  protected EntityManager getEntityManager() {
-    if (isTestEnvironment()) {
-      try {
-        Class<?> testJPAUtilClass = Class.forName("br.edu.ifba.inf008.plugins.report.persistence.TestJPAUtil");
-        java.lang.reflect.Method getEntityManagerMethod = testJPAUtilClass.getMethod("getEntityManager");
-        return (EntityManager) getEntityManagerMethod.invoke(null);
-      } catch (ClassNotFoundException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-        return super.getEntityManager();
-      }
+  @Override
+  public List<Loan> findAll(){
+    return find(LoanFilter.all());
+  }
+
+  /** Empréstimos que atendem {@code filter}, com usuário e livro na mesma consulta. */
+  public List<Loan> find(LoanFilter filter) {
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<Loan> query = em.createQuery(LoanQueries.jpql(LoanQueries.LOANS, filter, true), Loan.class);
+      return LoanQueries.bind(withEntityGraph(em, query, Loan.GRAPH_REPORT), filter).getResultList();
     }
-    return super.getEntityManager();
   }
 
-  private boolean isTestEnvironment() {
-    String stackTrace = java.util.Arrays.toString(Thread.currentThread().getStackTrace());
-    return stackTrace.contains("Test") || 
-           System.getProperty("surefire.test.class.path") != null;
+  /** {@code searchType} é um dos tipos de {@link LoanFilter#of}; "between" sem data final vira "after". */
+  public List<Loan> findByInitialDate(LocalDate initialDate, String searchType){
+    return find(LoanFilter.of(searchType, initialDate, null));
+  }
+
+  public List<Loan> findByInitialAndFinalDate(LocalDate initialDate, LocalDate finalDate){
+    return find(LoanFilter.of("between", initialDate, finalDate));
   }
 
-  @Override
-  public List<Loan> findAll(){
-    try (EntityManager em = getEntityManager()){
-      try{
-        return em.createQuery(
-          getQuery("allTime"), Loan.class)
-          .getResultList();
-      } finally {
-        em.close();
-      }
+  public List<Loan> findByStatus(boolean isActive) {
+    return find(LoanFilter.all().withActive(isActive));
+  }
+
+  public List<Loan> findByStatusAndInitialDate(boolean isActive, LocalDate initialDate, String searchType) {
+    return find(LoanFilter.of(searchType, initialDate, null).withActive(isActive));
+  }
+
+  public List<Loan> findByStatusAndInitialAndFinalDate(boolean isActive, LocalDate initialDate, LocalDate finalDate) {
+    return find(LoanFilter.of("between", initialDate, finalDate).withActive(isActive));
+  }
+
+  /** Projeção para a tabela de relatório. */
+  public List<LoanRow> findRows(LoanFilter filter) {
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<LoanRow> query = em.createQuery(LoanQueries.jpql(LoanQueries.ROWS, filter, true), LoanRow.class);
+      return LoanQueries.bind(query, filter).getResultList();
     }
   }
 
-  public List<Loan> findByInitialDate(LocalDate initialDate, String searchType){
-    try (EntityManager em = getEntityManager()){
-      try{
-        return em.createQuery(
-          getQuery(searchType), Loan.class)
-          .setParameter("initialDate", initialDate)
-          .getResultList();
-      } finally {
-        em.close();
-      }
+  /**
+   * As mesmas linhas de {@link #findRows}, lidas por um cursor forward-only numa
+   * StatelessSession com {@link #getFetchSize()} linhas por ida ao banco: a memória não
+   * cresce com o resultado. Uma exportação longa usa uma conexão fora do pool (ver
+   * {@link BaseDAO#stream}). O stream precisa ser fechado, o que libera a sessão.
+   */
+  public Stream<LoanRow> streamRows(LoanFilter filter) {
+    return stream(session -> {
+      Query<LoanRow> query = session.createQuery(LoanQueries.jpql(LoanQueries.ROWS, filter, true), LoanRow.class);
+      LoanQueries.bind(query, filter);
+      return query;
+    });
+  }
+
+
+  /**
+   * Quantas linhas {@link #findRows} e {@link #streamRows} devolvem, sem carregá-las; para contar
+   * por status, {@code LoanFilter.all().withActive(...)}.
+   */
+  public long countRows(LoanFilter filter) {
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<Long> query = em.createQuery(LoanQueries.jpql(LoanQueries.COUNT, filter, false), Long.class);
+      long count = LoanQueries.bind(query, filter).getSingleResult();
+      return filter.limit() > 0 ? Math.min(count, filter.limit()) : count;
     }
   }
 
-  public List<Loan> findByInitialAndFinalDate(LocalDate initialDate, LocalDate finalDate){
-    try (EntityManager em = getEntityManager()){
-      try{
-        return em.createQuery(
-          getQuery("between"), Loan.class)
-          .setParameter("initialDate", initialDate)
-          .setParameter("finalDate", finalDate)
-          .getResultList();
-      } finally {
-        em.close();
+  /**
+   * Resumo do período de {@code filter} pelos agregados diários: soma poucas linhas por dia
+   * (os slots), sem percorrer os empréstimos. Os agregados só se dividem por dia, então os
+   * demais critérios não contam. Devolvidos são as devoluções feitas no período, de
+   * empréstimos de qualquer data.
+   */
+  public LoanSummary summarize(LoanFilter filter) {
+    LocalDate from = filter.from();
+    LocalDate to = filter.to();
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<Object[]> period = em.createQuery(
+        PERIOD_TOTALS[(from != null ? 1 : 0) + (to != null ? 2 : 0)], Object[].class);
+      if (from != null) {
+        period.setParameter("from", from);
       }
+      if (to != null) {
+        period.setParameter("to", to);
+      }
+      Object[] totals = period.getSingleResult();
+      long activeAtStart = from == null ? 0 : activeBefore(em, from);
+      long opened = ((Number) totals[0]).longValue();
+      long returned = ((Number) totals[1]).longValue();
+      return new LoanSummary(from, to, opened, returned, activeAtStart, activeAtStart + opened - returned);
     }
   }
 
-  public List<Loan> findByStatus(boolean isActive) {
+  private static long activeBefore(EntityManager em, LocalDate day) {
+    return em.createQuery(
+        "SELECT COALESCE(SUM(s.loansOpened - s.loansReturned), 0) FROM LoanDailyStats s WHERE s.statDate < :from", Long.class)
+      .setParameter("from", day)
+      .getSingleResult();
+  }
+
+  /**
+   * Um {@link LoanSummary} por dia com movimento entre as datas, com os ativos acumulados;
+   * os slots de cada dia são somados no banco.
+   */
+  public List<LoanSummary> findDailySummaries(LocalDate initialDate, LocalDate finalDate) {
     try (EntityManager em = getEntityManager()) {
-      try{
-        return em.createQuery(
-          addStatusFilter(getQuery("allTime"), isActive), Loan.class
-        ).getResultList();
-      } finally {
-        em.close();
+      long active = activeBefore(em, initialDate);
+      List<Object[]> days = em.createQuery(
+          "SELECT s.statDate, SUM(s.loansOpened), SUM(s.loansReturned) FROM LoanDailyStats s"
+            + " WHERE s.statDate BETWEEN :from AND :to GROUP BY s.statDate ORDER BY s.statDate", Object[].class)
+        .setParameter("from", initialDate)
+        .setParameter("to", finalDate)
+        .getResultList();
+      List<LoanSummary> summaries = new ArrayList<>(days.size());
+      for (Object[] day : days) {
+        LocalDate date = (LocalDate) day[0];
+        long opened = ((Number) day[1]).longValue();
+        long returned = ((Number) day[2]).longValue();
+        long activeAtEnd = active + opened - returned;
+        summaries.add(new LoanSummary(date, date, opened, returned, active, activeAtEnd));
+        active = activeAtEnd;
       }
+      return summaries;
     }
   }
-  
-  public List<Loan> findByStatusAndInitialDate(boolean isActive, LocalDate initialDate, String searchType) {
+
+  /** Livros mais emprestados desde sempre, pelo agregado por livro. */
+  public List<BookLoanStats> findMostLoanedBooks(int limit) {
     try (EntityManager em = getEntityManager()) {
-      try{
-        return em.createQuery(
-          addStatusFilter(getQuery("allTime"), isActive), Loan.class
-          ).setParameter("initialDate", initialDate)
-          .getResultList();
-      } finally {
-        em.close();
-      }
+      return em.createQuery("SELECT s FROM BookLoanStats s ORDER BY s.loansTotal DESC, s.bookId", BookLoanStats.class)
+        .setMaxResults(limit)
+        .getResultList();
     }
   }
-  
-  public List<Loan> findByStatusAndInitialAndFinalDate(boolean isActive, LocalDate initialDate, LocalDate finalDate) {
+
+  /** Usuários com mais empréstimos desde sempre, pelo agregado por usuário. */
+  public List<UserLoanStats> findMostActiveBorrowers(int limit) {
     try (EntityManager em = getEntityManager()) {
-      try{
-        return em.createQuery(
-          addStatusFilter(getQuery("between"), isActive), Loan.class
-          ).setParameter("initialDate", initialDate)
-          .setParameter("finalDate", finalDate)
-          .getResultList();
-      } finally {
-        em.close();
-      }
+      return em.createQuery("SELECT s FROM UserLoanStats s ORDER BY s.loansTotal DESC, s.userId", UserLoanStats.class)
+        .setMaxResults(limit)
+        .getResultList();
     }
   }
+
+  /** Recalcula os agregados a partir dos empréstimos, depois de cargas que não passaram pelo LoanDAO. */
+  public void rebuildStatistics() {
+    executeInTransaction(LoanStatistics::rebuild);
+  }
 }
@@ -1,46 +1,66 @@
 package br.edu.ifba.inf008.plugins.report.ui;
 
 import java.io.File;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
-import java.util.List;
 
 import br.edu.ifba.inf008.interfaces.ICore;
 import br.edu.ifba.inf008.interfaces.IRefreshable;
 import br.edu.ifba.inf008.interfaces.IUIController;
+import br.edu.ifba.inf008.plugins.report.export.ReportExporter;
+import br.edu.ifba.inf008.plugins.report.persistence.LoanFilter;
 import br.edu.ifba.inf008.plugins.report.persistence.ReportDAO;
-import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.LoanRow;
+import br.edu.ifba.inf008.shell.model.LoanSummary;
+import br.edu.ifba.inf008.shell.util.BackgroundLoader;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.stage.FileChooser;
+import javafx.scene.control.Button;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.ToggleGroup;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.util.StringConverter;
 
 public class ReportManagementController implements IRefreshable{
   ReportDAO reportDAO = new ReportDAO();
+  private final ReportExporter exporter = new ReportExporter(reportDAO);
+  private final BackgroundLoader loader = new BackgroundLoader();
+  private final BackgroundLoader summaryLoader = new BackgroundLoader();
 
   @FXML private ToggleGroup searchTypeToggleGroup;
   @FXML private Label initialDateLabel;
   @FXML private DatePicker initialDatePicker;
   @FXML private Label finalDateLabel;
   @FXML private DatePicker finalDatePicker;
-  @FXML private TableView<Loan> loanTableView;
+  @FXML private TableView<LoanRow> loanTableView;
+  @FXML private Label summaryLabel;
+  @FXML private Label exportStatusLabel;
+  @FXML private ProgressBar exportProgressBar;
+  @FXML private Button cancelExportButton;
+  @FXML private Button exportButton;
 
+  /** Filtro da consulta exibida na tabela, repetido pela exportação. */
+  private LoanFilter lastFilter;
+  private Task<Long> exportTask;
 
   private IUIController uiController;
 
   @Override
   public void refresh() {
 
+    loader.cancel();
+    summaryLoader.cancel();
     loanTableView.getItems().clear();
+    summaryLabel.setText("");
+    lastFilter = null;
 
     initialDatePicker.setValue(LocalDate.now());
     finalDatePicker.setValue(LocalDate.now());
@@ -52,6 +72,7 @@ public class ReportManagementController implements IRefreshable{
 
     configureDatePicker();
     configureLoanTableView();
+    loader.showLoadingOn(loanTableView, loanTableView.placeholderProperty());
 
     searchTypeToggleGroup.selectedToggleProperty().addListener((obs, oldToggle, newToggle) -> {
       if (newToggle != null) {
@@ -70,50 +91,52 @@ public class ReportManagementController implements IRefreshable{
 
   @FXML
   private void handleAllLoans() {
-    List<Loan> loans;
-    loans = switch (searchTypeToggleGroup.getSelectedToggle().getUserData().toString()) {
-      case "allTime" -> reportDAO.findAll();
-      case "before" -> reportDAO.findByInitialDate(initialDatePicker.getValue(), "before");
-      case "after" -> reportDAO.findByInitialDate(initialDatePicker.getValue(), "after");
-      case "onDate" -> reportDAO.findByInitialDate(initialDatePicker.getValue(), "onDate");
-      case "between" -> reportDAO.findByInitialAndFinalDate(initialDatePicker.getValue(), finalDatePicker.getValue());
-      default -> reportDAO.findAll();
-    };
-    loanTableView.setItems(FXCollections.observableArrayList(loans));
+    loadRows(null);
   }
 
   @FXML
   private void handleActiveLoans() {
-    List<Loan> loans;
-    loans = switch (searchTypeToggleGroup.getSelectedToggle().getUserData().toString()) {
-      case "allTime" -> reportDAO.findByStatus(true);
-      case "before" -> reportDAO.findByStatusAndInitialDate(true, initialDatePicker.getValue(), "before");
-      case "after" -> reportDAO.findByStatusAndInitialDate(true, initialDatePicker.getValue(), "after");
-      case "onDate" -> reportDAO.findByStatusAndInitialDate(true, initialDatePicker.getValue(), "onDate");
-      case "between" -> reportDAO.findByStatusAndInitialDate(true, initialDatePicker.getValue(), "between");
-      default -> reportDAO.findByStatus(true);
-    };
-    loanTableView.setItems(FXCollections.observableArrayList(loans));
+    loadRows(true);
   }
 
   @FXML
   private void handleReturnedLoans() {
-    List<Loan> loans;
-    loans = switch (searchTypeToggleGroup.getSelectedToggle().getUserData().toString()) {
-      case "allTime" -> reportDAO.findByStatus(false);
-      case "before" -> reportDAO.findByStatusAndInitialDate(false, initialDatePicker.getValue(), "before");
-      case "after" -> reportDAO.findByStatusAndInitialDate(false, initialDatePicker.getValue(), "after");
-      case "onDate" -> reportDAO.findByStatusAndInitialDate(false, initialDatePicker.getValue(), "onDate");
-      case "between" -> reportDAO.findByStatusAndInitialDate(false, initialDatePicker.getValue(), "between");
-      default -> reportDAO.findByStatus(false);
-    };
-    loanTableView.setItems(FXCollections.observableArrayList(loans));
+    loadRows(false);
+  }
+
+  private void loadRows(Boolean isActive) {
+    String searchType = searchTypeToggleGroup.getSelectedToggle().getUserData().toString();
+    LoanFilter filter;
+    try {
+      filter = LoanFilter.of(searchType, initialDatePicker.getValue(), finalDatePicker.getValue()).withActive(isActive);
+    } catch (IllegalArgumentException e) {
+      uiController.showAlert("Invalid Dates", "The initial date must not be after the final date.");
+      return;
+    }
+    loader.load(
+      () -> reportDAO.findRows(filter),
+      loans -> {
+        lastFilter = filter;
+        loanTableView.setItems(FXCollections.observableArrayList(loans));
+      },
+      error -> uiController.showAlert("Error", "Failed to load report: " + error.getMessage())
+    );
+    // Vem dos agregados diários, então não depende do tamanho da consulta acima
+    summaryLoader.load(
+      () -> reportDAO.summarize(filter),
+      summary -> summaryLabel.setText(formatSummary(summary)),
+      error -> summaryLabel.setText("")
+    );
+  }
+
+  private static String formatSummary(LoanSummary summary) {
+    return summary.opened() + " opened, " + summary.returned() + " returned in the period; "
+      + summary.activeAtStart() + " active at start, " + summary.activeAtEnd() + " at end";
   }
 
   @FXML
   private void handleExportReport(){
-    List<Loan> loans = loanTableView.getItems();
-    if (loans == null || loans.isEmpty()) {
+    if (lastFilter == null || loanTableView.getItems().isEmpty()) {
       uiController.showAlert("No Data", "No loans available to export.");
       return;
     }
@@ -129,34 +152,54 @@ public class ReportManagementController implements IRefreshable{
     File file = fileChooser.showSaveDialog(loanTableView.getScene().getWindow());
     if (file == null) return;
 
-    try(PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
-      writer.println("Loan ID,User Name,User Email,Book Title,Book Author,Loan Date,Return Date");
-      DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-      for (Loan loan : loans) {
-        String line = String.format("%d,%s,%s,%s,%s,%s,%s",
-          loan.getLoanId(),
-          escapeCsv(loan.getUser().getName()),
-          escapeCsv(loan.getUser().getEmail()),
-          escapeCsv(loan.getBook().getTitle()),
-          escapeCsv(loan.getBook().getAuthor()),
-          loan.getLoanDate() != null ? loan.getLoanDate().format(dateFormatter) : "",
-          loan.getReturnDate() != null ? loan.getReturnDate().format(dateFormatter) : ""
-        );
-        writer.println(line); 
+    // Exporta a consulta inteira, não só o que está na tabela, direto do banco para o arquivo
+    LoanFilter filter = lastFilter;
+    Task<Long> task = new Task<>() {
+      @Override
+      protected Long call() throws Exception {
+        return exporter.export(filter, file.toPath(), (written, total) -> {
+          updateProgress(written, total);
+          updateMessage(written + " / " + total + " loans");
+        }, this::isCancelled);
       }
+    };
+    task.setOnSucceeded(event -> {
+      finishExport();
+      uiController.showAlert("Export Success",
+        task.getValue() + " loans exported to " + file.getAbsolutePath());
+    });
+    task.setOnFailed(event -> {
+      finishExport();
+      uiController.showAlert("Export Error", "Failed to export report: " + task.getException().getMessage());
+    });
+    task.setOnCancelled(event -> finishExport());
 
-      uiController.showAlert("Export Success", "Report exported to " + file.getAbsolutePath());
-    } catch (Exception e) {
-      uiController.showAlert("Export Error", "Failed to export report: " + e.getMessage());
-    }
+    exportTask = task;
+    exportProgressBar.progressProperty().bind(task.progressProperty());
+    exportStatusLabel.textProperty().bind(task.messageProperty());
+    setExporting(true);
+    BackgroundLoader.sharedExecutor().execute(task);
   }
 
-  private String escapeCsv(String value) {
-    if (value == null) return "";
-    if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-      return "\"" + value.replace("\"", "\"\"") + "\"";
+  @FXML
+  private void handleCancelExport() {
+    if (exportTask != null) {
+      exportTask.cancel(false);
     }
-    return value;
+  }
+
+  private void finishExport() {
+    exportTask = null;
+    exportProgressBar.progressProperty().unbind();
+    exportStatusLabel.textProperty().unbind();
+    setExporting(false);
+  }
+
+  private void setExporting(boolean exporting) {
+    exportButton.setDisable(exporting);
+    exportProgressBar.setVisible(exporting);
+    exportStatusLabel.setVisible(exporting);
+    cancelExportButton.setVisible(exporting);
   }
 
   private void configureDatePicker(){
@@ -201,28 +244,24 @@ public class ReportManagementController implements IRefreshable{
     DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     loanTableView.setPlaceholder(new Label("No loans found"));
-    TableColumn<Loan, Integer> idCol = new TableColumn<>("Loan ID");
-    idCol.setCellValueFactory(new PropertyValueFactory<>("loanId"));
+    TableColumn<LoanRow, Integer> idCol = new TableColumn<>("Loan ID");
+    idCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().loanId()));
 
-    TableColumn<Loan, String> userNameCol = new TableColumn<>("User Name");
-    userNameCol.setCellValueFactory(cellData -> 
-      new javafx.beans.property.SimpleStringProperty(cellData.getValue().getUser().getName()));
+    TableColumn<LoanRow, String> userNameCol = new TableColumn<>("User Name");
+    userNameCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().userName()));
 
-    TableColumn<Loan, String> userEmailCol = new TableColumn<>("User Email");
-    userEmailCol.setCellValueFactory(cellData -> 
-      new javafx.beans.property.SimpleStringProperty(cellData.getValue().getUser().getEmail()));
+    TableColumn<LoanRow, String> userEmailCol = new TableColumn<>("User Email");
+    userEmailCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().userEmail()));
 
-    TableColumn<Loan, String> bookTitleCol = new TableColumn<>("Book Title");
-    bookTitleCol.setCellValueFactory(cellData -> 
-      new javafx.beans.property.SimpleStringProperty(cellData.getValue().getBook().getTitle()));
+    TableColumn<LoanRow, String> bookTitleCol = new TableColumn<>("Book Title");
+    bookTitleCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().bookTitle()));
 
-    TableColumn<Loan, String> bookAuthorCol = new TableColumn<>("Book Author");
-    bookAuthorCol.setCellValueFactory(cellData -> 
-      new javafx.beans.property.SimpleStringProperty(cellData.getValue().getBook().getAuthor()));
+    TableColumn<LoanRow, String> bookAuthorCol = new TableColumn<>("Book Author");
+    bookAuthorCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().bookAuthor()));
 
-    TableColumn<Loan, LocalDate> loanDateCol = new TableColumn<>("Loan Date");
-    loanDateCol.setCellValueFactory(new PropertyValueFactory<>("loanDate"));
-    loanDateCol.setCellFactory(column -> new javafx.scene.control.TableCell<Loan, LocalDate>() {
+    TableColumn<LoanRow, LocalDate> loanDateCol = new TableColumn<>("Loan Date");
+    loanDateCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().loanDate()));
+    loanDateCol.setCellFactory(column -> new javafx.scene.control.TableCell<LoanRow, LocalDate>() {
       @Override
       protected void updateItem(LocalDate date, boolean empty) {
         super.updateItem(date, empty);
@@ -230,9 +269,9 @@ public class ReportManagementController implements IRefreshable{
       }
     });
 
-    TableColumn<Loan, LocalDate> returnDateCol = new TableColumn<>("Return Date");
-    returnDateCol.setCellValueFactory(new PropertyValueFactory<>("returnDate"));
-    returnDateCol.setCellFactory(column -> new javafx.scene.control.TableCell<Loan, LocalDate>() {
+    TableColumn<LoanRow, LocalDate> returnDateCol = new TableColumn<>("Return Date");
+    returnDateCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().returnDate()));
+    returnDateCol.setCellFactory(column -> new javafx.scene.control.TableCell<LoanRow, LocalDate>() {
       @Override
       protected void updateItem(LocalDate date, boolean empty) {
         super.updateItem(date, empty);
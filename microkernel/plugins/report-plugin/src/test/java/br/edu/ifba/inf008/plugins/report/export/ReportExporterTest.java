@@ -0,0 +1,121 @@
+package br.edu.ifba.inf008.plugins.report.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import br.edu.ifba.inf008.plugins.report.persistence.LoanFilter;
+import br.edu.ifba.inf008.plugins.report.persistence.ReportDAO;
+import br.edu.ifba.inf008.plugins.report.persistence.TestJPAUtil;
+import br.edu.ifba.inf008.shell.model.LoanRow;
+import jakarta.persistence.EntityManager;
+
+public class ReportExporterTest {
+  private static final String NL = System.lineSeparator();
+  private static final int LOANS = 25_000;
+
+  @TempDir
+  Path directory;
+
+  @BeforeEach
+  void setUp() {
+    try (EntityManager em = TestJPAUtil.getEntityManager()) {
+      em.getTransaction().begin();
+      em.createQuery("DELETE FROM Loan").executeUpdate();
+      em.createQuery("DELETE FROM Book").executeUpdate();
+      em.createQuery("DELETE FROM User").executeUpdate();
+      em.getTransaction().commit();
+    }
+  }
+
+  private static String csv(LoanRow... rows) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // Buffer pequeno para forçar vários despejos no canal, inclusive no meio de um caractere
+    try (LoanCsvWriter writer = new LoanCsvWriter(Channels.newChannel(out), 7)) {
+      writer.writeHeader();
+      for (LoanRow row : rows) {
+        writer.write(row);
+      }
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testWriterFormatsDatesAndEscapesText() throws IOException {
+    LocalDate loanDate = LocalDate.of(2024, 3, 5);
+    String text = csv(
+      new LoanRow(12, "Ana, Maria", "ana@test.com", "O \"Alienista\"", "Machado de Assis", loanDate, null),
+      new LoanRow(345, "José Ção", "jose@test.com", "Línea\nDois 📚", "Ñandú", loanDate, LocalDate.of(2024, 12, 31)));
+
+    assertEquals(LoanCsvWriter.HEADER + NL
+      + "12,\"Ana, Maria\",ana@test.com,\"O \"\"Alienista\"\"\",Machado de Assis,05/03/2024," + NL
+      + "345,José Ção,jose@test.com,\"Línea\nDois 📚\",Ñandú,05/03/2024,31/12/2024" + NL, text);
+  }
+
+  @Test
+  void testExportStreamsEveryRowWithProgress() throws IOException {
+    insertLoans();
+    Path target = directory.resolve("report.csv");
+    List<long[]> updates = new ArrayList<>();
+
+    long written = new ReportExporter(new ReportDAO(TestJPAUtil::getEntityManager)).export(LoanFilter.all(),
+      target, (done, total) -> updates.add(new long[] {done, total}), () -> false);
+
+    assertEquals(LOANS, written);
+    List<String> lines = Files.readAllLines(target);
+    assertEquals(LOANS + 1, lines.size());
+    assertEquals(LoanCsvWriter.HEADER, lines.get(0));
+    assertEquals("1,User 1,user1@test.com,Book 1,Author,01/01/2024,", lines.get(1));
+    assertEquals(List.of(0L, 10_000L, 20_000L, (long) LOANS), updates.stream().map(update -> update[0]).toList());
+    assertTrue(updates.stream().allMatch(update -> update[1] == LOANS));
+    assertEquals(1, fileCount(), "No partial file should be left behind");
+  }
+
+  @Test
+  void testCancelledExportKeepsPreviousFile() throws IOException {
+    insertLoans();
+    Path target = directory.resolve("report.csv");
+    Files.writeString(target, "previous");
+
+    assertThrows(CancellationException.class, () -> new ReportExporter(new ReportDAO(TestJPAUtil::getEntityManager))
+      .export(LoanFilter.all(), target, (done, total) -> {}, () -> true));
+
+    assertEquals("previous", Files.readString(target));
+    assertEquals(1, fileCount(), "No partial file should be left behind");
+  }
+
+  private long fileCount() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  private void insertLoans() {
+    try (EntityManager em = TestJPAUtil.getEntityManager()) {
+      em.getTransaction().begin();
+      em.createNativeQuery("INSERT INTO users (user_id, name, email, registered_at)"
+        + " SELECT X, 'User ' || X, 'user' || X || '@test.com', CURRENT_TIMESTAMP FROM SYSTEM_RANGE(0, 99)").executeUpdate();
+      em.createNativeQuery("INSERT INTO books (book_id, title, author, isbn, published_year, copies_available)"
+        + " SELECT X, 'Book ' || X, 'Author', 'isbn' || X, 2020, 1 FROM SYSTEM_RANGE(0, 99)").executeUpdate();
+      em.createNativeQuery("INSERT INTO loans (loan_id, user_id, book_id, loan_date, return_date)"
+        + " SELECT X, MOD(X, 100), MOD(X, 100), DATE '2024-01-01', NULL FROM SYSTEM_RANGE(1, " + LOANS + ")").executeUpdate();
+      em.getTransaction().commit();
+    }
+  }
+}
@@ -2,14 +2,26 @@ package br.edu.ifba.inf008.plugins.report.persistence;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import br.edu.ifba.inf008.interfaces.SortOrder;
 import br.edu.ifba.inf008.shell.model.Book;
 import br.edu.ifba.inf008.shell.model.Loan;
+import br.edu.ifba.inf008.shell.model.LoanRow;
+import br.edu.ifba.inf008.shell.model.LoanSummary;
 import br.edu.ifba.inf008.shell.model.User;
 import jakarta.persistence.EntityManager;
 
@@ -19,10 +31,13 @@ public class ReportDAOTest {
 
   @BeforeEach
   void setUp() {
-    reportDAO = new ReportDAO();
+    reportDAO = new ReportDAO(TestJPAUtil::getEntityManager);
     em = TestJPAUtil.getEntityManager();
     em.getTransaction().begin();
     em.createQuery("DELETE FROM Loan").executeUpdate();
+    em.createQuery("DELETE FROM LoanDailyStats").executeUpdate();
+    em.createQuery("DELETE FROM BookLoanStats").executeUpdate();
+    em.createQuery("DELETE FROM UserLoanStats").executeUpdate();
     em.createQuery("DELETE FROM Book").executeUpdate();
     em.createQuery("DELETE FROM User").executeUpdate();
     em.getTransaction().commit();
@@ -137,4 +152,192 @@ public class ReportDAOTest {
     assertTrue(loans != null && !loans.isEmpty());
     assertTrue(loans.stream().anyMatch(l -> l.getLoanId().equals(loan.getLoanId())));
   }
+
+  private List<Loan> assertSingleStatement(String method, Supplier<List<Loan>> query) {
+    Statistics statistics = TestJPAUtil.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    List<Loan> loans = query.get();
+    assertEquals(1, statistics.getPrepareStatementCount(), method + " should run a single SQL statement");
+    return loans;
+  }
+
+  private void assertReportGraph(List<Loan> loans) {
+    assertFalse(loans.isEmpty());
+    for (Loan loan : loans) {
+      assertTrue(Hibernate.isInitialized(loan.getUser()), "User should be fetched for the report view");
+      assertTrue(Hibernate.isInitialized(loan.getBook()), "Book should be fetched for the report view");
+    }
+  }
+
+  @Test
+  void testReportQueriesFetchUserAndBookInOneStatement() {
+    LocalDate date = LocalDate.of(2023, 5, 10);
+    createLoan(createUser("Stat1", "stat1@test.com"), createBook("Stat1", "Author", "s1", 2022, 1), date, null);
+    createLoan(createUser("Stat2", "stat2@test.com"), createBook("Stat2", "Author", "s2", 2022, 1), date, null);
+    createLoan(createUser("Stat3", "stat3@test.com"), createBook("Stat3", "Author", "s3", 2022, 1), date, date.plusDays(3));
+
+    assertReportGraph(assertSingleStatement("findAll", () -> reportDAO.findAll()));
+    assertReportGraph(assertSingleStatement("findByInitialDate", () -> reportDAO.findByInitialDate(date, "onDate")));
+    assertReportGraph(assertSingleStatement("findByInitialAndFinalDate",
+      () -> reportDAO.findByInitialAndFinalDate(date.minusDays(1), date.plusDays(1))));
+    assertReportGraph(assertSingleStatement("findByStatus", () -> reportDAO.findByStatus(true)));
+    assertReportGraph(assertSingleStatement("findByStatusAndInitialAndFinalDate",
+      () -> reportDAO.findByStatusAndInitialAndFinalDate(false, date.minusDays(1), date.plusDays(1))));
+    Integer loanId = reportDAO.findAll().get(0).getLoanId();
+    assertReportGraph(assertSingleStatement("findById", () -> List.of(reportDAO.findById(loanId))));
+  }
+
+  @Test
+  void testCountByStatusLoadsNoLoans() {
+    LocalDate date = LocalDate.of(2023, 6, 1);
+    createLoan(createUser("Sum1", "sum1@test.com"), createBook("Sum1", "Author", "m1", 2022, 1), date, null);
+    createLoan(createUser("Sum2", "sum2@test.com"), createBook("Sum2", "Author", "m2", 2022, 1), date, null);
+
+    Statistics statistics = TestJPAUtil.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    assertEquals(2, reportDAO.countRows(LoanFilter.all().withActive(true)));
+    assertEquals(1, statistics.getPrepareStatementCount(), "Counting should run a single SQL statement");
+    assertEquals(0, statistics.getEntityLoadCount(), "Counting should not load loans");
+  }
+
+
+  @Test
+  void testFindRowsCombinesDateAndStatusFilters() {
+    LocalDate date = LocalDate.of(2023, 7, 15);
+    User user = createUser("Row User", "row@test.com");
+    Loan active = createLoan(user, createBook("Active", "Author", "r1", 2022, 1), date, null);
+    createLoan(user, createBook("Returned", "Author", "r2", 2022, 1), date, date.plusDays(2));
+    createLoan(user, createBook("Older", "Author", "r3", 2022, 1), date.minusMonths(1), null);
+
+    assertEquals(3, reportDAO.findRows(LoanFilter.all()).size());
+    assertEquals(2, reportDAO.findRows(LoanFilter.of("onDate", date, null)).size());
+    assertEquals(2, reportDAO.findRows(LoanFilter.of("before", date, null).withActive(true)).size());
+
+    List<LoanRow> rows = reportDAO.findRows(LoanFilter.of("between", date.minusDays(1), date.plusDays(1)).withActive(true));
+    assertEquals(1, rows.size());
+    assertEquals(active.getLoanId(), rows.get(0).loanId());
+    assertEquals("Active", rows.get(0).bookTitle());
+    assertEquals("row@test.com", rows.get(0).userEmail());
+  }
+
+  @Test
+  void testStreamRowsMatchesFindRowsInIdOrder() {
+    LocalDate date = LocalDate.of(2023, 8, 1);
+    User user = createUser("Stream User", "stream@test.com");
+    for (int i = 0; i < 5; i++) {
+      createLoan(user, createBook("Stream " + i, "Author", "st" + i, 2022, 1), date.plusDays(i), i % 2 == 0 ? null : date.plusDays(10));
+    }
+    reportDAO.setFetchSize(2);
+
+    List<LoanRow> expected = reportDAO.findRows(LoanFilter.of("after", date.plusDays(1), null));
+    List<LoanRow> streamed;
+    try (Stream<LoanRow> rows = reportDAO.streamRows(LoanFilter.of("after", date.plusDays(1), null))) {
+      streamed = rows.toList();
+    }
+    assertEquals(4, streamed.size());
+    assertEquals(Set.copyOf(expected), Set.copyOf(streamed));
+    for (int i = 1; i < streamed.size(); i++) {
+      assertTrue(streamed.get(i - 1).loanId() < streamed.get(i).loanId(), "Rows should stream in id order");
+    }
+    assertEquals(4, reportDAO.countRows(LoanFilter.of("after", date.plusDays(1), null)));
+    assertEquals(3, reportDAO.countRows(LoanFilter.all().withActive(true)));
+    assertEquals(1, reportDAO.countRows(LoanFilter.of("between", date.plusDays(1), date.plusDays(2)).withActive(false)));
+  }
+
+  @Test
+  void testSummariesComeFromRebuiltDailyStatistics() {
+    User ana = createUser("Ana", "ana@test.com");
+    User bia = createUser("Bia", "bia@test.com");
+    Book first = createBook("First", "Author", "901", 2022, 5);
+    Book second = createBook("Second", "Author", "902", 2022, 5);
+    LocalDate day = LocalDate.of(2024, 1, 1);
+    createLoan(ana, first, day.minusDays(1), null);
+    createLoan(ana, first, day, day.plusDays(4));
+    createLoan(ana, first, day.plusDays(2), null);
+    createLoan(bia, second, day.plusDays(5), day.plusDays(6));
+    reportDAO.rebuildStatistics();
+
+    assertEquals(new LoanSummary(day.plusDays(1), day.plusDays(5), 2, 1, 2, 3),
+      reportDAO.summarize(LoanFilter.of("between", day.plusDays(1), day.plusDays(5))));
+    assertEquals(new LoanSummary(null, null, 4, 2, 0, 2), reportDAO.summarize(LoanFilter.all()));
+    assertEquals(new LoanSummary(null, day, 2, 0, 0, 2), reportDAO.summarize(LoanFilter.of("before", day, null)));
+    assertEquals(new LoanSummary(day.plusDays(2), day.plusDays(2), 1, 0, 2, 3), reportDAO.summarize(LoanFilter.of("onDate", day.plusDays(2), null)));
+
+    List<LoanSummary> daily = reportDAO.findDailySummaries(day, day.plusDays(4));
+    assertEquals(List.of(
+      new LoanSummary(day, day, 1, 0, 1, 2),
+      new LoanSummary(day.plusDays(2), day.plusDays(2), 1, 0, 2, 3),
+      new LoanSummary(day.plusDays(4), day.plusDays(4), 0, 1, 3, 2)), daily);
+
+    assertEquals(first.getBookId(), reportDAO.findMostLoanedBooks(1).get(0).getBookId());
+    assertEquals(2, reportDAO.findMostActiveBorrowers(5).get(0).getLoansActive());
+  }
+
+  @Test
+  void testFindByStatusAndInitialDateHonorsSearchType() {
+    User user = createUser("Status", "status@test.com");
+    Book book = createBook("Status", "Author", "st1", 2022, 5);
+    LocalDate date = LocalDate.of(2023, 8, 1);
+    Loan before = createLoan(user, book, date.minusDays(1), null);
+    Loan on = createLoan(user, book, date, null);
+    createLoan(user, book, date, date.plusDays(1));
+    Loan after = createLoan(user, book, date.plusDays(1), null);
+
+    assertEquals(List.of(before.getLoanId(), on.getLoanId()), ids(reportDAO.findByStatusAndInitialDate(true, date, "before")));
+    assertEquals(List.of(on.getLoanId()), ids(reportDAO.findByStatusAndInitialDate(true, date, "onDate")));
+    assertEquals(List.of(on.getLoanId(), after.getLoanId()), ids(reportDAO.findByStatusAndInitialDate(true, date, "after")));
+    assertEquals(3, reportDAO.findByStatusAndInitialDate(true, null, "allTime").size());
+  }
+
+  @Test
+  void testFilterCombinesUserBookOrderAndLimit() {
+    User ana = createUser("Ana", "ana@test.com");
+    User bia = createUser("Bia", "bia@test.com");
+    Book first = createBook("First", "Author", "f1", 2022, 5);
+    Book second = createBook("Second", "Author", "f2", 2022, 5);
+    LocalDate date = LocalDate.of(2023, 9, 1);
+    Loan oldest = createLoan(ana, first, date, date.plusDays(2));
+    Loan middle = createLoan(ana, second, date.plusDays(1), null);
+    Loan newest = createLoan(ana, first, date.plusDays(2), null);
+    createLoan(bia, first, date.plusDays(2), null);
+
+    LoanFilter anas = LoanFilter.all().withUser(ana.getUserId());
+    assertEquals(List.of(oldest.getLoanId(), middle.getLoanId(), newest.getLoanId()), ids(reportDAO.find(anas)));
+    assertEquals(List.of(newest.getLoanId(), middle.getLoanId()),
+      rowIds(reportDAO.findRows(anas.withOrder(SortOrder.DESCENDING).withLimit(2))));
+    assertEquals(List.of(newest.getLoanId()), ids(reportDAO.find(anas.withBook(first.getBookId()).withActive(true))));
+    assertEquals(2, reportDAO.countRows(anas.withLimit(2)));
+    assertEquals(3, reportDAO.countRows(LoanFilter.all().withBook(first.getBookId())));
+    assertThrows(IllegalArgumentException.class, () -> LoanFilter.of("between", date.plusDays(1), date));
+  }
+
+  @Test
+  void testEachFilterShapeIsParsedOnce() {
+    User user = createUser("Plan", "plan@test.com");
+    Book book = createBook("Plan", "Author", "p1", 2022, 5);
+    LocalDate date = LocalDate.of(2023, 10, 1);
+    createLoan(user, book, date, null);
+    LoanFilter filter = LoanFilter.of("between", date.minusDays(7), date).withActive(true).withUser(user.getUserId());
+    reportDAO.findRows(filter);
+    reportDAO.countRows(filter);
+
+    Statistics statistics = TestJPAUtil.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    for (int day = 0; day < 20; day++) {
+      LoanFilter sameShape = LoanFilter.of("between", date.minusDays(day), date.plusDays(day))
+        .withActive(true).withUser(user.getUserId() + day);
+      reportDAO.findRows(sameShape);
+      reportDAO.countRows(sameShape);
+    }
+    assertEquals(0, statistics.getQueryPlanCacheMissCount(), "New values should reuse the parsed query");
+    assertTrue(statistics.getQueryPlanCacheHitCount() >= 40);
+  }
+
+  private static List<Integer> ids(List<Loan> loans) {
+    return loans.stream().map(Loan::getLoanId).toList();
+  }
+
+  private static List<Integer> rowIds(List<LoanRow> rows) {
+    return rows.stream().map(LoanRow::loanId).toList();
+  }
 }
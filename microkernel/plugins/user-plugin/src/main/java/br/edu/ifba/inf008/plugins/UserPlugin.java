@@ -6,7 +6,6 @@ import br.edu.ifba.inf008.interfaces.ICore;
 import br.edu.ifba.inf008.interfaces.IPlugin;
 import br.edu.ifba.inf008.interfaces.IUIController;
 import br.edu.ifba.inf008.plugins.user.ui.UserManagementController;
-import br.edu.ifba.inf008.shell.persistence.JPAUtil;
 import static br.edu.ifba.inf008.shell.util.IconHelper.createIconView;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
@@ -14,14 +13,19 @@ import javafx.scene.control.MenuItem;
 import javafx.scene.image.ImageView;
 
 public class UserPlugin implements IPlugin {
+  private ImageView logo;
+
   @Override
-  public boolean init(){
-    try {
-      JPAUtil.warmUp();
-    } catch (Exception e) {
-      System.err.println("Warning: Could not initialize database connection: " + e.getMessage());
-    }
+  public boolean load() {
+    logo = createIconView(
+      this.getClass(),
+      "/br/edu/ifba/inf008/plugins/user/ui/icons/logo.png"
+    );
+    return true;
+  }
 
+  @Override
+  public boolean init(){
     try{
       IUIController uiController = ICore.getInstance().getUIController();
 
@@ -47,10 +51,6 @@ public class UserPlugin implements IPlugin {
       };
 
       menuItem.setOnAction(e -> openUsersInterface.run());
-      ImageView logo = createIconView(
-        this.getClass(),
-        "/br/edu/ifba/inf008/plugins/user/ui/icons/logo.png"
-      );
       uiController.addPluginCard(
         "user-plugin",
         logo,
@@ -65,4 +65,9 @@ public class UserPlugin implements IPlugin {
       return false;
     }
   }
-}
\ No newline at end of file
+
+  @Override
+  public void unload() {
+    ICore.getInstance().getUIController().removeTab("User Management");
+  }
+}
@@ -1,39 +1,45 @@
 package br.edu.ifba.inf008.plugins.user.persistence;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import br.edu.ifba.inf008.interfaces.SortOrder;
+import br.edu.ifba.inf008.shell.event.EntityEvent;
+import br.edu.ifba.inf008.shell.event.EntityEvent.BookChanged;
+import br.edu.ifba.inf008.shell.event.EntityEvent.Change;
+import br.edu.ifba.inf008.shell.event.EntityEvent.LoanChanged;
+import br.edu.ifba.inf008.shell.event.EntityEvent.UserChanged;
 import br.edu.ifba.inf008.shell.model.Book;
 import br.edu.ifba.inf008.shell.model.Loan;
 import br.edu.ifba.inf008.shell.model.User;
+import br.edu.ifba.inf008.shell.model.UserRow;
 import br.edu.ifba.inf008.shell.persistence.BaseDAO;
+import br.edu.ifba.inf008.shell.persistence.BookInventory;
+import br.edu.ifba.inf008.shell.persistence.EntityManagerProvider;
+import br.edu.ifba.inf008.shell.persistence.LoanStatistics;
+import br.edu.ifba.inf008.shell.persistence.NameIndex;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 
 public class UserDAO extends BaseDAO<User, Integer> {
-  
+  public UserDAO() {
+    super();
+  }
+
+  public UserDAO(EntityManagerProvider entityManagerProvider) {
+    super(entityManagerProvider);
+  }
+
   @Override
   protected Class<User> getEntityClass() {
     return User.class;
   }
 
+  /** Remover um usuário apaga os empréstimos dele e devolve os livros ao estoque. */
   @Override
-  protected EntityManager getEntityManager() {
-    if (isTestEnvironment()) {
-      try {
-        Class<?> testJPAUtilClass = Class.forName("br.edu.ifba.inf008.plugins.user.persistence.TestJPAUtil");
-        java.lang.reflect.Method getEntityManagerMethod = testJPAUtilClass.getMethod("getEntityManager");
-        return (EntityManager) getEntityManagerMethod.invoke(null);
-      } catch (ClassNotFoundException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-        return super.getEntityManager();
-      }
-    }
-    return super.getEntityManager();
-  }
-
-  private boolean isTestEnvironment() {
-    String stackTrace = java.util.Arrays.toString(Thread.currentThread().getStackTrace());
-    return stackTrace.contains("Test") || 
-           System.getProperty("surefire.test.class.path") != null;
+  protected List<Class<?>> getWrittenEntities() {
+    return List.of(User.class, Loan.class, Book.class);
   }
 
   public List<User> findAll(String searchField, String fieldSubString) {
@@ -50,6 +56,51 @@ public class UserDAO extends BaseDAO<User, Integer> {
     }
   }
 
+  public List<UserRow> findRows() {
+    try (EntityManager em = getEntityManager()) {
+      return em.createQuery(UserRow.SELECT_FROM, UserRow.class).getResultList();
+    }
+  }
+
+  public List<UserRow> findRows(String searchField, String fieldSubString) {
+    try (EntityManager em = getEntityManager()) {
+      return em.createQuery(UserRow.SELECT_FROM + " WHERE u." + searchField + " LIKE :field", UserRow.class)
+        .setParameter("field", "%" + fieldSubString + "%")
+        .getResultList();
+    }
+  }
+
+  /** Total de linhas de {@link #findRows(String, String)}; {@code searchField} nulo conta todos. */
+  public int countRows(String searchField, String fieldSubString) {
+    try (EntityManager em = getEntityManager()) {
+      TypedQuery<Long> query = em.createQuery("SELECT COUNT(u) FROM User u" + rowFilter(searchField), Long.class);
+      return bindRowFilter(query, searchField, fieldSubString).getSingleResult().intValue();
+    }
+  }
+
+  /** Uma página de {@link #findRows(String, String)}, ordenada pelo id no banco. */
+  public List<UserRow> findRows(String searchField, String fieldSubString, int offset, int limit, SortOrder order) {
+    String jpql = UserRow.SELECT_FROM + rowFilter(searchField)
+      + " ORDER BY u.userId" + (order == SortOrder.DESCENDING ? " DESC" : " ASC");
+    try (EntityManager em = getEntityManager()) {
+      return bindRowFilter(em.createQuery(jpql, UserRow.class), searchField, fieldSubString)
+        .setFirstResult(offset)
+        .setMaxResults(limit)
+        .getResultList();
+    }
+  }
+
+  private static String rowFilter(String searchField) {
+    return searchField == null ? "" : " WHERE u." + searchField + " LIKE :field";
+  }
+
+  private static <R> TypedQuery<R> bindRowFilter(TypedQuery<R> query, String searchField, String fieldSubString) {
+    if (searchField != null) {
+      query.setParameter("field", "%" + fieldSubString + "%");
+    }
+    return query;
+  }
+
   public boolean hasLoans(User user) {
     try (EntityManager em = getEntityManager()) {
       try {
@@ -64,44 +115,106 @@ public class UserDAO extends BaseDAO<User, Integer> {
     }
   }
 
+  @Override
+  public void save(User user) {
+    super.save(user);
+    reindex(user);
+    acknowledgeWrite();
+  }
+
+  @Override
+  public void update(User user) {
+    super.update(user);
+    reindex(user);
+    acknowledgeWrite();
+  }
+
+  @Override
+  public void saveAll(Collection<User> users) {
+    super.saveAll(users);
+    if (users != null && !users.isEmpty()) {
+      users.forEach(this::reindex);
+      acknowledgeWrite();
+    }
+  }
+
+  @Override
+  public void updateAll(Collection<User> users) {
+    super.updateAll(users);
+    if (users != null && !users.isEmpty()) {
+      users.forEach(this::reindex);
+      acknowledgeWrite();
+    }
+  }
+
   @Override
   public void delete(User user) {
-    try (EntityManager em = getEntityManager()) {
-      try {
-        em.getTransaction().begin();
+    List<EntityEvent> events = new ArrayList<>();
+    executeInTransaction(em -> removeWithLoans(em, user, events));
+    NameIndex.USERS.remove(user.getUserId());
+    acknowledgeWrite();
+    publish(events);
+  }
 
-        List<Loan> activeLoans = em.createQuery(
-          "SELECT l FROM Loan l WHERE l.user.userId = :userId AND l.returnDate IS NULL", Loan.class)
-          .setParameter("userId", user.getUserId())
-          .getResultList();
-        
-        if (!activeLoans.isEmpty()) {
-          for (Loan loan : activeLoans) {
-            Book book = em.find(Book.class, loan.getBook().getBookId());
-            if(book != null){
-              book.setCopiesAvailable(book.getCopiesAvailable() + 1);
-              em.merge(book);
-            }
-          }
-        }
-
-        em.createQuery("DELETE FROM Loan l WHERE l.user.userId = :userId")
-          .setParameter("userId", user.getUserId())
-          .executeUpdate();
-
-        User managedUser = em.find(User.class, user.getUserId());
-        if (managedUser != null) {
-          em.remove(managedUser);
-        }
-        em.getTransaction().commit();
-      } catch (Exception e) {
-        if (em.getTransaction().isActive()) {
-          em.getTransaction().rollback();
-        }
-        throw e;
-      } finally {
-        em.close();
-      }
+  @Override
+  public void deleteAll(Collection<User> users) {
+    List<EntityEvent> events = new ArrayList<>();
+    executeInBatches(users, (em, user) -> removeWithLoans(em, user, events));
+    if (users != null && !users.isEmpty()) {
+      users.forEach(user -> NameIndex.USERS.remove(user.getUserId()));
+      acknowledgeWrite();
+    }
+    publish(events);
+  }
+
+  @Override
+  protected EntityEvent changeEvent(User user, Change change) {
+    return user.getUserId() == null ? null : new UserChanged(user.getUserId(), change);
+  }
+
+  /** Mantém o autocompletar de usuários (compartilhado com os empréstimos) em dia. */
+  private void reindex(User user) {
+    if (user.getUserId() != null) {
+      NameIndex.USERS.put(user.getUserId(), user.getName());
+    }
+  }
+
+  /**
+   * A escrita já aplicada ao índice somou 1 à versão de {@code User}; sem outra escrita no meio,
+   * o índice continua em dia e a próxima carga não o recarrega ({@link NameIndex#acknowledge}).
+   */
+  private void acknowledgeWrite() {
+    if (NameIndex.USERS.isLoaded()) {
+      NameIndex.USERS.acknowledge(dataVersion(User.class));
+    }
+  }
+
+  /** Roda dentro da transação; os eventos acumulados são publicados depois do commit. */
+  private void removeWithLoans(EntityManager em, User user, List<EntityEvent> events) {
+    List<Loan> activeLoans = em.createQuery(
+      "SELECT l FROM Loan l WHERE l.user.userId = :userId AND l.returnDate IS NULL", Loan.class)
+      .setParameter("userId", user.getUserId())
+      .getResultList();
+
+    for (Loan loan : activeLoans) {
+      BookInventory.release(em, loan.getBook().getBookId());
+      events.add(new BookChanged(loan.getBook().getBookId(), Change.UPDATED));
+    }
+
+    em.createQuery("SELECT l.loanId FROM Loan l WHERE l.user.userId = :userId", Integer.class)
+      .setParameter("userId", user.getUserId())
+      .getResultList()
+      .forEach(loanId -> events.add(new LoanChanged(loanId, Change.DELETED)));
+
+    LoanStatistics.removeLoans(em, "l.user.userId IN :ids", List.of(user.getUserId()));
+    em.createQuery("DELETE FROM Loan l WHERE l.user.userId = :userId")
+      .setParameter("userId", user.getUserId())
+      .executeUpdate();
+
+    User managedUser = em.find(User.class, user.getUserId());
+    if (managedUser != null) {
+      em.remove(managedUser);
+      events.add(new UserChanged(user.getUserId(), Change.DELETED));
     }
   }
 }
@@ -5,11 +5,18 @@ import java.util.List;
 
 import br.edu.ifba.inf008.interfaces.ICore;
 import br.edu.ifba.inf008.interfaces.IRefreshable;
+import br.edu.ifba.inf008.interfaces.ISubscription;
 import br.edu.ifba.inf008.interfaces.IUIController;
+import br.edu.ifba.inf008.interfaces.SortOrder;
 import br.edu.ifba.inf008.plugins.user.persistence.UserDAO;
+import br.edu.ifba.inf008.shell.event.EntityEvent.UserChanged;
 import br.edu.ifba.inf008.shell.model.User;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import br.edu.ifba.inf008.shell.model.UserRow;
+import br.edu.ifba.inf008.shell.util.BackgroundLoader;
+import br.edu.ifba.inf008.shell.util.PageSource;
+import br.edu.ifba.inf008.shell.util.PagedList;
+import br.edu.ifba.inf008.shell.util.SearchPipeline;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
@@ -24,44 +31,97 @@ import javafx.scene.layout.Priority;
 
 public class UserManagementController implements IRefreshable {
     UserDAO userDAO = new UserDAO();
+    private final BackgroundLoader loader = new BackgroundLoader();
+    /** Escritas e a checagem de empréstimos antes de excluir; a lista e o botão ficam desabilitados enquanto rodam. */
+    private final BackgroundLoader actions = new BackgroundLoader();
+    private final SearchPipeline searches = new SearchPipeline(() -> userDAO.dataVersion(User.class));
 
     @FXML private TextField searchField;
     @FXML private ToggleGroup searchTypeToggleGroup;
     @FXML private TextField formNameField;
     @FXML private TextField formEmailField;
     @FXML private Button saveButton;
-    @FXML private ListView<User> userListView;
+    @FXML private ListView<UserRow> userListView;
     
     private IUIController uiController;
-    private final ObservableList<User> users = FXCollections.observableArrayList();
-    private User currentUser = null;
+    private ISubscription changes;
+    private final PagedList<UserRow> users = new PagedList<>(loader, () -> userDAO.dataVersion(User.class));
+    private UserRow currentUser = null;
     private boolean isUpdating = false;
     
     @Override
     public void refresh() {
-        loadInitialData();
-        
+        boolean filtered = !searchField.getText().isBlank();
+
         searchField.clear(); 
+        searches.cancelPending();
+        if (filtered) {
+            loadInitialData();
+        } else {
+            reloadRows();
+        }
         
         handleClear();
     }
 
+    /** A aba fechou (ou nunca abriu): para de receber eventos de usuários e descarta buscas pendentes. */
+    @Override
+    public void dispose() {
+        if (changes != null) {
+            changes.close();
+        }
+        searches.cancelPending();
+    }
+
     @FXML
     public void initialize() {
         this.uiController = ICore.getInstance().getUIController();
 
-        loadInitialData();
         userListView.setItems(users);
+        loader.showLoadingOn(userListView, userListView.placeholderProperty());
+        actions.disableWhileLoading(userListView, saveButton);
+        loadInitialData();
+
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> searches.debounce(this::handleSearch));
+        changes = ICore.getInstance().getEventBus().subscribe(UserChanged.class, Platform::runLater, event -> reloadRows());
 
         configureUserCellFactory();
     }
 
     private void loadInitialData() {
-        users.setAll(userDAO.findAll());
+        loadRows(null, null);
+    }
+
+    /**
+     * Lista paginada no banco: a contagem e as páginas são consultadas fora da thread do JavaFX,
+     * só quando a linha aparece na tela, e uma nova busca descarta a anterior. Resultados recentes
+     * vêm do {@link SearchPipeline} enquanto nenhuma escrita acontecer.
+     */
+    private void loadRows(String searchType, String text) {
+        users.setSource(searches.cached(new Search(searchType, text), new PageSource<>() {
+            @Override
+            public int count() {
+                return userDAO.countRows(searchType, text);
+            }
+
+            @Override
+            public List<UserRow> fetch(int offset, int limit) {
+                return userDAO.findRows(searchType, text, offset, limit, SortOrder.ASCENDING);
+            }
+        }), this::showLoadError);
+    }
+
+    /** Atualiza no lugar só as linhas que mudaram; sem escritas em usuários desde a última carga, não consulta nada. */
+    private void reloadRows() {
+        users.refresh(this::showLoadError);
+    }
+
+    private void showLoadError(Throwable error) {
+        uiController.showAlert("Error", "Failed to load users: " + error.getMessage());
     }
 
     private void configureUserCellFactory() {
-        userListView.setCellFactory(lv -> new ListCell<User>() {
+        userListView.setCellFactory(lv -> new ListCell<UserRow>() {
             private final HBox hbox = new HBox(10);
             private final Label label = new Label();
             private final Button infoButton = new Button("ℹ️");
@@ -79,13 +139,13 @@ public class UserManagementController implements IRefreshable {
             }
 
             @Override
-            protected void updateItem(User user, boolean empty) {
+            protected void updateItem(UserRow user, boolean empty) {
                 super.updateItem(user, empty);
                 if (empty || user == null) {
                     setText(null);
                     setGraphic(null);
                 } else {
-                    label.setText("ID: " + user.getUserId() + " | " + user.getName() + " (" + user.getEmail() + ") | Registro: " + formatDate(user.getRegisteredAt()));
+                    label.setText("ID: " + user.userId() + " | " + user.name() + " (" + user.email() + ") | Registro: " + formatDate(user.registeredAt()));
                     setGraphic(hbox);
 
                     deleteButton.setOnAction(event -> handleDelete(getItem()));
@@ -106,41 +166,32 @@ public class UserManagementController implements IRefreshable {
         } 
         
         if(isUpdating && currentUser != null) {
-            User updatedUser = new User(currentUser.getUserId(), name, email, currentUser.getRegisteredAt());
-            int userIndex = users.indexOf(currentUser);
-            if (userIndex == -1) {
-                this.uiController.showAlert("Error", "User not found for update.");
-                return;
-            }
+            User updatedUser = new User(currentUser.userId(), name, email, currentUser.registeredAt());
             uiController.showConfirmation(
                 "Update User", 
-                "Are you sure you want to update the user " + currentUser.getName() + "?", 
-                () -> {
-                    try {
-                        userDAO.update(updatedUser);
-                        users.set(userIndex, updatedUser);
-                        userListView.setItems(users);
+                "Are you sure you want to update the user " + currentUser.name() + "?", 
+                () -> actions.run(
+                    () -> userDAO.update(updatedUser),
+                    () -> {
+                        reloadRows();
                         uiController.showAlert("Success", "User updated successfully!");
-                    } catch (Exception e) {
-                        uiController.showAlert("Error", "Failed to update user: " + e.getMessage());
-                    }
-                }
+                    },
+                    error -> uiController.showAlert("Error", "Failed to update user: " + error.getMessage())
+                )
             );
         } else {
             User newUser = new User(name, email);
             uiController.showConfirmation(
                 "Create User", 
                 "Are you sure you want to create the user " + newUser.getName() + "?", 
-                () -> {
-                    try {
-                        userDAO.save(newUser);
-                        users.add(newUser);
-                        userListView.setItems(users);
+                () -> actions.run(
+                    () -> userDAO.save(newUser),
+                    () -> {
+                        reloadRows();
                         uiController.showAlert("Success", "User created successfully!");
-                    } catch (Exception e) {
-                        uiController.showAlert("Error", "Failed to create user: " + e.getMessage());
-                    }
-                }
+                    },
+                    error -> uiController.showAlert("Error", "Failed to create user: " + error.getMessage())
+                )
             );
         }
         handleClear();
@@ -148,22 +199,16 @@ public class UserManagementController implements IRefreshable {
 
     @FXML
     private void handleSearch() {
+        searches.cancelPending();
         String field = searchField.getText().toLowerCase().trim();
 
         if (field.isEmpty()) {
-            users.setAll(userDAO.findAll());
-            userListView.setItems(users);
+            loadRows(null, null);
             return;
         } 
         String searchType = searchTypeToggleGroup.getSelectedToggle().getUserData().toString();
 
-        List<User> searchResults = userDAO.findAll(searchType, field);
-        if (searchResults != null && !searchResults.isEmpty()) {
-            users.setAll(searchResults);
-        } else {
-            users.clear();
-        }
-        userListView.setItems(users);
+        loadRows(searchType, field);
     }
 
     @FXML
@@ -175,9 +220,15 @@ public class UserManagementController implements IRefreshable {
         saveButton.setText("Create User");
     }
 
-    private void handleDelete(User user) {
-        boolean hasLoans = userDAO.hasLoans(user);
+    private void handleDelete(UserRow user) {
+        actions.load(
+            () -> userDAO.hasLoans(user.toUser()),
+            hasLoans -> confirmDelete(user, hasLoans),
+            error -> uiController.showAlert("Error", "Failed to check the user's loans: " + error.getMessage())
+        );
+    }
 
+    private void confirmDelete(UserRow user, boolean hasLoans) {
         if(hasLoans){
           String warningMessage = String.format("""
             \u26a0\ufe0f WARNING: User '%s' has loan records in the system!
@@ -188,7 +239,7 @@ public class UserManagementController implements IRefreshable {
             \u2022 This action CANNOT be undone
             
             Are you sure you want to proceed?""",
-            user.getName()
+            user.name()
           );
 
           uiController.showConfirmation(
@@ -199,34 +250,34 @@ public class UserManagementController implements IRefreshable {
         }else{
           uiController.showConfirmation(
             "Delete User", 
-            "Are you sure you want to delete the user " + user.getName() + "?", 
+            "Are you sure you want to delete the user " + user.name() + "?", 
             () -> deleteUser(user)
             );
         }
     }
 
-    private void deleteUser(User user){
-        try {
-            userDAO.delete(user);
-            users.remove(user);
-            userListView.setItems(users);
-            uiController.showAlert("Success", "User deleted successfully!");
-        } catch (Exception e) {
-            uiController.showAlert("Error", "Failed to delete user: " + e.getMessage());
-        }
+    private void deleteUser(UserRow user){
+        actions.run(
+            () -> userDAO.delete(user.toUser()),
+            () -> {
+                reloadRows();
+                uiController.showAlert("Success", "User deleted successfully!");
+            },
+            error -> uiController.showAlert("Error", "Failed to delete user: " + error.getMessage())
+        );
     }
 
-    private void handleUpdate(User user) {
+    private void handleUpdate(UserRow user) {
         currentUser = user;
         isUpdating = true;
-        formNameField.setText(user.getName());
-        formEmailField.setText(user.getEmail());
+        formNameField.setText(user.name());
+        formEmailField.setText(user.email());
         saveButton.setText("Update User");
     }
 
-    private void handleInfo(User user) {
-        uiController.showAlert("User info", "Id: " + user.getUserId() + "\nName: " + user.getName() + "\nEmail: " + user.getEmail() +
-            "\nRegistered At: " + formatDate(user.getRegisteredAt()));
+    private void handleInfo(UserRow user) {
+        uiController.showAlert("User info", "Id: " + user.userId() + "\nName: " + user.name() + "\nEmail: " + user.email() +
+            "\nRegistered At: " + formatDate(user.registeredAt()));
     }
 
     private String formatDate(LocalDateTime date) {
@@ -234,4 +285,7 @@ public class UserManagementController implements IRefreshable {
         java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
         return formatter.format(date);
     }
-}
\ No newline at end of file
+
+    private record Search(String searchType, String text) {
+    }
+}
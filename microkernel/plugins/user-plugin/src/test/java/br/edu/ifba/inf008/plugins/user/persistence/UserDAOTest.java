@@ -3,9 +3,11 @@ package br.edu.ifba.inf008.plugins.user.persistence;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -14,9 +16,15 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import br.edu.ifba.inf008.interfaces.SortOrder;
 import br.edu.ifba.inf008.shell.model.Book;
+import br.edu.ifba.inf008.shell.model.BookLoanStats;
 import br.edu.ifba.inf008.shell.model.Loan;
 import br.edu.ifba.inf008.shell.model.User;
+import br.edu.ifba.inf008.shell.model.UserLoanStats;
+import br.edu.ifba.inf008.shell.model.UserRow;
+import br.edu.ifba.inf008.shell.persistence.LoanStatistics;
+import br.edu.ifba.inf008.shell.persistence.NameIndex;
 import jakarta.persistence.EntityManager;
  
 public class UserDAOTest {
@@ -59,13 +67,16 @@ public class UserDAOTest {
 
   @BeforeEach
   void setUp(){
-    userDAO = new UserDAO();
+    userDAO = new UserDAO(TestJPAUtil::getEntityManager);
     createdUsers = new ArrayList<>();
     em = TestJPAUtil.getEntityManager();
 
     em.getTransaction().begin();
     try {
         em.createQuery("DELETE FROM Loan").executeUpdate();
+        em.createQuery("DELETE FROM LoanDailyStats").executeUpdate();
+        em.createQuery("DELETE FROM BookLoanStats").executeUpdate();
+        em.createQuery("DELETE FROM UserLoanStats").executeUpdate();
         em.createQuery("DELETE FROM Book").executeUpdate();
         em.createQuery("DELETE FROM User").executeUpdate();
     } catch (Exception e) {
@@ -238,6 +249,35 @@ public class UserDAOTest {
     assertNull(deletedUser, "Deleted user should be null");
   }
 
+  @Test
+  void testDeleteUserRemovesTheirLoansFromStatistics(){
+    User createdUser = saveAndTrack(testUser);
+    User other = saveAndTrack(new User("Other User", "other_" + System.currentTimeMillis() + "@test.com"));
+    Book book = createBook("Stats Book", "Stats Author", "555000111", 2022, 3);
+    LocalDate day = LocalDate.of(2024, 5, 10);
+    createLoan(createdUser, book, day, day.plusDays(2));
+    createLoan(createdUser, book, day, null);
+    createLoan(other, book, day, null);
+    em.getTransaction().begin();
+    LoanStatistics.rebuild(em);
+    em.getTransaction().commit();
+    em.clear();
+
+    userDAO.delete(createdUser);
+
+    try (EntityManager freshEm = TestJPAUtil.getEntityManager()) {
+      assertNull(freshEm.find(UserLoanStats.class, createdUser.getUserId()), "Deleted user should leave no statistics");
+      assertEquals(1, freshEm.find(UserLoanStats.class, other.getUserId()).getLoansTotal());
+      BookLoanStats bookStats = freshEm.find(BookLoanStats.class, book.getBookId());
+      assertEquals(1, bookStats.getLoansTotal());
+      assertEquals(1, bookStats.getLoansActive());
+      String daily = "SELECT COUNT(s), COALESCE(SUM(s.loansOpened), 0) FROM LoanDailyStats s WHERE s.statDate = :day";
+      assertEquals(1L, freshEm.createQuery(daily, Object[].class).setParameter("day", day).getSingleResult()[1]);
+      assertEquals(0L, freshEm.createQuery(daily, Object[].class).setParameter("day", day.plusDays(2)).getSingleResult()[0],
+        "The only return that day was deleted");
+    }
+  }
+
   @Test
   void testHasLoans(){
     User createdUser = saveAndTrack(testUser);
@@ -249,4 +289,53 @@ public class UserDAOTest {
 
     assertTrue(userDAO.hasLoans(createdUser));
   }
-}
\ No newline at end of file
+
+  @Test
+  void testFindRowsProjectsUserColumns(){
+    User user = saveAndTrack(new User("Row User", "row.user@test.com"));
+    saveAndTrack(new User("Other", "other@test.com"));
+
+    List<UserRow> rows = userDAO.findRows("name", "Row");
+    assertEquals(1, rows.size());
+    UserRow row = rows.get(0);
+    assertEquals(user.getUserId(), row.userId());
+    assertEquals("Row User", row.name());
+    assertEquals("row.user@test.com", row.email());
+    assertEquals(UserRow.of(user).toUser(), user, "Row should round-trip to an equal user");
+    assertTrue(userDAO.findRows().size() >= 2);
+  }
+
+  @Test
+  void testPagedRowsAreCountedAndSlicedInTheQuery(){
+    List<User> paged = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      paged.add(saveAndTrack(new User("Paged User " + i, "paged" + i + "@test.com")));
+    }
+    saveAndTrack(new User("Someone Else", "else@test.com"));
+
+    assertEquals(5, userDAO.countRows("name", "Paged"));
+    assertEquals(6, userDAO.countRows(null, null));
+
+    List<UserRow> secondPage = userDAO.findRows("name", "Paged", 2, 2, SortOrder.ASCENDING);
+    assertEquals(List.of(paged.get(2).getUserId(), paged.get(3).getUserId()),
+      secondPage.stream().map(UserRow::userId).toList());
+
+    List<UserRow> newest = userDAO.findRows(null, null, 0, 1, SortOrder.DESCENDING);
+    assertEquals("Someone Else", newest.get(0).name());
+  }
+
+  @Test
+  void testSaveKeepsTheNameIndexWithoutReloading(){
+    NameIndex.USERS.clear();
+    User ana = saveAndTrack(new User("Index Ana", "index.ana@test.com"));
+    NameIndex.USERS.loadIfOlder(userDAO.dataVersion(User.class), () -> Map.of(ana.getUserId(), ana.getName()));
+
+    User bruno = saveAndTrack(new User("Index Bruno", "index.bruno@test.com"));
+    // O mesmo que LoanDAO.refreshNameIndexes() faz antes do autocompletar
+    NameIndex.USERS.loadIfOlder(userDAO.dataVersion(User.class), () -> {
+      throw new AssertionError("A local save should not force a reload of the name index");
+    });
+    assertArrayEquals(new int[] {ana.getUserId(), bruno.getUserId()}, NameIndex.USERS.complete("index", 10));
+    NameIndex.USERS.clear();
+  }
+}